@@ -0,0 +1,348 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.app;
+
+import io.bitsquare.common.UserThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Starts the startup phases of an application as soon as the phases they depend on are completed, so independent
+ * phases (e.g. Tor bootstrap, wallet chain sync and price feed) run concurrently. Most phases are asynchronous: the
+ * phase gets started and the service completes it from its result handler.
+ * <p>
+ * We record the start and end of each phase. Phases which happened before the orchestrator was set up (e.g. the
+ * creation of the services) can be added with their times. The timeline gets logged when all phases are completed.
+ * <p>
+ * Not thread safe. Run in UserThread. Phases can be completed from any thread.
+ */
+public class StartupOrchestrator {
+    private static final Logger log = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+    // Name of the phase in which Guice creates the services. Includes reading the keys and the persisted stores.
+    public static final String CREATE_SERVICES = "createServices";
+
+    public enum State {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    public final class Phase {
+        public final String name;
+        private final List<String> dependencies;
+        @Nullable
+        private final Consumer<Phase> starter;
+        private State state = State.PENDING;
+        private long startNanos;
+        private long endNanos;
+        @Nullable
+        private String errorMessage;
+
+        private Phase(String name, List<String> dependencies, @Nullable Consumer<Phase> starter) {
+            this.name = name;
+            this.dependencies = dependencies;
+            this.starter = starter;
+        }
+
+        /**
+         * Can be called from any thread. Repeated calls are ignored, so it can be called from a handler which gets
+         * called repeatedly (e.g. for each price update).
+         */
+        public void complete() {
+            long nanos = System.nanoTime();
+            UserThread.execute(() -> onPhaseCompleted(this, nanos));
+        }
+
+        public void fail(String errorMessage) {
+            long nanos = System.nanoTime();
+            UserThread.execute(() -> onPhaseFailed(this, errorMessage, nanos));
+        }
+
+        /**
+         * Records an error of a phase which gets retried by its service (e.g. the price feed). The phase keeps
+         * running and can still be completed. Only the first error is kept for the timeline.
+         */
+        public void reportError(String errorMessage) {
+            UserThread.execute(() -> onPhaseError(this, errorMessage));
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public List<String> getDependencies() {
+            return dependencies;
+        }
+
+        /**
+         * @return Start of the phase in ms since the start of the timeline
+         */
+        public long getStartMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(startNanos - getTimelineStartNanos());
+        }
+
+        /**
+         * @return Duration of the phase in ms, or the time it is running so far
+         */
+        public long getDurationMillis() {
+            if (state == State.PENDING)
+                return 0;
+            long end = state == State.RUNNING ? System.nanoTime() : endNanos;
+            return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+        }
+
+        @Nullable
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        @Override
+        public String toString() {
+            return name +
+                    ": state=" + state +
+                    ", start=" + getStartMillis() + " ms" +
+                    ", duration=" + getDurationMillis() + " ms" +
+                    (dependencies.isEmpty() ? "" : ", after=" + dependencies) +
+                    (errorMessage == null ? "" : ", error=" + errorMessage);
+        }
+    }
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final long createdNanos = System.nanoTime();
+    private final List<Runnable> completedHandlers = new ArrayList<>();
+    private boolean started;
+    private boolean completed;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Inject
+    public StartupOrchestrator() {
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Adds an asynchronous phase. The starter gets called once all dependencies are completed and needs to call
+     * {@link Phase#complete()} or {@link Phase#fail(String)} when done.
+     */
+    public Phase addPhase(String name, Consumer<Phase> starter, String... dependencies) {
+        return add(new Phase(name, Arrays.asList(dependencies), checkNotNull(starter, "starter must not be null")));
+    }
+
+    /**
+     * Adds a synchronous phase which is completed after the task has run.
+     */
+    public Phase addTask(String name, Runnable task, String... dependencies) {
+        return addPhase(name, phase -> {
+            task.run();
+            onPhaseCompleted(phase, System.nanoTime());
+        }, dependencies);
+    }
+
+    /**
+     * Adds a phase which is started by another service (e.g. the Tor bootstrap is started by the P2P network) and
+     * completed by the caller via {@link #getPhase(String)}. It counts as started once its dependencies are completed.
+     */
+    public Phase addExternalPhase(String name, String... dependencies) {
+        return add(new Phase(name, Arrays.asList(dependencies), null));
+    }
+
+    /**
+     * Adds a completed phase which happened before the orchestrator was set up.
+     */
+    public Phase recordPhase(String name, long startNanos, long endNanos) {
+        Phase phase = add(new Phase(name, Collections.emptyList(), null));
+        phase.state = State.COMPLETED;
+        phase.startNanos = startNanos;
+        phase.endNanos = endNanos;
+        return phase;
+    }
+
+    public Phase getPhase(String name) {
+        return checkNotNull(phases.get(name), "No phase with name " + name);
+    }
+
+    public Collection<Phase> getPhases() {
+        return Collections.unmodifiableCollection(phases.values());
+    }
+
+    /**
+     * Starts all phases without dependencies.
+     */
+    public void start() {
+        checkArgument(!started, "start must be called only once");
+        for (Phase phase : phases.values()) {
+            for (String dependency : phase.dependencies)
+                checkArgument(phases.containsKey(dependency), "Phase " + phase.name + " depends on unknown phase " + dependency);
+        }
+        started = true;
+        startReadyPhases();
+        checkAllCompleted();
+    }
+
+    /**
+     * The handler gets called once all phases are completed. It is not called if a phase fails.
+     */
+    public void addCompletedHandler(Runnable handler) {
+        completedHandlers.add(handler);
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return One line per phase ordered by start
+     */
+    public String getTimeline() {
+        StringBuilder sb = new StringBuilder("Startup timeline:");
+        getPhasesByStart().forEach(phase -> sb.append("\n    ").append(phase));
+        return sb.toString();
+    }
+
+    public void logTimeline() {
+        log.info(getTimeline());
+    }
+
+    /**
+     * @return The timeline as CSV (name, state, start ms, duration ms, dependencies) for exporting
+     */
+    public String getTimelineAsCsv() {
+        StringBuilder sb = new StringBuilder("phase,state,startMs,durationMs,dependencies\n");
+        getPhasesByStart().forEach(phase -> sb.append(phase.name).append(',')
+                .append(phase.state).append(',')
+                .append(phase.getStartMillis()).append(',')
+                .append(phase.getDurationMillis()).append(',')
+                .append(String.join(" ", phase.dependencies)).append('\n'));
+        return sb.toString();
+    }
+
+    /**
+     * Writes the timeline as CSV to the file. Failures are only logged as the timeline is not critical.
+     */
+    public void exportTimeline(File file) {
+        try {
+            Files.write(file.toPath(), getTimelineAsCsv().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Could not write startup timeline to {}: {}", file, e.getMessage());
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private Phase add(Phase phase) {
+        checkArgument(!phases.containsKey(phase.name), "Phase " + phase.name + " was already added");
+        phases.put(phase.name, phase);
+        return phase;
+    }
+
+    private void onPhaseCompleted(Phase phase, long nanos) {
+        if (phase.state != State.RUNNING)
+            return;
+
+        phase.state = State.COMPLETED;
+        phase.endNanos = nanos;
+        log.info("Startup phase {} completed after {} ms", phase.name, phase.getDurationMillis());
+        if (started) {
+            startReadyPhases();
+            checkAllCompleted();
+        }
+    }
+
+    private void onPhaseFailed(Phase phase, String errorMessage, long nanos) {
+        if (phase.state != State.RUNNING)
+            return;
+
+        phase.state = State.FAILED;
+        phase.endNanos = nanos;
+        phase.errorMessage = errorMessage;
+        log.warn("Startup phase {} failed after {} ms: {}", phase.name, phase.getDurationMillis(), errorMessage);
+        logTimeline();
+    }
+
+    private void onPhaseError(Phase phase, String errorMessage) {
+        if (phase.state != State.RUNNING || phase.errorMessage != null)
+            return;
+
+        phase.errorMessage = errorMessage;
+        log.warn("Startup phase {} got an error after {} ms: {}", phase.name, phase.getDurationMillis(), errorMessage);
+    }
+
+    private void startReadyPhases() {
+        // A starter might complete its phase synchronously, which starts the next phases already
+        for (Phase phase : new ArrayList<>(phases.values())) {
+            if (phase.state == State.PENDING && areDependenciesCompleted(phase)) {
+                phase.state = State.RUNNING;
+                phase.startNanos = System.nanoTime();
+                log.info("Start startup phase {}", phase.name);
+                if (phase.starter != null)
+                    phase.starter.accept(phase);
+            }
+        }
+    }
+
+    private boolean areDependenciesCompleted(Phase phase) {
+        return phase.dependencies.stream().allMatch(dependency -> phases.get(dependency).state == State.COMPLETED);
+    }
+
+    private void checkAllCompleted() {
+        if (!completed && phases.values().stream().allMatch(phase -> phase.state == State.COMPLETED)) {
+            completed = true;
+            logTimeline();
+            completedHandlers.forEach(Runnable::run);
+        }
+    }
+
+    private List<Phase> getPhasesByStart() {
+        List<Phase> list = new ArrayList<>(phases.values());
+        list.sort(Comparator.comparing((Phase phase) -> phase.state == State.PENDING).thenComparing(phase -> phase.startNanos));
+        return list;
+    }
+
+    private long getTimelineStartNanos() {
+        // Recorded phases might have started before we got created
+        return phases.values().stream()
+                .filter(phase -> phase.state != State.PENDING)
+                .mapToLong(phase -> phase.startNanos)
+                .reduce(createdNanos, Math::min);
+    }
+}
@@ -0,0 +1,242 @@
+package io.bitsquare.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single threaded event loop used as UserThread executor in headless apps.
+ * <p>
+ * Tasks from other threads go into a bounded queue. If the queue is full the caller blocks until the loop has caught
+ * up, so a flood of network messages slows down the reading threads instead of filling up the heap. The loop moves
+ * the queued tasks in batches to its local task list. Tasks submitted from the loop thread itself never block (that
+ * would dead lock) but are added directly to the local task list. Tasks from the same thread run in the order they
+ * have been submitted.
+ * <p>
+ * We track the queue depth, the time a task waited in the queue and the time it ran. Tasks running longer than the
+ * slow task threshold get logged with their origin, which is the class of the runnable. For lambdas that class name
+ * contains the class where the lambda was defined.
+ */
+public class EventLoopExecutor implements Executor {
+    private static final Logger log = LoggerFactory.getLogger(EventLoopExecutor.class);
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final long DEFAULT_SLOW_TASK_THRESHOLD_MS = 500;
+    // We don't want to flood the log if the loop is permanently overloaded
+    private static final long QUEUE_FULL_LOG_INTERVAL_MS = 10_000;
+
+    private final String name;
+    private final int capacity;
+    private final long slowTaskThresholdNanos;
+    private final BlockingQueue<Task> queue;
+    // Only accessed by the loop thread
+    private final Queue<Task> tasks = new ArrayDeque<>();
+    // Written only by the loop thread
+    private volatile int numLocalTasks;
+    private final Thread thread;
+
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final AtomicLong numQueueFull = new AtomicLong();
+    private volatile long lastQueueFullLogTs;
+    // Written only by the loop thread
+    private volatile long numTasks;
+    private volatile long numSlowTasks;
+    private volatile long totalWaitNanos;
+    private volatile long maxWaitNanos;
+    private volatile long totalRunNanos;
+    private volatile long maxRunNanos;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public EventLoopExecutor(String name) {
+        this(name, DEFAULT_CAPACITY, DEFAULT_SLOW_TASK_THRESHOLD_MS);
+    }
+
+    public EventLoopExecutor(String name, int capacity, long slowTaskThresholdMs) {
+        this.name = name;
+        this.capacity = capacity;
+        this.slowTaskThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowTaskThresholdMs);
+        queue = new LinkedBlockingQueue<>(capacity);
+        thread = new Thread(this::loop, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void execute(Runnable runnable) {
+        Task task = new Task(runnable);
+        if (isInEventLoop()) {
+            tasks.add(task);
+            numLocalTasks = tasks.size();
+        } else if (!queue.offer(task)) {
+            onQueueFull();
+            try {
+                queue.put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for space in the " + name + " queue");
+            }
+        }
+
+        maxQueueDepth.accumulateAndGet(getQueueDepth(), Math::max);
+    }
+
+    public boolean isInEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    public int getQueueDepth() {
+        return queue.size() + numLocalTasks;
+    }
+
+    public Stats getStats() {
+        return new Stats(name, getQueueDepth(), maxQueueDepth.get(), numQueueFull.get(), numTasks, numSlowTasks,
+                numTasks > 0 ? totalWaitNanos / numTasks : 0, maxWaitNanos,
+                numTasks > 0 ? totalRunNanos / numTasks : 0, maxRunNanos);
+    }
+
+    public void logStats() {
+        log.info(getStats().toString());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void loop() {
+        while (true) {
+            // We move queued tasks on every pass, otherwise tasks submitted by the loop thread itself could starve
+            // the other threads. We move at least one, but otherwise only as many as fit into the capacity, so the
+            // other threads still have to wait if the loop cannot keep up.
+            queue.drainTo(tasks, Math.max(1, capacity - tasks.size()));
+            if (tasks.isEmpty()) {
+                try {
+                    tasks.add(queue.take());
+                } catch (InterruptedException e) {
+                    log.warn("{} got interrupted", name);
+                    continue;
+                }
+            }
+            Task task = tasks.poll();
+            numLocalTasks = tasks.size();
+            run(task);
+        }
+    }
+
+    private void run(Task task) {
+        long startTs = System.nanoTime();
+        Throwable throwable = null;
+        try {
+            task.runnable.run();
+        } catch (Throwable t) {
+            throwable = t;
+        }
+        long endTs = System.nanoTime();
+
+        long waitNanos = startTs - task.submitTs;
+        long runNanos = endTs - startTs;
+        numTasks++;
+        totalWaitNanos += waitNanos;
+        totalRunNanos += runNanos;
+        if (waitNanos > maxWaitNanos)
+            maxWaitNanos = waitNanos;
+        if (runNanos > maxRunNanos)
+            maxRunNanos = runNanos;
+        if (runNanos > slowTaskThresholdNanos) {
+            numSlowTasks++;
+            log.warn("Slow task in {}: {} took {} ms (waited {} ms, queue depth {})",
+                    name, task.getOrigin(), TimeUnit.NANOSECONDS.toMillis(runNanos),
+                    TimeUnit.NANOSECONDS.toMillis(waitNanos), getQueueDepth());
+        }
+
+        if (throwable != null) {
+            // Same handling as with a thread pool executor, but the loop thread keeps running
+            log.error("Task from " + task.getOrigin() + " failed", throwable);
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, throwable);
+        }
+    }
+
+    private void onQueueFull() {
+        numQueueFull.incrementAndGet();
+        long now = System.currentTimeMillis();
+        if (now - lastQueueFullLogTs > QUEUE_FULL_LOG_INTERVAL_MS) {
+            lastQueueFullLogTs = now;
+            log.warn("{} queue is full. Thread {} has to wait. {}", name, Thread.currentThread().getName(), getStats());
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static final class Task {
+        private final Runnable runnable;
+        private final long submitTs = System.nanoTime();
+
+        private Task(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        private String getOrigin() {
+            return runnable.getClass().getName();
+        }
+    }
+
+    public static final class Stats {
+        public final String name;
+        public final int queueDepth;
+        public final long maxQueueDepth;
+        public final long numQueueFull;
+        public final long numTasks;
+        public final long numSlowTasks;
+        public final long avgWaitNanos;
+        public final long maxWaitNanos;
+        public final long avgRunNanos;
+        public final long maxRunNanos;
+
+        private Stats(String name, int queueDepth, long maxQueueDepth, long numQueueFull, long numTasks,
+                      long numSlowTasks, long avgWaitNanos, long maxWaitNanos, long avgRunNanos, long maxRunNanos) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.numQueueFull = numQueueFull;
+            this.numTasks = numTasks;
+            this.numSlowTasks = numSlowTasks;
+            this.avgWaitNanos = avgWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.avgRunNanos = avgRunNanos;
+            this.maxRunNanos = maxRunNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "EventLoop " + name +
+                    ": queueDepth=" + queueDepth +
+                    ", maxQueueDepth=" + maxQueueDepth +
+                    ", numQueueFull=" + numQueueFull +
+                    ", numTasks=" + numTasks +
+                    ", numSlowTasks=" + numSlowTasks +
+                    ", avgWait=" + TimeUnit.NANOSECONDS.toMicros(avgWaitNanos) + " us" +
+                    ", maxWait=" + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms" +
+                    ", avgRun=" + TimeUnit.NANOSECONDS.toMicros(avgRunNanos) + " us" +
+                    ", maxRun=" + TimeUnit.NANOSECONDS.toMillis(maxRunNanos) + " ms";
+        }
+    }
+}
@@ -8,7 +8,8 @@ import java.util.UUID;
 
 /**
  * We simulate a global frame rate timer similar to FXTimer to avoid creation of threads for each timer call.
- * Used only in headless apps like the seed node.
+ * Used in headless apps which do not set another timer class. With many pending timers the TimingWheelTimer is
+ * cheaper, as each frame iterates over all timers here.
  */
 public class FrameRateTimer implements Timer, Runnable {
     private final Logger log = LoggerFactory.getLogger(FrameRateTimer.class);
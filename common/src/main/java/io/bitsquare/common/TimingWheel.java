@@ -0,0 +1,278 @@
+package io.bitsquare.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Hierarchical timing wheel holding the timeouts of the {@link TimingWheelTimer}.
+ * <p>
+ * The lowest wheel has one slot per tick, each slot of a higher wheel covers a whole revolution of the wheel below.
+ * A timeout is put into the lowest wheel covering its deadline and moves down when the tick reaches its slot in the
+ * higher wheel. So scheduling and cancelling is O(1) and a tick only touches the timeouts which are due or move down
+ * a wheel.
+ * <p>
+ * The wheels are only accessed by the tick thread, scheduled and cancelled timeouts are handed over in queues. The
+ * timeouts which got due in a tick are executed together in one task in the UserThread.
+ */
+final class TimingWheel {
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    // Same resolution as the MasterTimer
+    static final long TICK_MS = MasterTimer.FRAME_INTERVAL_MS;
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // With 4 wheels of 256 slots and 100 ms ticks we cover 13 years
+    private static final int NUM_WHEELS = 4;
+
+    private static TimingWheel instance;
+
+    static synchronized TimingWheel getInstance() {
+        if (instance == null) {
+            instance = new TimingWheel(TICK_MS, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()),
+                    UserThread::execute);
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "TimingWheel");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleAtFixedRate(instance::advance, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        }
+        return instance;
+    }
+
+    private final long tickMs;
+    private final LongSupplier clock;
+    private final Executor executor;
+    private final long startMs;
+    private final Slot[][] wheels = new Slot[NUM_WHEELS][WHEEL_SIZE];
+    private final Queue<Timeout> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    // Only accessed by the tick thread
+    private long currentTick;
+    private int numTimeouts;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param clock    Monotonic clock in ms
+     * @param executor Executes the due timeouts
+     */
+    TimingWheel(long tickMs, LongSupplier clock, Executor executor) {
+        this.tickMs = tickMs;
+        this.clock = clock;
+        this.executor = executor;
+        startMs = clock.getAsLong();
+        for (Slot[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new Slot();
+            }
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    Timeout schedule(long delayMs, Runnable runnable, boolean periodic) {
+        Timeout timeout = new Timeout(runnable, delayMs, periodic);
+        schedule(timeout);
+        return timeout;
+    }
+
+    /**
+     * Moves the wheels forward to the current time. Called by the tick thread.
+     */
+    void advance() {
+        try {
+            long targetTick = (clock.getAsLong() - startMs) / tickMs;
+            List<Timeout> dueTimeouts = new ArrayList<>();
+            removeCancelledTimeouts();
+            addScheduledTimeouts(dueTimeouts);
+            while (currentTick < targetTick) {
+                currentTick++;
+                // Higher wheels first, so a timeout moving down more than one wheel in this tick gets moved again
+                for (int level = NUM_WHEELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0)
+                        cascade(wheels[level][getIndex(currentTick, level)], dueTimeouts);
+                }
+                wheels[0][getIndex(currentTick, 0)].moveAllTo(dueTimeouts);
+            }
+
+            if (!dueTimeouts.isEmpty()) {
+                numTimeouts -= dueTimeouts.size();
+                executor.execute(() -> dueTimeouts.forEach(Timeout::run));
+            }
+        } catch (Throwable t) {
+            // We must not throw as that would stop the scheduled executor
+            log.error("Advancing the timing wheel failed", t);
+        }
+    }
+
+    /**
+     * @return The number of timeouts in the wheels. Does not contain timeouts scheduled since the last tick.
+     */
+    int getNumTimeouts() {
+        return numTimeouts;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void schedule(Timeout timeout) {
+        long deadlineMs = clock.getAsLong() - startMs + timeout.delayMs;
+        // Round up so we never run before the delay has passed
+        timeout.deadlineTick = (deadlineMs + tickMs - 1) / tickMs;
+        scheduledTimeouts.add(timeout);
+    }
+
+    private void removeCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.slot != null) {
+                timeout.slot.remove(timeout);
+                numTimeouts--;
+            }
+        }
+    }
+
+    private void addScheduledTimeouts(List<Timeout> dueTimeouts) {
+        Timeout timeout;
+        while ((timeout = scheduledTimeouts.poll()) != null) {
+            if (!timeout.cancelled) {
+                numTimeouts++;
+                insert(timeout, dueTimeouts);
+            }
+        }
+    }
+
+    private void insert(Timeout timeout, List<Timeout> dueTimeouts) {
+        long ticksLeft = timeout.deadlineTick - currentTick;
+        if (ticksLeft <= 0) {
+            dueTimeouts.add(timeout);
+            return;
+        }
+
+        int level = 0;
+        while (level < NUM_WHEELS - 1 && ticksLeft >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        wheels[level][getIndex(timeout.deadlineTick, level)].add(timeout);
+    }
+
+    private void cascade(Slot slot, List<Timeout> dueTimeouts) {
+        List<Timeout> timeouts = new ArrayList<>();
+        slot.moveAllTo(timeouts);
+        for (Timeout timeout : timeouts) {
+            if (timeout.cancelled)
+                numTimeouts--;
+            else
+                insert(timeout, dueTimeouts);
+        }
+    }
+
+    private static int getIndex(long tick, int level) {
+        return (int) ((tick >> (WHEEL_BITS * level)) & WHEEL_MASK);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    final class Timeout {
+        private final Runnable runnable;
+        private final long delayMs;
+        private final boolean periodic;
+        private volatile boolean cancelled;
+        // Set before the timeout gets handed over to the tick thread
+        private long deadlineTick;
+        // Only accessed by the tick thread
+        private Slot slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable runnable, long delayMs, boolean periodic) {
+            this.runnable = runnable;
+            this.delayMs = delayMs;
+            this.periodic = periodic;
+        }
+
+        void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                cancelledTimeouts.add(this);
+            }
+        }
+
+        private void run() {
+            if (cancelled)
+                return;
+
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                log.error("Timer task failed", t);
+                cancel();
+                return;
+            }
+
+            // Like the FrameRateTimer we start the next interval when the task has run
+            if (periodic && !cancelled)
+                schedule(this);
+            else
+                cancelled = true;
+        }
+    }
+
+    // Doubly linked list, so a cancelled timeout can be removed in O(1)
+    private static final class Slot {
+        private Timeout head;
+
+        private void add(Timeout timeout) {
+            timeout.slot = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null)
+                head.prev = timeout;
+            head = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null)
+                timeout.prev.next = timeout.next;
+            else
+                head = timeout.next;
+            if (timeout.next != null)
+                timeout.next.prev = timeout.prev;
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        private void moveAllTo(List<Timeout> timeouts) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.slot = null;
+                timeout.prev = null;
+                timeout.next = null;
+                timeouts.add(timeout);
+                timeout = next;
+            }
+            head = null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.bitsquare.common;
+
+import java.time.Duration;
+
+/**
+ * Timer backed by a shared hierarchical timing wheel. Scheduling and stopping is O(1) and the cost of a tick only
+ * depends on the number of due timers, not on all pending timers as with the {@link FrameRateTimer}. Used in headless
+ * apps with many pending timers like the seed node.
+ */
+public class TimingWheelTimer implements Timer {
+    private TimingWheel.Timeout timeout;
+
+    public TimingWheelTimer() {
+    }
+
+    @Override
+    public Timer runLater(Duration delay, Runnable runnable) {
+        timeout = TimingWheel.getInstance().schedule(delay.toMillis(), runnable, false);
+        return this;
+    }
+
+    @Override
+    public Timer runPeriodically(Duration interval, Runnable runnable) {
+        timeout = TimingWheel.getInstance().schedule(interval.toMillis(), runnable, true);
+        return this;
+    }
+
+    @Override
+    public void stop() {
+        if (timeout != null)
+            timeout.cancel();
+    }
+}
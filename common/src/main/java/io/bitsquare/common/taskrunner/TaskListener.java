@@ -0,0 +1,29 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.common.taskrunner;
+
+/**
+ * Get notified about the task execution of a TaskRunner. Called on the thread which runs or completes the task.
+ */
+public interface TaskListener {
+    void onTaskStarted(Task task);
+
+    void onTaskCompleted(Task task, long durationInMillis);
+
+    void onTaskFailed(Task task, long durationInMillis, String errorMessage);
+}
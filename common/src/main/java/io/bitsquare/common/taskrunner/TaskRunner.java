@@ -17,27 +17,39 @@
 
 package io.bitsquare.common.taskrunner;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.bitsquare.common.handlers.ErrorMessageHandler;
 import io.bitsquare.common.handlers.ResultHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Constructor;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 
 public class TaskRunner<T extends Model> {
     private static final Logger log = LoggerFactory.getLogger(TaskRunner.class);
 
-    private final Queue<Class<? extends Task>> tasks = new LinkedBlockingQueue<>();
+    // Constructor lookup is expensive compared to the instantiation, so we cache it for all TaskRunners
+    @VisibleForTesting
+    static final Map<Class<? extends Task>, Constructor<? extends Task>> constructorCache = new ConcurrentHashMap<>();
+
+    private final Queue<Class<? extends Task<T>>> tasks = new LinkedBlockingQueue<>();
     private final T sharedModel;
     private final Class<T> sharedModelClass;
     private final ResultHandler resultHandler;
     private final ErrorMessageHandler errorMessageHandler;
+    private final List<TaskListener> taskListeners = new CopyOnWriteArrayList<>();
     private boolean failed = false;
     private boolean isCanceled;
 
-    private Class<? extends Task> currentTask;
+    private Task currentTask;
+    private long currentTaskStartTs;
 
 
     public TaskRunner(T sharedModel, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
@@ -55,6 +67,14 @@ public class TaskRunner<T extends Model> {
         tasks.addAll(Arrays.asList(items));
     }
 
+    public void addTaskListener(TaskListener taskListener) {
+        taskListeners.add(taskListener);
+    }
+
+    public void removeTaskListener(TaskListener taskListener) {
+        taskListeners.remove(taskListener);
+    }
+
     public void run() {
         next();
     }
@@ -63,9 +83,12 @@ public class TaskRunner<T extends Model> {
         if (!failed && !isCanceled) {
             if (tasks.size() > 0) {
                 try {
-                    currentTask = tasks.poll();
-                    log.trace("Run task: " + currentTask.getSimpleName());
-                    currentTask.getDeclaredConstructor(TaskRunner.class, sharedModelClass).newInstance(this, sharedModel).run();
+                    currentTask = null;
+                    currentTask = createTask(tasks.poll());
+                    log.trace("Run task: " + currentTask.getClass().getSimpleName());
+                    currentTaskStartTs = System.currentTimeMillis();
+                    taskListeners.stream().forEach(e -> e.onTaskStarted(currentTask));
+                    currentTask.run();
                 } catch (Throwable throwable) {
                     throwable.printStackTrace();
                     handleErrorMessage("Error at taskRunner: " + throwable.getMessage());
@@ -81,14 +104,46 @@ public class TaskRunner<T extends Model> {
     }
 
     void handleComplete() {
-        log.trace("Task completed: " + currentTask.getSimpleName());
+        long duration = System.currentTimeMillis() - currentTaskStartTs;
+        log.trace("Task completed: " + getCurrentTaskName() + " in " + duration + " ms");
+        Task completedTask = currentTask;
+        taskListeners.stream().forEach(e -> e.onTaskCompleted(completedTask, duration));
+        // Tasks change the model without a state change and many complete asynchronously, so we persist after
+        // each task. Persisting a trade only queues up a delayed save, so repeated calls are cheap.
         sharedModel.persist();
         next();
     }
 
     void handleErrorMessage(String errorMessage) {
-        log.error("Task failed: " + currentTask.getSimpleName() + " / errorMessage: " + errorMessage);
+        log.error("Task failed: " + getCurrentTaskName() + " / errorMessage: " + errorMessage);
         failed = true;
+        if (currentTask != null) {
+            long duration = System.currentTimeMillis() - currentTaskStartTs;
+            Task failedTask = currentTask;
+            taskListeners.stream().forEach(e -> e.onTaskFailed(failedTask, duration, errorMessage));
+        }
         errorMessageHandler.handleErrorMessage(errorMessage);
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private Task<T> createTask(Class<? extends Task<T>> taskClass) {
+        try {
+            Constructor<? extends Task> constructor = constructorCache.get(taskClass);
+            if (constructor == null) {
+                constructor = taskClass.getDeclaredConstructor(TaskRunner.class, sharedModelClass);
+                constructorCache.put(taskClass, constructor);
+            }
+            return (Task<T>) constructor.newInstance(this, sharedModel);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not create task " + taskClass.getSimpleName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String getCurrentTaskName() {
+        return currentTask != null ? currentTask.getClass().getSimpleName() : "";
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongycastle.util.encoders.Hex;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * Content addressed store for binary data like dispute attachments.
+ * <p>
+ * Each blob is stored once in a file named by the SHA-256 hash of its content, so the same data referenced from
+ * several places is only written once and never rewritten. Data is streamed into a temp file while we compute the
+ * hash and the temp file gets renamed afterwards.
+ * <p>
+ * Layout: [storageDir]/blobs/[name]/[hash]
+ */
+public class BlobStore {
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    public static final String BLOBS_DIR = "blobs";
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final File dir;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public BlobStore(File storageDir, String name) {
+        dir = new File(new File(storageDir, BLOBS_DIR), name);
+        if (!dir.exists() && !dir.mkdirs())
+            log.warn("make dir failed. dir=" + dir.getAbsolutePath());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return The hash of the data, which is the key to read it again
+     */
+    public String put(byte[] data) throws IOException {
+        return put(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Writes the data of the stream to the store. The stream is not closed.
+     *
+     * @return The hash of the data, which is the key to read it again
+     */
+    public String put(InputStream inputStream) throws IOException {
+        File tempFile = File.createTempFile("temp", null, dir);
+        try {
+            MessageDigest digest = getDigest();
+            try (OutputStream outputStream = new DigestOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)), digest)) {
+                ByteStreams.copy(inputStream, outputStream);
+            }
+            String hash = Hex.toHexString(digest.digest());
+            File file = getFile(hash);
+            // Same hash means same content, so an existing file can stay as it is
+            if (!file.exists())
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return hash;
+        } finally {
+            if (tempFile.exists() && !tempFile.delete())
+                log.warn("Cannot delete temp file " + tempFile);
+        }
+    }
+
+    public boolean contains(String hash) {
+        return getFile(hash).exists();
+    }
+
+    public byte[] get(String hash) throws IOException {
+        try (InputStream inputStream = openStream(hash)) {
+            return ByteStreams.toByteArray(inputStream);
+        }
+    }
+
+    public InputStream openStream(String hash) throws IOException {
+        return new BufferedInputStream(new FileInputStream(getFile(hash)));
+    }
+
+    public static String getHash(byte[] data) {
+        return Hex.toHexString(getDigest().digest(data));
+    }
+
+    public static boolean isValidHash(String hash) {
+        return HASH_PATTERN.matcher(hash).matches();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private File getFile(String hash) {
+        // The hash is used as file name, so we don't accept anything else
+        if (!isValidHash(hash))
+            throw new IllegalArgumentException("Invalid hash " + hash);
+        return new File(dir, hash);
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BlobStore{" +
+                "dir=" + dir +
+                '}';
+    }
+}
@@ -18,18 +18,19 @@
 package io.bitsquare.storage;
 
 import io.bitsquare.common.UserThread;
-import io.bitsquare.common.util.Utilities;
 import io.bitsquare.io.LookAheadObjectInputStream;
 import org.bitcoinj.core.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.*;
 import java.nio.file.Paths;
-import java.util.Random;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FileManager<T> {
@@ -37,11 +38,12 @@ public class FileManager<T> {
 
     private final File dir;
     private final File storageFile;
-    private final ScheduledThreadPoolExecutor executor;
     private final AtomicBoolean savePending;
     private final long delay;
-    private final Callable<Void> saveFileTask;
     private T serializable;
+    // Hash of the content of the storage file we have read or written last. Used to skip writing unchanged content.
+    @Nullable
+    private byte[] storageFileDigest;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -52,25 +54,8 @@ public class FileManager<T> {
         this.dir = dir;
         this.storageFile = storageFile;
 
-        executor = Utilities.getScheduledThreadPoolExecutor("FileManager", 1, 10, 5);
-
-        // File must only be accessed from the auto-save executor from now on, to avoid simultaneous access.
         savePending = new AtomicBoolean();
         this.delay = delay;
-
-        saveFileTask = () -> {
-            Thread.currentThread().setName("Save-file-task-" + new Random().nextInt(10000));
-            // Runs in an auto save thread.
-            if (!savePending.getAndSet(false)) {
-                // Some other scheduled request already beat us to it.
-                return null;
-            }
-            saveNowInternal(serializable);
-            return null;
-        };
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            UserThread.execute(FileManager.this::shutDown);
-        }, "FileManager.ShutDownHook"));
     }
 
 
@@ -82,6 +67,8 @@ public class FileManager<T> {
      * Actually write the wallet file to disk, using an atomic rename when possible. Runs on the current thread.
      */
     public void saveNow(T serializable) {
+        // A pending save holds older content, which must not overwrite the file later
+        savePending.set(false);
         saveNowInternal(serializable);
     }
 
@@ -98,23 +85,40 @@ public class FileManager<T> {
         if (savePending.getAndSet(true))
             return;   // Already pending.
 
-        executor.schedule(saveFileTask, delayInMilli, TimeUnit.MILLISECONDS);
+        // The PersistenceScheduler writes the file on one of its threads or at shutdown
+        PersistenceScheduler.getInstance().schedule(this, delayInMilli);
     }
 
-    public synchronized T read(File file) throws IOException, ClassNotFoundException {
-        log.debug("read" + file);
-        try (final FileInputStream fileInputStream = new FileInputStream(file);
-             final ObjectInputStream objectInputStream = new LookAheadObjectInputStream(fileInputStream, false)) {
-            return (T) objectInputStream.readObject();
-        } catch (Throwable t) {
-            log.error("Exception at read: " + t.getMessage());
-            throw t;
-        }
+    public T read(File file) throws IOException, ClassNotFoundException {
+        return applyReadResult(file, readFile(file));
     }
 
     public synchronized void removeFile(String fileName) {
+        removeFile(fileName, false);
+    }
+
+    /**
+     * Deletes the file like {@link #removeFile(String)}, but a pending save is written first and the latest content
+     * is kept as the only rolling backup.
+     */
+    public synchronized void removeFileAndKeepBackup(String fileName) {
+        removeFile(fileName, true);
+    }
+
+    private void removeFile(String fileName, boolean keepBackup) {
         log.debug("removeFile" + fileName);
         File file = new File(dir, fileName);
+        // A pending save would write the removed file again
+        if (file.equals(storageFile)) {
+            if (savePending.getAndSet(false) && keepBackup)
+                saveNowInternal(serializable);
+            storageFileDigest = null;
+        }
+
+        if (keepBackup)
+            FileUtil.rollingBackup(dir, fileName, 1);
+
+        StorageLoader.getInstance().invalidate(file);
         boolean result = file.delete();
         if (!result)
             log.warn("Could not delete file: " + file.toString());
@@ -127,22 +131,65 @@ public class FileManager<T> {
                 if (!result)
                     log.warn("Could not delete backupFile: " + file.toString());
             }
+
+            File rollingBackupDir = FileUtil.getRollingBackupDir(dir, fileName);
+            if (!keepBackup && rollingBackupDir.exists()) {
+                try {
+                    FileUtil.deleteDirectory(rollingBackupDir);
+                } catch (IOException e) {
+                    log.warn("Could not delete rolling backups: " + e.getMessage());
+                }
+            }
         }
     }
 
+    // Called by the PersistenceScheduler
+    void saveIfPending() {
+        // Some other scheduled request might already have beaten us to it.
+        if (savePending.getAndSet(false))
+            saveNowInternal(serializable);
+    }
 
     /**
-     * Shut down auto-saving.
+     * Result of reading a file. Used by the StorageLoader to read files before their FileManager exists.
      */
-    void shutDown() {
-        executor.shutdown();
-        try {
-            executor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    static final class ReadResult {
+        final Object persisted;
+        final byte[] digest;
+        final long length;
+
+        private ReadResult(Object persisted, byte[] digest, long length) {
+            this.persisted = persisted;
+            this.digest = digest;
+            this.length = length;
         }
     }
 
+    // Does not access any state of a FileManager, so it can run on any thread
+    static ReadResult readFile(File file) throws IOException, ClassNotFoundException {
+        log.debug("read" + file);
+        MessageDigest digest = getDigest();
+        try (final DigestInputStream digestInputStream = new DigestInputStream(new FileInputStream(file), digest);
+             final ObjectInputStream objectInputStream = new LookAheadObjectInputStream(digestInputStream, false)) {
+            Object persisted = objectInputStream.readObject();
+            // The digest must cover the whole file
+            byte[] buffer = new byte[8192];
+            while (digestInputStream.read(buffer) != -1) {
+            }
+            return new ReadResult(persisted, digest.digest(), file.length());
+        } catch (Throwable t) {
+            log.error("Exception at read: " + t.getMessage());
+            throw t;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized T applyReadResult(File file, ReadResult readResult) {
+        if (file.equals(storageFile))
+            storageFileDigest = readResult.digest;
+        return (T) readResult.persisted;
+    }
+
     public synchronized void removeAndBackupFile(String fileName) throws IOException {
         File corruptedBackupDir = new File(Paths.get(dir.getAbsolutePath(), "backup_of_corrupted_data").toString());
         if (!corruptedBackupDir.exists())
@@ -150,7 +197,9 @@ public class FileManager<T> {
                 log.warn("make dir failed");
 
         File corruptedFile = new File(Paths.get(dir.getAbsolutePath(), "backup_of_corrupted_data", fileName).toString());
+        StorageLoader.getInstance().invalidate(storageFile);
         renameTempFileToFile(storageFile, corruptedFile);
+        storageFileDigest = null;
     }
 
     public synchronized void backupFile(String fileName, int numMaxBackupFiles) throws IOException {
@@ -163,12 +212,20 @@ public class FileManager<T> {
 
     private void saveNowInternal(T serializable) {
         long now = System.currentTimeMillis();
-        saveToFile(serializable, dir, storageFile);
+        long startNanos = System.nanoTime();
+        // A preloaded version of the file is outdated from now on
+        StorageLoader.getInstance().invalidate(storageFile);
+        long bytesWritten = saveToFile(serializable, dir, storageFile);
+        PersistenceScheduler.getInstance().onSaveCompleted(storageFile, bytesWritten, System.nanoTime() - startNanos);
         UserThread.execute(() -> log.trace("Save {} completed in {}msec", storageFile, System.currentTimeMillis() - now));
     }
 
+    /**
+     * @return The number of bytes written. 0 if the content has not changed or the write failed.
+     */
     // TODO Sometimes we get a ConcurrentModificationException here
-    private synchronized void saveToFile(T serializable, File dir, File storageFile) {
+    private synchronized long saveToFile(T serializable, File dir, File storageFile) {
+        long bytesWritten = 0;
         File tempFile = null;
         FileOutputStream fileOutputStream = null;
         ObjectOutputStream objectOutputStream = null;
@@ -184,14 +241,32 @@ public class FileManager<T> {
                 // When we dump json files we don't want to safe it as java serialized string objects, so we use PrintWriter instead.
                 printWriter = new PrintWriter(tempFile);
                 printWriter.println(((PlainTextWrapper) serializable).plainText);
+                printWriter.close();
+                long length = tempFile.length();
+                renameTempFileToFile(tempFile, storageFile);
+                bytesWritten = length;
             } else {
                 // Don't use auto closeable resources in try() as we would need too many try/catch clauses (for tempFile)
                 // and we need to close it
                 // manually before replacing file with temp file
                 fileOutputStream = new FileOutputStream(tempFile);
-                objectOutputStream = new ObjectOutputStream(fileOutputStream);
+                MessageDigest digest = getDigest();
+                objectOutputStream = new StorageObjectOutputStream(new DigestOutputStream(fileOutputStream, digest));
 
                 objectOutputStream.writeObject(serializable);
+                objectOutputStream.flush();
+                byte[] contentDigest = digest.digest();
+                if (Arrays.equals(contentDigest, storageFileDigest) && storageFile.exists()) {
+                    // Same content as in the storage file. Many saves are triggered without an actual change
+                    // (e.g. setters called with the current value), so we spare the sync and the rename.
+                    objectOutputStream.close();
+                    fileOutputStream.close();
+                    if (!tempFile.delete())
+                        log.warn("Cannot delete temp file " + tempFile);
+                    log.trace("Content of {} has not changed. We skip the write.", storageFile);
+                    return 0;
+                }
+
                 // Attempt to force the bits to hit the disk. In reality the OS or hard disk itself may still decide
                 // to not write through to physical media for at least a few seconds, but this is the best we can do.
                 fileOutputStream.flush();
@@ -201,8 +276,11 @@ public class FileManager<T> {
                 // when rename temp file
                 fileOutputStream.close();
                 objectOutputStream.close();
+                long length = tempFile.length();
+                renameTempFileToFile(tempFile, storageFile);
+                bytesWritten = length;
+                storageFileDigest = contentDigest;
             }
-            renameTempFileToFile(tempFile, storageFile);
         } catch (Throwable t) {
             log.error("storageFile " + storageFile.toString());
             t.printStackTrace();
@@ -227,6 +305,15 @@ public class FileManager<T> {
                 log.error("Cannot close resources." + e.getMessage());
             }
         }
+        return bytesWritten;
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private synchronized void renameTempFileToFile(File tempFile, File file) throws IOException {
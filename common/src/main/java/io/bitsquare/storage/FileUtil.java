@@ -22,10 +22,7 @@ public class FileUtil {
 
             File origFile = new File(Paths.get(dir.getAbsolutePath(), fileName).toString());
             if (origFile.exists()) {
-                String dirName = "backups_" + fileName;
-                if (dirName.contains("."))
-                    dirName = dirName.replace(".", "_");
-                File backupFileDir = new File(Paths.get(backupDir.getAbsolutePath(), dirName).toString());
+                File backupFileDir = getRollingBackupDir(dir, fileName);
                 if (!backupFileDir.exists())
                     if (!backupFileDir.mkdir())
                         log.warn("make backupFileDir failed.\nBackupFileDir=" + backupFileDir.getAbsolutePath());
@@ -44,6 +41,16 @@ public class FileUtil {
         }
     }
 
+    /**
+     * @return The directory holding the rolling backups of the file
+     */
+    public static File getRollingBackupDir(File dir, String fileName) {
+        String dirName = "backups_" + fileName;
+        if (dirName.contains("."))
+            dirName = dirName.replace(".", "_");
+        return new File(Paths.get(dir.getAbsolutePath(), "backup", dirName).toString());
+    }
+
     private static void pruneBackup(File backupDir, int numMaxBackupFiles) {
         if (backupDir.isDirectory()) {
             File[] files = backupDir.listFiles();
@@ -0,0 +1,206 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import io.bitsquare.common.util.Utilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the delayed saves of all FileManagers on one small pool of I/O threads.
+ * <p>
+ * Each FileManager coalesces its own saves (only one save per file is pending, writing the latest object) and
+ * passes its delay, so files which need to be written soon (e.g. the bitcoin nodes setting) get written before others
+ * which are due later. The scheduler keeps track of the pending saves, so at shutdown we write them all at once
+ * instead of waiting for their delay, and collects the number of writes, bytes and write duration per file.
+ * <p>
+ * Files of a RecordStorage are counted together under the name of their record storage.
+ */
+public final class PersistenceScheduler {
+    private static final Logger log = LoggerFactory.getLogger(PersistenceScheduler.class);
+
+    private static final int NUM_THREADS = 2;
+    private static final int NUM_FILES_IN_LOG = 10;
+
+    private static final PersistenceScheduler INSTANCE = new PersistenceScheduler();
+
+    public static PersistenceScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Write statistics of one storage file or of all records of a RecordStorage.
+     */
+    public static final class FileStats {
+        public final String name;
+        private long numSaves;
+        private long numWrites;
+        private long numBytes;
+        private long totalNanos;
+        private long maxNanos;
+
+        private FileStats(String name) {
+            this.name = name;
+        }
+
+        public synchronized long getNumSaves() {
+            return numSaves;
+        }
+
+        // Saves of unchanged content are skipped by the FileManager and not counted as writes
+        public synchronized long getNumWrites() {
+            return numWrites;
+        }
+
+        public synchronized long getNumBytes() {
+            return numBytes;
+        }
+
+        public synchronized long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos);
+        }
+
+        public synchronized long getAverageMillis() {
+            return numSaves > 0 ? TimeUnit.NANOSECONDS.toMillis(totalNanos / numSaves) : 0;
+        }
+
+        private synchronized void add(long bytesWritten, long durationNanos) {
+            numSaves++;
+            if (bytesWritten > 0) {
+                numWrites++;
+                numBytes += bytesWritten;
+            }
+            totalNanos += durationNanos;
+            maxNanos = Math.max(maxNanos, durationNanos);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return name +
+                    ": saves=" + numSaves +
+                    ", writes=" + numWrites +
+                    ", bytes=" + numBytes +
+                    ", avg=" + getAverageMillis() + " ms" +
+                    ", max=" + getMaxMillis() + " ms";
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Set<FileManager<?>> pendingSaves = ConcurrentHashMap.newKeySet();
+    private final Map<String, FileStats> statsByName = new ConcurrentHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private PersistenceScheduler() {
+        executor = Utilities.getScheduledThreadPoolExecutor("PersistenceScheduler", NUM_THREADS, NUM_THREADS, 10);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutDown, "PersistenceScheduler.ShutDownHook"));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Writes all pending saves on the calling thread.
+     */
+    public void flush() {
+        List<FileManager<?>> fileManagers = new ArrayList<>(pendingSaves);
+        if (!fileManagers.isEmpty()) {
+            log.info("Write {} pending saves", fileManagers.size());
+            fileManagers.forEach(this::save);
+        }
+    }
+
+    public List<FileStats> getStats() {
+        return statsByName.values().stream()
+                .sorted(Comparator.comparing(FileStats::getNumBytes).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public void logStats() {
+        List<FileStats> stats = getStats();
+        long numWrites = stats.stream().mapToLong(FileStats::getNumWrites).sum();
+        long numBytes = stats.stream().mapToLong(FileStats::getNumBytes).sum();
+        StringBuilder sb = new StringBuilder("Persistence: files=").append(stats.size())
+                .append(", pending saves=").append(pendingSaves.size())
+                .append(", writes=").append(numWrites)
+                .append(", bytes=").append(numBytes);
+        stats.stream().limit(NUM_FILES_IN_LOG).forEach(e -> sb.append("\n    ").append(e));
+        log.info(sb.toString());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void schedule(FileManager<?> fileManager, long delayInMilli) {
+        pendingSaves.add(fileManager);
+        executor.schedule(() -> save(fileManager), delayInMilli, TimeUnit.MILLISECONDS);
+    }
+
+    void onSaveCompleted(File storageFile, long bytesWritten, long durationNanos) {
+        statsByName.computeIfAbsent(getStatsName(storageFile), FileStats::new).add(bytesWritten, durationNanos);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void save(FileManager<?> fileManager) {
+        // The FileManager checks itself if the save is still pending, as it might have been written by a flush
+        if (pendingSaves.remove(fileManager))
+            fileManager.saveIfPending();
+    }
+
+    private void shutDown() {
+        flush();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logStats();
+    }
+
+    // Also used by the StorageLoader
+    static String getStatsName(File storageFile) {
+        File dir = storageFile.getParentFile();
+        if (dir != null && dir.getParentFile() != null && RecordStorage.RECORDS_DIR.equals(dir.getParentFile().getName()))
+            return RecordStorage.RECORDS_DIR + "/" + dir.getName();
+        else
+            return storageFile.getName();
+    }
+}
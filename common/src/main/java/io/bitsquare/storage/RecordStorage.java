@@ -0,0 +1,237 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Stores a collection of objects as one file per record plus a small index file holding the ordered record keys.
+ * <p>
+ * Each record has its own {@link Storage}, so repeated saves of the same record are coalesced and a change of one
+ * record does not rewrite the others. The index is only written if records are added or removed.
+ * <p>
+ * Layout: [storageDir]/records/[name]/_index and [storageDir]/records/[name]/[hash of key] for each record. The keys
+ * are usually ids received from peers, so we don't use them as file names. The index holds the real keys.
+ * <p>
+ * It is used as well to store an object in sections (e.g. the Preferences), where each section is a record which can
+ * be read on demand with {@link #read(String)} and is saved with {@link #add(String, Serializable)} when it changed.
+ */
+public class RecordStorage<T extends Serializable> {
+    private static final Logger log = LoggerFactory.getLogger(RecordStorage.class);
+
+    public static final String RECORDS_DIR = "records";
+    static final String INDEX_FILE_NAME = "_index";
+
+    private final File dir;
+    private final String name;
+    private final Storage<ArrayList<String>> indexStorage;
+    private final ArrayList<String> keys = new ArrayList<>();
+    private final Map<String, Storage<T>> storageByKey = new HashMap<>();
+    private final boolean hasPersistedIndex;
+    private int numMaxBackupFiles = 2;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public RecordStorage(File storageDir, String name) {
+        this.name = name;
+        dir = new File(new File(storageDir, RECORDS_DIR), name);
+        if (!dir.exists() && !dir.mkdirs())
+            log.warn("make dir failed. dir=" + dir.getAbsolutePath());
+
+        indexStorage = new Storage<>(dir);
+        ArrayList<String> persistedKeys = indexStorage.initAndGetPersistedWithFileName(INDEX_FILE_NAME);
+        hasPersistedIndex = persistedKeys != null;
+        if (persistedKeys != null)
+            keys.addAll(persistedKeys);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return False if no index file was found. In that case the caller might need to migrate data from an older
+     * storage format.
+     */
+    public boolean hasPersistedIndex() {
+        return hasPersistedIndex;
+    }
+
+    /**
+     * Reads all records listed in the index in index order. Records which are missing or cannot be read are
+     * removed from the index. Needs to be called before the records can be saved or removed.
+     */
+    public List<T> readAll() {
+        List<T> result = new ArrayList<>();
+        List<String> invalidKeys = new ArrayList<>();
+        // Read the records in parallel, we only wait for the next one in index order
+        StorageLoader.getInstance().preload(keys.stream()
+                .map(key -> new File(dir, getFileName(key)))
+                .collect(Collectors.toList()));
+        for (String key : keys) {
+            Storage<T> storage = new Storage<>(dir);
+            storage.setNumMaxBackupFiles(numMaxBackupFiles);
+            T record = storage.initAndGetPersistedWithFileName(getFileName(key));
+            if (record != null) {
+                storageByKey.put(key, storage);
+                result.add(record);
+            } else {
+                invalidKeys.add(key);
+            }
+        }
+
+        if (!invalidKeys.isEmpty()) {
+            log.warn("Records listed in the index of {} could not be read and get removed from the index. keys={}",
+                    name, invalidKeys);
+            keys.removeAll(invalidKeys);
+            saveIndex();
+        }
+        return result;
+    }
+
+    /**
+     * Reads a single record without reading the others, for records which are loaded on demand. Does not change the
+     * state of this storage, so it can be called from any thread.
+     */
+    @Nullable
+    public T read(String key) {
+        Storage<T> storage = new Storage<>(dir);
+        storage.setNumMaxBackupFiles(numMaxBackupFiles);
+        return storage.initAndGetPersistedWithFileName(getFileName(key));
+    }
+
+    public boolean contains(String key) {
+        return storageByKey.containsKey(key);
+    }
+
+    /**
+     * Adds the record or queues up a save if it was added or read before.
+     */
+    public void add(String key, T record) {
+        addKey(key).queueUpForSave(record);
+    }
+
+    /**
+     * Like {@link #add(String, Serializable)}, but with the given save delay for records which should be written soon.
+     */
+    public void add(String key, T record, long delayInMilli) {
+        addKey(key).queueUpForSave(record, delayInMilli);
+    }
+
+    /**
+     * Queues up a delayed save of the given record. Calls for keys which are not part of the index are ignored, so
+     * an object which was removed from the collection does not get written again.
+     */
+    public void queueUpForSave(String key, T record) {
+        Storage<T> storage = storageByKey.get(key);
+        if (storage != null)
+            storage.queueUpForSave(record);
+        else
+            log.trace("queueUpForSave called for a key which is not in the index. key=" + key);
+    }
+
+    /**
+     * Removes the record from the index and deletes its file. The index is written on the calling thread before the
+     * file gets deleted, so after a crash the index never references a missing record. As the record is usually added
+     * to another collection with a delayed save, one backup of the removed record is kept.
+     */
+    public void remove(String key) {
+        // The record might not have been read if it is only loaded on demand
+        if (keys.remove(key)) {
+            Storage<T> storage = getStorage(key);
+            storageByKey.remove(key);
+            indexStorage.saveNow(new ArrayList<>(keys));
+            storage.removeAndKeepBackup(getFileName(key));
+        }
+    }
+
+    /**
+     * Writes the given records and the index on the calling thread. Used for the one-time migration of data
+     * persisted in the old single-file format, where the records must be on disk before the index references them.
+     */
+    public void saveAllNow(LinkedHashMap<String, T> records) {
+        records.entrySet().stream()
+                .filter(e -> !contains(e.getKey()))
+                .forEach(e -> {
+                    if (!keys.contains(e.getKey()))
+                        keys.add(e.getKey());
+                    getStorage(e.getKey()).saveNow(e.getValue());
+                });
+        indexStorage.saveNow(new ArrayList<>(keys));
+    }
+
+    public void setNumMaxBackupFiles(int numMaxBackupFiles) {
+        this.numMaxBackupFiles = numMaxBackupFiles;
+    }
+
+    /**
+     * @return The name of the file holding the record with the given key
+     */
+    public static String getFileName(String key) {
+        return BlobStore.getHash(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private Storage<T> addKey(String key) {
+        if (!keys.contains(key)) {
+            keys.add(key);
+            saveIndex();
+        }
+        return getStorage(key);
+    }
+
+    private Storage<T> getStorage(String key) {
+        Storage<T> storage = storageByKey.get(key);
+        if (storage == null) {
+            storage = new Storage<>(dir);
+            storage.setNumMaxBackupFiles(numMaxBackupFiles);
+            storage.initWithFileName(getFileName(key));
+            storageByKey.put(key, storage);
+        }
+        return storage;
+    }
+
+    // We pass a copy as the list might get changed while it is written on the background thread
+    private void saveIndex() {
+        indexStorage.queueUpForSave(new ArrayList<>(keys));
+    }
+
+    @Override
+    public String toString() {
+        return "RecordStorage{" +
+                "dir=" + dir +
+                ", keys=" + keys.size() +
+                '}';
+    }
+}
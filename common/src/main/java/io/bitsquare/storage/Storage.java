@@ -41,8 +41,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <p>
  * We also backup at first read the file, so we have a valid file form the latest version in case a write operation corrupted the file.
  * <p>
- * The read operation is triggered just at object creation (startup) and is at the moment not executed on a background thread to avoid asynchronous behaviour.
- * As the data are small and it is just one read access the performance penalty is small and might be even worse to create and setup a thread for it.
+ * The read operation is triggered just at object creation (startup) and returns the data synchronously to avoid asynchronous behaviour.
+ * The files are preloaded in parallel by the {@link StorageLoader} at startup, so the read usually only waits for a file which has been read
+ * in the background already. The backup after the read is copied in the background as well.
  * <p>
  * The write operation used a background thread and supports a delayed write to avoid too many repeated write operations.
  */
@@ -120,7 +121,7 @@ public class Storage<T extends Serializable> {
     }
 
     // Save delayed and on a background thread
-    private void queueUpForSave(T serializable) {
+    public void queueUpForSave(T serializable) {
         if (serializable != null) {
             log.trace("save " + fileName);
             checkNotNull(storageFile, "storageFile = null. Call setupFileStorage before using read/write.");
@@ -142,29 +143,38 @@ public class Storage<T extends Serializable> {
         }
     }
 
+    // Save on the calling thread
+    public void saveNow(T serializable) {
+        checkNotNull(storageFile, "storageFile = null. Call setupFileStorage before using read/write.");
+        fileManager.saveNow(serializable);
+    }
+
     public void remove(String fileName) {
         fileManager.removeFile(fileName);
     }
 
+    // Deletes the file but keeps its latest content as the only rolling backup
+    public void removeAndKeepBackup(String fileName) {
+        fileManager.removeFileAndKeepBackup(fileName);
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    // We do the file read on the UI thread to avoid problems from multi threading. 
-    // Data are small and read is done only at startup, so it is no performance issue.
+    // We return the data on the calling thread to avoid problems from multi threading. The file is usually preloaded
+    // by the StorageLoader, so we only wait for it if it has not been read yet.
     @Nullable
     private T getPersisted() {
         if (storageFile.exists()) {
             long now = System.currentTimeMillis();
             try {
-                T persistedObject = fileManager.read(storageFile);
+                T persistedObject = StorageLoader.getInstance().read(fileManager, storageFile);
                 log.trace("Read {} completed in {}msec", storageFile, System.currentTimeMillis() - now);
 
                 // If we did not get any exception we can be sure the data are consistent so we make a backup 
-                now = System.currentTimeMillis();
-                fileManager.backupFile(fileName, numMaxBackupFiles);
-                log.trace("Backup {} completed in {}msec", storageFile, System.currentTimeMillis() - now);
+                StorageLoader.getInstance().backupLater(fileManager, fileName, numMaxBackupFiles);
 
                 return persistedObject;
             } catch (Throwable t) {
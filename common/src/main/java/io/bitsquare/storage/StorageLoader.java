@@ -0,0 +1,276 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the persisted files in parallel on a small pool of I/O threads.
+ * <p>
+ * At startup we preload all storage files before the services get created. The services still read their file in
+ * their constructor as before, but the read only waits for the file it needs, which has usually been read in the
+ * background already. Backups of the files which have been read successfully are copied in the background as well.
+ * <p>
+ * A preloaded file gets invalidated by any write or remove of that file, so we never hand out outdated data. Preloaded
+ * files which have not been requested until the startup is completed get discarded.
+ * <p>
+ * Files of a RecordStorage are counted together under the name of their record storage in the startup report.
+ */
+public final class StorageLoader {
+    private static final Logger log = LoggerFactory.getLogger(StorageLoader.class);
+
+    private static final int NUM_STORES_IN_LOG = 10;
+
+    private static final StorageLoader INSTANCE = new StorageLoader();
+
+    public static StorageLoader getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load statistics of one storage file or of all records of a RecordStorage.
+     */
+    public static final class LoadStats {
+        public final String name;
+        private long numFiles;
+        private long numBytes;
+        private long readNanos;
+        private long waitNanos;
+
+        private LoadStats(String name) {
+            this.name = name;
+        }
+
+        public synchronized long getNumFiles() {
+            return numFiles;
+        }
+
+        public synchronized long getNumBytes() {
+            return numBytes;
+        }
+
+        // Time spent for reading and deserializing, mostly on the loader threads
+        public synchronized long getReadMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(readNanos);
+        }
+
+        // Time the caller was blocked until its file was read
+        public synchronized long getWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        }
+
+        private synchronized void addRead(long bytes, long durationNanos) {
+            numFiles++;
+            numBytes += bytes;
+            readNanos += durationNanos;
+        }
+
+        private synchronized void addWait(long durationNanos) {
+            waitNanos += durationNanos;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return name +
+                    ": files=" + numFiles +
+                    ", bytes=" + numBytes +
+                    ", read=" + getReadMillis() + " ms" +
+                    ", wait=" + getWaitMillis() + " ms";
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Map<File, Future<FileManager.ReadResult>> preloadedFiles = new ConcurrentHashMap<>();
+    private final Map<String, LoadStats> statsByName = new ConcurrentHashMap<>();
+    private long startNanos = System.nanoTime();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private StorageLoader() {
+        int numThreads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("StorageLoader-%d")
+                .setDaemon(true)
+                .build();
+        // Unbounded queue as we submit all files at once
+        executor = new ThreadPoolExecutor(numThreads, numThreads, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Starts reading all storage files in the storage directory and the index files of the record storages.
+     * The records of a record storage are preloaded when the record storage reads all its records, as some record
+     * storages only read single records on demand.
+     * Call it before the services which read the files get created.
+     */
+    public void preload(File storageDir) {
+        startNanos = System.nanoTime();
+        List<File> files = new ArrayList<>();
+        File recordsDir = new File(storageDir, RecordStorage.RECORDS_DIR);
+        File[] storageFiles = storageDir.listFiles();
+        if (storageFiles != null) {
+            for (File file : storageFiles) {
+                // We skip the data of an older format which has been migrated to a record storage
+                if (isStorageFile(file) && !new File(new File(recordsDir, file.getName()), RecordStorage.INDEX_FILE_NAME).exists())
+                    files.add(file);
+            }
+        }
+        File[] recordStorageDirs = recordsDir.listFiles(File::isDirectory);
+        if (recordStorageDirs != null) {
+            for (File dir : recordStorageDirs) {
+                files.add(new File(dir, RecordStorage.INDEX_FILE_NAME));
+            }
+        }
+        preload(files);
+        log.info("Preload {} storage files from {}", preloadedFiles.size(), storageDir);
+    }
+
+    /**
+     * Starts reading the given files in the background. Files which do not exist are ignored.
+     */
+    public void preload(Collection<File> files) {
+        for (File file : files) {
+            if (file.isFile())
+                preloadedFiles.computeIfAbsent(file, f -> executor.submit(() -> readFile(f)));
+        }
+    }
+
+    /**
+     * Discards the preloaded files which have not been requested and logs the startup report. Call it once all
+     * services have read their files.
+     */
+    public void onStartupCompleted() {
+        List<File> unusedFiles = new ArrayList<>(preloadedFiles.keySet());
+        unusedFiles.forEach(file -> {
+            Future<FileManager.ReadResult> future = preloadedFiles.remove(file);
+            if (future != null)
+                future.cancel(false);
+        });
+        if (!unusedFiles.isEmpty())
+            log.info("Discarded {} preloaded files which have not been requested", unusedFiles.size());
+        logStats();
+    }
+
+    public List<LoadStats> getStats() {
+        return statsByName.values().stream()
+                .sorted(Comparator.comparing(LoadStats::getReadMillis).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public void logStats() {
+        List<LoadStats> stats = getStats();
+        long numFiles = stats.stream().mapToLong(LoadStats::getNumFiles).sum();
+        long numBytes = stats.stream().mapToLong(LoadStats::getNumBytes).sum();
+        long readMillis = stats.stream().mapToLong(LoadStats::getReadMillis).sum();
+        long waitMillis = stats.stream().mapToLong(LoadStats::getWaitMillis).sum();
+        StringBuilder sb = new StringBuilder("Storage startup: stores=").append(stats.size())
+                .append(", files=").append(numFiles)
+                .append(", bytes=").append(numBytes)
+                .append(", read=").append(readMillis).append(" ms")
+                .append(", wait=").append(waitMillis).append(" ms")
+                .append(", elapsed=").append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)).append(" ms");
+        stats.stream().limit(NUM_STORES_IN_LOG).forEach(e -> sb.append("\n    ").append(e));
+        log.info(sb.toString());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Returns the preloaded content of the file or reads it on the calling thread if it has not been preloaded.
+     * A preloaded file is handed out only once.
+     */
+    <T> T read(FileManager<T> fileManager, File file) throws IOException, ClassNotFoundException {
+        Future<FileManager.ReadResult> future = preloadedFiles.remove(file);
+        FileManager.ReadResult readResult;
+        long startNanos = System.nanoTime();
+        if (future != null) {
+            try {
+                readResult = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted at reading " + file, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                Throwables.propagateIfPossible(cause, IOException.class, ClassNotFoundException.class);
+                throw new IOException(cause);
+            }
+        } else {
+            readResult = readFile(file);
+        }
+        getStats(file).addWait(System.nanoTime() - startNanos);
+        return fileManager.applyReadResult(file, readResult);
+    }
+
+    void invalidate(File file) {
+        Future<FileManager.ReadResult> future = preloadedFiles.remove(file);
+        if (future != null)
+            future.cancel(false);
+    }
+
+    void backupLater(FileManager<?> fileManager, String fileName, int numMaxBackupFiles) {
+        executor.execute(() -> {
+            try {
+                fileManager.backupFile(fileName, numMaxBackupFiles);
+            } catch (Throwable t) {
+                log.error("Backup of {} failed: {}", fileName, t.getMessage());
+            }
+        });
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private FileManager.ReadResult readFile(File file) throws IOException, ClassNotFoundException {
+        long startNanos = System.nanoTime();
+        FileManager.ReadResult readResult = FileManager.readFile(file);
+        getStats(file).addRead(readResult.length, System.nanoTime() - startNanos);
+        return readResult;
+    }
+
+    private LoadStats getStats(File file) {
+        return statsByName.computeIfAbsent(PersistenceScheduler.getStatsName(file), LoadStats::new);
+    }
+
+    private static boolean isStorageFile(File file) {
+        // Storage files are named by their class and have no extension. That skips our temp files and json dumps.
+        return file.isFile() && !file.getName().contains(".");
+    }
+}
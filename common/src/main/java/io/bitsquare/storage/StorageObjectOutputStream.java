@@ -0,0 +1,34 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Used by the FileManager for writing our local storage files.
+ * <p>
+ * Objects which are sent over the wire as well can check for it in their writeObject method to persist a smaller
+ * local form, like a reference to data which is stored in a {@link BlobStore}.
+ */
+public class StorageObjectOutputStream extends ObjectOutputStream {
+    public StorageObjectOutputStream(OutputStream out) throws IOException {
+        super(out);
+    }
+}
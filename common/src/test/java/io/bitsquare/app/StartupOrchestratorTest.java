@@ -0,0 +1,92 @@
+package io.bitsquare.app;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StartupOrchestratorTest {
+
+    @Test
+    public void testPhasesStartWhenDependenciesAreCompleted() {
+        StartupOrchestrator startup = new StartupOrchestrator();
+        List<String> started = new ArrayList<>();
+        List<StartupOrchestrator.Phase> running = new ArrayList<>();
+        startup.recordPhase(StartupOrchestrator.CREATE_SERVICES, System.nanoTime() - 1000, System.nanoTime());
+        startup.addExternalPhase("tor");
+        startup.addPhase("p2pNetwork", phase -> {
+            started.add(phase.name);
+            running.add(phase);
+        });
+        startup.addPhase("wallet", phase -> {
+            started.add(phase.name);
+            running.add(phase);
+        }, "tor");
+        startup.addTask("initServices", () -> started.add("initServices"), "p2pNetwork", "wallet");
+        boolean[] completed = new boolean[1];
+        startup.addCompletedHandler(() -> completed[0] = true);
+
+        startup.start();
+        assertEquals(Arrays.asList("p2pNetwork"), started);
+
+        startup.getPhase("tor").complete();
+        assertEquals(Arrays.asList("p2pNetwork", "wallet"), started);
+
+        running.get(1).complete();
+        assertEquals(StartupOrchestrator.State.RUNNING, startup.getPhase("p2pNetwork").getState());
+        assertFalse(completed[0]);
+
+        running.get(0).complete();
+        // Repeated calls are ignored
+        running.get(0).complete();
+        assertEquals(Arrays.asList("p2pNetwork", "wallet", "initServices"), started);
+        assertTrue(completed[0]);
+        assertTrue(startup.isCompleted());
+        assertTrue(startup.getTimelineAsCsv().contains("initServices,COMPLETED,"));
+    }
+
+    @Test
+    public void testFailedPhaseBlocksDependentPhases() {
+        StartupOrchestrator startup = new StartupOrchestrator();
+        List<String> started = new ArrayList<>();
+        startup.addPhase("tor", phase -> phase.fail("no connection"));
+        startup.addTask("priceFeed", () -> started.add("priceFeed"), "tor");
+        startup.start();
+
+        assertTrue(started.isEmpty());
+        assertEquals(StartupOrchestrator.State.FAILED, startup.getPhase("tor").getState());
+        assertEquals("no connection", startup.getPhase("tor").getErrorMessage());
+        assertEquals(StartupOrchestrator.State.PENDING, startup.getPhase("priceFeed").getState());
+        assertFalse(startup.isCompleted());
+    }
+
+    @Test
+    public void testReportedErrorDoesNotEndPhase() {
+        StartupOrchestrator startup = new StartupOrchestrator();
+        List<StartupOrchestrator.Phase> running = new ArrayList<>();
+        startup.addPhase("priceFeed", running::add);
+        startup.start();
+
+        running.get(0).reportError("timeout");
+        running.get(0).reportError("no route");
+        assertEquals(StartupOrchestrator.State.RUNNING, startup.getPhase("priceFeed").getState());
+        assertEquals("timeout", startup.getPhase("priceFeed").getErrorMessage());
+
+        // A later successful request completes the phase and the timeline
+        running.get(0).complete();
+        assertEquals(StartupOrchestrator.State.COMPLETED, startup.getPhase("priceFeed").getState());
+        assertTrue(startup.isCompleted());
+        assertTrue(startup.getTimeline().contains("error=timeout"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependency() {
+        StartupOrchestrator startup = new StartupOrchestrator();
+        startup.addTask("initServices", () -> {
+        }, "wallet");
+        startup.start();
+    }
+}
@@ -0,0 +1,115 @@
+package io.bitsquare.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventLoopExecutorTest {
+
+    @Test
+    public void testAllTasksRunInLoopThread() throws InterruptedException {
+        EventLoopExecutor executor = new EventLoopExecutor("testLoop");
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        int numTasks = 1000;
+        CountDownLatch latch = new CountDownLatch(numTasks);
+        for (int i = 0; i < 4; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < numTasks / 4; j++) {
+                    executor.execute(() -> {
+                        threads.add(Thread.currentThread());
+                        latch.countDown();
+                    });
+                }
+            }).start();
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, threads.size());
+        assertEquals("testLoop", threads.iterator().next().getName());
+    }
+
+    @Test
+    public void testFullQueueDoesNotBlockLoopThread() throws InterruptedException {
+        EventLoopExecutor executor = new EventLoopExecutor("testLoop", 10, 1000);
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(() -> {
+            // More tasks than the capacity, submitted from the loop thread itself
+            for (int i = 0; i < 100; i++) {
+                int index = i;
+                executor.execute(() -> order.add(index));
+            }
+            executor.execute(latch::countDown);
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(100, order.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void testTasksFromLoopThreadDoNotStarveOtherThreads() throws InterruptedException {
+        EventLoopExecutor executor = new EventLoopExecutor("testLoop", 1, 1000);
+        AtomicBoolean running = new AtomicBoolean(true);
+        // Keeps the local task list of the loop thread busy until the other tasks have run
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (running.get())
+                    executor.execute(this);
+            }
+        });
+
+        int numTasks = 100;
+        CountDownLatch latch = new CountDownLatch(numTasks);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < numTasks; i++) {
+                executor.execute(latch::countDown);
+            }
+        });
+        producer.start();
+
+        boolean completed = latch.await(5, TimeUnit.SECONDS);
+        running.set(false);
+        assertTrue(completed);
+    }
+
+    @Test
+    public void testStats() throws InterruptedException {
+        EventLoopExecutor executor = new EventLoopExecutor("testLoop", 10, 20);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                gate.await();
+                Thread.sleep(50);
+            } catch (InterruptedException ignore) {
+            }
+        });
+        executor.execute(() -> {
+            throw new RuntimeException("Expected in test");
+        });
+        // The loop keeps running after a failed task
+        executor.execute(latch::countDown);
+        gate.countDown();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        EventLoopExecutor.Stats stats = executor.getStats();
+        assertTrue(stats.numTasks >= 2);
+        assertEquals(1, stats.numSlowTasks);
+        assertTrue(stats.maxRunNanos >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(stats.maxWaitNanos >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(stats.maxQueueDepth >= 1);
+    }
+}
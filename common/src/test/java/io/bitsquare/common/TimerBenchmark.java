@@ -0,0 +1,77 @@
+package io.bitsquare.common;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the FrameRateTimer with the TimingWheelTimer with many pending timers, as we have them in the seed node
+ * from the random broadcast delays, timeouts and TTL refreshes.
+ * <p>
+ * Reports the cost of scheduling and stopping a timer and the CPU time used by the timer threads and the UserThread
+ * per second while the timers are pending.
+ */
+public class TimerBenchmark {
+    private static final int[] NUM_TIMERS = {1_000, 10_000, 50_000};
+    private static final long MEASURE_SEC = 5;
+
+    public static void main(String[] args) throws Exception {
+        UserThread.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UserThread");
+            thread.setDaemon(true);
+            return thread;
+        }));
+
+        for (int numTimers : NUM_TIMERS) {
+            run(FrameRateTimer.class, numTimers);
+            run(TimingWheelTimer.class, numTimers);
+        }
+        System.exit(0);
+    }
+
+    private static void run(Class<? extends Timer> timerClass, int numTimers) throws InterruptedException {
+        UserThread.setTimerClass(timerClass);
+        Random random = new Random(1);
+        List<Timer> timers = new ArrayList<>(numTimers);
+
+        long ts = System.nanoTime();
+        for (int i = 0; i < numTimers; i++) {
+            // Delays between 10 and 60 sec, so none of them gets due while we measure
+            timers.add(UserThread.runAfter(() -> {
+            }, 10_000 + random.nextInt(50_000), TimeUnit.MILLISECONDS));
+        }
+        double scheduleNs = (double) (System.nanoTime() - ts) / numTimers;
+
+        long cpuTs = getTimerThreadsCpuTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(MEASURE_SEC));
+        double cpuMsPerSec = (getTimerThreadsCpuTime() - cpuTs) / 1e6 / MEASURE_SEC;
+
+        ts = System.nanoTime();
+        timers.forEach(Timer::stop);
+        double stopNs = (double) (System.nanoTime() - ts) / numTimers;
+
+        System.out.println(String.format("%-17s timers=%6d  schedule %8.0f ns  stop %8.0f ns  tick CPU %7.2f ms/s",
+                timerClass.getSimpleName(), numTimers, scheduleNs, stopNs, cpuMsPerSec));
+        // Let the stopped timers get removed before the next run
+        Thread.sleep(500);
+    }
+
+    private static long getTimerThreadsCpuTime() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds())) {
+            if (threadInfo == null)
+                continue;
+            String name = threadInfo.getThreadName();
+            // The MasterTimer uses a java.util.Timer named Timer-0
+            if (name.equals("UserThread") || name.equals("TimingWheel") || name.startsWith("Timer-"))
+                total += Math.max(0, threadMXBean.getThreadCpuTime(threadInfo.getThreadId()));
+        }
+        return total;
+    }
+}
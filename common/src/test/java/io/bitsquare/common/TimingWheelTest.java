@@ -0,0 +1,109 @@
+package io.bitsquare.common;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+    private long now;
+    private TimingWheel timingWheel;
+
+    @Before
+    public void setUp() {
+        now = 1_000_000;
+        // We run the due timeouts directly in the tick
+        timingWheel = new TimingWheel(100, () -> now, Runnable::run);
+    }
+
+    @Test
+    public void testRunLater() {
+        AtomicInteger counter = new AtomicInteger();
+        timingWheel.schedule(250, counter::incrementAndGet, false);
+
+        advanceTo(200);
+        assertEquals(0, counter.get());
+        advanceTo(300);
+        assertEquals(1, counter.get());
+        advanceTo(1000);
+        assertEquals(1, counter.get());
+        assertEquals(0, timingWheel.getNumTimeouts());
+    }
+
+    @Test
+    public void testCancel() {
+        AtomicInteger counter = new AtomicInteger();
+        TimingWheel.Timeout timeout = timingWheel.schedule(250, counter::incrementAndGet, false);
+        advanceTo(100);
+        assertEquals(1, timingWheel.getNumTimeouts());
+
+        timeout.cancel();
+        advanceTo(1000);
+        assertEquals(0, counter.get());
+        assertEquals(0, timingWheel.getNumTimeouts());
+    }
+
+    @Test
+    public void testRunPeriodically() {
+        AtomicInteger counter = new AtomicInteger();
+        TimingWheel.Timeout timeout = timingWheel.schedule(1000, counter::incrementAndGet, true);
+        for (int i = 1; i <= 50; i++) {
+            advanceTo(i * 100);
+        }
+        assertEquals(5, counter.get());
+
+        timeout.cancel();
+        advanceTo(10_000);
+        assertEquals(5, counter.get());
+    }
+
+    @Test
+    public void testLongDelaysMoveDownTheWheels() {
+        // Delays covered by the first, second, third and fourth wheel
+        long[] delays = {
+                TimeUnit.SECONDS.toMillis(10),
+                TimeUnit.MINUTES.toMillis(30),
+                TimeUnit.DAYS.toMillis(3),
+                TimeUnit.DAYS.toMillis(30)
+        };
+        List<Long> runTimes = new ArrayList<>();
+        long startTime = now;
+        for (long delay : delays) {
+            timingWheel.schedule(delay, () -> runTimes.add(now - startTime), false);
+        }
+
+        long end = TimeUnit.DAYS.toMillis(31);
+        for (long time = 0; time <= end; time += TimeUnit.SECONDS.toMillis(1)) {
+            advanceTo(time);
+        }
+
+        assertEquals(delays.length, runTimes.size());
+        for (int i = 0; i < delays.length; i++) {
+            // We advance in steps of 1 sec.
+            assertTrue(runTimes.get(i) >= delays[i]);
+            assertTrue(runTimes.get(i) < delays[i] + 1000);
+        }
+    }
+
+    @Test
+    public void testOnlyDueTimeoutsRun() {
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 1; i <= 10_000; i++) {
+            timingWheel.schedule(i * 10, counter::incrementAndGet, false);
+        }
+        advanceTo(50_000);
+        assertEquals(5_000, counter.get());
+        assertEquals(5_000, timingWheel.getNumTimeouts());
+    }
+
+    private void advanceTo(long time) {
+        now = 1_000_000 + time;
+        timingWheel.advance();
+    }
+}
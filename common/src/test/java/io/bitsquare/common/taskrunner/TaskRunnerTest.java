@@ -0,0 +1,135 @@
+package io.bitsquare.common.taskrunner;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TaskRunnerTest {
+    private TestModel model;
+    private List<String> events;
+    private boolean completed;
+    private String errorMessage;
+
+    @Before
+    public void setup() {
+        model = new TestModel();
+        events = new ArrayList<>();
+        completed = false;
+        errorMessage = null;
+    }
+
+    @Test
+    public void testConstructorCache() {
+        TaskRunner.constructorCache.remove(TaskA.class);
+        TaskRunner<TestModel> taskRunner = createTaskRunner();
+        taskRunner.addTasks(TaskA.class);
+        taskRunner.run();
+        assertTrue(TaskRunner.constructorCache.containsKey(TaskA.class));
+
+        // Another runner uses the cached constructor
+        TaskRunner<TestModel> otherTaskRunner = createTaskRunner();
+        otherTaskRunner.addTasks(TaskA.class, TaskA.class);
+        otherTaskRunner.run();
+        assertEquals(Arrays.asList("TaskA", "TaskA", "TaskA"), model.executed);
+    }
+
+    @Test
+    public void testPersistAfterEachTask() {
+        TaskRunner<TestModel> taskRunner = createTaskRunner();
+        taskRunner.addTasks(TaskA.class, TaskB.class, TaskA.class);
+        taskRunner.run();
+        assertEquals(3, model.numPersisted);
+        assertTrue(completed);
+    }
+
+    @Test
+    public void testFailedTaskStopsRunner() {
+        TaskRunner<TestModel> taskRunner = createTaskRunner();
+        taskRunner.addTasks(TaskA.class, FailingTask.class, TaskB.class);
+        taskRunner.run();
+        assertEquals(1, model.numPersisted);
+        assertEquals(Arrays.asList("TaskA", "FailingTask"), model.executed);
+        assertFalse(completed);
+        assertTrue(errorMessage.contains("failure"));
+    }
+
+    @Test
+    public void testTaskListener() {
+        TaskRunner<TestModel> taskRunner = createTaskRunner();
+        taskRunner.addTaskListener(new TaskListener() {
+            @Override
+            public void onTaskStarted(Task task) {
+                events.add("started " + task.getClass().getSimpleName());
+            }
+
+            @Override
+            public void onTaskCompleted(Task task, long durationInMillis) {
+                assertTrue(durationInMillis >= 0);
+                events.add("completed " + task.getClass().getSimpleName());
+            }
+
+            @Override
+            public void onTaskFailed(Task task, long durationInMillis, String errorMessage) {
+                assertTrue(durationInMillis >= 0);
+                events.add("failed " + task.getClass().getSimpleName());
+            }
+        });
+        taskRunner.addTasks(TaskA.class, FailingTask.class, TaskB.class);
+        taskRunner.run();
+        assertEquals(Arrays.asList("started TaskA", "completed TaskA", "started FailingTask", "failed FailingTask"),
+                events);
+    }
+
+    private TaskRunner<TestModel> createTaskRunner() {
+        return new TaskRunner<>(model, () -> completed = true, errorMessage -> this.errorMessage = errorMessage);
+    }
+
+    static class TestModel implements Model {
+        final List<String> executed = new ArrayList<>();
+        int numPersisted;
+
+        @Override
+        public void persist() {
+            numPersisted++;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    static class TaskA extends Task<TestModel> {
+        TaskA(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.executed.add(getClass().getSimpleName());
+            complete();
+        }
+    }
+
+    static class TaskB extends TaskA {
+        TaskB(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+    }
+
+    static class FailingTask extends Task<TestModel> {
+        FailingTask(TaskRunner taskHandler, TestModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.executed.add(getClass().getSimpleName());
+            failed("failure");
+        }
+    }
+}
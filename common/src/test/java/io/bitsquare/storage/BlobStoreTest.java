@@ -0,0 +1,53 @@
+package io.bitsquare.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BlobStoreTest {
+    private File storageDir;
+    private BlobStore blobStore;
+
+    @Before
+    public void setup() throws IOException {
+        storageDir = Files.createTempDirectory("BlobStoreTest").toFile();
+        blobStore = new BlobStore(storageDir, "test");
+    }
+
+    @After
+    public void tearDown() {
+        File dir = new File(new File(storageDir, BlobStore.BLOBS_DIR), "test");
+        File[] files = dir.listFiles();
+        if (files != null)
+            Arrays.stream(files).forEach(File::delete);
+        dir.delete();
+        dir.getParentFile().delete();
+        storageDir.delete();
+    }
+
+    @Test
+    public void testPutAndGet() throws IOException {
+        byte[] data = "attachment".getBytes();
+        String hash = blobStore.put(data);
+        assertEquals(BlobStore.getHash(data), hash);
+        assertTrue(blobStore.contains(hash));
+        assertArrayEquals(data, blobStore.get(hash));
+
+        // Same content is stored only once
+        assertEquals(hash, blobStore.put(data.clone()));
+        File dir = new File(new File(storageDir, BlobStore.BLOBS_DIR), "test");
+        assertEquals(1, dir.listFiles().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHash() throws IOException {
+        blobStore.get("../../secret");
+    }
+}
@@ -0,0 +1,63 @@
+package io.bitsquare.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class FileManagerTest {
+    private File dir;
+    private File storageFile;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("FileManagerTest").toFile();
+        storageFile = new File(dir, "test");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null)
+            Arrays.stream(files).forEach(File::delete);
+        dir.delete();
+    }
+
+    @Test
+    public void testUnchangedContentIsNotWrittenAgain() throws Exception {
+        FileManager<ArrayList<String>> fileManager = new FileManager<>(dir, storageFile, 0);
+        ArrayList<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        fileManager.saveNow(list);
+        assertEquals(list, fileManager.read(storageFile));
+
+        // We use the modification date to see if the file got replaced
+        storageFile.setLastModified(0);
+        fileManager.saveNow(new ArrayList<>(list));
+        assertEquals(0, storageFile.lastModified());
+
+        list.add("c");
+        fileManager.saveNow(list);
+        assertNotEquals(0, storageFile.lastModified());
+        assertEquals(list, fileManager.read(storageFile));
+    }
+
+    @Test
+    public void testContentReadAtStartupIsNotWrittenAgain() throws Exception {
+        ArrayList<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        new FileManager<ArrayList<String>>(dir, storageFile, 0).saveNow(list);
+        storageFile.setLastModified(0);
+
+        FileManager<ArrayList<String>> fileManager = new FileManager<>(dir, storageFile, 0);
+        fileManager.read(storageFile);
+        fileManager.saveNow(list);
+        assertEquals(0, storageFile.lastModified());
+    }
+}
@@ -0,0 +1,49 @@
+package io.bitsquare.storage;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PersistenceSchedulerTest {
+
+    @Test
+    public void testFlushWritesPendingSaves() throws Exception {
+        File dir = Files.createTempDirectory("PersistenceSchedulerTest").toFile();
+        File storageFile = new File(dir, "PersistenceSchedulerTestFile");
+        try {
+            FileManager<ArrayList<String>> fileManager = new FileManager<>(dir, storageFile, 0);
+            ArrayList<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+            // Repeated saves get coalesced, the last object is written
+            fileManager.saveLater(new ArrayList<>(), 60_000);
+            fileManager.saveLater(list, 60_000);
+            assertFalse(storageFile.exists());
+
+            PersistenceScheduler.getInstance().flush();
+            assertEquals(list, fileManager.read(storageFile));
+
+            PersistenceScheduler.FileStats stats = PersistenceScheduler.getInstance().getStats().stream()
+                    .filter(e -> e.name.equals("PersistenceSchedulerTestFile"))
+                    .findAny().get();
+            assertEquals(1, stats.getNumSaves());
+            assertEquals(1, stats.getNumWrites());
+            assertTrue(stats.getNumBytes() > 0);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static void delete(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files != null)
+            Arrays.stream(files).forEach(File::delete);
+        Files.delete(dir.toPath());
+    }
+}
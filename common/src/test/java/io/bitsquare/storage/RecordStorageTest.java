@@ -0,0 +1,135 @@
+package io.bitsquare.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.*;
+
+public class RecordStorageTest {
+    private File storageDir;
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        storageDir = Files.createTempDirectory("RecordStorageTest").toFile();
+        dir = new File(new File(storageDir, RecordStorage.RECORDS_DIR), "Records");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            FileUtil.deleteDirectory(storageDir);
+        } catch (IOException e) {
+            // Backups after a read are copied in the background, so the dir might still be in use
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void testAddAndReopen() {
+        RecordStorage<String> recordStorage = new RecordStorage<>(storageDir, "Records");
+        assertFalse(recordStorage.hasPersistedIndex());
+        recordStorage.add("b", "record b");
+        recordStorage.add("a", "record a");
+        PersistenceScheduler.getInstance().flush();
+
+        assertTrue(new File(dir, RecordStorage.INDEX_FILE_NAME).isFile());
+        assertTrue(getFile("a").isFile());
+        assertTrue(getFile("b").isFile());
+
+        RecordStorage<String> reopened = new RecordStorage<>(storageDir, "Records");
+        assertTrue(reopened.hasPersistedIndex());
+        // Records are read in the order they have been added
+        assertEquals(Arrays.asList("record b", "record a"), reopened.readAll());
+        assertEquals("record a", reopened.read("a"));
+    }
+
+    @Test
+    public void testRemove() {
+        RecordStorage<String> recordStorage = new RecordStorage<>(storageDir, "Records");
+        LinkedHashMap<String, String> records = new LinkedHashMap<>();
+        records.put("a", "record a");
+        records.put("b", "record b");
+        recordStorage.saveAllNow(records);
+        String fileName = RecordStorage.getFileName("a");
+        FileUtil.rollingBackup(dir, fileName, 2);
+        FileUtil.rollingBackup(dir, fileName, 2);
+
+        recordStorage.remove("a");
+        assertFalse(getFile("a").exists());
+        assertFalse(recordStorage.contains("a"));
+        // The index is written before the record is deleted, so we don't need to wait for the delayed saves
+        assertEquals(Arrays.asList("record b"), new RecordStorage<String>(storageDir, "Records").readAll());
+
+        // We keep one backup of the removed record
+        File[] backups = FileUtil.getRollingBackupDir(dir, fileName).listFiles();
+        assertNotNull(backups);
+        assertEquals(1, backups.length);
+    }
+
+    @Test
+    public void testUpdateOfRecordReadOnDemand() {
+        RecordStorage<String> recordStorage = new RecordStorage<>(storageDir, "Records");
+        LinkedHashMap<String, String> records = new LinkedHashMap<>();
+        records.put("a", "record a");
+        records.put("b", "record b");
+        recordStorage.saveAllNow(records);
+        long indexLastModified = new File(dir, RecordStorage.INDEX_FILE_NAME).lastModified();
+
+        // Sections of a settings object are only read when they are used and saved when they change
+        RecordStorage<String> reopened = new RecordStorage<>(storageDir, "Records");
+        assertEquals("record b", reopened.read("b"));
+        reopened.add("b", "changed record b");
+        PersistenceScheduler.getInstance().flush();
+
+        assertEquals(indexLastModified, new File(dir, RecordStorage.INDEX_FILE_NAME).lastModified());
+        assertEquals(Arrays.asList("record a", "changed record b"),
+                new RecordStorage<String>(storageDir, "Records").readAll());
+    }
+
+    @Test
+    public void testKeysAreNotUsedAsFileNames() {
+        RecordStorage<String> recordStorage = new RecordStorage<>(storageDir, "Records");
+        recordStorage.add("../../outside", "record");
+        PersistenceScheduler.getInstance().flush();
+        assertFalse(new File(storageDir, "outside").exists());
+        assertTrue(getFile("../../outside").isFile());
+
+        RecordStorage<String> reopened = new RecordStorage<>(storageDir, "Records");
+        assertEquals(Arrays.asList("record"), reopened.readAll());
+        assertEquals("record", reopened.read("../../outside"));
+    }
+
+    @Test
+    public void testMissingRecordIsRemovedFromIndex() {
+        RecordStorage<String> recordStorage = new RecordStorage<>(storageDir, "Records");
+        LinkedHashMap<String, String> records = new LinkedHashMap<>();
+        records.put("a", "record a");
+        records.put("b", "record b");
+        records.put("c", "record c");
+        recordStorage.saveAllNow(records);
+        assertTrue(getFile("b").delete());
+
+        assertEquals(Arrays.asList("record a", "record c"), new RecordStorage<String>(storageDir, "Records").readAll());
+        PersistenceScheduler.getInstance().flush();
+
+        // The index got repaired, so a new record with the missing key can be added again
+        RecordStorage<String> reopened = new RecordStorage<>(storageDir, "Records");
+        assertEquals(Arrays.asList("record a", "record c"), reopened.readAll());
+        reopened.add("b", "new record b");
+        PersistenceScheduler.getInstance().flush();
+        assertEquals(Arrays.asList("record a", "record c", "new record b"),
+                new RecordStorage<String>(storageDir, "Records").readAll());
+    }
+
+    private File getFile(String key) {
+        return new File(dir, RecordStorage.getFileName(key));
+    }
+}
@@ -0,0 +1,66 @@
+package io.bitsquare.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StorageLoaderTest {
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("StorageLoaderTest").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StorageLoader.getInstance().onStartupCompleted();
+        FileUtil.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testReadPreloadedFiles() {
+        Storage<ArrayList<String>> listStorage = new Storage<>(dir);
+        listStorage.initWithFileName("List");
+        listStorage.saveNow(new ArrayList<>(Arrays.asList("a", "b")));
+        RecordStorage<String> recordStorage = new RecordStorage<>(dir, "Records");
+        LinkedHashMap<String, String> records = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            records.put("key" + i, "record" + i);
+        }
+        recordStorage.saveAllNow(records);
+
+        StorageLoader.getInstance().preload(dir);
+        Storage<ArrayList<String>> storage = new Storage<>(dir);
+        assertEquals(Arrays.asList("a", "b"), storage.initAndGetPersistedWithFileName("List"));
+        List<String> readRecords = new RecordStorage<String>(dir, "Records").readAll();
+        assertEquals(new ArrayList<>(records.values()), readRecords);
+
+        List<StorageLoader.LoadStats> stats = StorageLoader.getInstance().getStats();
+        assertTrue(stats.stream().anyMatch(e -> e.name.equals("List") && e.getNumFiles() > 0));
+        assertTrue(stats.stream().anyMatch(e -> e.name.equals("records/Records") && e.getNumFiles() >= 21));
+    }
+
+    @Test
+    public void testWriteInvalidatesPreloadedFile() {
+        Storage<ArrayList<String>> storage = new Storage<>(dir);
+        storage.initWithFileName("List");
+        storage.saveNow(new ArrayList<>(Arrays.asList("a")));
+
+        StorageLoader.getInstance().preload(dir);
+        storage.saveNow(new ArrayList<>(Arrays.asList("b")));
+
+        assertEquals(Arrays.asList("b"), new Storage<ArrayList<String>>(dir).initAndGetPersistedWithFileName("List"));
+    }
+}
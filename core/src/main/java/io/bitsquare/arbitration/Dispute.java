@@ -22,7 +22,7 @@ import io.bitsquare.arbitration.messages.DisputeCommunicationMessage;
 import io.bitsquare.common.crypto.PubKeyRing;
 import io.bitsquare.common.util.Utilities;
 import io.bitsquare.common.wire.Payload;
-import io.bitsquare.storage.Storage;
+import io.bitsquare.storage.StorageObjectOutputStream;
 import io.bitsquare.trade.Contract;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
@@ -33,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -70,15 +71,22 @@ public final class Dispute implements Payload {
     private final PubKeyRing arbitratorPubKeyRing;
     private final boolean isSupportTicket;
 
-    private final ArrayList<DisputeCommunicationMessage> disputeCommunicationMessages = new ArrayList<>();
+    // Null if the messages of a closed dispute are stored separately by the DisputeList and not loaded yet
+    @Nullable
+    private ArrayList<DisputeCommunicationMessage> disputeCommunicationMessages = new ArrayList<>();
 
     private boolean isClosed;
     private DisputeResult disputeResult;
     @Nullable
     private String disputePayoutTxId;
 
-    transient private Storage<DisputeList<Dispute>> storage;
-    transient private ObservableList<DisputeCommunicationMessage> disputeCommunicationMessagesAsObservableList = FXCollections.observableArrayList(disputeCommunicationMessages);
+    transient private DisputeList<Dispute> disputeList;
+    @Nullable
+    transient private ObservableList<DisputeCommunicationMessage> disputeCommunicationMessagesAsObservableList;
+    // Set if the separately stored messages could not be loaded. Used instead of the messages, which stay null, so we
+    // never overwrite the stored messages.
+    @Nullable
+    transient private ArrayList<DisputeCommunicationMessage> messagesFailedToLoad;
     transient private BooleanProperty isClosedProperty = new SimpleBooleanProperty(isClosed);
     transient private ObjectProperty<DisputeResult> disputeResultProperty = new SimpleObjectProperty<>(disputeResult);
 
@@ -87,7 +95,7 @@ public final class Dispute implements Payload {
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public Dispute(Storage<DisputeList<Dispute>> storage,
+    public Dispute(DisputeList<Dispute> disputeList,
                    String tradeId,
                    int traderId,
                    boolean disputeOpenerIsBuyer,
@@ -105,7 +113,7 @@ public final class Dispute implements Payload {
                    String takerContractSignature,
                    PubKeyRing arbitratorPubKeyRing,
                    boolean isSupportTicket) {
-        this.storage = storage;
+        this.disputeList = disputeList;
         this.tradeId = tradeId;
         this.traderId = traderId;
         this.disputeOpenerIsBuyer = disputeOpenerIsBuyer;
@@ -131,7 +139,6 @@ public final class Dispute implements Payload {
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         try {
             in.defaultReadObject();
-            disputeCommunicationMessagesAsObservableList = FXCollections.observableArrayList(disputeCommunicationMessages);
             disputeResultProperty = new SimpleObjectProperty<>(disputeResult);
             isClosedProperty = new SimpleBooleanProperty(isClosed);
         } catch (Throwable t) {
@@ -139,11 +146,18 @@ public final class Dispute implements Payload {
         }
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // Over the wire we always send the messages. In our local storage they might be stored separately.
+        if (!(out instanceof StorageObjectOutputStream))
+            getDisputeCommunicationMessages();
+        out.defaultWriteObject();
+    }
+
     public void addDisputeMessage(DisputeCommunicationMessage disputeCommunicationMessage) {
-        if (!disputeCommunicationMessages.contains(disputeCommunicationMessage)) {
-            disputeCommunicationMessages.add(disputeCommunicationMessage);
-            disputeCommunicationMessagesAsObservableList.add(disputeCommunicationMessage);
-            storage.queueUpForSave();
+        if (!getDisputeCommunicationMessages().contains(disputeCommunicationMessage)) {
+            getDisputeCommunicationMessages().add(disputeCommunicationMessage);
+            getDisputeCommunicationMessagesAsObservableList().add(disputeCommunicationMessage);
+            disputeList.persist(this);
         } else {
             log.error("disputeDirectMessage already exists");
         }
@@ -154,9 +168,9 @@ public final class Dispute implements Payload {
     // Setters
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    // In case we get the object via the network storage is not set as its transient, so we need to set it.
-    public void setStorage(Storage<DisputeList<Dispute>> storage) {
-        this.storage = storage;
+    // In case we get the object via the network disputeList is not set as its transient, so we need to set it.
+    public void setDisputeList(DisputeList<Dispute> disputeList) {
+        this.disputeList = disputeList;
     }
 
     public void setIsClosed(boolean isClosed) {
@@ -164,7 +178,7 @@ public final class Dispute implements Payload {
         this.isClosed = isClosed;
         isClosedProperty.set(isClosed);
         if (changed)
-            storage.queueUpForSave();
+            disputeList.persist(this);
     }
 
     public void setDisputeResult(DisputeResult disputeResult) {
@@ -172,14 +186,14 @@ public final class Dispute implements Payload {
         this.disputeResult = disputeResult;
         disputeResultProperty.set(disputeResult);
         if (changed)
-            storage.queueUpForSave();
+            disputeList.persist(this);
     }
 
     public void setDisputePayoutTxId(String disputePayoutTxId) {
         boolean changed = this.disputePayoutTxId == null || !this.disputePayoutTxId.equals(disputePayoutTxId);
         this.disputePayoutTxId = disputePayoutTxId;
         if (changed)
-            storage.queueUpForSave();
+            disputeList.persist(this);
     }
 
 
@@ -256,9 +270,38 @@ public final class Dispute implements Payload {
     }
 
     public ObservableList<DisputeCommunicationMessage> getDisputeCommunicationMessagesAsObservableList() {
+        if (disputeCommunicationMessagesAsObservableList == null)
+            disputeCommunicationMessagesAsObservableList = FXCollections.observableArrayList(getDisputeCommunicationMessages());
         return disputeCommunicationMessagesAsObservableList;
     }
 
+    // Loads the messages from the DisputeList if they are stored separately
+    ArrayList<DisputeCommunicationMessage> getDisputeCommunicationMessages() {
+        if (disputeCommunicationMessages == null) {
+            if (messagesFailedToLoad != null)
+                return messagesFailedToLoad;
+
+            ArrayList<DisputeCommunicationMessage> messages = disputeList != null ? disputeList.loadMessages(id) : null;
+            if (messages == null) {
+                log.error("Messages of dispute could not be loaded. We don't persist messages of that dispute. id=" + id);
+                messagesFailedToLoad = new ArrayList<>();
+                return messagesFailedToLoad;
+            }
+            disputeCommunicationMessages = messages;
+        }
+        return disputeCommunicationMessages;
+    }
+
+    boolean isMessagesLoaded() {
+        return disputeCommunicationMessages != null;
+    }
+
+    // Called by the DisputeList after the messages have been stored separately
+    void releaseMessages() {
+        disputeCommunicationMessages = null;
+        disputeCommunicationMessagesAsObservableList = null;
+    }
+
     public boolean isClosed() {
         return isClosedProperty.get();
     }
@@ -292,6 +335,8 @@ public final class Dispute implements Payload {
         return disputePayoutTxId;
     }
 
+    // The messages are not part of equals and the hash code, so we don't need to load the messages of closed disputes
+    // for it. They are only added to a dispute, so the other fields identify it.
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -324,13 +369,12 @@ public final class Dispute implements Payload {
             return false;
         if (arbitratorPubKeyRing != null ? !arbitratorPubKeyRing.equals(dispute.arbitratorPubKeyRing) : dispute.arbitratorPubKeyRing != null)
             return false;
-        if (disputeCommunicationMessages != null ? !disputeCommunicationMessages.equals(dispute.disputeCommunicationMessages) : dispute.disputeCommunicationMessages != null)
-            return false;
         if (disputeResult != null ? !disputeResult.equals(dispute.disputeResult) : dispute.disputeResult != null)
             return false;
         if (disputePayoutTxId != null ? !disputePayoutTxId.equals(dispute.disputePayoutTxId) : dispute.disputePayoutTxId != null)
             return false;
-        return !(storage != null ? !storage.equals(dispute.storage) : dispute.storage != null);
+        // The DisputeList is an ArrayList, so we compare the instance instead of its content
+        return disputeList == dispute.disputeList;
 
     }
 
@@ -355,11 +399,10 @@ public final class Dispute implements Payload {
         result = 31 * result + (takerContractSignature != null ? takerContractSignature.hashCode() : 0);
         result = 31 * result + (arbitratorPubKeyRing != null ? arbitratorPubKeyRing.hashCode() : 0);
         result = 31 * result + (isSupportTicket ? 1 : 0);
-        result = 31 * result + (disputeCommunicationMessages != null ? disputeCommunicationMessages.hashCode() : 0);
         result = 31 * result + (isClosed ? 1 : 0);
         result = 31 * result + (disputeResult != null ? disputeResult.hashCode() : 0);
         result = 31 * result + (disputePayoutTxId != null ? disputePayoutTxId.hashCode() : 0);
-        result = 31 * result + (storage != null ? storage.hashCode() : 0);
+        result = 31 * result + System.identityHashCode(disputeList);
         return result;
     }
 
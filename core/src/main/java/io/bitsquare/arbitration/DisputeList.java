@@ -18,34 +18,68 @@
 package io.bitsquare.arbitration;
 
 import io.bitsquare.app.Version;
+import io.bitsquare.arbitration.messages.DisputeCommunicationMessage;
 import io.bitsquare.common.persistance.Persistable;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.storage.RecordStorage;
 import io.bitsquare.storage.Storage;
+import io.bitsquare.trade.Contract;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.util.ArrayList;
+import java.util.*;
 
-public final class DisputeList<DisputeCase> extends ArrayList<DisputeCase> implements Persistable {
+/**
+ * Each dispute is persisted as its own record, so a new chat message or a state change of one dispute does not
+ * rewrite all other disputes. Like with the TradableList the old DisputeList file gets migrated at the first start.
+ * <p>
+ * Closed disputes are rarely looked at again, so at startup we move their messages into a separate record and keep
+ * only the dispute itself in memory. The messages get loaded when they are requested.
+ * <p>
+ * Disputes are indexed by trade ID and we count the disputes per buyer and seller address, so lookups don't need to
+ * walk all disputes.
+ */
+public final class DisputeList<DisputeCase extends Dispute> extends ArrayList<DisputeCase> implements Persistable {
     // That object is saved to disc. We need to take care of changes to not break deserialization.
     private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
 
     private static final Logger log = LoggerFactory.getLogger(DisputeList.class);
 
-    final transient private Storage<DisputeList<DisputeCase>> storage;
+    final transient private RecordStorage<DisputeCase> recordStorage;
+    final transient private RecordStorage<ArrayList<DisputeCommunicationMessage>> messageStorage;
+    final transient private Map<String, List<DisputeCase>> disputesByTradeId = new HashMap<>();
+    final transient private Map<NodeAddress, Integer> numDisputesByBuyerAddress = new HashMap<>();
+    final transient private Map<NodeAddress, Integer> numDisputesBySellerAddress = new HashMap<>();
     transient private ObservableList<DisputeCase> observableList;
 
-    public DisputeList(Storage<DisputeList<DisputeCase>> storage) {
-        this.storage = storage;
+    public DisputeList(File storageDir, String fileName) {
+        // The dispute ids used as record keys are set by the trader. The RecordStorage does not use its keys as
+        // file names, so we don't need to check them.
+        recordStorage = new RecordStorage<>(storageDir, fileName);
+        messageStorage = new RecordStorage<>(storageDir, fileName + "Messages");
 
-        DisputeList persisted = storage.initAndGetPersisted(this);
-        if (persisted != null) {
-            this.addAll(persisted);
+        if (recordStorage.hasPersistedIndex()) {
+            this.addAll(recordStorage.readAll());
+        } else {
+            Storage<DisputeList<DisputeCase>> storage = new Storage<>(storageDir);
+            DisputeList<DisputeCase> persisted = storage.initAndGetPersistedWithFileName(fileName);
+            if (persisted != null) {
+                log.info("Migrate {} with {} entries to per-dispute storage", fileName, persisted.size());
+                this.addAll(persisted);
+            }
+            LinkedHashMap<String, DisputeCase> records = new LinkedHashMap<>();
+            this.forEach(dispute -> records.put(dispute.getId(), dispute));
+            recordStorage.saveAllNow(records);
         }
+        this.forEach(this::addToIndex);
+        releaseMessagesOfClosedDisputes();
         observableList = FXCollections.observableArrayList(this);
     }
 
@@ -59,11 +93,13 @@ public final class DisputeList<DisputeCase> extends ArrayList<DisputeCase> imple
 
     @Override
     public boolean add(DisputeCase disputeCase) {
-        if (!super.contains(disputeCase)) {
+        if (!contains(disputeCase)) {
             boolean changed = super.add(disputeCase);
             getObservableList().add(disputeCase);
-            if (changed)
-                storage.queueUpForSave();
+            if (changed) {
+                addToIndex(disputeCase);
+                recordStorage.add(disputeCase.getId(), disputeCase);
+            }
             return changed;
         } else {
             return false;
@@ -74,11 +110,101 @@ public final class DisputeList<DisputeCase> extends ArrayList<DisputeCase> imple
     public boolean remove(Object disputeCase) {
         boolean changed = super.remove(disputeCase);
         getObservableList().remove(disputeCase);
-        if (changed)
-            storage.queueUpForSave();
+        if (changed) {
+            Dispute dispute = (Dispute) disputeCase;
+            removeFromIndex(dispute);
+            recordStorage.remove(dispute.getId());
+            messageStorage.remove(dispute.getId());
+        }
         return changed;
     }
 
+    // Only the disputes of the same trade can be equal
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Dispute && getDisputesByTradeId(((Dispute) o).getTradeId()).contains(o);
+    }
+
+    public List<DisputeCase> getDisputesByTradeId(String tradeId) {
+        List<DisputeCase> disputes = disputesByTradeId.get(tradeId);
+        return disputes != null ? Collections.unmodifiableList(disputes) : Collections.emptyList();
+    }
+
+    public Optional<DisputeCase> findDispute(String tradeId, int traderId) {
+        return getDisputesByTradeId(tradeId).stream().filter(e -> e.getTraderId() == traderId).findAny();
+    }
+
+    public int getNumDisputesOfBuyer(@Nullable NodeAddress buyerNodeAddress) {
+        return numDisputesByBuyerAddress.getOrDefault(buyerNodeAddress, 0);
+    }
+
+    public int getNumDisputesOfSeller(@Nullable NodeAddress sellerNodeAddress) {
+        return numDisputesBySellerAddress.getOrDefault(sellerNodeAddress, 0);
+    }
+
+    /**
+     * Queues up a save of the record of the given dispute. Calls for disputes which are not (or no longer) part
+     * of that list are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public void persist(Dispute dispute) {
+        recordStorage.queueUpForSave(dispute.getId(), (DisputeCase) dispute);
+    }
+
+    @Nullable
+    ArrayList<DisputeCommunicationMessage> loadMessages(String disputeId) {
+        return messageStorage.read(disputeId);
+    }
+
+    private void releaseMessagesOfClosedDisputes() {
+        LinkedHashMap<String, ArrayList<DisputeCommunicationMessage>> messagesById = new LinkedHashMap<>();
+        this.stream()
+                .filter(dispute -> dispute.isClosed() && dispute.isMessagesLoaded())
+                .forEach(dispute -> messagesById.put(dispute.getId(), dispute.getDisputeCommunicationMessages()));
+        if (!messagesById.isEmpty()) {
+            // The messages need to be on disc before we write the disputes without them. If a released dispute gets
+            // loaded and changed again its record contains the messages until we release them at the next start.
+            messageStorage.saveAllNow(messagesById);
+            this.stream()
+                    .filter(dispute -> messagesById.containsKey(dispute.getId()))
+                    .forEach(dispute -> {
+                        dispute.releaseMessages();
+                        recordStorage.queueUpForSave(dispute.getId(), dispute);
+                    });
+            log.info("Stored the messages of {} closed disputes separately", messagesById.size());
+        }
+    }
+
+    private void addToIndex(DisputeCase dispute) {
+        disputesByTradeId.computeIfAbsent(dispute.getTradeId(), tradeId -> new ArrayList<>(2)).add(dispute);
+        Contract contract = dispute.getContract();
+        if (contract != null) {
+            if (contract.getBuyerNodeAddress() != null)
+                numDisputesByBuyerAddress.merge(contract.getBuyerNodeAddress(), 1, Integer::sum);
+            if (contract.getSellerNodeAddress() != null)
+                numDisputesBySellerAddress.merge(contract.getSellerNodeAddress(), 1, Integer::sum);
+        }
+    }
+
+    private void removeFromIndex(Dispute dispute) {
+        List<DisputeCase> disputes = disputesByTradeId.get(dispute.getTradeId());
+        if (disputes != null) {
+            disputes.removeIf(e -> e == dispute);
+            if (disputes.isEmpty())
+                disputesByTradeId.remove(dispute.getTradeId());
+        }
+        Contract contract = dispute.getContract();
+        if (contract != null) {
+            decrement(numDisputesByBuyerAddress, contract.getBuyerNodeAddress());
+            decrement(numDisputesBySellerAddress, contract.getSellerNodeAddress());
+        }
+    }
+
+    private static void decrement(Map<NodeAddress, Integer> map, @Nullable NodeAddress nodeAddress) {
+        if (nodeAddress != null)
+            map.computeIfPresent(nodeAddress, (key, value) -> value > 1 ? value - 1 : null);
+    }
+
     private ObservableList<DisputeCase> getObservableList() {
         if (observableList == null)
             observableList = FXCollections.observableArrayList(this);
@@ -39,6 +39,7 @@ import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.P2PService;
 import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
+import io.bitsquare.storage.BlobStore;
 import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.Contract;
 import io.bitsquare.trade.Tradable;
@@ -62,8 +63,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class DisputeManager {
     private static final Logger log = LoggerFactory.getLogger(DisputeManager.class);
@@ -75,7 +74,6 @@ public class DisputeManager {
     private final OpenOfferManager openOfferManager;
     private final P2PService p2PService;
     private final KeyRing keyRing;
-    private final Storage<DisputeList<Dispute>> disputeStorage;
     private final DisputeList<Dispute> disputes;
     transient private final ObservableList<Dispute> disputesObservableList;
     private final String disputeInfo;
@@ -107,13 +105,14 @@ public class DisputeManager {
         this.openOfferManager = openOfferManager;
         this.keyRing = keyRing;
 
-        disputeStorage = new Storage<>(storageDir);
-        disputes = new DisputeList<>(disputeStorage);
+        // Must be set before we read the disputes, as stored attachments load their data from it
+        Attachment.setBlobStore(new BlobStore(storageDir, "DisputeAttachments"));
+        disputes = new DisputeList<>(storageDir, "DisputeList");
         disputesObservableList = FXCollections.observableArrayList(disputes);
 
         openDisputes = new HashMap<>();
         closedDisputes = new HashMap<>();
-        disputes.stream().forEach(dispute -> dispute.setStorage(getDisputeStorage()));
+        disputes.stream().forEach(dispute -> dispute.setDisputeList(disputes));
 
         disputeInfo = "Please note the basic rules for the dispute process:\n" +
                 "1. You need to respond to the arbitrators requests in between 2 days.\n" +
@@ -157,7 +156,7 @@ public class DisputeManager {
 
     public void cleanupDisputes() {
         disputes.stream().forEach(dispute -> {
-            dispute.setStorage(getDisputeStorage());
+            dispute.setDisputeList(disputes);
             if (dispute.isClosed())
                 closedDisputes.put(dispute.getTradeId(), dispute);
             else
@@ -274,7 +273,7 @@ public class DisputeManager {
         Contract contractFromOpener = disputeFromOpener.getContract();
         PubKeyRing pubKeyRing = disputeFromOpener.isDisputeOpenerIsBuyer() ? contractFromOpener.getSellerPubKeyRing() : contractFromOpener.getBuyerPubKeyRing();
         Dispute dispute = new Dispute(
-                disputeStorage,
+                disputes,
                 disputeFromOpener.getTradeId(),
                 pubKeyRing.hashCode(),
                 !disputeFromOpener.isDisputeOpenerIsBuyer(),
@@ -468,7 +467,7 @@ public class DisputeManager {
             if (!disputes.contains(dispute)) {
                 final Optional<Dispute> storedDisputeOptional = findDispute(dispute.getTradeId(), dispute.getTraderId());
                 if (!storedDisputeOptional.isPresent()) {
-                    dispute.setStorage(getDisputeStorage());
+                    dispute.setDisputeList(disputes);
                     disputes.add(dispute);
                     disputesObservableList.add(dispute);
                     sendPeerOpenedDisputeMessage(dispute);
@@ -495,7 +494,7 @@ public class DisputeManager {
                     if (tradeOptional.isPresent())
                         tradeOptional.get().setDisputeState(Trade.DisputeState.DISPUTE_STARTED_BY_PEER);
 
-                    dispute.setStorage(getDisputeStorage());
+                    dispute.setDisputeList(disputes);
                     disputes.add(dispute);
                     disputesObservableList.add(dispute);
                 } else {
@@ -711,8 +710,8 @@ public class DisputeManager {
     // Getters
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public Storage<DisputeList<Dispute>> getDisputeStorage() {
-        return disputeStorage;
+    public DisputeList<Dispute> getDisputeList() {
+        return disputes;
     }
 
     public ObservableList<Dispute> getDisputesAsObservableList() {
@@ -732,21 +731,10 @@ public class DisputeManager {
     }
 
     public String getNrOfDisputes(boolean isBuyer, Contract contract) {
-        return String.valueOf(getDisputesAsObservableList().stream()
-                .filter(e -> {
-                    Contract contract1 = e.getContract();
-                    if (contract1 == null)
-                        return false;
-
-                    if (isBuyer) {
-                        NodeAddress buyerNodeAddress = contract1.getBuyerNodeAddress();
-                        return buyerNodeAddress != null && buyerNodeAddress.equals(contract.getBuyerNodeAddress());
-                    } else {
-                        NodeAddress sellerNodeAddress = contract1.getSellerNodeAddress();
-                        return sellerNodeAddress != null && sellerNodeAddress.equals(contract.getSellerNodeAddress());
-                    }
-                })
-                .collect(Collectors.toSet()).size());
+        if (isBuyer)
+            return String.valueOf(disputes.getNumDisputesOfBuyer(contract.getBuyerNodeAddress()));
+        else
+            return String.valueOf(disputes.getNumDisputesOfSeller(contract.getSellerNodeAddress()));
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -754,15 +742,11 @@ public class DisputeManager {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private Optional<Dispute> findDispute(String tradeId, int traderId) {
-        return disputes.stream().filter(e -> e.getTradeId().equals(tradeId) && e.getTraderId() == traderId).findAny();
+        return disputes.findDispute(tradeId, traderId);
     }
 
     public Optional<Dispute> findOwnDispute(String tradeId) {
-        return getDisputeStream(tradeId).findAny();
-    }
-
-    private Stream<Dispute> getDisputeStream(String tradeId) {
-        return disputes.stream().filter(e -> e.getTradeId().equals(tradeId));
+        return disputes.getDisputesByTradeId(tradeId).stream().findAny();
     }
 
     private void cleanupRetryMap(String uid) {
@@ -2,32 +2,98 @@ package io.bitsquare.arbitration.payload;
 
 import io.bitsquare.app.Version;
 import io.bitsquare.common.wire.Payload;
+import io.bitsquare.storage.BlobStore;
+import io.bitsquare.storage.StorageObjectOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 
+/**
+ * Over the wire the attachment carries its data. In our local storage files we only store the hash of the data, the
+ * data itself is stored once in the attachment BlobStore. Attachments read from the local storage load their data
+ * from the BlobStore when it is requested.
+ */
 public final class Attachment implements Payload {
     // That object is sent over the wire, so we need to take care of version compatibility.
     private static final long serialVersionUID = Version.P2P_NETWORK_VERSION;
     private static final Logger log = LoggerFactory.getLogger(Attachment.class);
 
+    @Nullable
+    private static BlobStore blobStore;
+
+    // Set by the DisputeManager. If not set the data is stored inline as before.
+    public static void setBlobStore(@Nullable BlobStore blobStore) {
+        Attachment.blobStore = blobStore;
+    }
+
+    // Null if the attachment was read from our local storage
+    @Nullable
     private final byte[] bytes;
     private final String fileName;
+    // Hash of the data. Added later, so it is null for attachments from older versions until we calculate it.
+    @Nullable
+    private String hash;
 
     public Attachment(String fileName, byte[] bytes) {
         this.fileName = fileName;
         this.bytes = bytes;
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // The hash is set by the sender, so we calculate it ourselves if we have the data. Without data the
+        // attachment comes from our local storage and the hash is used as file name of the BlobStore.
+        if (bytes != null)
+            hash = BlobStore.getHash(bytes);
+        else if (hash == null || !BlobStore.isValidHash(hash))
+            throw new InvalidObjectException("Attachment without data has an invalid hash. hash=" + hash);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("fileName", fileName);
+        fields.put("hash", getHash());
+        if (out instanceof StorageObjectOutputStream && blobStore != null) {
+            if (bytes != null && !blobStore.contains(getHash()))
+                blobStore.put(bytes);
+            fields.put("bytes", null);
+        } else {
+            fields.put("bytes", getBytes());
+        }
+        out.writeFields();
+    }
+
     public byte[] getBytes() {
-        return bytes;
+        if (bytes != null)
+            return bytes;
+
+        if (blobStore == null)
+            throw new IllegalStateException("Attachment data is stored in the BlobStore but no BlobStore is set");
+        try {
+            return blobStore.get(hash);
+        } catch (IOException e) {
+            log.error("Could not read attachment " + fileName + " with hash " + hash);
+            throw new UncheckedIOException(e);
+        }
     }
 
     public String getFileName() {
         return fileName;
     }
 
+    public String getHash() {
+        if (hash == null)
+            hash = BlobStore.getHash(bytes);
+        return hash;
+    }
+
+    // We compare the hash, so we don't need to load the data of stored attachments
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -35,14 +101,14 @@ public final class Attachment implements Payload {
 
         Attachment that = (Attachment) o;
 
-        if (!Arrays.equals(bytes, that.bytes)) return false;
+        if (!getHash().equals(that.getHash())) return false;
         return !(fileName != null ? !fileName.equals(that.fileName) : that.fileName != null);
 
     }
 
     @Override
     public int hashCode() {
-        int result = bytes != null ? Arrays.hashCode(bytes) : 0;
+        int result = getHash().hashCode();
         result = 31 * result + (fileName != null ? fileName.hashCode() : 0);
         return result;
     }
@@ -51,7 +117,7 @@ public final class Attachment implements Payload {
     public String toString() {
         return "Attachment{" +
                 "description=" + fileName +
-                ", data=" + Arrays.toString(bytes) +
+                ", hash=" + hash +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.*;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.CoinSelector;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Estimates the size and fee of a transaction from the script types of the inputs chosen by the coin selector and
+ * the number of outputs, without completing and signing the transaction. Uses the same fee rule as
+ * Wallet.completeTx: the fee per kb is paid for each started kb and at least the reference min. fee.
+ * <p>
+ * Signatures have a variable length, so we use the max. length and the estimated size might be a few bytes larger
+ * than the size of the signed transaction.
+ */
+class FeeEstimator {
+    // version 4 bytes, lock time 4 bytes. The var ints for the number of inputs and outputs get added.
+    static final int TX_OVERHEAD_SIZE = 8;
+    // outpoint 36 bytes, script length 1, signature 73 + 1 push, compressed pub key 33 + 1 push, sequence 4
+    static final int P2PKH_INPUT_SIZE = 149;
+    // outpoint 36 bytes, script length 1, signature 73 + 1 push, sequence 4
+    static final int P2PK_INPUT_SIZE = 115;
+    // 2-of-2 multisig: outpoint 36 bytes, script length 1, OP_0 1, 2 signatures 73 + 1 push,
+    // redeem script 71 + 2 push, sequence 4
+    static final int P2SH_INPUT_SIZE = 263;
+    // value 8 bytes, script length 1, script 25
+    static final int P2PKH_OUTPUT_SIZE = 34;
+    // value 8 bytes, script length 1, script 23
+    static final int P2SH_OUTPUT_SIZE = 32;
+
+    // The required fee only grows with the inputs we need to add for paying it, so that converges after few steps
+    private static final int MAX_ITERATIONS = 5;
+
+    /**
+     * @return The fee for sending the given amount minus the fee to the given address, so the fee is paid from the
+     * amount. Used if the amount is the whole available balance.
+     */
+    static Coin estimateFeePaidFromAmount(CoinSelector coinSelector,
+                                          List<TransactionOutput> candidates,
+                                          Coin amount,
+                                          Address toAddress,
+                                          Coin feePerKb) {
+        CoinSelection selection = coinSelector.select(amount, candidates);
+        Coin change = selection.valueGathered.subtract(amount);
+        return getFee(estimateSize(selection.gathered, toAddress, hasChange(change)), feePerKb);
+    }
+
+    /**
+     * @return The size of the transaction sending the given amount to the given address, with the fee paid on top
+     * of the amount as done by Wallet.completeTx.
+     */
+    static int estimateSizeFeeOnTop(CoinSelector coinSelector,
+                                    List<TransactionOutput> candidates,
+                                    Coin amount,
+                                    Address toAddress,
+                                    Coin feePerKb) throws InsufficientMoneyException {
+        // We start like the wallet with the fee for 1 kb
+        Coin fee = feePerKb;
+        int size = 0;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            Coin target = amount.add(fee);
+            CoinSelection selection = coinSelector.select(target, candidates);
+            if (selection.valueGathered.compareTo(target) < 0)
+                throw new InsufficientMoneyException(target.subtract(selection.valueGathered));
+
+            size = estimateSize(selection.gathered, toAddress, hasChange(selection.valueGathered.subtract(target)));
+            Coin requiredFee = getFee(size, feePerKb);
+            if (requiredFee.compareTo(fee) <= 0)
+                break;
+            fee = requiredFee;
+        }
+        return size;
+    }
+
+    static int estimateSize(Collection<TransactionOutput> spentOutputs, Address toAddress, boolean hasChange) {
+        int numOutputs = hasChange ? 2 : 1;
+        int size = TX_OVERHEAD_SIZE + VarInt.sizeOf(spentOutputs.size()) + VarInt.sizeOf(numOutputs);
+        for (TransactionOutput spentOutput : spentOutputs) {
+            size += getInputSize(spentOutput.getScriptPubKey());
+        }
+        size += toAddress.isP2SHAddress() ? P2SH_OUTPUT_SIZE : P2PKH_OUTPUT_SIZE;
+        // Our change addresses are always P2PKH
+        if (hasChange)
+            size += P2PKH_OUTPUT_SIZE;
+        return size;
+    }
+
+    static Coin getFee(int size, Coin feePerKb) {
+        Coin fee = feePerKb.multiply(size / 1000 + 1);
+        return fee.compareTo(Transaction.REFERENCE_DEFAULT_MIN_TX_FEE) < 0 ? Transaction.REFERENCE_DEFAULT_MIN_TX_FEE : fee;
+    }
+
+    private static int getInputSize(Script scriptPubKey) {
+        if (scriptPubKey.isPayToScriptHash())
+            return P2SH_INPUT_SIZE;
+        else if (scriptPubKey.isSentToRawPubKey())
+            return P2PK_INPUT_SIZE;
+        else
+            return P2PKH_INPUT_SIZE;
+    }
+
+    // The wallet adds change below the dust limit to the fee instead of creating an output
+    private static boolean hasChange(Coin change) {
+        return change.compareTo(Transaction.MIN_NONDUST_OUTPUT) >= 0;
+    }
+}
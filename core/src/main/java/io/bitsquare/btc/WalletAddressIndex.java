@@ -0,0 +1,182 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.*;
+import org.bitcoinj.utils.Threading;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index of the wallet transactions, outputs and spendable balances keyed by address, so lookups per address do
+ * not need to iterate over all wallet transactions.
+ * <p>
+ * Transactions are added incrementally from the wallet events. The balances depend on the spend candidates of the
+ * whole wallet, so they are cached for a wallet version and recalculated in one pass at the next balance query after
+ * a wallet change. The version is incremented by a listener running on the thread changing the wallet, so a balance
+ * query never returns a cached value from before a change, even if the user thread has not been notified yet.
+ */
+class WalletAddressIndex {
+    private static final Logger log = LoggerFactory.getLogger(WalletAddressIndex.class);
+
+    private final NetworkParameters params;
+    private Wallet wallet;
+
+    private final Set<Sha256Hash> indexedTxIds = new HashSet<>();
+    private final Map<Address, Set<Transaction>> transactionsByAddress = new HashMap<>();
+    private final Map<Address, Integer> numTxOutputsByAddress = new HashMap<>();
+    private final AtomicLong walletVersion = new AtomicLong();
+    // Does not take any lock, as it is called while the wallet is locked
+    private final WalletEventListener walletVersionListener = new AbstractWalletEventListener() {
+        @Override
+        public void onChange() {
+            walletVersion.incrementAndGet();
+        }
+    };
+    private Map<Address, Coin> balanceByAddress;
+    private long balanceVersion;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    WalletAddressIndex(NetworkParameters params) {
+        this.params = params;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    synchronized void onWalletReady(Wallet wallet) {
+        if (this.wallet != null)
+            this.wallet.removeEventListener(walletVersionListener);
+
+        this.wallet = wallet;
+        if (wallet != null)
+            wallet.addEventListener(walletVersionListener, Threading.SAME_THREAD);
+        walletVersion.incrementAndGet();
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the whole index. Used at startup and after a reorganisation, where transactions might have been
+     * removed or changed.
+     */
+    synchronized void rebuild() {
+        indexedTxIds.clear();
+        transactionsByAddress.clear();
+        numTxOutputsByAddress.clear();
+        if (wallet != null)
+            wallet.getTransactions(true).stream().forEach(this::addTransaction);
+    }
+
+    /**
+     * Adds a new or changed transaction. The connected outputs of the inputs might become available later, so a
+     * transaction is re-indexed at each change. Balances are not affected, they follow the wallet version.
+     */
+    synchronized void onTransactionChanged(Transaction tx) {
+        if (tx != null)
+            addTransaction(tx);
+    }
+
+    synchronized Coin getBalance(Address address) {
+        if (wallet == null)
+            return Coin.ZERO;
+
+        // Read the version before calculating, so a change during the calculation invalidates the result
+        long version = walletVersion.get();
+        if (balanceByAddress == null || balanceVersion != version) {
+            balanceByAddress = calculateBalances();
+            balanceVersion = version;
+        }
+
+        return balanceByAddress.getOrDefault(address, Coin.ZERO);
+    }
+
+    synchronized int getNumTxOutputs(Address address) {
+        return numTxOutputsByAddress.getOrDefault(address, 0);
+    }
+
+    /**
+     * @return The transactions having an output or a connected output of an input to the given address.
+     */
+    synchronized List<Transaction> getTransactions(Address address) {
+        Set<Transaction> transactions = transactionsByAddress.get(address);
+        return transactions != null ? new ArrayList<>(transactions) : new ArrayList<>();
+    }
+
+    /**
+     * @return The addresses of the outputs and the connected outputs of the inputs of the given transaction.
+     */
+    Set<Address> getAddresses(Transaction tx) {
+        Set<Address> addresses = new HashSet<>();
+        tx.getOutputs().stream().forEach(output -> addAddress(output, addresses));
+        tx.getInputs().stream()
+                .map(TransactionInput::getConnectedOutput)
+                .filter(output -> output != null)
+                .forEach(output -> addAddress(output, addresses));
+        return addresses;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void addTransaction(Transaction tx) {
+        if (indexedTxIds.add(tx.getHash())) {
+            tx.getOutputs().stream()
+                    .map(this::getAddress)
+                    .filter(address -> address != null)
+                    .forEach(address -> numTxOutputsByAddress.merge(address, 1, Integer::sum));
+        }
+
+        getAddresses(tx).stream()
+                .forEach(address -> transactionsByAddress.computeIfAbsent(address, k -> new HashSet<>()).add(tx));
+    }
+
+    private Map<Address, Coin> calculateBalances() {
+        Map<Address, Coin> balances = new HashMap<>();
+        for (TransactionOutput output : wallet.calculateAllSpendCandidates()) {
+            Address address = getAddress(output);
+            if (address != null)
+                balances.merge(address, output.getValue(), Coin::add);
+        }
+        log.trace("Calculated balances of {} addresses", balances.size());
+        return balances;
+    }
+
+    private void addAddress(TransactionOutput output, Set<Address> addresses) {
+        Address address = getAddress(output);
+        if (address != null)
+            addresses.add(address);
+    }
+
+    private Address getAddress(TransactionOutput output) {
+        if (output.getScriptPubKey().isSentToAddress() || output.getScriptPubKey().isPayToScriptHash())
+            return output.getScriptPubKey().getToAddress(params);
+        else
+            return null;
+    }
+}
@@ -96,6 +96,7 @@ public class WalletService {
     private final File walletDir;
     private final UserAgent userAgent;
     private final int socks5DiscoverMode;
+    private final WalletAddressIndex addressIndex;
 
     private WalletAppKitBitSquare walletAppKit;
     private Wallet wallet;
@@ -126,6 +127,7 @@ public class WalletService {
         this.preferences = preferences;
         this.socks5ProxyProvider = socks5ProxyProvider;
         this.params = preferences.getBitcoinNetwork().getParameters();
+        this.addressIndex = new WalletAddressIndex(params);
         this.walletDir = new File(appDir, "bitcoin");
         this.userAgent = userAgent;
 
@@ -200,6 +202,7 @@ public class WalletService {
                     peerGroup.setAddPeersFromAddressMessage(false);
 
                 wallet = walletAppKit.wallet();
+                addressIndex.onWalletReady(wallet);
                 wallet.addEventListener(walletEventListener);
 
                 addressEntryList.onWalletReady(wallet);
@@ -613,14 +616,10 @@ public class WalletService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public TransactionConfidence getConfidenceForAddress(Address address) {
-        List<TransactionConfidence> transactionConfidenceList = new ArrayList<>();
-        if (wallet != null) {
-            Set<Transaction> transactions = wallet.getTransactions(true);
-            if (transactions != null) {
-                transactionConfidenceList.addAll(transactions.stream().map(tx ->
-                        getTransactionConfidence(tx, address)).collect(Collectors.toList()));
-            }
-        }
+        // The index only holds transactions with an output or connected output to that address
+        List<TransactionConfidence> transactionConfidenceList = addressIndex.getTransactions(address).stream()
+                .map(Transaction::getConfidence)
+                .collect(Collectors.toList());
         return getMostRecentConfidence(transactionConfidenceList);
     }
 
@@ -635,41 +634,6 @@ public class WalletService {
         return null;
     }
 
-    private TransactionConfidence getTransactionConfidence(Transaction tx, Address address) {
-        List<TransactionOutput> mergedOutputs = getOutputsWithConnectedOutputs(tx);
-        List<TransactionConfidence> transactionConfidenceList = new ArrayList<>();
-
-        mergedOutputs.stream().filter(e -> e.getScriptPubKey().isSentToAddress() ||
-                e.getScriptPubKey().isPayToScriptHash()).forEach(transactionOutput -> {
-            Address outputAddress = transactionOutput.getScriptPubKey().getToAddress(params);
-            if (address.equals(outputAddress)) {
-                transactionConfidenceList.add(tx.getConfidence());
-            }
-        });
-        return getMostRecentConfidence(transactionConfidenceList);
-    }
-
-
-    private List<TransactionOutput> getOutputsWithConnectedOutputs(Transaction tx) {
-        List<TransactionOutput> transactionOutputs = tx.getOutputs();
-        List<TransactionOutput> connectedOutputs = new ArrayList<>();
-
-        // add all connected outputs from any inputs as well
-        List<TransactionInput> transactionInputs = tx.getInputs();
-        for (TransactionInput transactionInput : transactionInputs) {
-            TransactionOutput transactionOutput = transactionInput.getConnectedOutput();
-            if (transactionOutput != null) {
-                connectedOutputs.add(transactionOutput);
-            }
-        }
-
-        List<TransactionOutput> mergedOutputs = new ArrayList<>();
-        mergedOutputs.addAll(transactionOutputs);
-        mergedOutputs.addAll(connectedOutputs);
-        return mergedOutputs;
-    }
-
-
     private TransactionConfidence getMostRecentConfidence(List<TransactionConfidence> transactionConfidenceList) {
         TransactionConfidence transactionConfidence = null;
         for (TransactionConfidence confidence : transactionConfidenceList) {
@@ -698,19 +662,7 @@ public class WalletService {
     }
 
     public Coin getBalanceForAddress(Address address) {
-        return wallet != null ? getBalance(wallet.calculateAllSpendCandidates(), address) : Coin.ZERO;
-    }
-
-    private Coin getBalance(List<TransactionOutput> transactionOutputs, Address address) {
-        Coin balance = Coin.ZERO;
-        for (TransactionOutput transactionOutput : transactionOutputs) {
-            if (transactionOutput.getScriptPubKey().isSentToAddress() || transactionOutput.getScriptPubKey().isPayToScriptHash()) {
-                Address addressOutput = transactionOutput.getScriptPubKey().getToAddress(params);
-                if (addressOutput.equals(address))
-                    balance = balance.add(transactionOutput.getValue());
-            }
-        }
-        return balance;
+        return addressIndex.getBalance(address);
     }
 
     public Coin getSavingWalletBalance() {
@@ -720,17 +672,7 @@ public class WalletService {
     }
 
     public int getNumTxOutputsForAddress(Address address) {
-        List<TransactionOutput> transactionOutputs = new ArrayList<>();
-        wallet.getTransactions(true).stream().forEach(t -> transactionOutputs.addAll(t.getOutputs()));
-        int outputs = 0;
-        for (TransactionOutput transactionOutput : transactionOutputs) {
-            if (transactionOutput.getScriptPubKey().isSentToAddress() || transactionOutput.getScriptPubKey().isPayToScriptHash()) {
-                Address addressOutput = transactionOutput.getScriptPubKey().getToAddress(params);
-                if (addressOutput.equals(address))
-                    outputs++;
-            }
-        }
-        return outputs;
+        return addressIndex.getNumTxOutputs(address);
     }
 
 
@@ -895,6 +837,10 @@ public class WalletService {
     // Withdrawal Fee calculation
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * @return The fee for sending the given amount minus the fee from the given address. The fee is estimated from
+     * the inputs the coin selector would use, the transaction gets only completed at sending.
+     */
     public Coin getRequiredFee(String fromAddress,
                                String toAddress,
                                Coin amount,
@@ -905,86 +851,33 @@ public class WalletService {
             throw new AddressEntryException("WithdrawFromAddress is not found in our wallet.");
 
         checkNotNull(addressEntry.get().getAddress(), "addressEntry.get().getAddress() must nto be null");
-        return getFee(fromAddress,
-                toAddress,
+        Coin fee = FeeEstimator.estimateFeePaidFromAmount(new TradeWalletCoinSelector(params, addressEntry.get().getAddress()),
+                wallet.calculateAllSpendCandidates(true, true),
                 amount,
-                context,
-                Coin.ZERO);
+                new Address(params, toAddress),
+                FeePolicy.getNonTradeFeePerKb());
+        log.trace("result fee " + fee.toFriendlyString());
+        return fee;
     }
 
+    /**
+     * @return The fee for sending the given amount minus the fee from the given addresses.
+     * @throws InsufficientFundsException If the amount minus the fee would be below the dust limit.
+     */
     public Coin getRequiredFeeForMultipleAddresses(Set<String> fromAddresses,
                                                    String toAddress,
                                                    Coin amount)
             throws AddressFormatException, AddressEntryException, InsufficientFundsException {
-        Set<AddressEntry> addressEntries = fromAddresses.stream()
-                .map(address -> {
-                    Optional<AddressEntry> addressEntryOptional = findAddressEntry(address, AddressEntry.Context.AVAILABLE);
-                    if (!addressEntryOptional.isPresent())
-                        addressEntryOptional = findAddressEntry(address, AddressEntry.Context.OFFER_FUNDING);
-                    if (!addressEntryOptional.isPresent())
-                        addressEntryOptional = findAddressEntry(address, AddressEntry.Context.TRADE_PAYOUT);
-                    if (!addressEntryOptional.isPresent())
-                        addressEntryOptional = findAddressEntry(address, AddressEntry.Context.ARBITRATOR);
-                    return addressEntryOptional;
-                })
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toSet());
-        if (addressEntries.isEmpty())
-            throw new AddressEntryException("No Addresses for withdraw  found in our wallet");
-        return getFeeForMultipleAddresses(fromAddresses,
-                toAddress,
+        Coin fee = FeeEstimator.estimateFeePaidFromAmount(new MultiAddressesCoinSelector(params, findAddressEntries(fromAddresses)),
+                wallet.calculateAllSpendCandidates(true, true),
                 amount,
-                Coin.ZERO);
-    }
-
-
-    private Coin getFee(String fromAddress,
-                        String toAddress,
-                        Coin amount,
-                        AddressEntry.Context context,
-                        Coin fee) throws AddressEntryException, AddressFormatException {
-        try {
-            wallet.completeTx(getSendRequest(fromAddress, toAddress, amount, aesKey, context));
-        } catch (InsufficientMoneyException e) {
-            if (e.missing != null) {
-                log.trace("missing fee " + e.missing.toFriendlyString());
-                fee = fee.add(e.missing);
-                amount = amount.subtract(fee);
-                return getFee(fromAddress,
-                        toAddress,
-                        amount,
-                        context,
-                        fee);
-            }
-        }
-        log.trace("result fee " + fee.toFriendlyString());
-        return fee;
-    }
+                new Address(params, toAddress),
+                FeePolicy.getNonTradeFeePerKb());
+        if (!amount.subtract(fee).isGreaterThan(Transaction.MIN_NONDUST_OUTPUT))
+            throw new InsufficientFundsException("The fees for that transaction exceed the available funds " +
+                    "or the resulting output value is below the min. dust value:\n" +
+                    "Required fee " + fee.toFriendlyString());
 
-    private Coin getFeeForMultipleAddresses(Set<String> fromAddresses,
-                                            String toAddress,
-                                            Coin amount,
-                                            Coin fee) throws AddressEntryException, AddressFormatException, InsufficientFundsException {
-        try {
-            wallet.completeTx(getSendRequestForMultipleAddresses(fromAddresses, toAddress, amount, null, aesKey));
-        } catch (InsufficientMoneyException e) {
-            if (e.missing != null) {
-                log.trace("missing fee " + e.missing.toFriendlyString());
-                fee = fee.add(e.missing);
-                amount = amount.subtract(fee);
-                if (amount.isGreaterThan(Transaction.MIN_NONDUST_OUTPUT)) {
-                    return getFeeForMultipleAddresses(fromAddresses,
-                            toAddress,
-                            amount,
-                            fee);
-                } else {
-                    throw new InsufficientFundsException("The fees for that transaction exceed the available funds " +
-                            "or the resulting output value is below the min. dust value:\n" +
-                            "Missing " + e.missing.toFriendlyString());
-                }
-            }
-        }
         log.trace("result fee " + fee.toFriendlyString());
         return fee;
     }
@@ -1071,33 +964,23 @@ public class WalletService {
         return sendRequest;
     }
 
+    /**
+     * @return The estimated size of the transaction sending the given amount plus the fee from the given addresses.
+     */
     public int getTransactionSize(Set<String> fromAddresses,
                                   String toAddress,
                                   Coin amount) throws
             AddressFormatException, AddressEntryException, InsufficientMoneyException {
-        Wallet.SendRequest sendRequestForMultipleAddresses = getSendRequestForMultipleAddresses(fromAddresses, toAddress, amount, null, aesKey);
-        Transaction tx = sendRequestForMultipleAddresses.tx;
-        wallet.completeTx(sendRequestForMultipleAddresses);
-        log.debug("No. of inputs: " + tx.getInputs().size());
-        int size = tx.bitcoinSerialize().length;
+        int size = FeeEstimator.estimateSizeFeeOnTop(new MultiAddressesCoinSelector(params, findAddressEntries(fromAddresses)),
+                wallet.calculateAllSpendCandidates(true, true),
+                amount,
+                new Address(params, toAddress),
+                FeePolicy.getNonTradeFeePerKb());
         log.debug("Tx size: " + size);
         return size;
     }
 
-    private Wallet.SendRequest getSendRequestForMultipleAddresses(Set<String> fromAddresses,
-                                                                  String toAddress,
-                                                                  Coin amount,
-                                                                  @Nullable String changeAddress,
-                                                                  @Nullable KeyParameter aesKey) throws
-            AddressFormatException, AddressEntryException, InsufficientMoneyException {
-        Transaction tx = new Transaction(params);
-        Preconditions.checkArgument(Restrictions.isAboveDust(amount),
-                "The amount is too low (dust limit).");
-        tx.addOutput(amount, new Address(params, toAddress));
-
-        Wallet.SendRequest sendRequest = Wallet.SendRequest.forTx(tx);
-        sendRequest.aesKey = aesKey;
-        sendRequest.shuffleOutputs = false;
+    private Set<AddressEntry> findAddressEntries(Set<String> fromAddresses) throws AddressEntryException {
         Set<AddressEntry> addressEntries = fromAddresses.stream()
                 .map(address -> {
                     Optional<AddressEntry> addressEntryOptional = findAddressEntry(address, AddressEntry.Context.AVAILABLE);
@@ -1114,6 +997,24 @@ public class WalletService {
                 .collect(Collectors.toSet());
         if (addressEntries.isEmpty())
             throw new AddressEntryException("No Addresses for withdraw  found in our wallet");
+        return addressEntries;
+    }
+
+    private Wallet.SendRequest getSendRequestForMultipleAddresses(Set<String> fromAddresses,
+                                                                  String toAddress,
+                                                                  Coin amount,
+                                                                  @Nullable String changeAddress,
+                                                                  @Nullable KeyParameter aesKey) throws
+            AddressFormatException, AddressEntryException, InsufficientMoneyException {
+        Transaction tx = new Transaction(params);
+        Preconditions.checkArgument(Restrictions.isAboveDust(amount),
+                "The amount is too low (dust limit).");
+        tx.addOutput(amount, new Address(params, toAddress));
+
+        Wallet.SendRequest sendRequest = Wallet.SendRequest.forTx(tx);
+        sendRequest.aesKey = aesKey;
+        sendRequest.shuffleOutputs = false;
+        Set<AddressEntry> addressEntries = findAddressEntries(fromAddresses);
 
         sendRequest.coinSelector = new MultiAddressesCoinSelector(params, addressEntries);
         Optional<AddressEntry> addressEntryOptional = Optional.empty();
@@ -1203,21 +1104,28 @@ public class WalletService {
     private class BitsquareWalletEventListener extends AbstractWalletEventListener {
         @Override
         public void onCoinsReceived(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+            addressIndex.onTransactionChanged(tx);
             notifyBalanceListeners(tx);
         }
 
         @Override
         public void onCoinsSent(Wallet wallet, Transaction tx, Coin prevBalance, Coin newBalance) {
+            addressIndex.onTransactionChanged(tx);
             notifyBalanceListeners(tx);
         }
 
+        @Override
+        public void onReorganize(Wallet wallet) {
+            addressIndex.rebuild();
+        }
+
         @Override
         public void onTransactionConfidenceChanged(Wallet wallet, Transaction tx) {
+            addressIndex.onTransactionChanged(tx);
+            Set<Address> addresses = addressIndex.getAddresses(tx);
             for (AddressConfidenceListener addressConfidenceListener : addressConfidenceListeners) {
-                List<TransactionConfidence> transactionConfidenceList = new ArrayList<>();
-                transactionConfidenceList.add(getTransactionConfidence(tx, addressConfidenceListener.getAddress()));
-
-                TransactionConfidence transactionConfidence = getMostRecentConfidence(transactionConfidenceList);
+                TransactionConfidence transactionConfidence = addresses.contains(addressConfidenceListener.getAddress()) ?
+                        tx.getConfidence() : null;
                 addressConfidenceListener.onTransactionConfidenceChanged(transactionConfidence);
             }
 
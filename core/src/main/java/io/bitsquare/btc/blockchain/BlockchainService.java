@@ -1,5 +1,7 @@
 package io.bitsquare.btc.blockchain;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
@@ -9,48 +11,178 @@ import io.bitsquare.btc.blockchain.providers.BlockTrailProvider;
 import io.bitsquare.btc.blockchain.providers.BlockrIOProvider;
 import io.bitsquare.btc.blockchain.providers.FeeProvider;
 import io.bitsquare.btc.blockchain.providers.TradeBlockProvider;
+import io.bitsquare.common.Timer;
+import io.bitsquare.common.UserThread;
 import org.bitcoinj.core.Coin;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import javax.annotation.Nullable;
 
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Requests the fee of a transaction from the fee providers.
+ * <p>
+ * The providers are asked one after another, ordered by their past latency and error rate. The next provider is
+ * only asked if the former did not deliver a result within the hedge delay or failed. The first received fee is
+ * used and the request only fails if all providers failed. Fees are cached per transaction and concurrent requests
+ * for the same transaction share one lookup.
+ */
 public class BlockchainService {
     private static final Logger log = LoggerFactory.getLogger(BlockchainService.class);
 
-    private final ArrayList<FeeProvider> feeProviders;
+    private static final long DEFAULT_HEDGE_DELAY_MS = 3000;
+    private static final long MIN_HEDGE_DELAY_MS = 1000;
+    private static final long MAX_HEDGE_DELAY_MS = 5000;
+    private static final int MAX_CACHED_FEES = 1000;
+
+    private final List<FeeProvider> feeProviders;
+    private final Map<FeeProvider, FeeProviderStats> statsByProvider = new HashMap<>();
+    // The fee of a transaction does not change, so we never need to request it again
+    private final Cache<String, Coin> feeByTxId = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_FEES).build();
+    private final Map<String, SettableFuture<Coin>> pendingRequests = new HashMap<>();
 
     @Inject
     public BlockchainService(BlockrIOProvider blockrIOProvider, BlockTrailProvider blockTrailProvider, TradeBlockProvider tradeBlockProvider) {
         feeProviders = new ArrayList<>(Arrays.asList(blockrIOProvider, blockTrailProvider, tradeBlockProvider));
+        feeProviders.forEach(provider -> statsByProvider.put(provider, new FeeProviderStats()));
     }
 
     public SettableFuture<Coin> requestFee(String transactionId) {
         Log.traceCall(transactionId);
-        long startTime = System.currentTimeMillis();
-        final SettableFuture<Coin> resultFuture = SettableFuture.create();
+        final SettableFuture<Coin> resultFuture;
+        synchronized (this) {
+            Coin cachedFee = feeByTxId.getIfPresent(transactionId);
+            if (cachedFee != null) {
+                log.debug("Use cached fee of {} for tx {}", cachedFee.toFriendlyString(), transactionId);
+                SettableFuture<Coin> future = SettableFuture.create();
+                future.set(cachedFee);
+                return future;
+            }
+
+            SettableFuture<Coin> pendingFuture = pendingRequests.get(transactionId);
+            if (pendingFuture != null)
+                return pendingFuture;
+
+            resultFuture = SettableFuture.create();
+            pendingRequests.put(transactionId, resultFuture);
+        }
+
+        List<FeeProvider> providers = getProvidersByScore();
+        UserThread.execute(() -> new FeeLookup(transactionId, providers, resultFuture).startNextRequest());
+        return resultFuture;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private List<FeeProvider> getProvidersByScore() {
+        return feeProviders.stream()
+                .sorted(Comparator.comparingDouble(provider -> statsByProvider.get(provider).getScore()))
+                .collect(Collectors.toList());
+    }
+
+    // We wait about twice the usual latency of the provider before we ask the next one
+    private long getHedgeDelay(FeeProvider provider) {
+        long avgLatency = statsByProvider.get(provider).getAvgLatency();
+        if (avgLatency < 0)
+            return DEFAULT_HEDGE_DELAY_MS;
+        else
+            return Math.min(MAX_HEDGE_DELAY_MS, Math.max(MIN_HEDGE_DELAY_MS, 2 * avgLatency));
+    }
+
+    private synchronized void onLookupCompleted(String transactionId, @Nullable Coin fee) {
+        pendingRequests.remove(transactionId);
+        if (fee != null)
+            feeByTxId.put(transactionId, fee);
+    }
+
 
-        for (FeeProvider provider : feeProviders) {
-            GetFeeRequest getFeeRequest = new GetFeeRequest();
-            SettableFuture<Coin> future = getFeeRequest.request(transactionId, provider);
-            Futures.addCallback(future, new FutureCallback<Coin>() {
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Run in UserThread
+    private class FeeLookup {
+        private final String transactionId;
+        private final List<FeeProvider> providers;
+        private final SettableFuture<Coin> resultFuture;
+        private final List<GetFeeRequest> requests = new ArrayList<>();
+        private final long startTime = System.currentTimeMillis();
+        private Timer hedgeTimer;
+        private int numFailedRequests;
+
+        private FeeLookup(String transactionId, List<FeeProvider> providers, SettableFuture<Coin> resultFuture) {
+            this.transactionId = transactionId;
+            this.providers = providers;
+            this.resultFuture = resultFuture;
+        }
+
+        private void startNextRequest() {
+            stopHedgeTimer();
+            if (resultFuture.isDone() || requests.size() >= providers.size())
+                return;
+
+            FeeProvider provider = providers.get(requests.size());
+            GetFeeRequest getFeeRequest = new GetFeeRequest(statsByProvider.get(provider));
+            requests.add(getFeeRequest);
+            Futures.addCallback(getFeeRequest.request(transactionId, provider), new FutureCallback<Coin>() {
                 public void onSuccess(Coin fee) {
-                    if (!resultFuture.isDone()) {
-                        log.debug("Request fee from providers done after {} ms.", (System.currentTimeMillis() - startTime));
-                        resultFuture.set(fee);
-                    }
+                    UserThread.execute(() -> onRequestSucceeded(fee, provider));
                 }
 
                 public void onFailure(@NotNull Throwable throwable) {
-                    if (!resultFuture.isDone()) {
-                        log.warn("Could not get the fee from any provider after repeated requests.");
-                        resultFuture.setException(throwable);
-                    }
+                    UserThread.execute(() -> onRequestFailed(throwable, provider));
                 }
             });
+
+            if (requests.size() < providers.size())
+                hedgeTimer = UserThread.runAfter(this::startNextRequest, getHedgeDelay(provider), TimeUnit.MILLISECONDS);
+        }
+
+        private void onRequestSucceeded(Coin fee, FeeProvider provider) {
+            if (resultFuture.isDone())
+                return;
+
+            log.debug("Request fee from providers done after {} ms. provider={}, stats={}",
+                    (System.currentTimeMillis() - startTime), provider, statsByProvider.get(provider));
+            complete(fee);
+            resultFuture.set(fee);
+        }
+
+        private void onRequestFailed(Throwable throwable, FeeProvider provider) {
+            if (resultFuture.isDone())
+                return;
+
+            numFailedRequests++;
+            log.debug("Fee request failed. provider={}, stats={}", provider, statsByProvider.get(provider));
+            if (numFailedRequests >= providers.size()) {
+                log.warn("Could not get the fee from any provider after repeated requests.");
+                complete(null);
+                resultFuture.setException(throwable);
+            } else if (numFailedRequests == requests.size()) {
+                // All started requests failed, we don't wait for the hedge delay
+                startNextRequest();
+            }
+        }
+
+        private void complete(@Nullable Coin fee) {
+            stopHedgeTimer();
+            requests.forEach(GetFeeRequest::cancel);
+            onLookupCompleted(transactionId, fee);
+        }
+
+        private void stopHedgeTimer() {
+            if (hedgeTimer != null) {
+                hedgeTimer.stop();
+                hedgeTimer = null;
+            }
         }
-        return resultFuture;
     }
 }
@@ -0,0 +1,61 @@
+package io.bitsquare.btc.blockchain;
+
+/**
+ * Latency and error rate of the requests to one fee provider, both as exponential moving averages so recent requests
+ * count more. Used for choosing the provider which is asked first.
+ */
+class FeeProviderStats {
+    private static final double SMOOTHING_FACTOR = 0.3;
+    // Lower bound of the success rate used for the score, so a provider which failed a few times still gets tried
+    private static final double MIN_SUCCESS_RATE = 0.1;
+
+    private int numRequests;
+    private int numFailures;
+    private double avgLatency;
+    private double errorRate;
+
+    synchronized void onSuccess(long latency) {
+        add(latency, false);
+    }
+
+    synchronized void onFailure(long latency) {
+        numFailures++;
+        add(latency, true);
+    }
+
+    /**
+     * @return The expected time until we get a fee from that provider. Lower is better. Providers without requests
+     * have a score of 0, so each provider gets tried.
+     */
+    synchronized double getScore() {
+        return avgLatency / Math.max(MIN_SUCCESS_RATE, 1 - errorRate);
+    }
+
+    /**
+     * @return The average latency in ms or -1 if there was no request yet.
+     */
+    synchronized long getAvgLatency() {
+        return numRequests > 0 ? Math.round(avgLatency) : -1;
+    }
+
+    private void add(long latency, boolean failed) {
+        if (numRequests == 0) {
+            avgLatency = latency;
+            errorRate = failed ? 1 : 0;
+        } else {
+            avgLatency += SMOOTHING_FACTOR * (latency - avgLatency);
+            errorRate += SMOOTHING_FACTOR * ((failed ? 1 : 0) - errorRate);
+        }
+        numRequests++;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FeeProviderStats{" +
+                "numRequests=" + numRequests +
+                ", numFailures=" + numFailures +
+                ", avgLatency=" + Math.round(avgLatency) +
+                ", errorRate=" + String.format("%.2f", errorRate) +
+                '}';
+    }
+}
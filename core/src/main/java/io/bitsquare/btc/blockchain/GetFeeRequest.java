@@ -16,10 +16,13 @@ import java.io.IOException;
 class GetFeeRequest {
     private static final Logger log = LoggerFactory.getLogger(GetFeeRequest.class);
     private static final ListeningExecutorService executorService = Utilities.getListeningExecutorService("GetFeeRequest", 3, 5, 10 * 60);
+    private final FeeProviderStats stats;
     private Timer timer;
     private int faults;
+    private volatile boolean cancelled;
 
-    public GetFeeRequest() {
+    public GetFeeRequest(FeeProviderStats stats) {
+        this.stats = stats;
     }
 
     public SettableFuture<Coin> request(String transactionId, FeeProvider provider) {
@@ -30,9 +33,13 @@ class GetFeeRequest {
     private SettableFuture<Coin> request(String transactionId, FeeProvider provider, SettableFuture<Coin> resultFuture) {
         ListenableFuture<Coin> future = executorService.submit(() -> {
             Thread.currentThread().setName("requestFee-" + provider.toString());
+            long ts = System.currentTimeMillis();
             try {
-                return provider.getFee(transactionId);
+                Coin fee = provider.getFee(transactionId);
+                stats.onSuccess(System.currentTimeMillis() - ts);
+                return fee;
             } catch (IOException | HttpException e) {
+                stats.onFailure(System.currentTimeMillis() - ts);
                 log.debug("Fee request failed for tx {} from provider {}\n" +
                                 "That is expected if the tx was not propagated yet to the provider.\n" +
                                 "error={}",
@@ -52,7 +59,9 @@ class GetFeeRequest {
                     timer = UserThread.runAfter(() -> {
                         stopTimer();
                         faults++;
-                        if (!resultFuture.isDone()) {
+                        if (cancelled) {
+                            log.debug("Fee request for tx {} from provider {} got cancelled", transactionId, provider);
+                        } else if (!resultFuture.isDone()) {
                             if (faults < 4) {
                                 request(transactionId, provider, resultFuture);
                             } else {
@@ -72,6 +81,13 @@ class GetFeeRequest {
         return resultFuture;
     }
 
+    /**
+     * Stops further repeated requests, e.g. because we got the fee already from another provider.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
     private void stopTimer() {
         timer.stop();
         timer = null;
@@ -18,10 +18,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import javax.inject.Named;
 import java.time.Instant;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.util.*;
 import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -58,6 +55,10 @@ public class PriceFeedService {
     private final StringProperty currencyCodeProperty = new SimpleStringProperty();
     private final ObjectProperty<Type> typeProperty = new SimpleObjectProperty<>();
     private final IntegerProperty currenciesUpdateFlag = new SimpleIntegerProperty(0);
+    private final Map<String, IntegerProperty> currencyUpdateFlagMap = new HashMap<>();
+    // Epoch and version of the price data we have received from the provider. Used to request only the changes.
+    private long epoch;
+    private long version;
     private long epochInSecondAtLastRequest;
     private Map<String, Long> timeStampMap = new HashMap<>();
     private String baseUrl;
@@ -110,6 +111,10 @@ public class PriceFeedService {
             long delay = Math.max(40, Math.min(90, PERIOD_SEC - (Instant.now().getEpochSecond() - epochInSecondAtLastRequest) + 2 + new Random().nextInt(5)));
             UserThread.runAfter(this::request, delay);
         }, (errorMessage, throwable) -> {
+            // The provider might not support delta requests, so we request all prices again
+            epoch = 0;
+            version = 0;
+
             // Try other provider if more then 1 is available
             if (priceFeedProviderArray.length > 1) {
                 String newBaseUrl;
@@ -177,10 +182,16 @@ public class PriceFeedService {
         return typeProperty;
     }
 
+    // Changes if the price of any currency has changed
     public IntegerProperty currenciesUpdateFlagProperty() {
         return currenciesUpdateFlag;
     }
 
+    // Changes only if the price of the given currency has changed
+    public IntegerProperty currencyUpdateFlagProperty(String currencyCode) {
+        return currencyUpdateFlagMap.computeIfAbsent(currencyCode, k -> new SimpleIntegerProperty(0));
+    }
+
     public Date getLastRequestTimeStampBtcAverage() {
         return new Date(epochInSecondAtLastRequest * 1000);
     }
@@ -224,13 +235,31 @@ public class PriceFeedService {
                 faultHandler.handleFault(errorMessage, new PriceRequestException(errorMessage));
             }
         }
-        currenciesUpdateFlag.setValue(currenciesUpdateFlag.get() + 1);
+    }
+
+    private void applyMarketPrices(Map<String, MarketPrice> marketPriceMap) {
+        List<String> changedCurrencies = new ArrayList<>();
+        marketPriceMap.entrySet().stream()
+                .filter(e -> !e.getValue().equals(cache.get(e.getKey())))
+                .forEach(e -> {
+                    cache.put(e.getKey(), e.getValue());
+                    changedCurrencies.add(e.getKey());
+                });
+
+        if (!changedCurrencies.isEmpty()) {
+            log.debug("Prices changed for " + changedCurrencies);
+            changedCurrencies.stream()
+                    .map(currencyUpdateFlagMap::get)
+                    .filter(flag -> flag != null)
+                    .forEach(flag -> flag.setValue(flag.get() + 1));
+            currenciesUpdateFlag.setValue(currenciesUpdateFlag.get() + 1);
+        }
     }
 
     private void requestAllPrices(PriceProvider provider, Runnable resultHandler, FaultHandler faultHandler) {
         Log.traceCall();
         PriceRequest priceRequest = new PriceRequest();
-        SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> future = priceRequest.requestAllPrices(provider);
+        SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> future = priceRequest.requestPrices(provider, epoch, version);
         Futures.addCallback(future, new FutureCallback<Tuple2<Map<String, Long>, Map<String, MarketPrice>>>() {
             @Override
             public void onSuccess(@Nullable Tuple2<Map<String, Long>, Map<String, MarketPrice>> result) {
@@ -238,7 +267,10 @@ public class PriceFeedService {
                     checkNotNull(result, "Result must not be null at requestAllPrices");
                     timeStampMap = result.first;
                     epochInSecondAtLastRequest = timeStampMap.get("btcAverageTs");
-                    cache.putAll(result.second);
+                    // Older providers don't deliver a version, then we keep requesting all prices
+                    epoch = timeStampMap.getOrDefault("epoch", 0L);
+                    version = timeStampMap.getOrDefault("version", 0L);
+                    applyMarketPrices(result.second);
                     resultHandler.run();
                 });
             }
@@ -1,7 +1,6 @@
 package io.bitsquare.btc.pricefeed;
 
-import com.google.gson.Gson;
-import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.stream.JsonReader;
 import io.bitsquare.app.Version;
 import io.bitsquare.btc.HttpClientProvider;
 import io.bitsquare.common.util.Tuple2;
@@ -11,7 +10,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.*;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 public class PriceProvider extends HttpClientProvider {
     private static final Logger log = LoggerFactory.getLogger(PriceProvider.class);
@@ -24,22 +26,87 @@ public class PriceProvider extends HttpClientProvider {
     }
 
     public Tuple2<Map<String, Long>, Map<String, MarketPrice>> getAll() throws IOException, HttpException {
-        Map<String, MarketPrice> marketPriceMap = new HashMap<>();
         String json = httpClient.requestWithGET("all", "User-Agent", "Bitsquare/" + Version.VERSION + ", uid:" + uid);
-        LinkedTreeMap<String, Object> map = new Gson().fromJson(json, LinkedTreeMap.class);
+        return parse(json);
+    }
+
+    /**
+     * Requests only the prices which have changed since the given version. If the provider does not know that
+     * version (e.g. after a restart) it returns all prices.
+     */
+    public Tuple2<Map<String, Long>, Map<String, MarketPrice>> getDelta(long epoch, long version) throws IOException, HttpException {
+        String json = httpClient.requestWithGET("delta/" + epoch + "/" + version, "User-Agent", "Bitsquare/" + Version.VERSION + ", uid:" + uid);
+        return parse(json);
+    }
+
+    // We read the response token by token directly into MarketPrice objects instead of building a tree of boxed
+    // values first.
+    // Besides the timestamps the first map contains the epoch and version of the data if provided and the value of
+    // the full flag (1 for a document with all prices, 0 for a delta).
+    public static Tuple2<Map<String, Long>, Map<String, MarketPrice>> parse(String json) throws IOException {
         Map<String, Long> tsMap = new HashMap<>();
-        tsMap.put("btcAverageTs", ((Double) map.get("btcAverageTs")).longValue());
-        tsMap.put("poloniexTs", ((Double) map.get("poloniexTs")).longValue());
-        tsMap.put("coinmarketcapTs", ((Double) map.get("coinmarketcapTs")).longValue());
-
-        List<LinkedTreeMap<String, Object>> list = (ArrayList<LinkedTreeMap<String, Object>>) map.get("data");
-        list.stream().forEach(treeMap -> {
-            marketPriceMap.put((String) treeMap.get("c"),
-                    new MarketPrice((String) treeMap.get("c"), (double) treeMap.get("a"), (double) treeMap.get("b"), (double) treeMap.get("l")));
-        });
+        Map<String, MarketPrice> marketPriceMap = new HashMap<>();
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "btcAverageTs":
+                    case "poloniexTs":
+                    case "coinmarketcapTs":
+                        tsMap.put(name, (long) reader.nextDouble());
+                        break;
+                    case "epoch":
+                    case "version":
+                        tsMap.put(name, reader.nextLong());
+                        break;
+                    case "full":
+                        tsMap.put(name, reader.nextBoolean() ? 1L : 0L);
+                        break;
+                    case "data":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            MarketPrice marketPrice = readMarketPrice(reader);
+                            marketPriceMap.put(marketPrice.currencyCode, marketPrice);
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        tsMap.putIfAbsent("full", 1L);
         return new Tuple2<>(tsMap, marketPriceMap);
     }
 
+    private static MarketPrice readMarketPrice(JsonReader reader) throws IOException {
+        String currencyCode = null;
+        double ask = 0, bid = 0, last = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "c":
+                    currencyCode = reader.nextString();
+                    break;
+                case "a":
+                    ask = reader.nextDouble();
+                    break;
+                case "b":
+                    bid = reader.nextDouble();
+                    break;
+                case "l":
+                    last = reader.nextDouble();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new MarketPrice(currencyCode, ask, bid, last);
+    }
+
     @Override
     public String toString() {
         return "PriceProvider";
@@ -18,10 +18,15 @@ class PriceRequest {
     }
 
     public SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> requestAllPrices(PriceProvider provider) {
+        return requestPrices(provider, 0, 0);
+    }
+
+    // If we don't have a version yet we request all prices, otherwise only the changes since our version
+    public SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> requestPrices(PriceProvider provider, long epoch, long version) {
         final SettableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> resultFuture = SettableFuture.create();
         ListenableFuture<Tuple2<Map<String, Long>, Map<String, MarketPrice>>> future = executorService.submit(() -> {
             Thread.currentThread().setName("PriceRequest-" + provider.toString());
-            return provider.getAll();
+            return version > 0 ? provider.getDelta(epoch, version) : provider.getAll();
         });
 
         Futures.addCallback(future, new FutureCallback<Tuple2<Map<String, Long>, Map<String, MarketPrice>>>() {
@@ -19,7 +19,6 @@ package io.bitsquare.trade;
 
 import io.bitsquare.app.Version;
 import io.bitsquare.p2p.NodeAddress;
-import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.offer.Offer;
 import io.bitsquare.trade.protocol.trade.BuyerAsOffererProtocol;
 import io.bitsquare.trade.protocol.trade.OffererProtocol;
@@ -41,8 +40,8 @@ public final class BuyerAsOffererTrade extends BuyerTrade implements OffererTrad
     // Constructor, initialization
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public BuyerAsOffererTrade(Offer offer, Storage<? extends TradableList> storage) {
-        super(offer, storage);
+    public BuyerAsOffererTrade(Offer offer, TradableList<? extends Tradable> tradableList) {
+        super(offer, tradableList);
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
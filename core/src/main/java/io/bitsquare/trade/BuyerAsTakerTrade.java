@@ -19,7 +19,6 @@ package io.bitsquare.trade;
 
 import io.bitsquare.app.Version;
 import io.bitsquare.p2p.NodeAddress;
-import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.offer.Offer;
 import io.bitsquare.trade.protocol.trade.BuyerAsTakerProtocol;
 import io.bitsquare.trade.protocol.trade.TakerProtocol;
@@ -43,8 +42,8 @@ public final class BuyerAsTakerTrade extends BuyerTrade implements TakerTrade {
     // Constructor, initialization
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public BuyerAsTakerTrade(Offer offer, Coin tradeAmount, long tradePrice, NodeAddress tradingPeerNodeAddress, Storage<? extends TradableList> storage) {
-        super(offer, tradeAmount, tradePrice, tradingPeerNodeAddress, storage);
+    public BuyerAsTakerTrade(Offer offer, Coin tradeAmount, long tradePrice, NodeAddress tradingPeerNodeAddress, TradableList<? extends Tradable> tradableList) {
+        super(offer, tradeAmount, tradePrice, tradingPeerNodeAddress, tradableList);
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -19,7 +19,6 @@ package io.bitsquare.trade;
 
 import io.bitsquare.app.Version;
 import io.bitsquare.p2p.NodeAddress;
-import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.offer.Offer;
 import io.bitsquare.trade.protocol.trade.OffererProtocol;
 import io.bitsquare.trade.protocol.trade.SellerAsOffererProtocol;
@@ -41,8 +40,8 @@ public final class SellerAsOffererTrade extends SellerTrade implements OffererTr
     // Constructor, initialization
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public SellerAsOffererTrade(Offer offer, Storage<? extends TradableList> storage) {
-        super(offer, storage);
+    public SellerAsOffererTrade(Offer offer, TradableList<? extends Tradable> tradableList) {
+        super(offer, tradableList);
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -22,7 +22,6 @@ import io.bitsquare.btc.FeePolicy;
 import io.bitsquare.common.handlers.ErrorMessageHandler;
 import io.bitsquare.common.handlers.ResultHandler;
 import io.bitsquare.p2p.NodeAddress;
-import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.offer.Offer;
 import io.bitsquare.trade.protocol.trade.SellerProtocol;
 import org.bitcoinj.core.Coin;
@@ -37,12 +36,12 @@ public abstract class SellerTrade extends Trade {
 
     private static final Logger log = LoggerFactory.getLogger(BuyerAsTakerTrade.class);
 
-    SellerTrade(Offer offer, Coin tradeAmount, long tradePrice, NodeAddress tradingPeerNodeAddress, Storage<? extends TradableList> storage) {
-        super(offer, tradeAmount, tradePrice, tradingPeerNodeAddress, storage);
+    SellerTrade(Offer offer, Coin tradeAmount, long tradePrice, NodeAddress tradingPeerNodeAddress, TradableList<? extends Tradable> tradableList) {
+        super(offer, tradeAmount, tradePrice, tradingPeerNodeAddress, tradableList);
     }
 
-    SellerTrade(Offer offer, Storage<? extends TradableList> storage) {
-        super(offer, storage);
+    SellerTrade(Offer offer, TradableList<? extends Tradable> tradableList) {
+        super(offer, tradableList);
     }
 
     @Override
@@ -19,38 +19,57 @@ package io.bitsquare.trade;
 
 import io.bitsquare.app.Version;
 import io.bitsquare.common.persistance.Persistable;
+import io.bitsquare.storage.RecordStorage;
 import io.bitsquare.storage.Storage;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 
+/**
+ * Each tradable is persisted as its own record, so a state change of one trade does not rewrite all other trades.
+ * The file of the list itself only holds the index of the tradable IDs.
+ * <p>
+ * Older versions persisted the whole list in one file. If no index is found we read the old file and
+ * migrate its content. The old file is not deleted, so it stays available as backup.
+ */
 public final class TradableList<T extends Tradable> extends ArrayList<T> implements Persistable {
     // That object is saved to disc. We need to take care of changes to not break deserialization.
     private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
 
     private static final Logger log = LoggerFactory.getLogger(TradableList.class);
 
-    transient final private Storage<TradableList<T>> storage;
+    transient final private RecordStorage<T> recordStorage;
     // Use getObservableList() also class locally, to be sure that object exists in case we use the object as deserialized form
     transient private ObservableList<T> observableList;
 
-    // Superclass is ArrayList, which will be persisted
+    // Superclass is ArrayList, which was persisted in the old format
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public TradableList(Storage<TradableList<T>> storage, String fileName) {
-        this.storage = storage;
+    public TradableList(File storageDir, String fileName) {
+        recordStorage = new RecordStorage<>(storageDir, fileName);
 
-        TradableList<T> persisted = storage.initAndGetPersisted(this, fileName);
-        if (persisted != null) {
-            this.addAll(persisted);
+        if (recordStorage.hasPersistedIndex()) {
+            this.addAll(recordStorage.readAll());
+        } else {
+            Storage<TradableList<T>> storage = new Storage<>(storageDir);
+            TradableList<T> persisted = storage.initAndGetPersistedWithFileName(fileName);
+            if (persisted != null) {
+                log.info("Migrate {} with {} entries to per-tradable storage", fileName, persisted.size());
+                this.addAll(persisted);
+            }
+            LinkedHashMap<String, T> records = new LinkedHashMap<>();
+            this.forEach(tradable -> records.put(tradable.getId(), tradable));
+            recordStorage.saveAllNow(records);
         }
         observableList = FXCollections.observableArrayList(this);
     }
@@ -68,7 +87,7 @@ public final class TradableList<T extends Tradable> extends ArrayList<T> impleme
         boolean changed = super.add(tradable);
         getObservableList().add(tradable);
         if (changed)
-            storage.queueUpForSave();
+            recordStorage.add(tradable.getId(), tradable);
         return changed;
     }
 
@@ -77,10 +96,19 @@ public final class TradableList<T extends Tradable> extends ArrayList<T> impleme
         boolean changed = super.remove(tradable);
         getObservableList().remove(tradable);
         if (changed)
-            storage.queueUpForSave();
+            recordStorage.remove(((Tradable) tradable).getId());
         return changed;
     }
 
+    /**
+     * Queues up a save of the record of the given tradable. Calls for tradables which are not (or no longer) part
+     * of that list are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public void persist(Tradable tradable) {
+        recordStorage.queueUpForSave(tradable.getId(), (T) tradable);
+    }
+
     public ObservableList<T> getObservableList() {
         if (observableList == null)
             observableList = FXCollections.observableArrayList(this);
@@ -33,7 +33,6 @@ import io.bitsquare.crypto.DecryptedMsgWithPubKey;
 import io.bitsquare.filter.FilterManager;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.P2PService;
-import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.offer.Offer;
 import io.bitsquare.trade.offer.OpenOfferManager;
 import io.bitsquare.trade.protocol.trade.ProcessModel;
@@ -140,9 +139,9 @@ public abstract class Trade implements Tradable, Model {
     transient private ObjectProperty<State> stateProperty;
     transient private ObjectProperty<DisputeState> disputeStateProperty;
     transient private ObjectProperty<TradePeriodState> tradePeriodStateProperty;
-    // Trades are saved in the TradeList
+    // Trades are saved as records of the TradableList they belong to
     @Nullable
-    transient private Storage<? extends TradableList> storage;
+    transient private TradableList<? extends Tradable> tradableList;
     transient protected TradeProtocol tradeProtocol;
     transient private Date maxTradePeriodDate, halfTradePeriodDate;
 
@@ -184,9 +183,9 @@ public abstract class Trade implements Tradable, Model {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     // offerer
-    protected Trade(Offer offer, Storage<? extends TradableList> storage) {
+    protected Trade(Offer offer, TradableList<? extends Tradable> tradableList) {
         this.offer = offer;
-        this.storage = storage;
+        this.tradableList = tradableList;
         this.takeOfferDate = new Date();
 
         processModel = new ProcessModel();
@@ -200,9 +199,9 @@ public abstract class Trade implements Tradable, Model {
 
     // taker
     protected Trade(Offer offer, Coin tradeAmount, long tradePrice, NodeAddress tradingPeerNodeAddress,
-                    Storage<? extends TradableList> storage) {
+                    TradableList<? extends Tradable> tradableList) {
 
-        this(offer, storage);
+        this(offer, tradableList);
         this.tradeAmount = tradeAmount;
         this.tradePrice = tradePrice;
         this.tradingPeerNodeAddress = tradingPeerNodeAddress;
@@ -310,8 +309,8 @@ public abstract class Trade implements Tradable, Model {
         return decryptedMsgWithPubKey;
     }
 
-    public void setStorage(Storage<? extends TradableList> storage) {
-        this.storage = storage;
+    public void setTradableList(TradableList<? extends Tradable> tradableList) {
+        this.tradableList = tradableList;
     }
 
 
@@ -373,8 +372,8 @@ public abstract class Trade implements Tradable, Model {
     // Get called from taskRunner after each completed task
     @Override
     public void persist() {
-        if (storage != null)
-            storage.queueUpForSave();
+        if (tradableList != null)
+            tradableList.persist(this);
     }
 
     @Override
@@ -90,7 +90,6 @@ public class TradeManager {
     private final FilterManager filterManager;
     private final TradeStatisticsManager tradeStatisticsManager;
 
-    private final Storage<TradableList<Trade>> tradableListStorage;
     private final TradableList<Trade> trades;
     private final BooleanProperty pendingTradesInitialized = new SimpleBooleanProperty();
     private boolean stopped;
@@ -127,8 +126,7 @@ public class TradeManager {
         this.filterManager = filterManager;
         this.tradeStatisticsManager = tradeStatisticsManager;
 
-        tradableListStorage = new Storage<>(storageDir);
-        trades = new TradableList<>(tradableListStorage, "PendingTrades");
+        trades = new TradableList<>(storageDir, "PendingTrades");
         trades.forEach(e -> e.getOffer().setPriceFeedService(priceFeedService));
 
         p2PService.addDecryptedDirectMessageListener(new DecryptedDirectMessageListener() {
@@ -199,7 +197,7 @@ public class TradeManager {
         List<Trade> removePreparedTradeList = new ArrayList<>();
         tradesForStatistics = new ArrayList<>();
         for (Trade trade : trades) {
-            trade.setStorage(tradableListStorage);
+            trade.setTradableList(trades);
 
             if (trade.isDepositPaid() || (trade.isTakerFeePaid() && trade.errorMessageProperty().get() == null)) {
                 initTrade(trade, trade.getProcessModel().getUseSavingsWallet(), trade.getProcessModel().getFundsNeededForTrade());
@@ -273,11 +271,11 @@ public class TradeManager {
 
             Trade trade;
             if (offer.getDirection() == Offer.Direction.BUY)
-                trade = new BuyerAsOffererTrade(offer, tradableListStorage);
+                trade = new BuyerAsOffererTrade(offer, trades);
             else
-                trade = new SellerAsOffererTrade(offer, tradableListStorage);
+                trade = new SellerAsOffererTrade(offer, trades);
 
-            trade.setStorage(tradableListStorage);
+            trade.setTradableList(trades);
             initTrade(trade, trade.getProcessModel().getUseSavingsWallet(), trade.getProcessModel().getFundsNeededForTrade());
             trades.add(trade);
             ((OffererTrade) trade).handleTakeOfferRequest(message, peerNodeAddress);
@@ -319,6 +317,9 @@ public class TradeManager {
     public void checkOfferAvailability(Offer offer,
                                        ResultHandler resultHandler,
                                        ErrorMessageHandler errorMessageHandler) {
+        // If the offer is available the trade messages go to the same peer, so the connection is ready when the
+        // user takes the offer
+        p2PService.warmUpConnection(offer.getOffererNodeAddress());
         offer.checkOfferAvailability(getOfferAvailabilityModel(offer), resultHandler, errorMessageHandler);
     }
 
@@ -355,9 +356,9 @@ public class TradeManager {
                              TradeResultHandler tradeResultHandler) {
         Trade trade;
         if (offer.getDirection() == Offer.Direction.BUY)
-            trade = new SellerAsTakerTrade(offer, amount, tradePrice, model.getPeerNodeAddress(), tradableListStorage);
+            trade = new SellerAsTakerTrade(offer, amount, tradePrice, model.getPeerNodeAddress(), trades);
         else
-            trade = new BuyerAsTakerTrade(offer, amount, tradePrice, model.getPeerNodeAddress(), tradableListStorage);
+            trade = new BuyerAsTakerTrade(offer, amount, tradePrice, model.getPeerNodeAddress(), trades);
 
         trade.setTakerPaymentAccountId(paymentAccountId);
 
@@ -23,6 +23,7 @@ import io.bitsquare.common.crypto.KeyRing;
 import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.Tradable;
 import io.bitsquare.trade.TradableList;
+import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.offer.Offer;
 import javafx.collections.ObservableList;
 import org.slf4j.Logger;
@@ -40,14 +41,17 @@ public class ClosedTradableManager {
     @Inject
     public ClosedTradableManager(KeyRing keyRing, PriceFeedService priceFeedService, @Named(Storage.DIR_KEY) File storageDir) {
         this.keyRing = keyRing;
-        final Storage<TradableList<Tradable>> tradableListStorage = new Storage<>(storageDir);
-        // The ClosedTrades object can become a few MB so we don't keep so many backups
-        tradableListStorage.setNumMaxBackupFiles(3);
-        this.closedTrades = new TradableList<>(tradableListStorage, "ClosedTrades");
+        this.closedTrades = new TradableList<>(storageDir, "ClosedTrades");
         closedTrades.forEach(e -> e.getOffer().setPriceFeedService(priceFeedService));
+        closedTrades.stream()
+                .filter(e -> e instanceof Trade)
+                .forEach(e -> ((Trade) e).setTradableList(closedTrades));
     }
 
     public void add(Tradable tradable) {
+        // Later state changes of a closed trade are persisted in the closed trades record
+        if (tradable instanceof Trade)
+            ((Trade) tradable).setTradableList(closedTrades);
         closedTrades.add(tradable);
     }
 
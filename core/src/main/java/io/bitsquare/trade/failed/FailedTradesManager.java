@@ -40,13 +40,18 @@ public class FailedTradesManager {
     @Inject
     public FailedTradesManager(KeyRing keyRing, PriceFeedService priceFeedService, @Named(Storage.DIR_KEY) File storageDir) {
         this.keyRing = keyRing;
-        this.failedTrades = new TradableList<>(new Storage<>(storageDir), "FailedTrades");
-        failedTrades.forEach(e -> e.getOffer().setPriceFeedService(priceFeedService));
+        this.failedTrades = new TradableList<>(storageDir, "FailedTrades");
+        failedTrades.forEach(e -> {
+            e.getOffer().setPriceFeedService(priceFeedService);
+            e.setTradableList(failedTrades);
+        });
     }
 
     public void add(Trade trade) {
-        if (!failedTrades.contains(trade))
+        if (!failedTrades.contains(trade)) {
+            trade.setTradableList(failedTrades);
             failedTrades.add(trade);
+        }
     }
 
     public boolean wasMyOffer(Offer offer) {
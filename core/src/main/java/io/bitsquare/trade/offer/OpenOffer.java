@@ -20,7 +20,6 @@ package io.bitsquare.trade.offer;
 import io.bitsquare.app.Version;
 import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
-import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.Tradable;
 import io.bitsquare.trade.TradableList;
 import org.slf4j.Logger;
@@ -49,11 +48,11 @@ public final class OpenOffer implements Tradable {
     private final Offer offer;
     private State state = State.AVAILABLE;
 
-    transient private Storage<TradableList<OpenOffer>> storage;
+    transient private TradableList<OpenOffer> tradableList;
 
-    public OpenOffer(Offer offer, Storage<TradableList<OpenOffer>> storage) {
+    public OpenOffer(Offer offer, TradableList<OpenOffer> tradableList) {
         this.offer = offer;
-        this.storage = storage;
+        this.tradableList = tradableList;
     }
 
     private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -87,16 +86,16 @@ public final class OpenOffer implements Tradable {
         return offer;
     }
 
-    public void setStorage(Storage<TradableList<OpenOffer>> storage) {
-        this.storage = storage;
+    public void setTradableList(TradableList<OpenOffer> tradableList) {
+        this.tradableList = tradableList;
     }
 
     public void setState(State state) {
         log.trace("setState" + state);
         boolean changed = this.state != state;
         this.state = state;
-        if (changed)
-            storage.queueUpForSave();
+        if (changed && tradableList != null)
+            tradableList.persist(this);
 
         // We keep it reserved for a limited time, if trade preparation fails we revert to available state
         if (this.state == State.RESERVED)
@@ -133,7 +132,6 @@ public final class OpenOffer implements Tradable {
                 "\n\ttimeoutTimer=" + timeoutTimer +
                 "\n\toffer=" + offer +
                 "\n\tstate=" + state +
-                "\n\tstorage=" + storage +
                 '}';
     }
 }
@@ -85,7 +85,6 @@ public class OpenOfferManager implements PeerManager.Listener, DecryptedDirectMe
     private Preferences preferences;
 
     private final TradableList<OpenOffer> openOffers;
-    private final Storage<TradableList<OpenOffer>> openOffersStorage;
     private boolean stopped;
     private Timer periodicRepublishOffersTimer, periodicRefreshOffersTimer, retryRepublishOffersTimer;
 
@@ -114,9 +113,11 @@ public class OpenOfferManager implements PeerManager.Listener, DecryptedDirectMe
         this.closedTradableManager = closedTradableManager;
         this.preferences = preferences;
 
-        openOffersStorage = new Storage<>(storageDir);
-        openOffers = new TradableList<>(openOffersStorage, "OpenOffers");
-        openOffers.forEach(e -> e.getOffer().setPriceFeedService(priceFeedService));
+        openOffers = new TradableList<>(storageDir, "OpenOffers");
+        openOffers.forEach(e -> {
+            e.getOffer().setPriceFeedService(priceFeedService);
+            e.setTradableList(openOffers);
+        });
 
         // In case the app did get killed the shutDown from the modules is not called, so we use a shutdown hook
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -266,9 +267,8 @@ public class OpenOfferManager implements PeerManager.Listener, DecryptedDirectMe
         PlaceOfferProtocol placeOfferProtocol = new PlaceOfferProtocol(
                 model,
                 transaction -> {
-                    OpenOffer openOffer = new OpenOffer(offer, openOffersStorage);
+                    OpenOffer openOffer = new OpenOffer(offer, openOffers);
                     openOffers.add(openOffer);
-                    openOffersStorage.queueUpForSave();
                     resultHandler.handleResult(transaction);
                     if (!stopped) {
                         startPeriodicRepublishOffersTimer();
@@ -492,7 +492,7 @@ public class OpenOfferManager implements PeerManager.Listener, DecryptedDirectMe
                         log.debug("We have stopped already. We ignore that offerBookService.republishOffers.onFault call.");
                     }
                 });
-        openOffer.setStorage(openOffersStorage);
+        openOffer.setTradableList(openOffers);
     }
 
     private void startPeriodicRepublishOffersTimer() {
@@ -28,6 +28,7 @@ import io.bitsquare.trade.OffererTrade;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.TradeManager;
 import io.bitsquare.trade.protocol.trade.messages.TradeMessage;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,6 +80,8 @@ public abstract class TradeProtocol {
     }
 
     public void completed() {
+        if (log.isDebugEnabled())
+            log.debug(TradeTimings.getLatencyReport(trade.getId()));
         cleanup();
 
         // We only removed earlier the listner here, but then we migth have dangling trades after faults...
@@ -130,6 +133,8 @@ public abstract class TradeProtocol {
 
     protected void handleTaskRunnerFault(String errorMessage) {
         log.error(errorMessage);
+        if (log.isDebugEnabled())
+            log.debug(TradeTimings.getLatencyReport(trade.getId()));
         cleanupTradable();
         cleanup();
     }
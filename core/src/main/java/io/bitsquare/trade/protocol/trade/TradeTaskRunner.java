@@ -19,12 +19,39 @@ package io.bitsquare.trade.protocol.trade;
 
 import io.bitsquare.common.handlers.ErrorMessageHandler;
 import io.bitsquare.common.handlers.ResultHandler;
+import io.bitsquare.common.taskrunner.Task;
+import io.bitsquare.common.taskrunner.TaskListener;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.protocol.trade.timing.TradeSpan;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 
 public class TradeTaskRunner extends TaskRunner<Trade> {
+    private final String tradeId;
 
     public TradeTaskRunner(Trade sharedModel, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
         super(sharedModel, (Class<Trade>) sharedModel.getClass().getSuperclass().getSuperclass(), resultHandler, errorMessageHandler);
+
+        tradeId = sharedModel.getId();
+        addTaskListener(new TaskListener() {
+            @Override
+            public void onTaskStarted(Task task) {
+            }
+
+            @Override
+            public void onTaskCompleted(Task task, long durationInMillis) {
+                record(task, "completed", durationInMillis);
+            }
+
+            @Override
+            public void onTaskFailed(Task task, long durationInMillis, String errorMessage) {
+                record(task, "failed", durationInMillis);
+            }
+        });
+    }
+
+    private void record(Task task, String outcome, long durationInMillis) {
+        TradeTimings.record(new TradeSpan(tradeId, TradeSpan.Type.TASK, task.getClass().getSimpleName(), outcome,
+                System.currentTimeMillis() - durationInMillis, durationInMillis));
     }
 }
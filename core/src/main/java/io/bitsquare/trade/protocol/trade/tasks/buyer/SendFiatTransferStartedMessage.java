@@ -24,6 +24,7 @@ import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.messages.FiatTransferStartedMessage;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,15 +41,16 @@ public class SendFiatTransferStartedMessage extends TradeTask {
             runInterceptHook();
             WalletService walletService = processModel.getWalletService();
             AddressEntry payoutAddressEntry = walletService.getOrCreateAddressEntry(processModel.getOffer().getId(), AddressEntry.Context.TRADE_PAYOUT);
+            FiatTransferStartedMessage message = new FiatTransferStartedMessage(
+                    processModel.getId(),
+                    payoutAddressEntry.getAddressString(),
+                    processModel.getMyNodeAddress()
+            );
             processModel.getP2PService().sendEncryptedMailboxMessage(
                     trade.getTradingPeerNodeAddress(),
                     processModel.tradingPeer.getPubKeyRing(),
-                    new FiatTransferStartedMessage(
-                            processModel.getId(),
-                            payoutAddressEntry.getAddressString(),
-                            processModel.getMyNodeAddress()
-                    ),
-                    new SendMailboxMessageListener() {
+                    message,
+                    TradeTimings.recordMessage(processModel.getId(), message, new SendMailboxMessageListener() {
                         @Override
                         public void onArrived() {
                             log.debug("Message arrived at peer.");
@@ -68,7 +70,7 @@ public class SendFiatTransferStartedMessage extends TradeTask {
                             appendToErrorMessage("FiatTransferStartedMessage sending failed");
                             failed(errorMessage);
                         }
-                    }
+                    })
             );
         } catch (Throwable t) {
             failed(t);
@@ -22,6 +22,7 @@ import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.messages.PayoutTxFinalizedMessage;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,15 +38,16 @@ public class SendPayoutTxFinalizedMessage extends TradeTask {
         try {
             runInterceptHook();
             if (trade.getPayoutTx() != null) {
+                PayoutTxFinalizedMessage message = new PayoutTxFinalizedMessage(
+                        processModel.getId(),
+                        trade.getPayoutTx().bitcoinSerialize(),
+                        processModel.getMyNodeAddress()
+                );
                 processModel.getP2PService().sendEncryptedMailboxMessage(
                         trade.getTradingPeerNodeAddress(),
                         processModel.tradingPeer.getPubKeyRing(),
-                        new PayoutTxFinalizedMessage(
-                                processModel.getId(),
-                                trade.getPayoutTx().bitcoinSerialize(),
-                                processModel.getMyNodeAddress()
-                        ),
-                        new SendMailboxMessageListener() {
+                        message,
+                        TradeTimings.recordMessage(processModel.getId(), message, new SendMailboxMessageListener() {
                             @Override
                             public void onArrived() {
                                 log.trace("Message arrived at peer.");
@@ -63,7 +65,7 @@ public class SendPayoutTxFinalizedMessage extends TradeTask {
                                 appendToErrorMessage("PayoutTxFinalizedMessage sending failed. errorMessage=" + errorMessage);
                                 failed(errorMessage);
                             }
-                        }
+                        })
                 );
                 // state must not be set in onArrived or onStoredInMailbox handlers as we would get that 
                 // called delayed and would overwrite the broad cast state set by the next task
@@ -23,6 +23,7 @@ import io.bitsquare.btc.WalletService;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.Transaction;
 import org.slf4j.Logger;
@@ -49,19 +50,20 @@ public class SignAndFinalizePayoutTx extends TradeTask {
             WalletService walletService = processModel.getWalletService();
             AddressEntry buyerAddressEntry = walletService.getOrCreateAddressEntry(processModel.getOffer().getId(), AddressEntry.Context.TRADE_PAYOUT);
             AddressEntry multiSigAddressEntry = walletService.getOrCreateAddressEntry(processModel.getOffer().getId(), AddressEntry.Context.MULTI_SIG);
-            Transaction transaction = processModel.getTradeWalletService().buyerSignsAndFinalizesPayoutTx(
-                    trade.getDepositTx(),
-                    processModel.tradingPeer.getSignature(),
-                    buyerPayoutAmount,
-                    sellerPayoutAmount,
-                    buyerAddressEntry.getAddressString(),
-                    processModel.tradingPeer.getPayoutAddressString(),
-                    multiSigAddressEntry.getKeyPair(),
-                    trade.getLockTimeAsBlockHeight(),
-                    multiSigAddressEntry.getPubKey(),
-                    processModel.tradingPeer.getMultiSigPubKey(),
-                    trade.getArbitratorPubKey()
-            );
+            Transaction transaction = TradeTimings.recordWalletCall(trade.getId(), "buyerSignsAndFinalizesPayoutTx",
+                    () -> processModel.getTradeWalletService().buyerSignsAndFinalizesPayoutTx(
+                            trade.getDepositTx(),
+                            processModel.tradingPeer.getSignature(),
+                            buyerPayoutAmount,
+                            sellerPayoutAmount,
+                            buyerAddressEntry.getAddressString(),
+                            processModel.tradingPeer.getPayoutAddressString(),
+                            multiSigAddressEntry.getKeyPair(),
+                            trade.getLockTimeAsBlockHeight(),
+                            multiSigAddressEntry.getPubKey(),
+                            processModel.tradingPeer.getMultiSigPubKey(),
+                            trade.getArbitratorPubKey()
+                    ));
 
             trade.setPayoutTx(transaction);
             trade.setState(Trade.State.BUYER_COMMITTED_PAYOUT_TX);
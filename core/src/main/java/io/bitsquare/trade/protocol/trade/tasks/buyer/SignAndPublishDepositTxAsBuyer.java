@@ -27,6 +27,7 @@ import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.TradingPeer;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.Transaction;
 import org.jetbrains.annotations.NotNull;
@@ -61,31 +62,32 @@ public class SignAndPublishDepositTxAsBuyer extends TradeTask {
             Coin buyerInput = Coin.valueOf(buyerInputs.stream().mapToLong(input -> input.value).sum());
             buyerMultiSigAddressEntry.setCoinLockedInMultiSig(buyerInput.subtract(FeePolicy.getFixedTxFeeForTrades(trade.getOffer())));
             TradingPeer tradingPeer = processModel.tradingPeer;
-            Transaction depositTx = processModel.getTradeWalletService().takerSignsAndPublishesDepositTx(
-                    false,
-                    contractHash,
-                    processModel.getPreparedDepositTx(),
-                    buyerInputs,
-                    tradingPeer.getRawTransactionInputs(),
-                    buyerMultiSigAddressEntry.getPubKey(),
-                    tradingPeer.getMultiSigPubKey(),
-                    trade.getArbitratorPubKey(),
-                    new FutureCallback<Transaction>() {
-                        @Override
-                        public void onSuccess(Transaction transaction) {
-                            log.trace("takerSignAndPublishTx succeeded " + transaction);
+            Transaction depositTx = TradeTimings.recordWalletCall(trade.getId(), "takerSignsAndPublishesDepositTx",
+                    () -> processModel.getTradeWalletService().takerSignsAndPublishesDepositTx(
+                            false,
+                            contractHash,
+                            processModel.getPreparedDepositTx(),
+                            buyerInputs,
+                            tradingPeer.getRawTransactionInputs(),
+                            buyerMultiSigAddressEntry.getPubKey(),
+                            tradingPeer.getMultiSigPubKey(),
+                            trade.getArbitratorPubKey(),
+                            TradeTimings.recordWalletCall(trade.getId(), "broadcastDepositTx", new FutureCallback<Transaction>() {
+                                @Override
+                                public void onSuccess(Transaction transaction) {
+                                    log.trace("takerSignAndPublishTx succeeded " + transaction);
 
-                            trade.setDepositTx(transaction);
-                            trade.setState(Trade.State.TAKER_PUBLISHED_DEPOSIT_TX);
+                                    trade.setDepositTx(transaction);
+                                    trade.setState(Trade.State.TAKER_PUBLISHED_DEPOSIT_TX);
 
-                            complete();
-                        }
+                                    complete();
+                                }
 
-                        @Override
-                        public void onFailure(@NotNull Throwable t) {
-                            failed(t);
-                        }
-                    });
+                                @Override
+                                public void onFailure(@NotNull Throwable t) {
+                                    failed(t);
+                                }
+                            })));
             trade.setDepositTx(depositTx);
         } catch (Throwable t) {
             failed(t);
@@ -24,6 +24,7 @@ import io.bitsquare.p2p.messaging.SendDirectMessageListener;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.messages.PublishDepositTxRequest;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,7 +58,7 @@ public class SendPublishDepositTxRequest extends TradeTask {
                     trade.getTradingPeerNodeAddress(),
                     processModel.tradingPeer.getPubKeyRing(),
                     tradeMessage,
-                    new SendDirectMessageListener() {
+                    TradeTimings.recordMessage(processModel.getId(), tradeMessage, new SendDirectMessageListener() {
                         @Override
                         public void onArrived() {
                             log.trace("Message arrived at peer.");
@@ -70,7 +71,7 @@ public class SendPublishDepositTxRequest extends TradeTask {
                             appendToErrorMessage("PublishDepositTxRequest sending failed");
                             failed();
                         }
-                    }
+                    })
             );
         } catch (Throwable t) {
             failed(t);
@@ -26,6 +26,7 @@ import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.offer.Offer;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.bitcoinj.core.Address;
 import org.bitcoinj.core.Coin;
 import org.slf4j.Logger;
@@ -62,19 +63,20 @@ public class OffererCreatesAndSignsDepositTxAsSeller extends TradeTask {
             AddressEntry sellerMultiSigAddressEntry = walletService.getOrCreateAddressEntry(id, AddressEntry.Context.MULTI_SIG);
             sellerMultiSigAddressEntry.setCoinLockedInMultiSig(sellerInputAmount.subtract(FeePolicy.getFixedTxFeeForTrades(offer)));
             Address changeAddress = walletService.getOrCreateAddressEntry(AddressEntry.Context.AVAILABLE).getAddress();
-            PreparedDepositTxAndOffererInputs result = processModel.getTradeWalletService().offererCreatesAndSignsDepositTx(
-                    false,
-                    contractHash,
-                    sellerInputAmount,
-                    msOutputAmount,
-                    processModel.tradingPeer.getRawTransactionInputs(),
-                    processModel.tradingPeer.getChangeOutputValue(),
-                    processModel.tradingPeer.getChangeOutputAddress(),
-                    offererAddressEntry.getAddress(),
-                    changeAddress,
-                    processModel.tradingPeer.getMultiSigPubKey(),
-                    sellerMultiSigAddressEntry.getPubKey(),
-                    trade.getArbitratorPubKey());
+            PreparedDepositTxAndOffererInputs result = TradeTimings.recordWalletCall(trade.getId(), "offererCreatesAndSignsDepositTx",
+                    () -> processModel.getTradeWalletService().offererCreatesAndSignsDepositTx(
+                            false,
+                            contractHash,
+                            sellerInputAmount,
+                            msOutputAmount,
+                            processModel.tradingPeer.getRawTransactionInputs(),
+                            processModel.tradingPeer.getChangeOutputValue(),
+                            processModel.tradingPeer.getChangeOutputAddress(),
+                            offererAddressEntry.getAddress(),
+                            changeAddress,
+                            processModel.tradingPeer.getMultiSigPubKey(),
+                            sellerMultiSigAddressEntry.getPubKey(),
+                            trade.getArbitratorPubKey()));
 
             processModel.setPreparedDepositTx(result.depositTransaction);
             processModel.setRawTransactionInputs(result.rawOffererInputs);
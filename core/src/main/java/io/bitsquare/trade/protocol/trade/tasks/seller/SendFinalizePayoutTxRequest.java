@@ -24,6 +24,7 @@ import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.messages.FinalizePayoutTxRequest;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,7 +54,7 @@ public class SendFinalizePayoutTxRequest extends TradeTask {
                         trade.getTradingPeerNodeAddress(),
                         processModel.tradingPeer.getPubKeyRing(),
                         message,
-                        new SendMailboxMessageListener() {
+                        TradeTimings.recordMessage(processModel.getId(), message, new SendMailboxMessageListener() {
                             @Override
                             public void onArrived() {
                                 log.trace("Message arrived at peer.");
@@ -73,7 +74,7 @@ public class SendFinalizePayoutTxRequest extends TradeTask {
                                 appendToErrorMessage("FinalizePayoutTxRequest sending failed. errorMessage=" + errorMessage);
                                 failed(errorMessage);
                             }
-                        }
+                        })
                 );
             } else {
                 log.error("trade.getTradingPeerAddress() = " + trade.getTradingPeerNodeAddress());
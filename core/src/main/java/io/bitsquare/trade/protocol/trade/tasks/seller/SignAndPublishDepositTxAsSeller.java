@@ -27,6 +27,7 @@ import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.TradingPeer;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.Transaction;
 import org.jetbrains.annotations.NotNull;
@@ -59,31 +60,32 @@ public class SignAndPublishDepositTxAsSeller extends TradeTask {
             AddressEntry sellerMultiSigAddressEntry = walletService.getOrCreateAddressEntry(processModel.getOffer().getId(), AddressEntry.Context.MULTI_SIG);
             sellerMultiSigAddressEntry.setCoinLockedInMultiSig(Coin.valueOf(sellerInputs.stream().mapToLong(input -> input.value).sum()).subtract(FeePolicy.getFixedTxFeeForTrades(trade.getOffer())));
             TradingPeer tradingPeer = processModel.tradingPeer;
-            Transaction depositTx = processModel.getTradeWalletService().takerSignsAndPublishesDepositTx(
-                    true,
-                    contractHash,
-                    processModel.getPreparedDepositTx(),
-                    tradingPeer.getRawTransactionInputs(),
-                    sellerInputs,
-                    tradingPeer.getMultiSigPubKey(),
-                    sellerMultiSigAddressEntry.getPubKey(),
-                    trade.getArbitratorPubKey(),
-                    new FutureCallback<Transaction>() {
-                        @Override
-                        public void onSuccess(Transaction transaction) {
-                            log.trace("takerSignAndPublishTx succeeded " + transaction);
+            Transaction depositTx = TradeTimings.recordWalletCall(trade.getId(), "takerSignsAndPublishesDepositTx",
+                    () -> processModel.getTradeWalletService().takerSignsAndPublishesDepositTx(
+                            true,
+                            contractHash,
+                            processModel.getPreparedDepositTx(),
+                            tradingPeer.getRawTransactionInputs(),
+                            sellerInputs,
+                            tradingPeer.getMultiSigPubKey(),
+                            sellerMultiSigAddressEntry.getPubKey(),
+                            trade.getArbitratorPubKey(),
+                            TradeTimings.recordWalletCall(trade.getId(), "broadcastDepositTx", new FutureCallback<Transaction>() {
+                                @Override
+                                public void onSuccess(Transaction transaction) {
+                                    log.trace("takerSignAndPublishTx succeeded " + transaction);
 
-                            trade.setDepositTx(transaction);
-                            trade.setState(Trade.State.TAKER_PUBLISHED_DEPOSIT_TX);
+                                    trade.setDepositTx(transaction);
+                                    trade.setState(Trade.State.TAKER_PUBLISHED_DEPOSIT_TX);
 
-                            complete();
-                        }
+                                    complete();
+                                }
 
-                        @Override
-                        public void onFailure(@NotNull Throwable t) {
-                            failed(t);
-                        }
-                    });
+                                @Override
+                                public void onFailure(@NotNull Throwable t) {
+                                    failed(t);
+                                }
+                            })));
             trade.setDepositTx(depositTx);
         } catch (Throwable t) {
             failed(t);
@@ -23,6 +23,7 @@ import io.bitsquare.btc.WalletService;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.bitcoinj.core.Coin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,17 +60,18 @@ public class SignPayoutTx extends TradeTask {
             WalletService walletService = processModel.getWalletService();
             AddressEntry sellerPayoutAddressEntry = walletService.getOrCreateAddressEntry(id, AddressEntry.Context.TRADE_PAYOUT);
             AddressEntry multiSigAddressEntry = walletService.getOrCreateAddressEntry(id, AddressEntry.Context.MULTI_SIG);
-            byte[] payoutTxSignature = processModel.getTradeWalletService().sellerSignsPayoutTx(
-                    trade.getDepositTx(),
-                    buyerPayoutAmount,
-                    sellerPayoutAmount,
-                    processModel.tradingPeer.getPayoutAddressString(),
-                    sellerPayoutAddressEntry.getAddressString(),
-                    multiSigAddressEntry.getKeyPair(),
-                    lockTimeAsBlockHeight,
-                    processModel.tradingPeer.getMultiSigPubKey(),
-                    multiSigAddressEntry.getPubKey(),
-                    trade.getArbitratorPubKey());
+            byte[] payoutTxSignature = TradeTimings.recordWalletCall(trade.getId(), "sellerSignsPayoutTx",
+                    () -> processModel.getTradeWalletService().sellerSignsPayoutTx(
+                            trade.getDepositTx(),
+                            buyerPayoutAmount,
+                            sellerPayoutAmount,
+                            processModel.tradingPeer.getPayoutAddressString(),
+                            sellerPayoutAddressEntry.getAddressString(),
+                            multiSigAddressEntry.getKeyPair(),
+                            lockTimeAsBlockHeight,
+                            processModel.tradingPeer.getMultiSigPubKey(),
+                            multiSigAddressEntry.getPubKey(),
+                            trade.getArbitratorPubKey()));
 
             processModel.setPayoutTxSignature(payoutTxSignature);
 
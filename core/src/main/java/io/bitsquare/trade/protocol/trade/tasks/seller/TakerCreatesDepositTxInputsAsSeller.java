@@ -25,6 +25,7 @@ import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.offer.Offer;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.bitcoinj.core.Address;
 import org.bitcoinj.core.Coin;
 import org.slf4j.Logger;
@@ -48,10 +49,11 @@ public class TakerCreatesDepositTxInputsAsSeller extends TradeTask {
                 WalletService walletService = processModel.getWalletService();
                 AddressEntry takersAddressEntry = walletService.getOrCreateAddressEntry(processModel.getOffer().getId(), AddressEntry.Context.RESERVED_FOR_TRADE);
                 Address changeAddress = walletService.getOrCreateAddressEntry(AddressEntry.Context.AVAILABLE).getAddress();
-                InputsAndChangeOutput result = processModel.getTradeWalletService().takerCreatesDepositsTxInputs(
-                        takerInputAmount,
-                        takersAddressEntry.getAddress(),
-                        changeAddress);
+                InputsAndChangeOutput result = TradeTimings.recordWalletCall(trade.getId(), "takerCreatesDepositsTxInputs",
+                        () -> processModel.getTradeWalletService().takerCreatesDepositsTxInputs(
+                                takerInputAmount,
+                                takersAddressEntry.getAddress(),
+                                changeAddress));
                 processModel.setRawTransactionInputs(result.rawTransactionInputs);
                 processModel.setChangeOutputValue(result.changeOutputValue);
                 processModel.setChangeOutputAddress(result.changeOutputAddress);
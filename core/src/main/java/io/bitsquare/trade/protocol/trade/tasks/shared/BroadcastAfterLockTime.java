@@ -24,6 +24,7 @@ import io.bitsquare.common.UserThread;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.bitcoinj.core.StoredBlock;
 import org.bitcoinj.core.Transaction;
 import org.bitcoinj.core.TransactionConfidence;
@@ -87,7 +88,7 @@ public class BroadcastAfterLockTime extends TradeTask {
             complete();
         } else {
             log.debug("do broadcast tx " + payoutTx);
-            processModel.getTradeWalletService().broadcastTx(payoutTx, new FutureCallback<Transaction>() {
+            processModel.getTradeWalletService().broadcastTx(payoutTx, TradeTimings.recordWalletCall(trade.getId(), "broadcastPayoutTx", new FutureCallback<Transaction>() {
                 @Override
                 public void onSuccess(Transaction transaction) {
                     log.debug("BroadcastTx succeeded. Transaction:" + transaction);
@@ -100,7 +101,7 @@ public class BroadcastAfterLockTime extends TradeTask {
                     log.error("BroadcastTx failed. Error:" + t.getMessage());
                     failed(t);
                 }
-            });
+            }));
         }
     }
 }
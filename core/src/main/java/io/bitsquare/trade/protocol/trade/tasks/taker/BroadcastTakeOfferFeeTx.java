@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.bitcoinj.core.Transaction;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -38,7 +39,7 @@ public class BroadcastTakeOfferFeeTx extends TradeTask {
         try {
             runInterceptHook();
             processModel.getTradeWalletService().broadcastTx(processModel.getTakeOfferFeeTx(),
-                    new FutureCallback<Transaction>() {
+                    TradeTimings.recordWalletCall(trade.getId(), "broadcastTakeOfferFeeTx", new FutureCallback<Transaction>() {
                         @Override
                         public void onSuccess(Transaction transaction) {
                             log.debug("Trading fee published successfully. Transaction ID = " + transaction.getHashAsString());
@@ -52,7 +53,7 @@ public class BroadcastTakeOfferFeeTx extends TradeTask {
                             appendToErrorMessage("Trading fee payment failed. Maybe your network connection was lost. Please try again.");
                             failed(t);
                         }
-                    });
+                    }));
         } catch (Throwable t) {
             failed(t);
         }
@@ -22,6 +22,7 @@ import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.messages.DepositTxPublishedMessage;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +46,7 @@ public class SendDepositTxPublishedMessage extends TradeTask {
                         trade.getTradingPeerNodeAddress(),
                         processModel.tradingPeer.getPubKeyRing(),
                         tradeMessage,
-                        new SendMailboxMessageListener() {
+                        TradeTimings.recordMessage(processModel.getId(), tradeMessage, new SendMailboxMessageListener() {
                             @Override
                             public void onArrived() {
                                 log.trace("Message arrived at peer.");
@@ -65,7 +66,7 @@ public class SendDepositTxPublishedMessage extends TradeTask {
                                 appendToErrorMessage("DepositTxPublishedMessage sending failed");
                                 failed();
                             }
-                        }
+                        })
                 );
             } else {
                 log.error("trade.getDepositTx() = " + trade.getDepositTx());
@@ -24,6 +24,7 @@ import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
 import io.bitsquare.trade.Trade;
 import io.bitsquare.trade.protocol.trade.messages.PayDepositRequest;
 import io.bitsquare.trade.protocol.trade.tasks.TradeTask;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -73,7 +74,7 @@ public class SendPayDepositRequest extends TradeTask {
                     trade.getTradingPeerNodeAddress(),
                     processModel.tradingPeer.getPubKeyRing(),
                     payDepositRequest,
-                    new SendMailboxMessageListener() {
+                    TradeTimings.recordMessage(processModel.getId(), payDepositRequest, new SendMailboxMessageListener() {
                         @Override
                         public void onArrived() {
                             log.trace("Message arrived at peer.");
@@ -91,7 +92,7 @@ public class SendPayDepositRequest extends TradeTask {
                             appendToErrorMessage("PayDepositRequest sending failed");
                             failed();
                         }
-                    }
+                    })
             );
         } catch (Throwable t) {
             failed(t);
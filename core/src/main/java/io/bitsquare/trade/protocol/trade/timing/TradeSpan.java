@@ -0,0 +1,60 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol.trade.timing;
+
+import java.util.Date;
+
+/**
+ * A timed section of a trade protocol run, like the execution of a task, the delivery of a message to the peer or a
+ * call to the wallet.
+ */
+public final class TradeSpan {
+    public enum Type {
+        TASK,
+        MESSAGE,
+        WALLET
+    }
+
+    public final String tradeId;
+    public final Type type;
+    public final String name;
+    public final String outcome;
+    public final long startTime;
+    public final long durationInMillis;
+
+    public TradeSpan(String tradeId, Type type, String name, String outcome, long startTime, long durationInMillis) {
+        this.tradeId = tradeId;
+        this.type = type;
+        this.name = name;
+        this.outcome = outcome;
+        this.startTime = startTime;
+        this.durationInMillis = durationInMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "TradeSpan{" +
+                "tradeId='" + tradeId + '\'' +
+                ", type=" + type +
+                ", name='" + name + '\'' +
+                ", outcome='" + outcome + '\'' +
+                ", startTime=" + new Date(startTime) +
+                ", durationInMillis=" + durationInMillis +
+                '}';
+    }
+}
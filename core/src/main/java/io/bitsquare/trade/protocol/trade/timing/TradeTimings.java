@@ -0,0 +1,203 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol.trade.timing;
+
+import com.google.common.util.concurrent.FutureCallback;
+import io.bitsquare.common.util.Utilities;
+import io.bitsquare.p2p.Message;
+import io.bitsquare.p2p.messaging.SendDirectMessageListener;
+import io.bitsquare.p2p.messaging.SendMailboxMessageListener;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Records spans of the trade protocol (tasks, messages to the peer and wallet calls) into a bounded in-memory ring
+ * buffer. If the buffer is full the oldest spans get overwritten.
+ * <p>
+ * Wallet calls are recorded by the trade tasks making them, so the wallet services don't depend on the trade.
+ */
+public class TradeTimings {
+    private static final Logger log = LoggerFactory.getLogger(TradeTimings.class);
+
+    public static final int DEFAULT_CAPACITY = 5000;
+
+    private static TradeSpan[] buffer = new TradeSpan[DEFAULT_CAPACITY];
+    private static int nextIndex;
+    private static boolean enabled = true;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Configuration
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static void setEnabled(boolean enabled) {
+        TradeTimings.enabled = enabled;
+    }
+
+    // Clears all recorded spans
+    public static synchronized void setCapacity(int capacity) {
+        buffer = new TradeSpan[capacity];
+        nextIndex = 0;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Recording
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static void record(TradeSpan span) {
+        if (enabled) {
+            synchronized (TradeTimings.class) {
+                buffer[nextIndex] = span;
+                nextIndex = (nextIndex + 1) % buffer.length;
+            }
+            log.trace("Recorded " + span);
+        }
+    }
+
+    // Runs a synchronous wallet call and records it, also if it throws
+    public static <V> V recordWalletCall(String tradeId, String name, Callable<V> walletCall) throws Exception {
+        long startTime = System.currentTimeMillis();
+        String outcome = "failed";
+        try {
+            V result = walletCall.call();
+            outcome = "completed";
+            return result;
+        } finally {
+            record(new TradeSpan(tradeId, TradeSpan.Type.WALLET, name, outcome, startTime,
+                    System.currentTimeMillis() - startTime));
+        }
+    }
+
+    // Records an asynchronous wallet call from the call till the callback is invoked
+    public static <V> FutureCallback<V> recordWalletCall(String tradeId, String name, FutureCallback<V> callback) {
+        long startTime = System.currentTimeMillis();
+        return new FutureCallback<V>() {
+            @Override
+            public void onSuccess(V result) {
+                record(new TradeSpan(tradeId, TradeSpan.Type.WALLET, name, "completed", startTime,
+                        System.currentTimeMillis() - startTime));
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable t) {
+                record(new TradeSpan(tradeId, TradeSpan.Type.WALLET, name, "failed", startTime,
+                        System.currentTimeMillis() - startTime));
+                callback.onFailure(t);
+            }
+        };
+    }
+
+    public static SendMailboxMessageListener recordMessage(String tradeId, Message message, SendMailboxMessageListener listener) {
+        String name = message.getClass().getSimpleName();
+        long startTime = System.currentTimeMillis();
+        return new SendMailboxMessageListener() {
+            @Override
+            public void onArrived() {
+                record(new TradeSpan(tradeId, TradeSpan.Type.MESSAGE, name, "arrived", startTime,
+                        System.currentTimeMillis() - startTime));
+                listener.onArrived();
+            }
+
+            @Override
+            public void onStoredInMailbox() {
+                record(new TradeSpan(tradeId, TradeSpan.Type.MESSAGE, name, "storedInMailbox", startTime,
+                        System.currentTimeMillis() - startTime));
+                listener.onStoredInMailbox();
+            }
+
+            @Override
+            public void onFault(String errorMessage) {
+                record(new TradeSpan(tradeId, TradeSpan.Type.MESSAGE, name, "fault", startTime,
+                        System.currentTimeMillis() - startTime));
+                listener.onFault(errorMessage);
+            }
+        };
+    }
+
+    public static SendDirectMessageListener recordMessage(String tradeId, Message message, SendDirectMessageListener listener) {
+        String name = message.getClass().getSimpleName();
+        long startTime = System.currentTimeMillis();
+        return new SendDirectMessageListener() {
+            @Override
+            public void onArrived() {
+                record(new TradeSpan(tradeId, TradeSpan.Type.MESSAGE, name, "arrived", startTime,
+                        System.currentTimeMillis() - startTime));
+                listener.onArrived();
+            }
+
+            @Override
+            public void onFault() {
+                record(new TradeSpan(tradeId, TradeSpan.Type.MESSAGE, name, "fault", startTime,
+                        System.currentTimeMillis() - startTime));
+                listener.onFault();
+            }
+        };
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Export
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Returns the recorded spans of that trade ordered by start time
+    public static List<TradeSpan> getSpans(String tradeId) {
+        List<TradeSpan> result = new ArrayList<>();
+        synchronized (TradeTimings.class) {
+            for (TradeSpan span : buffer) {
+                if (span != null && span.tradeId.equals(tradeId))
+                    result.add(span);
+            }
+        }
+        result.sort(Comparator.comparingLong((TradeSpan span) -> span.startTime));
+        return result;
+    }
+
+    public static String exportAsJson(String tradeId) {
+        return Utilities.objectToJson(getSpans(tradeId));
+    }
+
+    /**
+     * Human readable timeline with the offset of each span relative to the first recorded span and the summed up
+     * durations per span type.
+     */
+    public static String getLatencyReport(String tradeId) {
+        List<TradeSpan> spans = getSpans(tradeId);
+        StringBuilder sb = new StringBuilder("Latency report for trade ").append(tradeId).append("\n");
+        if (spans.isEmpty())
+            return sb.append("No spans recorded.").toString();
+
+        long firstStartTime = spans.get(0).startTime;
+        long[] sumPerType = new long[TradeSpan.Type.values().length];
+        for (TradeSpan span : spans) {
+            sb.append(String.format("+%7d ms %-8s %-45s %8d ms %s%n",
+                    span.startTime - firstStartTime, span.type, span.name, span.durationInMillis, span.outcome));
+            sumPerType[span.type.ordinal()] += span.durationInMillis;
+        }
+        for (TradeSpan.Type type : TradeSpan.Type.values())
+            sb.append("Total ").append(type).append(": ").append(sumPerType[type.ordinal()]).append(" ms\n");
+        return sb.toString();
+    }
+}
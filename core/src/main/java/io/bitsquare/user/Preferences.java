@@ -26,6 +26,7 @@ import io.bitsquare.btc.FeePolicy;
 import io.bitsquare.common.persistance.Persistable;
 import io.bitsquare.common.util.Utilities;
 import io.bitsquare.locale.*;
+import io.bitsquare.storage.RecordStorage;
 import io.bitsquare.storage.Storage;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -40,16 +41,35 @@ import org.bitcoinj.utils.MonetaryFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.*;
 
+/**
+ * The Preferences are persisted in sections, so a change of a setting does not serialize the currency lists and maps.
+ * The settings section is the Preferences object without the fields which have their own section. The peer tags and
+ * the ignored traders are only read when they are used.
+ * <p>
+ * Older versions stored the whole object in one file. We migrate it at the first start, the old file stays as backup.
+ */
 public final class Preferences implements Persistable {
     // That object is saved to disc. We need to take care of changes to not break deserialization.
     private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
 
     private static final Logger log = LoggerFactory.getLogger(Preferences.class);
 
+    private static final String SETTINGS_SECTION = "settings";
+    private static final String FIAT_CURRENCIES_SECTION = "fiatCurrencies";
+    private static final String CRYPTO_CURRENCIES_SECTION = "cryptoCurrencies";
+    private static final String DONT_SHOW_AGAIN_SECTION = "dontShowAgainMap";
+    private static final String PEER_TAG_SECTION = "peerTagMap";
+    private static final String IGNORE_TRADERS_SECTION = "ignoreTradersList";
+
 
     public static Preferences INSTANCE;
 
@@ -100,8 +120,10 @@ public final class Preferences implements Persistable {
 
     private static boolean staticUseAnimations = true;
 
-    transient private final Storage<Preferences> storage;
+    transient private final RecordStorage<Serializable> sectionStorage;
     transient private final BitsquareEnvironment bitsquareEnvironment;
+    // Changes while we apply the persisted data don't need to be saved
+    transient private boolean loaded;
 
     transient private BitcoinNetwork bitcoinNetwork;
 
@@ -133,10 +155,14 @@ public final class Preferences implements Persistable {
     private boolean useStickyMarketPrice = false;
     private boolean sortMarketCurrenciesNumerically = true;
     private boolean usePercentageBasedPrice = false;
-    private Map<String, String> peerTagMap = new HashMap<>();
+    // Null until read from its section
+    @Nullable
+    private Map<String, String> peerTagMap;
     private String bitcoinNodes = "";
 
-    private List<String> ignoreTradersList = new ArrayList<>();
+    // Null until read from its section
+    @Nullable
+    private List<String> ignoreTradersList;
     private String defaultPath;
 
     // Observable wrappers
@@ -160,11 +186,11 @@ public final class Preferences implements Persistable {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     @Inject
-    public Preferences(Storage<Preferences> storage, BitsquareEnvironment bitsquareEnvironment,
+    public Preferences(Storage<Preferences> storage, @Named(Storage.DIR_KEY) File storageDir,
+                       BitsquareEnvironment bitsquareEnvironment,
                        @Named(AppOptionKeys.BTC_NODES) String btcNodesFromOptions,
                        @Named(AppOptionKeys.USE_TOR_FOR_BTC) String useTorFlagFromOptions) {
         INSTANCE = this;
-        this.storage = storage;
         this.bitsquareEnvironment = bitsquareEnvironment;
 
         if (Utilities.isWindows())
@@ -177,33 +203,41 @@ public final class Preferences implements Persistable {
 
         btcDenominationProperty.addListener((ov) -> {
             btcDenomination = btcDenominationProperty.get();
-            storage.queueUpForSave();
+            persist();
         });
         useAnimationsProperty.addListener((ov) -> {
             useAnimations = useAnimationsProperty.get();
             staticUseAnimations = useAnimations;
-            storage.queueUpForSave();
+            persist();
         });
         fiatCurrenciesAsObservable.addListener((javafx.beans.Observable ov) -> {
             fiatCurrencies.clear();
             fiatCurrencies.addAll(fiatCurrenciesAsObservable);
             fiatCurrencies.sort(TradeCurrency::compareTo);
-            storage.queueUpForSave();
+            persist(FIAT_CURRENCIES_SECTION, new ArrayList<>(fiatCurrencies));
         });
         cryptoCurrenciesAsObservable.addListener((javafx.beans.Observable ov) -> {
             cryptoCurrencies.clear();
             cryptoCurrencies.addAll(cryptoCurrenciesAsObservable);
             cryptoCurrencies.sort(TradeCurrency::compareTo);
-            storage.queueUpForSave();
+            persist(CRYPTO_CURRENCIES_SECTION, new ArrayList<>(cryptoCurrencies));
         });
 
-        Preferences persisted = storage.initAndGetPersisted(this);
+        sectionStorage = new RecordStorage<>(storageDir, "Preferences");
+        boolean migrate = !sectionStorage.hasPersistedIndex();
+        Preferences persisted;
+        if (migrate)
+            persisted = storage.initAndGetPersisted(this);
+        else
+            persisted = readSection(SETTINGS_SECTION);
         if (persisted != null) {
             setBtcDenomination(persisted.btcDenomination);
             setUseAnimations(persisted.useAnimations);
 
-            setFiatCurrencies(persisted.fiatCurrencies);
-            setCryptoCurrencies(persisted.cryptoCurrencies);
+            List<FiatCurrency> persistedFiatCurrencies = migrate ? persisted.fiatCurrencies : readSection(FIAT_CURRENCIES_SECTION);
+            setFiatCurrencies(persistedFiatCurrencies != null ? persistedFiatCurrencies : CurrencyUtil.getAllMainFiatCurrencies());
+            List<CryptoCurrency> persistedCryptoCurrencies = migrate ? persisted.cryptoCurrencies : readSection(CRYPTO_CURRENCIES_SECTION);
+            setCryptoCurrencies(persistedCryptoCurrencies != null ? persistedCryptoCurrencies : CurrencyUtil.getMainCryptoCurrencies());
 
             setBlockChainExplorerTestNet(persisted.getBlockChainExplorerTestNet());
             setBlockChainExplorerMainNet(persisted.getBlockChainExplorerMainNet());
@@ -215,7 +249,8 @@ public final class Preferences implements Persistable {
 
             backupDirectory = persisted.getBackupDirectory();
             autoSelectArbitrators = persisted.getAutoSelectArbitrators();
-            dontShowAgainMap = persisted.getDontShowAgainMap();
+            Map<String, Boolean> persistedDontShowAgainMap = migrate ? persisted.dontShowAgainMap : readSection(DONT_SHOW_AGAIN_SECTION);
+            dontShowAgainMap = persistedDontShowAgainMap != null ? persistedDontShowAgainMap : new HashMap<>();
             tacAccepted = persisted.getTacAccepted();
 
             preferredLocale = persisted.getPreferredLocale();
@@ -241,8 +276,10 @@ public final class Preferences implements Persistable {
                 // leave default value
             }
 
-            if (persisted.getPeerTagMap() != null)
-                peerTagMap = persisted.getPeerTagMap();
+            if (migrate) {
+                peerTagMap = persisted.peerTagMap != null ? persisted.peerTagMap : new HashMap<>();
+                ignoreTradersList = persisted.ignoreTradersList != null ? persisted.ignoreTradersList : new ArrayList<>();
+            }
 
             offerBookChartScreenCurrencyCode = persisted.getOfferBookChartScreenCurrencyCode();
             buyScreenCurrencyCode = persisted.getBuyScreenCurrencyCode();
@@ -250,9 +287,6 @@ public final class Preferences implements Persistable {
             tradeChartsScreenCurrencyCode = persisted.getTradeChartsScreenCurrencyCode();
             tradeStatisticsTickUnitIndex = persisted.getTradeStatisticsTickUnitIndex();
 
-            if (persisted.getIgnoreTradersList() != null)
-                ignoreTradersList = persisted.getIgnoreTradersList();
-
             if (persisted.getDefaultPath() != null)
                 defaultPath = persisted.getDefaultPath();
         } else {
@@ -263,13 +297,18 @@ public final class Preferences implements Persistable {
             setBlockChainExplorerMainNet(blockChainExplorersMainNet.get(0));
 
             dontShowAgainMap = new HashMap<>();
+            peerTagMap = new HashMap<>();
+            ignoreTradersList = new ArrayList<>();
             preferredLocale = getDefaultLocale();
             preferredTradeCurrency = getDefaultTradeCurrency();
             maxPriceDistanceInPercent = 0.1;
-
-            storage.queueUpForSave();
         }
 
+        // At the first start or the migration all sections are written before the index references them
+        if (migrate || persisted == null)
+            saveAllSectionsNow();
+        loaded = true;
+
         this.bitcoinNetwork = bitsquareEnvironment.getBitcoinNetwork();
 
         fiatCurrenciesAsObservable.addListener(this::updateTradeCurrencies);
@@ -294,12 +333,12 @@ public final class Preferences implements Persistable {
 
     public void dontShowAgain(String key, boolean dontShowAgain) {
         dontShowAgainMap.put(key, dontShowAgain);
-        storage.queueUpForSave();
+        persist(DONT_SHOW_AGAIN_SECTION, new HashMap<>(dontShowAgainMap));
     }
 
     public void resetDontShowAgainForType() {
         dontShowAgainMap.clear();
-        storage.queueUpForSave();
+        persist(DONT_SHOW_AGAIN_SECTION, new HashMap<>(dontShowAgainMap));
     }
 
 
@@ -367,20 +406,20 @@ public final class Preferences implements Persistable {
 
     public void setTacAccepted(boolean tacAccepted) {
         this.tacAccepted = tacAccepted;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setPreferredLocale(Locale preferredLocale) {
         this.preferredLocale = preferredLocale;
         defaultLocale = preferredLocale;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setPreferredTradeCurrency(TradeCurrency preferredTradeCurrency) {
         if (preferredTradeCurrency != null) {
             this.preferredTradeCurrency = preferredTradeCurrency;
             defaultTradeCurrency = preferredTradeCurrency;
-            storage.queueUpForSave();
+            persist();
         }
     }
 
@@ -393,92 +432,93 @@ public final class Preferences implements Persistable {
 
         this.nonTradeTxFeePerKB = nonTradeTxFeePerKB;
         FeePolicy.setNonTradeFeePerKb(Coin.valueOf(nonTradeTxFeePerKB));
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setUseTorForBitcoinJ(boolean useTorForBitcoinJ) {
         this.useTorForBitcoinJ = useTorForBitcoinJ;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setShowOwnOffersInOfferBook(boolean showOwnOffersInOfferBook) {
         this.showOwnOffersInOfferBook = showOwnOffersInOfferBook;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setMaxPriceDistanceInPercent(double maxPriceDistanceInPercent) {
         this.maxPriceDistanceInPercent = maxPriceDistanceInPercent;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setBackupDirectory(String backupDirectory) {
         this.backupDirectory = backupDirectory;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setAutoSelectArbitrators(boolean autoSelectArbitrators) {
         this.autoSelectArbitrators = autoSelectArbitrators;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setUseStickyMarketPrice(boolean useStickyMarketPrice) {
         this.useStickyMarketPrice = useStickyMarketPrice;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setUsePercentageBasedPrice(boolean usePercentageBasedPrice) {
         this.usePercentageBasedPrice = usePercentageBasedPrice;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setTagForPeer(String hostName, String tag) {
-        peerTagMap.put(hostName, tag);
-        storage.queueUpForSave();
+        getPeerTagMap().put(hostName, tag);
+        persist(PEER_TAG_SECTION, new HashMap<>(peerTagMap));
     }
 
     public void setOfferBookChartScreenCurrencyCode(String offerBookChartScreenCurrencyCode) {
         this.offerBookChartScreenCurrencyCode = offerBookChartScreenCurrencyCode;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setBuyScreenCurrencyCode(String buyScreenCurrencyCode) {
         this.buyScreenCurrencyCode = buyScreenCurrencyCode;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setSellScreenCurrencyCode(String sellScreenCurrencyCode) {
         this.sellScreenCurrencyCode = sellScreenCurrencyCode;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setIgnoreTradersList(List<String> ignoreTradersList) {
         this.ignoreTradersList = ignoreTradersList;
-        storage.queueUpForSave();
+        persist(IGNORE_TRADERS_SECTION, new ArrayList<>(ignoreTradersList));
     }
 
     public void setDefaultPath(String defaultPath) {
         this.defaultPath = defaultPath;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setTradeChartsScreenCurrencyCode(String tradeChartsScreenCurrencyCode) {
         this.tradeChartsScreenCurrencyCode = tradeChartsScreenCurrencyCode;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setTradeStatisticsTickUnitIndex(int tradeStatisticsTickUnitIndex) {
         this.tradeStatisticsTickUnitIndex = tradeStatisticsTickUnitIndex;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setSortMarketCurrenciesNumerically(boolean sortMarketCurrenciesNumerically) {
         this.sortMarketCurrenciesNumerically = sortMarketCurrenciesNumerically;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setBitcoinNodes(String bitcoinNodes) {
         this.bitcoinNodes = bitcoinNodes;
-        storage.queueUpForSave(50);
+        if (loaded)
+            sectionStorage.add(SETTINGS_SECTION, this, 50);
     }
 
 
@@ -604,6 +644,10 @@ public final class Preferences implements Persistable {
     }
 
     public Map<String, String> getPeerTagMap() {
+        if (peerTagMap == null) {
+            Map<String, String> persisted = readSection(PEER_TAG_SECTION);
+            peerTagMap = persisted != null ? persisted : new HashMap<>();
+        }
         return peerTagMap;
     }
 
@@ -620,6 +664,10 @@ public final class Preferences implements Persistable {
     }
 
     public List<String> getIgnoreTradersList() {
+        if (ignoreTradersList == null) {
+            List<String> persisted = readSection(IGNORE_TRADERS_SECTION);
+            ignoreTradersList = persisted != null ? persisted : new ArrayList<>();
+        }
         return ignoreTradersList;
     }
 
@@ -647,6 +695,65 @@ public final class Preferences implements Persistable {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // Queues up a save of the settings section
+    private void persist() {
+        if (loaded)
+            sectionStorage.add(SETTINGS_SECTION, this);
+    }
+
+    // We pass a copy of collections as they might get changed while the section is written on the background thread
+    private void persist(String section, Serializable value) {
+        if (loaded)
+            sectionStorage.add(section, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private <S> S readSection(String section) {
+        return (S) sectionStorage.read(section);
+    }
+
+    private void saveAllSectionsNow() {
+        LinkedHashMap<String, Serializable> sections = new LinkedHashMap<>();
+        sections.put(FIAT_CURRENCIES_SECTION, new ArrayList<>(fiatCurrencies));
+        sections.put(CRYPTO_CURRENCIES_SECTION, new ArrayList<>(cryptoCurrencies));
+        sections.put(DONT_SHOW_AGAIN_SECTION, new HashMap<>(dontShowAgainMap));
+        sections.put(PEER_TAG_SECTION, new HashMap<>(getPeerTagMap()));
+        sections.put(IGNORE_TRADERS_SECTION, new ArrayList<>(getIgnoreTradersList()));
+        sections.put(SETTINGS_SECTION, this);
+        sectionStorage.saveAllNow(sections);
+    }
+
+    // We only write the settings, the other fields are persisted in their own sections. Fields which are not put
+    // here are not persisted.
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("btcDenomination", btcDenomination);
+        fields.put("useAnimations", useAnimations);
+        fields.put("blockChainExplorerMainNet", blockChainExplorerMainNet);
+        fields.put("blockChainExplorerTestNet", blockChainExplorerTestNet);
+        fields.put("backupDirectory", backupDirectory);
+        fields.put("autoSelectArbitrators", autoSelectArbitrators);
+        fields.put("tacAccepted", tacAccepted);
+        fields.put("useTorForBitcoinJ", useTorForBitcoinJ);
+        fields.put("showOwnOffersInOfferBook", showOwnOffersInOfferBook);
+        fields.put("preferredLocale", preferredLocale);
+        fields.put("preferredTradeCurrency", preferredTradeCurrency);
+        fields.put("nonTradeTxFeePerKB", nonTradeTxFeePerKB);
+        fields.put("maxPriceDistanceInPercent", maxPriceDistanceInPercent);
+        fields.put("offerBookChartScreenCurrencyCode", offerBookChartScreenCurrencyCode);
+        fields.put("tradeChartsScreenCurrencyCode", tradeChartsScreenCurrencyCode);
+        fields.put("buyScreenCurrencyCode", buyScreenCurrencyCode);
+        fields.put("sellScreenCurrencyCode", sellScreenCurrencyCode);
+        fields.put("tradeStatisticsTickUnitIndex", tradeStatisticsTickUnitIndex);
+        fields.put("useStickyMarketPrice", useStickyMarketPrice);
+        fields.put("sortMarketCurrenciesNumerically", sortMarketCurrenciesNumerically);
+        fields.put("usePercentageBasedPrice", usePercentageBasedPrice);
+        fields.put("bitcoinNodes", bitcoinNodes);
+        fields.put("defaultPath", defaultPath);
+        out.writeFields();
+    }
+
     private void updateTradeCurrencies(ListChangeListener.Change<? extends TradeCurrency> change) {
         change.next();
         if (change.wasAdded() && change.getAddedSize() == 1)
@@ -665,11 +772,11 @@ public final class Preferences implements Persistable {
 
     private void setBlockChainExplorerTestNet(BlockChainExplorer blockChainExplorerTestNet) {
         this.blockChainExplorerTestNet = blockChainExplorerTestNet;
-        storage.queueUpForSave();
+        persist();
     }
 
     private void setBlockChainExplorerMainNet(BlockChainExplorer blockChainExplorerMainNet) {
         this.blockChainExplorerMainNet = blockChainExplorerMainNet;
-        storage.queueUpForSave();
+        persist();
     }
 }
@@ -27,6 +27,7 @@ import io.bitsquare.locale.LanguageUtil;
 import io.bitsquare.locale.TradeCurrency;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.payment.PaymentAccount;
+import io.bitsquare.storage.RecordStorage;
 import io.bitsquare.storage.Storage;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -38,8 +39,12 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -48,6 +53,9 @@ import java.util.stream.Collectors;
 /**
  * The User is persisted locally.
  * It must never be transmitted over the wire (messageKeyPair contains private key!).
+ * <p>
+ * The payment accounts and the accepted arbitrators are persisted in their own sections, the other fields in the
+ * settings section. Older versions stored the whole object in one file, which is migrated at the first start.
  */
 public final class User implements Persistable {
     // That object is saved to disc. We need to take care of changes to not break deserialization.
@@ -55,8 +63,12 @@ public final class User implements Persistable {
 
     private static final Logger log = LoggerFactory.getLogger(User.class);
 
+    private static final String SETTINGS_SECTION = "settings";
+    private static final String PAYMENT_ACCOUNTS_SECTION = "paymentAccounts";
+    private static final String ACCEPTED_ARBITRATORS_SECTION = "acceptedArbitrators";
+
     // Transient immutable fields
-    transient final private Storage<User> storage;
+    transient final private RecordStorage<Serializable> sectionStorage;
     transient private Set<TradeCurrency> tradeCurrenciesInPaymentAccounts;
 
     // Persisted fields
@@ -79,26 +91,35 @@ public final class User implements Persistable {
 
 
     @Inject
-    public User(Storage<User> storage, KeyRing keyRing) throws NoSuchAlgorithmException {
-        this.storage = storage;
-
-        User persisted = storage.initAndGetPersisted(this);
+    public User(Storage<User> storage, @Named(Storage.DIR_KEY) File storageDir, KeyRing keyRing)
+            throws NoSuchAlgorithmException {
+        sectionStorage = new RecordStorage<>(storageDir, "User");
+        boolean migrate = !sectionStorage.hasPersistedIndex();
+        User persisted;
+        if (migrate)
+            persisted = storage.initAndGetPersisted(this);
+        else
+            persisted = readSection(SETTINGS_SECTION);
         if (persisted != null) {
             accountID = persisted.getAccountId();
 
             // The check is only needed to not break old versions where paymentAccounts was not included and is null,
             // Can be removed later
-            if (persisted.getPaymentAccounts() != null)
-                paymentAccounts = new HashSet<>(persisted.getPaymentAccounts());
+            Set<PaymentAccount> persistedPaymentAccounts = migrate ? persisted.getPaymentAccounts() : readSection(PAYMENT_ACCOUNTS_SECTION);
+            if (persistedPaymentAccounts != null)
+                paymentAccounts = new HashSet<>(persistedPaymentAccounts);
 
             paymentAccountsAsObservable.addAll(paymentAccounts);
 
-            currentPaymentAccount = persisted.getCurrentPaymentAccount();
+            // The current account is stored in the settings section, so we use the instance from our accounts
+            if (persisted.getCurrentPaymentAccount() != null)
+                currentPaymentAccount = getPaymentAccount(persisted.getCurrentPaymentAccount().getId());
             currentPaymentAccountProperty.set(currentPaymentAccount);
 
             acceptedLanguageLocaleCodes = persisted.getAcceptedLanguageLocaleCodes();
-            if (persisted.getAcceptedArbitrators() != null)
-                acceptedArbitrators = persisted.getAcceptedArbitrators();
+            List<Arbitrator> persistedAcceptedArbitrators = migrate ? persisted.getAcceptedArbitrators() : readSection(ACCEPTED_ARBITRATORS_SECTION);
+            if (persistedAcceptedArbitrators != null)
+                acceptedArbitrators = persistedAcceptedArbitrators;
             registeredArbitrator = persisted.getRegisteredArbitrator();
             developersAlert = persisted.getDevelopersAlert();
             displayedAlert = persisted.getDisplayedAlert();
@@ -113,17 +134,25 @@ public final class User implements Persistable {
 
             acceptedArbitrators = new ArrayList<>();
         }
-        storage.queueUpForSave();
+
+        // At the first start or the migration all sections are written before the index references them
+        if (migrate || persisted == null) {
+            LinkedHashMap<String, Serializable> sections = new LinkedHashMap<>();
+            sections.put(PAYMENT_ACCOUNTS_SECTION, new HashSet<>(paymentAccounts));
+            sections.put(ACCEPTED_ARBITRATORS_SECTION, new ArrayList<>(acceptedArbitrators));
+            sections.put(SETTINGS_SECTION, this);
+            sectionStorage.saveAllNow(sections);
+        }
 
         // Use that to guarantee update of the serializable field and to make a storage update in case of a change
         paymentAccountsAsObservable.addListener((SetChangeListener<PaymentAccount>) change -> {
             paymentAccounts = new HashSet<>(paymentAccountsAsObservable);
             tradeCurrenciesInPaymentAccounts = paymentAccounts.stream().flatMap(e -> e.getTradeCurrencies().stream()).collect(Collectors.toSet());
-            storage.queueUpForSave();
+            persistPaymentAccounts();
         });
         currentPaymentAccountProperty.addListener((ov) -> {
             currentPaymentAccount = currentPaymentAccountProperty.get();
-            storage.queueUpForSave();
+            persist();
         });
 
         tradeCurrenciesInPaymentAccounts = paymentAccounts.stream().flatMap(e -> e.getTradeCurrencies().stream()).collect(Collectors.toSet());
@@ -131,7 +160,7 @@ public final class User implements Persistable {
 
     // for unit tests
     public User() {
-        this.storage = null;
+        this.sectionStorage = null;
     }
 
 
@@ -143,6 +172,20 @@ public final class User implements Persistable {
         }
     }
 
+    // We only write the settings, the payment accounts and arbitrators are persisted in their own sections. Fields
+    // which are not put here are not persisted.
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("accountID", accountID);
+        fields.put("currentPaymentAccount", currentPaymentAccount);
+        fields.put("acceptedLanguageLocaleCodes", acceptedLanguageLocaleCodes);
+        fields.put("developersAlert", developersAlert);
+        fields.put("displayedAlert", displayedAlert);
+        fields.put("developersFilter", developersFilter);
+        fields.put("registeredArbitrator", registeredArbitrator);
+        out.writeFields();
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Public Methods
@@ -165,7 +208,7 @@ public final class User implements Persistable {
         if (!acceptedLanguageLocaleCodes.contains(localeCode)) {
             boolean changed = acceptedLanguageLocaleCodes.add(localeCode);
             if (changed)
-                storage.queueUpForSave();
+                persist();
             return changed;
         } else {
             return false;
@@ -175,7 +218,7 @@ public final class User implements Persistable {
     public boolean removeAcceptedLanguageLocale(String languageLocaleCode) {
         boolean changed = acceptedLanguageLocaleCodes.remove(languageLocaleCode);
         if (changed)
-            storage.queueUpForSave();
+            persist();
         return changed;
     }
 
@@ -183,7 +226,7 @@ public final class User implements Persistable {
         if (!acceptedArbitrators.contains(arbitrator) && !isMyOwnRegisteredArbitrator(arbitrator)) {
             boolean changed = acceptedArbitrators.add(arbitrator);
             if (changed)
-                storage.queueUpForSave();
+                persistAcceptedArbitrators();
         }
     }
 
@@ -194,22 +237,22 @@ public final class User implements Persistable {
     public void removeAcceptedArbitrator(Arbitrator arbitrator) {
         boolean changed = acceptedArbitrators.remove(arbitrator);
         if (changed)
-            storage.queueUpForSave();
+            persistAcceptedArbitrators();
     }
 
     public void clearAcceptedArbitrators() {
         acceptedArbitrators.clear();
-        storage.queueUpForSave();
+        persistAcceptedArbitrators();
     }
 
     public void setRegisteredArbitrator(@Nullable Arbitrator arbitrator) {
         this.registeredArbitrator = arbitrator;
-        storage.queueUpForSave();
+        persist();
     }
 
     public void setDevelopersFilter(Filter developersFilter) {
         this.developersFilter = developersFilter;
-        storage.queueUpForSave();
+        persist();
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -293,6 +336,31 @@ public final class User implements Persistable {
     }
 
 
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Queues up a save of the settings section
+    private void persist() {
+        sectionStorage.add(SETTINGS_SECTION, this);
+    }
+
+    // We pass copies as the collections might get changed while the section is written on the background thread
+    private void persistPaymentAccounts() {
+        sectionStorage.add(PAYMENT_ACCOUNTS_SECTION, new HashSet<>(paymentAccounts));
+    }
+
+    private void persistAcceptedArbitrators() {
+        sectionStorage.add(ACCEPTED_ARBITRATORS_SECTION, new ArrayList<>(acceptedArbitrators));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private <S> S readSection(String section) {
+        return (S) sectionStorage.read(section);
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Utils
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -333,7 +401,7 @@ public final class User implements Persistable {
 
     public void setDevelopersAlert(Alert developersAlert) {
         this.developersAlert = developersAlert;
-        storage.queueUpForSave();
+        persist();
     }
 
     public Alert getDevelopersAlert() {
@@ -342,7 +410,7 @@ public final class User implements Persistable {
 
     public void setDisplayedAlert(Alert displayedAlert) {
         this.displayedAlert = displayedAlert;
-        storage.queueUpForSave();
+        persist();
     }
 
     public Alert getDisplayedAlert() {
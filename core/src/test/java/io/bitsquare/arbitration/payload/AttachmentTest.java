@@ -0,0 +1,71 @@
+package io.bitsquare.arbitration.payload;
+
+import io.bitsquare.storage.BlobStore;
+import io.bitsquare.storage.FileUtil;
+import io.bitsquare.storage.StorageObjectOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AttachmentTest {
+    private File storageDir;
+
+    @Before
+    public void setup() throws IOException {
+        storageDir = Files.createTempDirectory("AttachmentTest").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Attachment.setBlobStore(null);
+        FileUtil.deleteDirectory(storageDir);
+    }
+
+    @Test
+    public void testHashOfReceivedAttachmentIsCalculated() throws Exception {
+        byte[] data = "attachment".getBytes();
+        Attachment attachment = new Attachment("file.txt", data);
+        setHash(attachment, BlobStore.getHash("other attachment".getBytes()));
+
+        Attachment received = deserialize(serialize(attachment, false));
+        assertEquals(BlobStore.getHash(data), received.getHash());
+        assertArrayEquals(data, received.getBytes());
+    }
+
+    @Test(expected = InvalidObjectException.class)
+    public void testStoredAttachmentWithInvalidHash() throws Exception {
+        Attachment.setBlobStore(new BlobStore(storageDir, "test"));
+        Attachment attachment = new Attachment("file.txt", null);
+        setHash(attachment, "../../secret");
+
+        deserialize(serialize(attachment, true));
+    }
+
+    private static void setHash(Attachment attachment, String hash) throws Exception {
+        Field field = Attachment.class.getDeclaredField("hash");
+        field.setAccessible(true);
+        field.set(attachment, hash);
+    }
+
+    private static byte[] serialize(Attachment attachment, boolean storage) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = storage ? new StorageObjectOutputStream(byteArrayOutputStream) :
+                new ObjectOutputStream(byteArrayOutputStream)) {
+            out.writeObject(attachment);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static Attachment deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (Attachment) in.readObject();
+        }
+    }
+}
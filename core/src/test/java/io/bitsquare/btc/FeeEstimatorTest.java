@@ -0,0 +1,118 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.*;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.wallet.CoinSelection;
+import org.bitcoinj.wallet.CoinSelector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FeeEstimatorTest {
+    private static final NetworkParameters params = MainNetParams.get();
+    private static final Coin FEE_PER_KB = Coin.valueOf(150_000);
+
+    // Selects the candidates in the given order until the target is reached
+    private static final CoinSelector inOrderCoinSelector = (target, candidates) -> {
+        List<TransactionOutput> selected = new ArrayList<>();
+        Coin total = Coin.ZERO;
+        for (TransactionOutput candidate : candidates) {
+            if (total.compareTo(target) >= 0)
+                break;
+            selected.add(candidate);
+            total = total.add(candidate.getValue());
+        }
+        return new CoinSelection(total, selected);
+    };
+
+    @Test
+    public void testEstimatedSizeCoversSignedTx() {
+        ECKey key = new ECKey();
+        Address toAddress = new ECKey().toAddress(params);
+        Address changeAddress = new ECKey().toAddress(params);
+        List<TransactionOutput> candidates = getCandidates(key, 10, Coin.MILLICOIN);
+
+        // 5 inputs, receiver output and change
+        Coin amount = Coin.MILLICOIN.multiply(4).add(Coin.valueOf(50_000));
+        int estimatedSize = FeeEstimator.estimateSize(candidates.subList(0, 5), toAddress, true);
+
+        Transaction tx = new Transaction(params);
+        tx.addOutput(amount, toAddress);
+        tx.addOutput(Coin.valueOf(40_000), changeAddress);
+        candidates.subList(0, 5).forEach(output -> tx.addSignedInput(output, key));
+        int size = tx.bitcoinSerialize().length;
+
+        // Signatures are 71-73 bytes, we use the max.
+        assertTrue(estimatedSize >= size);
+        assertTrue(estimatedSize - size <= 5 * 2);
+    }
+
+    @Test
+    public void testEstimateFeePaidFromAmount() {
+        List<TransactionOutput> candidates = getCandidates(new ECKey(), 10, Coin.MILLICOIN);
+        Address toAddress = new ECKey().toAddress(params);
+
+        // All 10 inputs without change: 8 + 1 + 1 + 10 * 149 + 34 = 1534 bytes -> 2 kb
+        Coin fee = FeeEstimator.estimateFeePaidFromAmount(inOrderCoinSelector, candidates, Coin.MILLICOIN.multiply(10),
+                toAddress, FEE_PER_KB);
+        assertEquals(FEE_PER_KB.multiply(2), fee);
+
+        // 2 inputs with change: 8 + 1 + 1 + 2 * 149 + 2 * 34 = 376 bytes -> 1 kb
+        fee = FeeEstimator.estimateFeePaidFromAmount(inOrderCoinSelector, candidates, Coin.valueOf(150_000),
+                toAddress, FEE_PER_KB);
+        assertEquals(FEE_PER_KB, fee);
+    }
+
+    @Test
+    public void testEstimateSizeFeeOnTopAddsInputsForFee() throws InsufficientMoneyException {
+        List<TransactionOutput> candidates = getCandidates(new ECKey(), 10, Coin.valueOf(100_000));
+        Address toAddress = new ECKey().toAddress(params);
+
+        // 200_000 + 150_000 fee needs 4 inputs
+        int size = FeeEstimator.estimateSizeFeeOnTop(inOrderCoinSelector, candidates, Coin.valueOf(200_000),
+                toAddress, FEE_PER_KB);
+        assertEquals(8 + 1 + 1 + 4 * FeeEstimator.P2PKH_INPUT_SIZE + 2 * FeeEstimator.P2PKH_OUTPUT_SIZE, size);
+    }
+
+    @Test(expected = InsufficientMoneyException.class)
+    public void testEstimateSizeFeeOnTopWithInsufficientMoney() throws InsufficientMoneyException {
+        List<TransactionOutput> candidates = getCandidates(new ECKey(), 2, Coin.valueOf(100_000));
+        FeeEstimator.estimateSizeFeeOnTop(inOrderCoinSelector, candidates, Coin.valueOf(200_000),
+                new ECKey().toAddress(params), FEE_PER_KB);
+    }
+
+    @Test
+    public void testGetFee() {
+        assertEquals(FEE_PER_KB, FeeEstimator.getFee(999, FEE_PER_KB));
+        assertEquals(FEE_PER_KB.multiply(2), FeeEstimator.getFee(1000, FEE_PER_KB));
+        assertEquals(Transaction.REFERENCE_DEFAULT_MIN_TX_FEE, FeeEstimator.getFee(200, Coin.ZERO));
+    }
+
+    private static List<TransactionOutput> getCandidates(ECKey key, int numOutputs, Coin value) {
+        Transaction fundingTx = new Transaction(params);
+        for (int i = 0; i < numOutputs; i++)
+            fundingTx.addOutput(value, key.toAddress(params));
+        return new ArrayList<>(fundingTx.getOutputs());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.btc;
+
+import org.bitcoinj.core.*;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.testing.FakeTxBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WalletAddressIndexTest {
+    private NetworkParameters params;
+    private Wallet wallet;
+    private WalletAddressIndex addressIndex;
+
+    @Before
+    public void setup() {
+        params = RegTestParams.get();
+        wallet = new Wallet(params);
+        addressIndex = new WalletAddressIndex(params);
+    }
+
+    @Test
+    public void testBalanceIsUpdatedWithoutUserThread() throws Exception {
+        addressIndex.onWalletReady(wallet);
+        Address address = wallet.freshReceiveAddress();
+        Address otherAddress = wallet.freshReceiveAddress();
+        assertEquals(Coin.ZERO, addressIndex.getBalance(address));
+
+        // The cached balances must not be returned after a wallet change, even if no user thread event was handled
+        wallet.receivePending(FakeTxBuilder.createFakeTx(params, Coin.COIN, address), null);
+        assertEquals(Coin.COIN, addressIndex.getBalance(address));
+
+        wallet.receivePending(FakeTxBuilder.createFakeTx(params, Coin.CENT, address), null);
+        assertEquals(Coin.COIN.add(Coin.CENT), addressIndex.getBalance(address));
+        assertEquals(Coin.ZERO, addressIndex.getBalance(otherAddress));
+    }
+
+    @Test
+    public void testTransactionsAndOutputsOfAddress() throws Exception {
+        addressIndex.onWalletReady(wallet);
+        Address address = wallet.freshReceiveAddress();
+        Transaction tx = FakeTxBuilder.createFakeTx(params, Coin.COIN, address);
+        wallet.receivePending(tx, null);
+
+        // A changed transaction is indexed again, but its outputs are only counted once
+        addressIndex.onTransactionChanged(tx);
+        addressIndex.onTransactionChanged(tx);
+        assertEquals(1, addressIndex.getNumTxOutputs(address));
+        assertEquals(1, addressIndex.getTransactions(address).size());
+        assertTrue(addressIndex.getTransactions(address).contains(tx));
+        assertTrue(addressIndex.getAddresses(tx).contains(address));
+
+        Address otherAddress = wallet.freshReceiveAddress();
+        assertEquals(0, addressIndex.getNumTxOutputs(otherAddress));
+        assertTrue(addressIndex.getTransactions(otherAddress).isEmpty());
+    }
+
+    @Test
+    public void testOnWalletReadyIndexesExistingTransactions() throws Exception {
+        Address address = wallet.freshReceiveAddress();
+        assertEquals(Coin.ZERO, addressIndex.getBalance(address));
+
+        Transaction tx = FakeTxBuilder.createFakeTx(params, Coin.COIN, address);
+        wallet.receivePending(tx, null);
+        addressIndex.onWalletReady(wallet);
+
+        assertEquals(Coin.COIN, addressIndex.getBalance(address));
+        assertEquals(1, addressIndex.getNumTxOutputs(address));
+        assertTrue(addressIndex.getTransactions(address).contains(tx));
+    }
+}
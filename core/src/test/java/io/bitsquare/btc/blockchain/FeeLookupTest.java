@@ -0,0 +1,86 @@
+package io.bitsquare.btc.blockchain;
+
+import com.google.common.util.concurrent.SettableFuture;
+import io.bitsquare.btc.blockchain.providers.BlockTrailProvider;
+import io.bitsquare.btc.blockchain.providers.BlockrIOProvider;
+import io.bitsquare.btc.blockchain.providers.TradeBlockProvider;
+import io.bitsquare.common.UserThread;
+import io.bitsquare.http.HttpClient;
+import io.bitsquare.http.HttpException;
+import org.bitcoinj.core.Coin;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FeeLookupTest {
+    private static final String TX_ID = "38d176d0b1079b99fcb59859401d6b1679d2fa18fd8989d2c244b3682e52fce6";
+
+    private final AtomicInteger numBlockrIORequests = new AtomicInteger();
+    private final AtomicInteger numBlockTrailRequests = new AtomicInteger();
+    private final AtomicInteger numTradeBlockRequests = new AtomicInteger();
+    private BlockchainService blockchainService;
+
+    @Before
+    public void setUp() {
+        UserThread.setExecutor(Executors.newSingleThreadExecutor());
+
+        // BlockrIO does not know the tx, BlockTrail delivers the fee and TradeBlock is down
+        blockchainService = new BlockchainService(
+                new BlockrIOProvider(new HttpClient("http://localhost/")) {
+                    @Override
+                    public Coin getFee(String transactionId) throws IOException, HttpException {
+                        numBlockrIORequests.incrementAndGet();
+                        throw new HttpException("Transaction not found");
+                    }
+                },
+                new BlockTrailProvider(new HttpClient("http://localhost/")) {
+                    @Override
+                    public Coin getFee(String transactionId) throws IOException, HttpException {
+                        numBlockTrailRequests.incrementAndGet();
+                        return Coin.MILLICOIN;
+                    }
+                },
+                new TradeBlockProvider(new HttpClient("http://localhost/")) {
+                    @Override
+                    public Coin getFee(String transactionId) throws IOException, HttpException {
+                        numTradeBlockRequests.incrementAndGet();
+                        throw new IOException("Connection refused");
+                    }
+                });
+    }
+
+    @Test
+    public void testFirstSuccessWinsAndIsCached() throws Exception {
+        SettableFuture<Coin> future = blockchainService.requestFee(TX_ID);
+        // The second provider only gets asked after the hedge delay
+        assertEquals(Coin.MILLICOIN, future.get(10, TimeUnit.SECONDS));
+        assertTrue(numBlockrIORequests.get() >= 1);
+        assertEquals(1, numBlockTrailRequests.get());
+        assertEquals(0, numTradeBlockRequests.get());
+
+        assertEquals(Coin.MILLICOIN, blockchainService.requestFee(TX_ID).get(1, TimeUnit.SECONDS));
+        assertEquals(1, numBlockTrailRequests.get());
+    }
+
+    @Test
+    public void testFeeProviderStats() {
+        FeeProviderStats stats = new FeeProviderStats();
+        assertEquals(-1, stats.getAvgLatency());
+        assertEquals(0, stats.getScore(), 0);
+
+        stats.onSuccess(100);
+        assertEquals(100, stats.getAvgLatency());
+        assertEquals(100, stats.getScore(), 0.001);
+
+        // A failure makes the provider slower in expectation
+        stats.onFailure(100);
+        assertTrue(stats.getScore() > 100);
+    }
+}
@@ -0,0 +1,138 @@
+package io.bitsquare.trade;
+
+import io.bitsquare.storage.FileUtil;
+import io.bitsquare.storage.PersistenceScheduler;
+import io.bitsquare.storage.RecordStorage;
+import io.bitsquare.storage.Storage;
+import io.bitsquare.trade.offer.Offer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class TradableListTest {
+    private File storageDir;
+    private File oldFormatDir;
+    private File recordsDir;
+
+    @Before
+    public void setup() throws IOException {
+        storageDir = Files.createTempDirectory("TradableListTest").toFile();
+        oldFormatDir = Files.createTempDirectory("TradableListTestOldFormat").toFile();
+        recordsDir = new File(new File(storageDir, RecordStorage.RECORDS_DIR), "PendingTrades");
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            FileUtil.deleteDirectory(storageDir);
+            FileUtil.deleteDirectory(oldFormatDir);
+        } catch (IOException e) {
+            // Backups after a read are copied in the background, so the dir might still be in use
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void testMigrationOfOldFormat() {
+        writeOldFormat("PendingTrades", "id1", "id2", "id3");
+        File oldFile = new File(storageDir, "PendingTrades");
+
+        TradableList<DummyTradable> tradableList = new TradableList<>(storageDir, "PendingTrades");
+        assertEquals(Arrays.asList("id1", "id2", "id3"), getIds(tradableList));
+        assertTrue(new File(recordsDir, "_index").isFile());
+        assertTrue(new File(recordsDir, RecordStorage.getFileName("id1")).isFile());
+        assertTrue(new File(recordsDir, RecordStorage.getFileName("id2")).isFile());
+        assertTrue(new File(recordsDir, RecordStorage.getFileName("id3")).isFile());
+        // The old file stays as backup
+        assertTrue(oldFile.isFile());
+
+        // Now we read the records and not the old file anymore
+        assertTrue(oldFile.delete());
+        assertEquals(Arrays.asList("id1", "id2", "id3"), getIds(new TradableList<>(storageDir, "PendingTrades")));
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        TradableList<DummyTradable> tradableList = new TradableList<>(storageDir, "PendingTrades");
+        assertTrue(tradableList.isEmpty());
+        tradableList.add(new DummyTradable("id1"));
+        tradableList.add(new DummyTradable("id2"));
+        PersistenceScheduler.getInstance().flush();
+        assertEquals(Arrays.asList("id1", "id2"), getIds(new TradableList<>(storageDir, "PendingTrades")));
+
+        tradableList.remove(tradableList.get(0));
+        PersistenceScheduler.getInstance().flush();
+        assertFalse(new File(recordsDir, RecordStorage.getFileName("id1")).exists());
+        assertEquals(Arrays.asList("id2"), getIds(new TradableList<>(storageDir, "PendingTrades")));
+    }
+
+    @Test
+    public void testMissingRecord() {
+        writeOldFormat("PendingTrades", "id1", "id2");
+        new TradableList<DummyTradable>(storageDir, "PendingTrades");
+        assertTrue(new File(recordsDir, RecordStorage.getFileName("id1")).delete());
+
+        TradableList<DummyTradable> tradableList = new TradableList<>(storageDir, "PendingTrades");
+        assertEquals(Arrays.asList("id2"), getIds(tradableList));
+        PersistenceScheduler.getInstance().flush();
+
+        // The index does not reference the missing record anymore, so we don't fall back to the old file
+        assertEquals(Arrays.asList("id2"), getIds(new TradableList<>(storageDir, "PendingTrades")));
+    }
+
+    // The old format was the whole list in one file
+    private void writeOldFormat(String fileName, String... ids) {
+        TradableList<DummyTradable> oldList = new TradableList<>(oldFormatDir, fileName);
+        for (String id : ids) {
+            oldList.add(new DummyTradable(id));
+        }
+        Storage<TradableList<DummyTradable>> storage = new Storage<>(storageDir);
+        storage.initWithFileName(fileName);
+        storage.saveNow(oldList);
+        // Write the records of the list in the other dir, so they don't get written after the test
+        PersistenceScheduler.getInstance().flush();
+    }
+
+    private static List<String> getIds(List<DummyTradable> tradables) {
+        return tradables.stream().map(DummyTradable::getId).collect(Collectors.toList());
+    }
+
+    private static final class DummyTradable implements Tradable {
+        private final String id;
+        private final Date date = new Date();
+
+        DummyTradable(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public Offer getOffer() {
+            return null;
+        }
+
+        @Override
+        public Date getDate() {
+            return date;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getShortId() {
+            return id;
+        }
+    }
+}
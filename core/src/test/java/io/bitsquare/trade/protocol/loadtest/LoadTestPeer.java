@@ -0,0 +1,145 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol.loadtest;
+
+import io.bitsquare.app.BitsquareEnvironment;
+import io.bitsquare.arbitration.Arbitrator;
+import io.bitsquare.arbitration.ArbitratorManager;
+import io.bitsquare.btc.AddressEntryList;
+import io.bitsquare.btc.pricefeed.PriceFeedService;
+import io.bitsquare.common.crypto.KeyRing;
+import io.bitsquare.filter.FilterManager;
+import io.bitsquare.p2p.P2PService;
+import io.bitsquare.payment.PerfectMoneyAccount;
+import io.bitsquare.storage.Storage;
+import io.bitsquare.trade.TradeManager;
+import io.bitsquare.trade.closed.ClosedTradableManager;
+import io.bitsquare.trade.failed.FailedTradesManager;
+import io.bitsquare.trade.offer.Offer;
+import io.bitsquare.trade.offer.OfferBookService;
+import io.bitsquare.trade.offer.OpenOfferManager;
+import io.bitsquare.trade.statistics.TradeStatisticsManager;
+import io.bitsquare.user.Preferences;
+import io.bitsquare.user.User;
+import org.bitcoinj.core.Coin;
+
+import java.io.File;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * A trader of the trade protocol load test.
+ * <p>
+ * The peer runs the real OpenOfferManager, TradeManager and OfferBookService of the app on its own P2PService, so
+ * offers, availability checks and all trade messages go over the P2P network. Only the wallet services are
+ * replaced by {@link StubWalletService} and {@link StubTradeWalletService}. The price feed is not used, as the
+ * offers have a fixed price, and the arbitrator is set as accepted arbitrator of the user instead of being looked
+ * up by the ArbitratorManager.
+ */
+class LoadTestPeer {
+    final String name;
+    final KeyRing keyRing;
+    final P2PService p2PService;
+    final User user;
+    final PerfectMoneyAccount paymentAccount;
+    final OfferBookService offerBookService;
+    final OpenOfferManager openOfferManager;
+    final TradeManager tradeManager;
+    private final PriceFeedService priceFeedService;
+
+    LoadTestPeer(String name,
+                 File dir,
+                 KeyRing keyRing,
+                 P2PService p2PService,
+                 BitsquareEnvironment environment,
+                 Arbitrator arbitrator,
+                 long broadcastDelay) throws NoSuchAlgorithmException {
+        this.name = name;
+        this.keyRing = keyRing;
+        this.p2PService = p2PService;
+
+        File storageDir = new File(dir, "db");
+        Preferences preferences = new Preferences(new Storage<>(storageDir), storageDir, environment, "", "false");
+        user = new User(new Storage<>(storageDir), storageDir, keyRing);
+        user.addAcceptedArbitrator(arbitrator);
+        paymentAccount = new PerfectMoneyAccount();
+        paymentAccount.setAccountNr(name);
+        user.addPaymentAccount(paymentAccount);
+
+        priceFeedService = mock(PriceFeedService.class);
+        StubTradeWalletService tradeWalletService = new StubTradeWalletService(preferences, broadcastDelay);
+        StubWalletService walletService = new StubWalletService(tradeWalletService,
+                new AddressEntryList(new Storage<>(storageDir)), preferences, dir);
+
+        offerBookService = new OfferBookService(p2PService, priceFeedService, new Storage<>(storageDir), false);
+        ClosedTradableManager closedTradableManager = new ClosedTradableManager(keyRing, priceFeedService, storageDir);
+        openOfferManager = new OpenOfferManager(keyRing, user, p2PService, walletService, tradeWalletService,
+                offerBookService, closedTradableManager, priceFeedService, preferences, storageDir);
+        tradeManager = new TradeManager(user,
+                keyRing,
+                walletService,
+                tradeWalletService,
+                openOfferManager,
+                closedTradableManager,
+                new FailedTradesManager(keyRing, priceFeedService, storageDir),
+                mock(ArbitratorManager.class),
+                p2PService,
+                priceFeedService,
+                new FilterManager(p2PService, keyRing, user, true),
+                new TradeStatisticsManager(new Storage<>(storageDir), new Storage<>(storageDir), new Storage<>(storageDir),
+                        new Storage<>(storageDir), p2PService, false),
+                storageDir);
+    }
+
+    // Must be called on the user thread after the P2PService has been started
+    void onAllServicesInitialized() {
+        p2PService.onAllServicesInitialized();
+        openOfferManager.onAllServicesInitialized();
+        tradeManager.onAllServicesInitialized();
+    }
+
+    Offer createBuyOffer(Coin amount, long fiatPrice) {
+        return new Offer(UUID.randomUUID().toString(),
+                p2PService.getAddress(),
+                keyRing.getPubKeyRing(),
+                Offer.Direction.BUY,
+                fiatPrice,
+                0,
+                false,
+                amount.value,
+                amount.value,
+                "USD",
+                new ArrayList<>(user.getAcceptedArbitratorAddresses()),
+                paymentAccount.getPaymentMethod().getId(),
+                paymentAccount.getId(),
+                null,
+                null,
+                null,
+                null,
+                priceFeedService);
+    }
+
+    void shutDown(Runnable shutDownCompleteHandler) {
+        tradeManager.shutDown();
+        openOfferManager.shutDown();
+        p2PService.shutDown(shutDownCompleteHandler);
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol.loadtest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import io.bitsquare.btc.FeePolicy;
+import io.bitsquare.btc.TradeWalletService;
+import io.bitsquare.btc.data.InputsAndChangeOutput;
+import io.bitsquare.btc.data.PreparedDepositTxAndOffererInputs;
+import io.bitsquare.btc.data.RawTransactionInput;
+import io.bitsquare.btc.exceptions.SigningException;
+import io.bitsquare.btc.exceptions.TransactionVerificationException;
+import io.bitsquare.common.UserThread;
+import io.bitsquare.user.Preferences;
+import org.bitcoinj.core.*;
+import org.bitcoinj.crypto.DeterministicKey;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TradeWalletService which creates and signs the trade transactions without a connection to the bitcoin network.
+ * <p>
+ * The methods which select inputs of a funded wallet get their inputs from a funding transaction created on the
+ * fly, which pays to the requested address of the in-memory wallet. The transactions are built like the real ones
+ * and all inputs, the 2 of 3 MultiSig payout included, are signed with the wallet keys and verified. A broadcast
+ * succeeds on the user thread after a fixed delay. The payout signing of the seller is not overridden, as it does
+ * not need a wallet.
+ */
+class StubTradeWalletService extends TradeWalletService {
+    /**
+     * Chain height reported to the trade tasks.
+     */
+    static final int CHAIN_HEIGHT = 1000;
+
+    private final NetworkParameters params;
+    private final Wallet wallet;
+    private final long broadcastDelay;
+    private final Random random = new Random();
+
+    StubTradeWalletService(Preferences preferences, long broadcastDelay) {
+        super(preferences);
+        this.params = preferences.getBitcoinNetwork().getParameters();
+        this.wallet = new Wallet(params);
+        this.broadcastDelay = broadcastDelay;
+    }
+
+    Wallet getWallet() {
+        return wallet;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Trade fee
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Transaction createTradingFeeTx(Address fundingAddress, Address reservedForTradeAddress, Address changeAddress,
+                                          Coin reservedFundsForOffer, boolean useSavingsWallet, Coin tradingFee,
+                                          String feeReceiverAddresses) throws AddressFormatException {
+        Transaction tradingFeeTx = new Transaction(params);
+        tradingFeeTx.addInput(createFundingTx(reservedFundsForOffer.add(tradingFee), fundingAddress).getOutput(0));
+        tradingFeeTx.addOutput(tradingFee.subtract(FeePolicy.getFixedTxFeeForTrades()), new Address(params, feeReceiverAddresses));
+        tradingFeeTx.addOutput(reservedFundsForOffer, reservedForTradeAddress);
+        try {
+            signInput(tradingFeeTx, 0);
+        } catch (SigningException | TransactionVerificationException e) {
+            throw new IllegalStateException(e);
+        }
+        return tradingFeeTx;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Deposit tx
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public InputsAndChangeOutput takerCreatesDepositsTxInputs(Coin inputAmount, Address takersAddress,
+                                                              Address takersChangeAddress) {
+        ArrayList<RawTransactionInput> rawTransactionInputs = new ArrayList<>();
+        rawTransactionInputs.add(new RawTransactionInput(0,
+                createFundingTx(inputAmount, takersAddress).bitcoinSerialize(),
+                inputAmount.value));
+        return new InputsAndChangeOutput(rawTransactionInputs, 0, null);
+    }
+
+    @Override
+    public PreparedDepositTxAndOffererInputs offererCreatesAndSignsDepositTx(boolean offererIsBuyer,
+                                                                             byte[] contractHash,
+                                                                             Coin offererInputAmount,
+                                                                             Coin msOutputAmount,
+                                                                             List<RawTransactionInput> takerRawTransactionInputs,
+                                                                             long takerChangeOutputValue,
+                                                                             @Nullable String takerChangeAddressString,
+                                                                             Address offererAddress,
+                                                                             Address offererChangeAddress,
+                                                                             byte[] buyerPubKey,
+                                                                             byte[] sellerPubKey,
+                                                                             byte[] arbitratorPubKey)
+            throws SigningException, TransactionVerificationException {
+        Transaction fundingTx = createFundingTx(offererInputAmount, offererAddress);
+        ArrayList<RawTransactionInput> offererRawTransactionInputs = new ArrayList<>();
+        offererRawTransactionInputs.add(new RawTransactionInput(0, fundingTx.bitcoinSerialize(), offererInputAmount.value));
+
+        // The buyer inputs come first, the taker's inputs are not signed yet
+        Transaction preparedDepositTx = new Transaction(params);
+        if (offererIsBuyer)
+            preparedDepositTx.addInput(fundingTx.getOutput(0));
+        for (RawTransactionInput rawTransactionInput : takerRawTransactionInputs)
+            preparedDepositTx.addInput(getTransactionInput(preparedDepositTx, new byte[]{}, rawTransactionInput));
+        if (!offererIsBuyer)
+            preparedDepositTx.addInput(fundingTx.getOutput(0));
+
+        preparedDepositTx.addOutput(new TransactionOutput(params, preparedDepositTx, msOutputAmount,
+                getP2SHMultiSigOutputScript(buyerPubKey, sellerPubKey, arbitratorPubKey).getProgram()));
+        preparedDepositTx.addOutput(new TransactionOutput(params, preparedDepositTx, Coin.ZERO,
+                ScriptBuilder.createOpReturnScript(contractHash).getProgram()));
+        if (takerChangeOutputValue > 0 && takerChangeAddressString != null) {
+            try {
+                preparedDepositTx.addOutput(Coin.valueOf(takerChangeOutputValue), new Address(params, takerChangeAddressString));
+            } catch (AddressFormatException e) {
+                throw new TransactionVerificationException(e);
+            }
+        }
+
+        signInput(preparedDepositTx, offererIsBuyer ? 0 : preparedDepositTx.getInputs().size() - 1);
+        verifyTransaction(preparedDepositTx);
+        return new PreparedDepositTxAndOffererInputs(offererRawTransactionInputs, preparedDepositTx.bitcoinSerialize());
+    }
+
+    @Override
+    public Transaction takerSignsAndPublishesDepositTx(boolean takerIsSeller,
+                                                       byte[] contractHash,
+                                                       byte[] offerersDepositTxSerialized,
+                                                       List<RawTransactionInput> buyerInputs,
+                                                       List<RawTransactionInput> sellerInputs,
+                                                       byte[] buyerPubKey,
+                                                       byte[] sellerPubKey,
+                                                       byte[] arbitratorPubKey,
+                                                       FutureCallback<Transaction> callback)
+            throws SigningException, TransactionVerificationException {
+        Transaction offerersDepositTx = new Transaction(params, offerersDepositTxSerialized);
+        if (!offerersDepositTx.getOutput(0).getScriptPubKey().equals(getP2SHMultiSigOutputScript(buyerPubKey, sellerPubKey, arbitratorPubKey)))
+            throw new TransactionVerificationException("Offerer's p2SHMultiSigOutputScript does not match to takers p2SHMultiSigOutputScript");
+        if (!offerersDepositTx.getOutput(1).getScriptPubKey().equals(ScriptBuilder.createOpReturnScript(contractHash)))
+            throw new TransactionVerificationException("Offerer's transaction output for the contract hash is not matching takers version.");
+
+        // The outpoints are not available from the serialized offerersDepositTx, so we build the tx again from the
+        // raw inputs and apply the signatures of the offerer
+        List<RawTransactionInput> rawTransactionInputs = new ArrayList<>(buyerInputs);
+        rawTransactionInputs.addAll(sellerInputs);
+        Transaction depositTx = new Transaction(params);
+        List<Integer> takerInputIndices = new ArrayList<>();
+        for (int i = 0; i < rawTransactionInputs.size(); i++) {
+            boolean isTakerInput = takerIsSeller == (i >= buyerInputs.size());
+            byte[] scriptProgram = new byte[]{};
+            if (isTakerInput) {
+                takerInputIndices.add(i);
+            } else {
+                scriptProgram = offerersDepositTx.getInput(i).getScriptBytes();
+                if (scriptProgram.length == 0)
+                    throw new TransactionVerificationException("Inputs from offerer not signed.");
+            }
+            depositTx.addInput(getTransactionInput(depositTx, scriptProgram, rawTransactionInputs.get(i)));
+        }
+        offerersDepositTx.getOutputs().forEach(depositTx::addOutput);
+
+        for (int i : takerInputIndices)
+            signInput(depositTx, i);
+        verifyTransaction(depositTx);
+
+        broadcastTx(depositTx, callback);
+        return depositTx;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Payout tx
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Same as the real one but without the wallet consistency check
+    @Override
+    public Transaction buyerSignsAndFinalizesPayoutTx(Transaction depositTx,
+                                                      byte[] sellerSignature,
+                                                      Coin buyerPayoutAmount,
+                                                      Coin sellerPayoutAmount,
+                                                      String buyerPayoutAddressString,
+                                                      String sellerPayoutAddressString,
+                                                      DeterministicKey multiSigKeyPair,
+                                                      long lockTime,
+                                                      byte[] buyerPubKey,
+                                                      byte[] sellerPubKey,
+                                                      byte[] arbitratorPubKey)
+            throws AddressFormatException, TransactionVerificationException {
+        Transaction payoutTx = new Transaction(params);
+        payoutTx.addInput(depositTx.getOutput(0));
+        payoutTx.addOutput(buyerPayoutAmount, new Address(params, buyerPayoutAddressString));
+        payoutTx.addOutput(sellerPayoutAmount, new Address(params, sellerPayoutAddressString));
+        if (lockTime != 0) {
+            payoutTx.getInputs().forEach(i -> i.setSequenceNumber(0));
+            payoutTx.setLockTime(lockTime);
+        }
+
+        Script redeemScript = getMultiSigRedeemScript(buyerPubKey, sellerPubKey, arbitratorPubKey);
+        Sha256Hash sigHash = payoutTx.hashForSignature(0, redeemScript, Transaction.SigHash.ALL, false);
+        ECKey.ECDSASignature buyerSignature = multiSigKeyPair.sign(sigHash).toCanonicalised();
+        TransactionSignature sellerTxSig = new TransactionSignature(ECKey.ECDSASignature.decodeFromDER(sellerSignature), Transaction.SigHash.ALL, false);
+        TransactionSignature buyerTxSig = new TransactionSignature(buyerSignature, Transaction.SigHash.ALL, false);
+        TransactionInput input = payoutTx.getInput(0);
+        input.setScriptSig(ScriptBuilder.createP2SHMultiSigInputScript(ImmutableList.of(sellerTxSig, buyerTxSig), redeemScript));
+
+        verifyTransaction(payoutTx);
+        checkScriptSig(payoutTx, 0);
+        return payoutTx;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Broadcast and chain
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void broadcastTx(Transaction tx, FutureCallback<Transaction> callback) {
+        if (broadcastDelay > 0)
+            UserThread.runAfter(() -> callback.onSuccess(tx), broadcastDelay, TimeUnit.MILLISECONDS);
+        else
+            UserThread.execute(() -> callback.onSuccess(tx));
+    }
+
+    @Override
+    public int getLastBlockSeenHeight() {
+        return CHAIN_HEIGHT;
+    }
+
+    @Override
+    public int getBestChainHeight() {
+        return CHAIN_HEIGHT;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private methods
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The funding tx spends a random outpoint, so every funding tx gets its own hash
+    private Transaction createFundingTx(Coin amount, Address address) {
+        Transaction fundingTx = new Transaction(params);
+        byte[] scriptBytes = new byte[32];
+        random.nextBytes(scriptBytes);
+        fundingTx.addInput(new TransactionInput(params, fundingTx, scriptBytes));
+        fundingTx.addOutput(amount, address);
+        return fundingTx;
+    }
+
+    private TransactionInput getTransactionInput(Transaction parentTransaction, byte[] scriptProgram,
+                                                 RawTransactionInput rawTransactionInput) {
+        return new TransactionInput(params,
+                parentTransaction,
+                scriptProgram,
+                new TransactionOutPoint(params, rawTransactionInput.index, new Transaction(params, rawTransactionInput.parentTransaction)),
+                Coin.valueOf(rawTransactionInput.value));
+    }
+
+    private void signInput(Transaction transaction, int inputIndex) throws SigningException, TransactionVerificationException {
+        TransactionInput input = transaction.getInput(inputIndex);
+        Script scriptPubKey = input.getConnectedOutput().getScriptPubKey();
+        ECKey sigKey = input.getOutpoint().getConnectedKey(wallet);
+        if (sigKey == null)
+            throw new SigningException("No key in the wallet for input " + inputIndex);
+
+        Sha256Hash hash = transaction.hashForSignature(inputIndex, scriptPubKey, Transaction.SigHash.ALL, false);
+        TransactionSignature txSig = new TransactionSignature(sigKey.sign(hash), Transaction.SigHash.ALL, false);
+        input.setScriptSig(ScriptBuilder.createInputScript(txSig, sigKey));
+        checkScriptSig(transaction, inputIndex);
+    }
+
+    private void checkScriptSig(Transaction transaction, int inputIndex) throws TransactionVerificationException {
+        try {
+            TransactionInput input = transaction.getInput(inputIndex);
+            input.getScriptSig().correctlySpends(transaction, inputIndex, input.getConnectedOutput().getScriptPubKey());
+        } catch (Throwable t) {
+            throw new TransactionVerificationException(t);
+        }
+    }
+
+    private void verifyTransaction(Transaction transaction) throws TransactionVerificationException {
+        try {
+            transaction.verify();
+        } catch (Throwable t) {
+            throw new TransactionVerificationException(t);
+        }
+    }
+
+    // Keys in the order of the real TradeWalletService (arbitrator, seller, buyer)
+    private Script getMultiSigRedeemScript(byte[] buyerPubKey, byte[] sellerPubKey, byte[] arbitratorPubKey) {
+        List<ECKey> keys = ImmutableList.of(ECKey.fromPublicOnly(arbitratorPubKey),
+                ECKey.fromPublicOnly(sellerPubKey),
+                ECKey.fromPublicOnly(buyerPubKey));
+        return ScriptBuilder.createMultiSigOutputScript(2, keys);
+    }
+
+    private Script getP2SHMultiSigOutputScript(byte[] buyerPubKey, byte[] sellerPubKey, byte[] arbitratorPubKey) {
+        return ScriptBuilder.createP2SHOutputScript(getMultiSigRedeemScript(buyerPubKey, sellerPubKey, arbitratorPubKey));
+    }
+}
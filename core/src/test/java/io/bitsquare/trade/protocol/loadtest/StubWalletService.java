@@ -0,0 +1,92 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol.loadtest;
+
+import io.bitsquare.btc.*;
+import io.bitsquare.network.Socks5ProxyProvider;
+import io.bitsquare.user.Preferences;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Wallet;
+
+import java.io.File;
+import java.util.Optional;
+
+/**
+ * WalletService backed by an in-memory wallet which is never connected to the bitcoin network.
+ * <p>
+ * The address entries are created from the keys of that wallet like in the app, so the trade protocol signs with
+ * real keys. The addresses of the offer funding and reserved for trade entries report a balance of
+ * {@link #FUNDED_BALANCE}, as the offerer's deposit balance listener closes the offer if that address is empty.
+ */
+class StubWalletService extends WalletService {
+    static final Coin FUNDED_BALANCE = Coin.parseCoin("2");
+
+    private final Wallet wallet;
+    private final AddressEntryList addressEntryList;
+
+    StubWalletService(StubTradeWalletService tradeWalletService,
+                      AddressEntryList addressEntryList,
+                      Preferences preferences,
+                      File appDir) {
+        super(RegTestHost.DEFAULT,
+                tradeWalletService,
+                addressEntryList,
+                new UserAgent("Bitsquare", "load-test"),
+                preferences,
+                new Socks5ProxyProvider("", ""),
+                appDir,
+                "ALL");
+        this.wallet = tradeWalletService.getWallet();
+        this.addressEntryList = addressEntryList;
+        addressEntryList.onWalletReady(wallet);
+    }
+
+    @Override
+    public AddressEntry getOrCreateAddressEntry(String offerId, AddressEntry.Context context) {
+        Optional<AddressEntry> addressEntry = getAddressEntryListAsImmutableList().stream()
+                .filter(e -> offerId.equals(e.getOfferId()))
+                .filter(e -> context == e.getContext())
+                .findAny();
+        return addressEntry.orElseGet(() -> addressEntryList.addAddressEntry(
+                new AddressEntry(wallet.freshReceiveKey(), wallet.getParams(), context, offerId)));
+    }
+
+    @Override
+    public AddressEntry getOrCreateAddressEntry(AddressEntry.Context context) {
+        Optional<AddressEntry> addressEntry = getAddressEntryListAsImmutableList().stream()
+                .filter(e -> context == e.getContext())
+                .findAny();
+        return addressEntry.orElseGet(() -> addressEntryList.addAddressEntry(
+                new AddressEntry(wallet.freshReceiveKey(), wallet.getParams(), context)));
+    }
+
+    @Override
+    public Coin getBalanceForAddress(Address address) {
+        boolean funded = getAddressEntryListAsImmutableList().stream()
+                .filter(e -> e.getContext() == AddressEntry.Context.OFFER_FUNDING
+                        || e.getContext() == AddressEntry.Context.RESERVED_FOR_TRADE)
+                .anyMatch(e -> address.equals(e.getAddress()));
+        return funded ? FUNDED_BALANCE : Coin.ZERO;
+    }
+
+    @Override
+    public Wallet getWallet() {
+        return wallet;
+    }
+}
@@ -0,0 +1,593 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade.protocol.loadtest;
+
+import io.bitsquare.app.AppOptionKeys;
+import io.bitsquare.app.BitsquareEnvironment;
+import io.bitsquare.arbitration.Arbitrator;
+import io.bitsquare.btc.BtcOptionKeys;
+import io.bitsquare.btc.FeePolicy;
+import io.bitsquare.common.Clock;
+import io.bitsquare.common.UserThread;
+import io.bitsquare.common.crypto.KeyRing;
+import io.bitsquare.common.crypto.KeyStorage;
+import io.bitsquare.crypto.EncryptionService;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.P2PService;
+import io.bitsquare.p2p.P2PServiceListener;
+import io.bitsquare.p2p.Utils;
+import io.bitsquare.p2p.network.LocalhostNetworkNode;
+import io.bitsquare.p2p.seed.SeedNodesRepository;
+import io.bitsquare.trade.BuyerTrade;
+import io.bitsquare.trade.SellerTrade;
+import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.offer.Offer;
+import io.bitsquare.trade.offer.OfferBookService;
+import io.bitsquare.trade.protocol.trade.timing.TradeSpan;
+import io.bitsquare.trade.protocol.trade.timing.TradeTimings;
+import javafx.collections.ListChangeListener;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.params.RegTestParams;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.springframework.core.env.PropertiesPropertySource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.Security;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNull;
+
+/**
+ * Load test for the trade protocol.
+ * <p>
+ * Starts a seed node, an arbitrator node and a number of offerer/taker pairs, each trader on its own
+ * {@link LocalhostNetworkNode} based {@link P2PService} with the real OpenOfferManager, TradeManager and
+ * OfferBookService (see {@link LoadTestPeer}). Every offerer places a number of buy offers, which its taker takes as
+ * soon as they arrive in its offer book. The trades run through the real BuyerAsOffererProtocol and
+ * SellerAsTakerProtocol until the payout transaction is broadcast on both sides.
+ * <p>
+ * There is no bitcoin network: The wallet services are replaced by {@link StubWalletService} and
+ * {@link StubTradeWalletService}, which create and sign real RegTest transactions spending generated funding
+ * transactions and simulate a broadcast by a fixed delay. The arbitrator is only needed for the multisig keys and
+ * is not contacted in a trade without dispute.
+ * <p>
+ * The test reports the trades per second, the trade duration percentiles, the latency percentiles of the protocol
+ * tasks, messages and wallet calls recorded by {@link TradeTimings} and a rough estimate of the heap used per trade.
+ * <p>
+ * You can invoke this class directly from the command line. You can set some {@code LOAD_TEST_*} environment
+ * variables to customize the execution of the test. See the {@code *_ENVVAR} constants for the names of these
+ * variables.
+ */
+@Ignore
+public class TradeProtocolLoadTest {
+    // Constants
+
+    /**
+     * Environment variable to specify the number of offerer/taker pairs.
+     */
+    private static final String NPAIRS_ENVVAR = "LOAD_TEST_NPAIRS";
+    /**
+     * Environment variable to specify the number of trades each taker runs against its offerer.
+     */
+    private static final String NTRADES_ENVVAR = "LOAD_TEST_NTRADES";
+    /**
+     * Environment variable to specify the simulated broadcast delay in milliseconds.
+     */
+    private static final String BROADCAST_DELAY_ENVVAR = "LOAD_TEST_BROADCAST_DELAY";
+    /**
+     * Environment variable to specify a persistent test data directory.
+     */
+    private static final String TEST_DIR_ENVVAR = "LOAD_TEST_DIR";
+
+    private static final int NPAIRS_DEFAULT = 4;
+    private static final int NTRADES_DEFAULT = 10;
+    private static final int BROADCAST_DELAY_DEFAULT = 50;
+
+    private static final int REGTEST_NETWORK_ID = 2;
+    private static final Coin TRADE_AMOUNT = Coin.parseCoin("0.1");
+    // 6000 USD with 4 decimal places
+    private static final long TRADE_PRICE = 6000_0000;
+
+    /**
+     * Maximum delay in seconds for a node to start.
+     */
+    private static final long MAX_START_DELAY_SECS = 10;
+    /**
+     * Maximum delay in seconds for a node to shutdown.
+     */
+    private static final long MAX_SHUTDOWN_DELAY_SECS = 5;
+    /**
+     * Maximum average duration of a single trade in seconds before the test fails.
+     */
+    private static final long MAX_SECS_PER_TRADE = 2;
+
+    // Instance fields
+
+    private Path testDataDir;
+    private int nTrades = NTRADES_DEFAULT;
+
+    private P2PService seedNode;
+    private P2PService arbitratorNode;
+    private final List<LoadTestPeer> offerers = new ArrayList<>();
+    private final List<LoadTestPeer> takers = new ArrayList<>();
+
+    private final Map<String, Long> tradeStartTimes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> payoutsByTradeId = new ConcurrentHashMap<>();
+    private final Set<String> takenOfferIds = ConcurrentHashMap.newKeySet();
+    private final Queue<Long> tradeDurations = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<String> failure = new AtomicReference<>();
+    private CountDownLatch tradesLatch;
+
+
+    // # MAIN ENTRY POINT
+
+    public static void main(String[] args) {
+        Request request = (args.length == 0)
+                ? Request.aClass(TradeProtocolLoadTest.class)
+                : Request.method(TradeProtocolLoadTest.class, args[0]);
+
+        Result result = new JUnitCore().run(request);
+        for (Failure f : result.getFailures())
+            System.err.printf("\n%s\n%s", f, f.getTrace());
+        System.exit(result.wasSuccessful() ? 0 : 1);
+    }
+
+
+    // # TEST SETUP
+
+    @Before
+    public void setUp() throws Exception {
+        final int nPairs = parseEnvInt(NPAIRS_ENVVAR, NPAIRS_DEFAULT, 1);
+        nTrades = parseEnvInt(NTRADES_ENVVAR, NTRADES_DEFAULT, 1);
+        final int broadcastDelay = parseEnvInt(BROADCAST_DELAY_ENVVAR, BROADCAST_DELAY_DEFAULT, 0);
+
+        // Set a security provider to allow key generation.
+        Security.addProvider(new BouncyCastleProvider());
+
+        testDataDir = createTestDataDirectory();
+        print("test data directory: " + testDataDir);
+
+        // As in the app all protocol tasks and network callbacks are executed on a single user thread
+        UserThread.setExecutor(Executors.newSingleThreadExecutor());
+        final Context context = new Context(RegTestParams.get());
+        UserThread.execute(() -> Context.propagate(context));
+        LocalhostNetworkNode.setSimulateTorDelayTorNode(0);
+        LocalhostNetworkNode.setSimulateTorDelayHiddenService(0);
+        TradeTimings.setCapacity(Math.max(TradeTimings.DEFAULT_CAPACITY, nPairs * nTrades * 100));
+
+        final BitsquareEnvironment environment = createEnvironment();
+
+        // The seed node
+        final NodeAddress seedNodeAddress = newSeedNodeAddress();
+        final SeedNodesRepository seedNodesRepositoryOfSeed = new SeedNodesRepository();
+        seedNodesRepositoryOfSeed.setLocalhostSeedNodeAddresses(Collections.singleton(seedNodeAddress));
+        seedNodesRepositoryOfSeed.setNodeAddressToExclude(seedNodeAddress);
+        final File seedDir = new File(testDataDir.toFile(), "seed");
+        seedNode = new P2PService(seedNodesRepositoryOfSeed, seedNodeAddress.port, new File(seedDir, "tor"), true,
+                REGTEST_NETWORK_ID, P2PService.MAX_CONNECTIONS_DEFAULT, new File(seedDir, "db"), null, null, null,
+                new Clock(), null, null, null);
+        final CountDownLatch seedLatch = new CountDownLatch(1);
+        seedNode.start(new StartListener("seed", seedLatch, false));
+        assertLatch("timed out while starting seed node", seedLatch, MAX_START_DELAY_SECS, TimeUnit.SECONDS);
+
+        // The arbitrator and the traders, all connecting to the seed node above
+        final SeedNodesRepository seedNodesRepository = new SeedNodesRepository();
+        seedNodesRepository.setLocalhostSeedNodeAddresses(Collections.singleton(seedNodeAddress));
+        final CountDownLatch startLatch = new CountDownLatch(1 + 2 * nPairs);
+        final KeyRing arbitratorKeyRing = createKeyRing("arbitrator");
+        arbitratorNode = createP2PService(seedNodesRepository, "arbitrator", arbitratorKeyRing);
+        arbitratorNode.start(new StartListener("arbitrator", startLatch, true));
+
+        final List<P2PService> p2PServices = new ArrayList<>();
+        final List<KeyRing> keyRings = new ArrayList<>();
+        for (int i = 0; i < 2 * nPairs; i++) {
+            final String name = (i % 2 == 0 ? "offerer" : "taker") + i / 2;
+            final KeyRing keyRing = createKeyRing(name);
+            final P2PService p2PService = createP2PService(seedNodesRepository, name, keyRing);
+            p2PService.start(new StartListener(name, startLatch, true));
+            keyRings.add(keyRing);
+            p2PServices.add(p2PService);
+        }
+        assertLatch("timed out while bootstrapping nodes", startLatch, MAX_START_DELAY_SECS * (1 + 2 * nPairs),
+                TimeUnit.SECONDS);
+        assertNull(failure.get());
+
+        final Arbitrator arbitrator = createArbitrator(arbitratorNode, arbitratorKeyRing);
+        for (int i = 0; i < 2 * nPairs; i++) {
+            final String name = (i % 2 == 0 ? "offerer" : "taker") + i / 2;
+            final LoadTestPeer peer = new LoadTestPeer(name, new File(testDataDir.toFile(), name), keyRings.get(i),
+                    p2PServices.get(i), environment, arbitrator, broadcastDelay);
+            (i % 2 == 0 ? offerers : takers).add(peer);
+        }
+
+        final CountDownLatch initLatch = new CountDownLatch(1);
+        UserThread.execute(() -> {
+            offerers.forEach(this::initPeer);
+            takers.forEach(this::initPeer);
+            initLatch.countDown();
+        });
+        assertLatch("timed out while initializing services", initLatch, MAX_START_DELAY_SECS, TimeUnit.SECONDS);
+        print("started %d offerer/taker pairs", nPairs);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException, IOException {
+        final List<LoadTestPeer> peers = new ArrayList<>(offerers);
+        peers.addAll(takers);
+        final List<P2PService> nodes = new ArrayList<>();
+        if (arbitratorNode != null)
+            nodes.add(arbitratorNode);
+        if (seedNode != null)
+            nodes.add(seedNode);
+
+        final CountDownLatch shutdownLatch = new CountDownLatch(peers.size() + nodes.size());
+        UserThread.execute(() -> {
+            peers.forEach(peer -> peer.shutDown(shutdownLatch::countDown));
+            nodes.forEach(node -> node.shutDown(shutdownLatch::countDown));
+        });
+        assertLatch("timed out while stopping nodes", shutdownLatch, MAX_SHUTDOWN_DELAY_SECS, TimeUnit.SECONDS);
+
+        // Give the storage threads some time to write pending saves before the directory gets removed
+        Thread.sleep(1000);
+        if (testDataDir != null)
+            deleteTestDataDirectory();
+    }
+
+    private P2PService createP2PService(SeedNodesRepository seedNodesRepository, String name, KeyRing keyRing) {
+        final File dir = new File(testDataDir.toFile(), name);
+        return new P2PService(seedNodesRepository, Utils.findFreeSystemPort(), new File(dir, "tor"), true,
+                REGTEST_NETWORK_ID, P2PService.MAX_CONNECTIONS_DEFAULT, new File(dir, "db"), null, null, null,
+                new Clock(), null, new EncryptionService(keyRing), keyRing);
+    }
+
+    private KeyRing createKeyRing(String name) {
+        final File keysDir = new File(new File(testDataDir.toFile(), name), "keys");
+        if (!keysDir.mkdirs())
+            throw new IllegalStateException("Could not create " + keysDir);
+        return new KeyRing(new KeyStorage(keysDir));
+    }
+
+    private BitsquareEnvironment createEnvironment() {
+        final Properties properties = new Properties();
+        properties.setProperty(AppOptionKeys.APP_DATA_DIR_KEY, testDataDir.toString());
+        properties.setProperty(BtcOptionKeys.BTC_NETWORK, "REGTEST");
+        return new BitsquareEnvironment(new PropertiesPropertySource("loadTestProperties", properties)) {
+        };
+    }
+
+    private static Arbitrator createArbitrator(P2PService p2PService, KeyRing keyRing) {
+        final ECKey btcKey = new ECKey();
+        final ECKey registrationKey = new ECKey();
+        final String registrationSignature = registrationKey.signMessage(
+                org.bitcoinj.core.Utils.HEX.encode(keyRing.getPubKeyRing().getSignaturePubKey().getEncoded()));
+        return new Arbitrator(p2PService.getAddress(),
+                btcKey.getPubKey(),
+                btcKey.toAddress(RegTestParams.get()).toString(),
+                keyRing.getPubKeyRing(),
+                new ArrayList<>(Collections.singletonList("en")),
+                new Date(),
+                registrationKey.getPubKey(),
+                registrationSignature);
+    }
+
+    private NodeAddress newSeedNodeAddress() {
+        // The seed node port must match the network id
+        int port;
+        do {
+            port = Utils.findFreeSystemPort();
+        } while (port % 10 != REGTEST_NETWORK_ID);
+        return new NodeAddress("localhost", port);
+    }
+
+    private void initPeer(LoadTestPeer peer) {
+        peer.onAllServicesInitialized();
+        peer.tradeManager.getTrades().addListener((ListChangeListener<Trade>) change -> {
+            while (change.next()) {
+                if (change.wasAdded())
+                    change.getAddedSubList().forEach(trade -> observeTrade(peer, trade));
+            }
+        });
+    }
+
+
+    // # TESTS
+
+    @Test
+    public void runTrades() throws InterruptedException {
+        final int totalTrades = takers.size() * nTrades;
+        tradesLatch = new CountDownLatch(totalTrades);
+
+        final long usedHeapBefore = getUsedHeap();
+        final long startTime = System.currentTimeMillis();
+        UserThread.execute(() -> {
+            for (int i = 0; i < takers.size(); i++) {
+                final LoadTestPeer offerer = offerers.get(i);
+                final LoadTestPeer taker = takers.get(i);
+                taker.offerBookService.addOfferBookChangedListener(new OfferBookService.OfferBookChangedListener() {
+                    @Override
+                    public void onAdded(Offer offer) {
+                        if (offer.getOffererNodeAddress().equals(offerer.p2PService.getAddress()))
+                            takeOffer(taker, offer);
+                    }
+
+                    @Override
+                    public void onRemoved(Offer offer) {
+                    }
+                });
+                for (int t = 0; t < nTrades; t++)
+                    placeOffer(offerer);
+            }
+        });
+
+        final long timeout = Math.max(60, totalTrades * MAX_SECS_PER_TRADE);
+        while (!tradesLatch.await(500, TimeUnit.MILLISECONDS) && failure.get() == null) {
+            if (System.currentTimeMillis() - startTime > timeout * 1000)
+                org.junit.Assert.fail(String.format("timed out while running trades (%d pending)", tradesLatch.getCount()));
+            printProgress(tradesLatch.getCount());
+        }
+        assertNull(failure.get());
+
+        final long duration = System.currentTimeMillis() - startTime;
+        // All trades are still referenced by the peers at that point
+        final long usedHeapAfter = getUsedHeap();
+
+        final Map<String, List<Long>> durationsByName = new TreeMap<>();
+        payoutsByTradeId.keySet().forEach(tradeId -> TradeTimings.getSpans(tradeId).forEach(span ->
+                durationsByName.computeIfAbsent(getName(span), k -> new ArrayList<>()).add(span.durationInMillis)));
+
+        print("");
+        print("completed %d trades in %d ms: %.1f trades/sec", totalTrades, duration,
+                totalTrades * 1000d / Math.max(1, duration));
+        print("trade duration: %s", percentiles(tradeDurations));
+        durationsByName.forEach((name, durations) -> print("%-60s %s", name, percentiles(durations)));
+        print("approx. heap per trade (offerer and taker side): %d bytes",
+                Math.max(0, usedHeapAfter - usedHeapBefore) / totalTrades);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Protocol
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void placeOffer(LoadTestPeer offerer) {
+        final Offer offer = offerer.createBuyOffer(TRADE_AMOUNT, TRADE_PRICE);
+        final Coin reservedFunds = FeePolicy.getFixedTxFeeForTrades(offer).add(FeePolicy.getSecurityDeposit(offer));
+        offerer.openOfferManager.placeOffer(offer, reservedFunds, false, transaction -> {
+        });
+    }
+
+    private void takeOffer(LoadTestPeer taker, Offer offer) {
+        if (!takenOfferIds.add(offer.getId()))
+            return;
+
+        tradeStartTimes.put(offer.getId(), System.currentTimeMillis());
+        final Coin fundsNeeded = FeePolicy.getSecurityDeposit(offer)
+                .add(FeePolicy.getFixedTxFeeForTrades(offer))
+                .add(offer.getAmount());
+        taker.tradeManager.onTakeOffer(offer.getAmount(),
+                offer.getPrice().value,
+                fundsNeeded,
+                offer,
+                taker.paymentAccount.getId(),
+                false,
+                trade -> {
+                },
+                errorMessage -> fail(taker.name + " could not take offer " + offer.getId() + ": " + errorMessage));
+    }
+
+    private void observeTrade(LoadTestPeer peer, Trade trade) {
+        trade.errorMessageProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue != null)
+                fail("trade " + trade.getId() + " of " + peer.name + " failed: " + newValue);
+        });
+        trade.stateProperty().addListener((observable, oldValue, newValue) -> onTradeStateChanged(trade, newValue));
+    }
+
+    private void onTradeStateChanged(Trade trade, Trade.State state) {
+        switch (state) {
+            case OFFERER_RECEIVED_DEPOSIT_TX_PUBLISHED_MSG:
+                UserThread.execute(() -> ((BuyerTrade) trade).onFiatPaymentStarted(() -> {
+                }, errorMessage -> fail("onFiatPaymentStarted of " + trade.getId() + " failed: " + errorMessage)));
+                break;
+            case SELLER_RECEIVED_FIAT_PAYMENT_INITIATED_MSG:
+                UserThread.execute(() -> ((SellerTrade) trade).onFiatPaymentReceived(() -> {
+                }, errorMessage -> fail("onFiatPaymentReceived of " + trade.getId() + " failed: " + errorMessage)));
+                break;
+            case PAYOUT_BROAD_CASTED:
+                onPayoutBroadcast(trade);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // The offerer's and the taker's trade have the same id, the trade is completed once both broadcast the payout
+    private void onPayoutBroadcast(Trade trade) {
+        if (payoutsByTradeId.merge(trade.getId(), 1, Integer::sum) == 2) {
+            final Long startTime = tradeStartTimes.remove(trade.getId());
+            if (startTime != null)
+                tradeDurations.add(System.currentTimeMillis() - startTime);
+            tradesLatch.countDown();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Utilities
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void print(String message, Object... args) {
+        System.out.println(this.getClass().getSimpleName() + ": "
+                + String.format(message, args));
+    }
+
+    private void printProgress(long pending) {
+        System.out.print(String.format("\r%s> %-6d trades pending ", this.getClass().getSimpleName(), pending));
+        System.out.flush();
+    }
+
+    private void fail(String message) {
+        System.err.println(message);
+        failure.compareAndSet(null, message);
+    }
+
+    private static String getName(TradeSpan span) {
+        return span.type.name().toLowerCase() + ": " + span.name;
+    }
+
+    private static String percentiles(Collection<Long> durations) {
+        final List<Long> sorted = new ArrayList<>(durations);
+        if (sorted.isEmpty())
+            return "no samples";
+
+        Collections.sort(sorted);
+        return String.format("n=%-6d p50=%-5d p90=%-5d p99=%-5d max=%-5d (ms)",
+                sorted.size(),
+                percentile(sorted, 50),
+                percentile(sorted, 90),
+                percentile(sorted, 99),
+                sorted.get(sorted.size() - 1));
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        final int index = (int) Math.ceil(percentile / 100d * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private static long getUsedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void assertLatch(String message, CountDownLatch latch, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (!latch.await(timeout, unit))
+            org.junit.Assert.fail(String.format("%s (%d pending in latch)", message, latch.getCount()));
+    }
+
+    private int parseEnvInt(String envVar, int defValue, int minValue) {
+        int value = defValue;
+        final String envValue = System.getenv(envVar);
+        if (envValue != null && !envValue.equals(""))
+            value = Integer.parseInt(envValue);
+        if (value < minValue)
+            throw new IllegalArgumentException(
+                    String.format("%s must be at least %d: %d", envVar, minValue, value)
+            );
+        return value;
+    }
+
+    private Path createTestDataDirectory() throws IOException {
+        final String loadTestDir = System.getenv(TEST_DIR_ENVVAR);
+        if (loadTestDir != null && !loadTestDir.equals("")) {
+            final Path path = Paths.get(loadTestDir);
+            Files.createDirectories(path);
+            return path;
+        }
+        return Files.createTempDirectory("bsqtradeload");
+    }
+
+    private void deleteTestDataDirectory() throws IOException {
+        final String loadTestDir = System.getenv(TEST_DIR_ENVVAR);
+        if (loadTestDir != null && !loadTestDir.equals(""))
+            return;
+
+        Files.walkFileTree(testDataDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null)
+                    throw exc;
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Listener
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private final class StartListener implements P2PServiceListener {
+        private final String name;
+        private final CountDownLatch latch;
+        private final boolean awaitBootstrap;
+
+        private StartListener(String name, CountDownLatch latch, boolean awaitBootstrap) {
+            this.name = name;
+            this.latch = latch;
+            this.awaitBootstrap = awaitBootstrap;
+        }
+
+        @Override
+        public void onRequestingDataCompleted() {
+        }
+
+        @Override
+        public void onNoSeedNodeAvailable() {
+        }
+
+        @Override
+        public void onNoPeersAvailable() {
+        }
+
+        @Override
+        public void onBootstrapComplete() {
+            if (awaitBootstrap)
+                latch.countDown();
+        }
+
+        @Override
+        public void onTorNodeReady() {
+        }
+
+        @Override
+        public void onHiddenServicePublished() {
+            if (!awaitBootstrap)
+                latch.countDown();
+        }
+
+        @Override
+        public void onSetupFailed(Throwable throwable) {
+            fail("setup of " + name + " failed: " + throwable);
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.bitsquare.trade.protocol.trade.timing;
+
+import com.google.common.util.concurrent.FutureCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class TradeTimingsTest {
+
+    @Before
+    public void setup() {
+        TradeTimings.setCapacity(TradeTimings.DEFAULT_CAPACITY);
+        TradeTimings.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        TradeTimings.setCapacity(TradeTimings.DEFAULT_CAPACITY);
+        TradeTimings.setEnabled(true);
+    }
+
+    @Test
+    public void testGetSpansOfTradeOrderedByStart() {
+        TradeTimings.record(span("trade1", "task2", 200));
+        TradeTimings.record(span("trade2", "task1", 50));
+        TradeTimings.record(span("trade1", "task1", 100));
+
+        assertEquals("task1 task2", getNames(TradeTimings.getSpans("trade1")));
+        assertEquals("task1", getNames(TradeTimings.getSpans("trade2")));
+        assertTrue(TradeTimings.getSpans("trade3").isEmpty());
+    }
+
+    @Test
+    public void testRingBufferOverwritesOldestSpans() {
+        TradeTimings.setCapacity(3);
+        for (int i = 1; i <= 5; i++) {
+            TradeTimings.record(span("trade1", "task" + i, i));
+        }
+        assertEquals("task3 task4 task5", getNames(TradeTimings.getSpans("trade1")));
+
+        // Wraps around a second time
+        TradeTimings.record(span("trade1", "task6", 6));
+        TradeTimings.record(span("trade1", "task7", 7));
+        TradeTimings.record(span("trade1", "task8", 8));
+        assertEquals("task6 task7 task8", getNames(TradeTimings.getSpans("trade1")));
+    }
+
+    @Test
+    public void testDisabled() {
+        TradeTimings.setEnabled(false);
+        TradeTimings.record(span("trade1", "task1", 1));
+        assertTrue(TradeTimings.getSpans("trade1").isEmpty());
+    }
+
+    @Test
+    public void testRecordWalletCall() throws Exception {
+        assertEquals("result", TradeTimings.recordWalletCall("trade1", "call", () -> "result"));
+
+        List<TradeSpan> spans = TradeTimings.getSpans("trade1");
+        assertEquals(1, spans.size());
+        assertEquals(TradeSpan.Type.WALLET, spans.get(0).type);
+        assertEquals("call", spans.get(0).name);
+        assertEquals("completed", spans.get(0).outcome);
+    }
+
+    @Test
+    public void testRecordFailedWalletCall() {
+        try {
+            TradeTimings.recordWalletCall("trade1", "call", () -> {
+                throw new IOException("no wallet");
+            });
+            fail("Expected IOException");
+        } catch (Exception e) {
+            assertEquals("no wallet", e.getMessage());
+        }
+
+        List<TradeSpan> spans = TradeTimings.getSpans("trade1");
+        assertEquals(1, spans.size());
+        assertEquals("failed", spans.get(0).outcome);
+    }
+
+    @Test
+    public void testRecordAsyncWalletCall() {
+        StringBuilder result = new StringBuilder();
+        FutureCallback<String> callback = TradeTimings.recordWalletCall("trade1", "broadcastTx", new FutureCallback<String>() {
+            @Override
+            public void onSuccess(String value) {
+                result.append(value);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.append("failure");
+            }
+        });
+        assertTrue(TradeTimings.getSpans("trade1").isEmpty());
+
+        callback.onSuccess("tx");
+        assertEquals("tx", result.toString());
+        assertEquals("completed", TradeTimings.getSpans("trade1").get(0).outcome);
+
+        callback.onFailure(new IOException());
+        assertEquals("txfailure", result.toString());
+        assertEquals("failed", TradeTimings.getSpans("trade1").get(1).outcome);
+    }
+
+    @Test
+    public void testLatencyReport() {
+        TradeTimings.record(new TradeSpan("trade1", TradeSpan.Type.TASK, "task1", "completed", 1000, 30));
+        TradeTimings.record(new TradeSpan("trade1", TradeSpan.Type.WALLET, "call", "completed", 1010, 10));
+        TradeTimings.record(new TradeSpan("trade1", TradeSpan.Type.TASK, "task2", "completed", 1100, 20));
+
+        String report = TradeTimings.getLatencyReport("trade1");
+        assertTrue(report.contains("task2"));
+        assertTrue(report.contains("+    100 ms"));
+        assertTrue(report.contains("Total TASK: 50 ms"));
+        assertTrue(report.contains("Total WALLET: 10 ms"));
+        assertTrue(TradeTimings.getLatencyReport("trade2").contains("No spans recorded."));
+    }
+
+    private static TradeSpan span(String tradeId, String name, long startTime) {
+        return new TradeSpan(tradeId, TradeSpan.Type.TASK, name, "completed", startTime, 1);
+    }
+
+    private static String getNames(List<TradeSpan> spans) {
+        return spans.stream().map(span -> span.name).collect(Collectors.joining(" "));
+    }
+}
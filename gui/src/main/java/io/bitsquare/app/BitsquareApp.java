@@ -44,8 +44,10 @@ import io.bitsquare.gui.main.debug.DebugView;
 import io.bitsquare.gui.main.overlays.popups.Popup;
 import io.bitsquare.gui.main.overlays.windows.*;
 import io.bitsquare.gui.util.ImageUtil;
+import io.bitsquare.http.HttpClient;
 import io.bitsquare.p2p.P2PService;
 import io.bitsquare.storage.Storage;
+import io.bitsquare.storage.StorageLoader;
 import io.bitsquare.trade.TradeManager;
 import io.bitsquare.trade.offer.OpenOfferManager;
 import javafx.application.Application;
@@ -72,6 +74,7 @@ import org.reactfx.EventStreams;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
@@ -152,6 +155,10 @@ public class BitsquareApp extends Application {
         Security.addProvider(new BouncyCastleProvider());
 
         try {
+            long createServicesStartNanos = System.nanoTime();
+            // Start reading the persisted data in parallel, the services wait for their files when they get created
+            StorageLoader.getInstance().preload(new File(env.getRequiredProperty(Storage.DIR_KEY)));
+
             // Guice
             bitsquareAppModule = new BitsquareAppModule(env, primaryStage);
             injector = Guice.createInjector(bitsquareAppModule);
@@ -172,6 +179,13 @@ public class BitsquareApp extends Application {
             CachingViewLoader viewLoader = injector.getInstance(CachingViewLoader.class);
             mainView = (MainView) viewLoader.load(MainView.class);
             mainView.setPersistedFilesCorrupted(corruptedDatabaseFiles);
+            StorageLoader.getInstance().onStartupCompleted();
+
+            // The main view model starts the remaining phases
+            StartupOrchestrator startup = injector.getInstance(StartupOrchestrator.class);
+            startup.recordPhase(StartupOrchestrator.CREATE_SERVICES, createServicesStartNanos, System.nanoTime());
+            startup.addCompletedHandler(() -> startup.exportTimeline(
+                    Paths.get(env.getProperty(AppOptionKeys.APP_DATA_DIR_KEY), "startup_timeline.csv").toFile()));
 
            /* Storage.setDatabaseCorruptionHandler((String fileName) -> {
                 corruptedDatabaseFiles.add(fileName);
@@ -403,6 +417,7 @@ public class BitsquareApp extends Application {
                 injector.getInstance(ArbitratorManager.class).shutDown();
                 injector.getInstance(MainViewModel.class).shutDown();
                 injector.getInstance(TradeManager.class).shutDown();
+                HttpClient.shutDown();
                 injector.getInstance(OpenOfferManager.class).shutDown(() -> {
                     injector.getInstance(P2PService.class).shutDown(() -> {
                         injector.getInstance(WalletService.class).shutDownDone.addListener((ov, o, n) -> {
@@ -25,6 +25,7 @@ import io.bitsquare.alert.PrivateNotificationManager;
 import io.bitsquare.app.BitsquareApp;
 import io.bitsquare.app.DevFlags;
 import io.bitsquare.app.Log;
+import io.bitsquare.app.StartupOrchestrator;
 import io.bitsquare.app.Version;
 import io.bitsquare.arbitration.ArbitratorManager;
 import io.bitsquare.arbitration.Dispute;
@@ -97,6 +98,13 @@ import java.util.stream.Collectors;
 public class MainViewModel implements ViewModel {
     private static final Logger log = LoggerFactory.getLogger(MainViewModel.class);
 
+    // Startup phases
+    private static final String TOR = "tor";
+    private static final String P2P_NETWORK = "p2pNetwork";
+    private static final String WALLET = "wallet";
+    private static final String PRICE_FEED = "priceFeed";
+    private static final String INIT_SERVICES = "initServices";
+
     private final WalletService walletService;
     private final TradeWalletService tradeWalletService;
     private final ArbitratorManager arbitratorManager;
@@ -116,6 +124,7 @@ public class MainViewModel implements ViewModel {
     private KeyRing keyRing;
     private final Navigation navigation;
     private final BSFormatter formatter;
+    private final StartupOrchestrator startup;
 
     // BTC network
     final StringProperty btcInfo = new SimpleStringProperty("Initializing");
@@ -154,7 +163,7 @@ public class MainViewModel implements ViewModel {
     private final String btcNetworkAsString;
     final StringProperty p2pNetworkLabelId = new SimpleStringProperty("footer-pane");
 
-    private MonadicBinding<Boolean> allServicesDone, tradesAndUIReady;
+    private MonadicBinding<Boolean> tradesAndUIReady;
     final PriceFeedService priceFeedService;
     private final User user;
     private int numBtcPeers = 0;
@@ -181,7 +190,7 @@ public class MainViewModel implements ViewModel {
                          User user, AlertManager alertManager, PrivateNotificationManager privateNotificationManager,
                          FilterManager filterManager, WalletPasswordWindow walletPasswordWindow, AddBitcoinNodesWindow addBitcoinNodesWindow,
                          NotificationCenter notificationCenter, TacWindow tacWindow, Clock clock,
-                         KeyRing keyRing, Navigation navigation, BSFormatter formatter) {
+                         KeyRing keyRing, Navigation navigation, BSFormatter formatter, StartupOrchestrator startup) {
         this.priceFeedService = priceFeedService;
         this.user = user;
         this.walletService = walletService;
@@ -203,6 +212,7 @@ public class MainViewModel implements ViewModel {
         this.keyRing = keyRing;
         this.navigation = navigation;
         this.formatter = formatter;
+        this.startup = startup;
 
         btcNetworkAsString = formatter.formatBitcoinNetwork(preferences.getBitcoinNetwork()) +
                 (preferences.getUseTorForBitcoinJ() ? " (using Tor)" : "");
@@ -257,20 +267,28 @@ public class MainViewModel implements ViewModel {
                 showStartupTimeoutPopup();
         }, 4, TimeUnit.MINUTES);
 
-        p2pNetWorkReady = initP2PNetwork();
-        initBitcoinWallet();
-
-        // need to store it to not get garbage collected
-        allServicesDone = EasyBind.combine(walletInitialized, p2pNetWorkReady, (a, b) -> a && b);
-        allServicesDone.subscribe((observable, oldValue, newValue) -> {
-            if (newValue) {
-                startupTimeout.stop();
-                walletInitialized.removeListener(walletInitializedListener);
-                onAllServicesInitialized();
-                if (startupTimeoutPopup != null)
-                    startupTimeoutPopup.hide();
-            }
+        // The Tor node is started by the P2P network. Independent phases run concurrently, so the wallet syncs the
+        // chain while we connect to the P2P network if we don't use Tor for bitcoinj, and the price feed gets
+        // requested as soon as Tor is ready.
+        startup.addExternalPhase(TOR);
+        startup.addPhase(P2P_NETWORK, phase -> {
+            p2pNetWorkReady = initP2PNetwork();
+            completeIfTrue(p2pNetWorkReady, phase);
         });
+        // When using Tor, wallet init must be deferred until Tor is ready.
+        if (preferences.getUseTorForBitcoinJ())
+            startup.addPhase(WALLET, this::initWalletService, TOR);
+        else
+            startup.addPhase(WALLET, this::initWalletService);
+        startup.addPhase(PRICE_FEED, this::initMarketPriceFeed, TOR);
+        startup.addTask(INIT_SERVICES, () -> {
+            startupTimeout.stop();
+            walletInitialized.removeListener(walletInitializedListener);
+            onAllServicesInitialized();
+            if (startupTimeoutPopup != null)
+                startupTimeoutPopup.hide();
+        }, P2P_NETWORK, WALLET);
+        startup.start();
     }
 
     private void showStartupTimeoutPopup() {
@@ -371,9 +389,7 @@ public class MainViewModel implements ViewModel {
             public void onTorNodeReady() {
                 bootstrapState.set("Tor node created");
                 p2PNetworkIconId.set("image-connection-tor");
-
-                if (preferences.getUseTorForBitcoinJ())
-                    initWalletService();
+                startup.getPhase(TOR).complete();
             }
 
             @Override
@@ -436,17 +452,9 @@ public class MainViewModel implements ViewModel {
         return p2pNetworkInitialized;
     }
 
-    private void initBitcoinWallet() {
-        Log.traceCall();
-
-        // We only init wallet service here if not using Tor for bitcoinj.        
-        // When using Tor, wallet init must be deferred until Tor is ready.
-        if (!preferences.getUseTorForBitcoinJ())
-            initWalletService();
-    }
-
-    private void initWalletService() {
+    private void initWalletService(StartupOrchestrator.Phase phase) {
         Log.traceCall();
+        completeIfTrue(walletInitialized, phase);
         ObjectProperty<Throwable> walletServiceException = new SimpleObjectProperty<>();
         btcInfoBinding = EasyBind.combine(walletService.downloadPercentageProperty(), walletService.numPeersProperty(), walletServiceException,
                 (downloadPercentage, numPeers, exception) -> {
@@ -516,6 +524,16 @@ public class MainViewModel implements ViewModel {
                 walletServiceException::set);
     }
 
+    private void completeIfTrue(BooleanProperty property, StartupOrchestrator.Phase phase) {
+        if (property.get())
+            phase.complete();
+        else
+            property.addListener((observable, oldValue, newValue) -> {
+                if (newValue)
+                    phase.complete();
+            });
+    }
+
     private void onAllServicesInitialized() {
         Log.traceCall();
 
@@ -570,6 +588,9 @@ public class MainViewModel implements ViewModel {
         setupMarketPriceFeed();
         swapPendingOfferFundingEntries();
         fillPriceFeedComboBoxItems();
+        // The price feed is started before, so we might have got the price already
+        if (priceFeedService.getMarketPrice(priceFeedService.getCurrencyCode()) != null)
+            onMarketPriceChanged(marketPriceBinding.getValue());
 
         showAppScreen.set(true);
 
@@ -805,13 +826,23 @@ public class MainViewModel implements ViewModel {
         });
     }
 
-    private void setupMarketPriceFeed() {
+    private void initMarketPriceFeed(StartupOrchestrator.Phase phase) {
         if (priceFeedService.getCurrencyCode() == null)
             priceFeedService.setCurrencyCode(preferences.getPreferredTradeCurrency().getCode());
         if (priceFeedService.getType() == null)
             priceFeedService.setType(PriceFeedService.Type.LAST);
-        priceFeedService.init(price -> marketPrice.set(formatter.formatMarketPrice(price, priceFeedService.getCurrencyCode())),
-                (errorMessage, throwable) -> marketPrice.set("N/A"));
+        priceFeedService.init(price -> {
+                    marketPrice.set(formatter.formatMarketPrice(price, priceFeedService.getCurrencyCode()));
+                    phase.complete();
+                },
+                (errorMessage, throwable) -> {
+                    marketPrice.set("N/A");
+                    // The price feed retries, so a later price can still complete the phase
+                    phase.reportError(errorMessage);
+                });
+    }
+
+    private void setupMarketPriceFeed() {
         marketPriceCurrencyCode.bind(priceFeedService.currencyCodeProperty());
         typeProperty.bind(priceFeedService.typeProperty());
 
@@ -820,35 +851,8 @@ public class MainViewModel implements ViewModel {
                 (currencyCode, price) -> formatter.getCurrencyPair(currencyCode) + ": " + price);
 
         marketPriceBinding.subscribe((observable, oldValue, newValue) -> {
-            if (newValue != null && !newValue.equals(oldValue)) {
-                setMarketPriceInItems();
-
-                String code = preferences.getUseStickyMarketPrice() ?
-                        preferences.getPreferredTradeCurrency().getCode() :
-                        priceFeedService.currencyCodeProperty().get();
-                Optional<PriceFeedComboBoxItem> itemOptional = findPriceFeedComboBoxItem(code);
-                if (itemOptional.isPresent()) {
-                    if (selectedPriceFeedComboBoxItemProperty.get() == null || !preferences.getUseStickyMarketPrice()) {
-                        itemOptional.get().setDisplayString(newValue);
-                        selectedPriceFeedComboBoxItemProperty.set(itemOptional.get());
-                    }
-                } else {
-                    if (CurrencyUtil.isCryptoCurrency(code)) {
-                        CurrencyUtil.getCryptoCurrency(code).ifPresent(cryptoCurrency -> {
-                            preferences.addCryptoCurrency(cryptoCurrency);
-                            fillPriceFeedComboBoxItems();
-                        });
-                    } else {
-                        CurrencyUtil.getFiatCurrency(code).ifPresent(fiatCurrency -> {
-                            preferences.addFiatCurrency(fiatCurrency);
-                            fillPriceFeedComboBoxItems();
-                        });
-                    }
-                }
-
-                if (selectedPriceFeedComboBoxItemProperty.get() != null)
-                    selectedPriceFeedComboBoxItemProperty.get().setDisplayString(newValue);
-            }
+            if (newValue != null && !newValue.equals(oldValue))
+                onMarketPriceChanged(newValue);
         });
 
         priceFeedAllLoadedSubscription = EasyBind.subscribe(priceFeedService.currenciesUpdateFlagProperty(), newPriceUpdate -> setMarketPriceInItems());
@@ -861,6 +865,36 @@ public class MainViewModel implements ViewModel {
         });
     }
 
+    private void onMarketPriceChanged(String newValue) {
+        setMarketPriceInItems();
+
+        String code = preferences.getUseStickyMarketPrice() ?
+                preferences.getPreferredTradeCurrency().getCode() :
+                priceFeedService.currencyCodeProperty().get();
+        Optional<PriceFeedComboBoxItem> itemOptional = findPriceFeedComboBoxItem(code);
+        if (itemOptional.isPresent()) {
+            if (selectedPriceFeedComboBoxItemProperty.get() == null || !preferences.getUseStickyMarketPrice()) {
+                itemOptional.get().setDisplayString(newValue);
+                selectedPriceFeedComboBoxItemProperty.set(itemOptional.get());
+            }
+        } else {
+            if (CurrencyUtil.isCryptoCurrency(code)) {
+                CurrencyUtil.getCryptoCurrency(code).ifPresent(cryptoCurrency -> {
+                    preferences.addCryptoCurrency(cryptoCurrency);
+                    fillPriceFeedComboBoxItems();
+                });
+            } else {
+                CurrencyUtil.getFiatCurrency(code).ifPresent(fiatCurrency -> {
+                    preferences.addFiatCurrency(fiatCurrency);
+                    fillPriceFeedComboBoxItems();
+                });
+            }
+        }
+
+        if (selectedPriceFeedComboBoxItemProperty.get() != null)
+            selectedPriceFeedComboBoxItemProperty.get().setDisplayString(newValue);
+    }
+
     private void setMarketPriceInItems() {
         priceFeedComboBoxItems.stream().forEach(item -> {
             String currencyCode = item.currencyCode;
@@ -31,6 +31,7 @@ import io.bitsquare.gui.util.CurrencyListItem;
 import io.bitsquare.gui.util.GUIUtil;
 import io.bitsquare.locale.CurrencyUtil;
 import io.bitsquare.trade.offer.Offer;
+import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
@@ -303,12 +304,13 @@ public class OfferBookChartView extends ActivatableViewAndModel<VBox, OfferBookC
                     public TableCell<OfferListItem, OfferListItem> call(TableColumn<OfferListItem, OfferListItem> column) {
                         return new TableCell<OfferListItem, OfferListItem>() {
                             private Offer offer;
+                            private IntegerProperty currencyUpdateFlag;
                             ChangeListener<Number> listener = new ChangeListener<Number>() {
                                 @Override
                                 public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
                                     if (offer != null && offer.getPrice() != null) {
                                         setText(formatter.formatPrice(offer.getPrice()));
-                                        model.priceFeedService.currenciesUpdateFlagProperty().removeListener(listener);
+                                        currencyUpdateFlag.removeListener(listener);
                                     }
                                 }
                             };
@@ -319,14 +321,17 @@ public class OfferBookChartView extends ActivatableViewAndModel<VBox, OfferBookC
                                 if (offerListItem != null && !empty) {
                                     if (offerListItem.offer.getPrice() == null) {
                                         this.offer = offerListItem.offer;
-                                        model.priceFeedService.currenciesUpdateFlagProperty().addListener(listener);
+                                        if (currencyUpdateFlag != null)
+                                            currencyUpdateFlag.removeListener(listener);
+                                        currencyUpdateFlag = model.priceFeedService.currencyUpdateFlagProperty(offerListItem.offer.getCurrencyCode());
+                                        currencyUpdateFlag.addListener(listener);
                                         setText("N/A");
                                     } else {
                                         setText(formatter.formatPrice(offerListItem.offer.getPrice()));
                                     }
                                 } else {
-                                    if (listener != null)
-                                        model.priceFeedService.currenciesUpdateFlagProperty().removeListener(listener);
+                                    if (currencyUpdateFlag != null)
+                                        currencyUpdateFlag.removeListener(listener);
                                     this.offer = null;
                                     setText("");
                                 }
@@ -347,12 +352,13 @@ public class OfferBookChartView extends ActivatableViewAndModel<VBox, OfferBookC
                     public TableCell<OfferListItem, OfferListItem> call(TableColumn<OfferListItem, OfferListItem> column) {
                         return new TableCell<OfferListItem, OfferListItem>() {
                             private Offer offer;
+                            private IntegerProperty currencyUpdateFlag;
                             ChangeListener<Number> listener = new ChangeListener<Number>() {
                                 @Override
                                 public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
                                     if (offer != null && offer.getPrice() != null) {
                                         setText(formatter.formatVolume(offer.getOfferVolume()));
-                                        model.priceFeedService.currenciesUpdateFlagProperty().removeListener(listener);
+                                        currencyUpdateFlag.removeListener(listener);
                                     }
                                 }
                             };
@@ -364,14 +370,17 @@ public class OfferBookChartView extends ActivatableViewAndModel<VBox, OfferBookC
                                     this.offer = offerListItem.offer;
                                     if (offer.getPrice() == null) {
                                         this.offer = offerListItem.offer;
-                                        model.priceFeedService.currenciesUpdateFlagProperty().addListener(listener);
+                                        if (currencyUpdateFlag != null)
+                                            currencyUpdateFlag.removeListener(listener);
+                                        currencyUpdateFlag = model.priceFeedService.currencyUpdateFlagProperty(offerListItem.offer.getCurrencyCode());
+                                        currencyUpdateFlag.addListener(listener);
                                         setText("N/A");
                                     } else {
                                         setText(formatter.formatVolume(offer.getOfferVolume()));
                                     }
                                 } else {
-                                    if (listener != null)
-                                        model.priceFeedService.currenciesUpdateFlagProperty().removeListener(listener);
+                                    if (currencyUpdateFlag != null)
+                                        currencyUpdateFlag.removeListener(listener);
                                     this.offer = null;
                                     setText("");
                                 }
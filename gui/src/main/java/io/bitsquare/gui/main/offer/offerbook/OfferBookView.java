@@ -43,6 +43,7 @@ import io.bitsquare.locale.FiatCurrency;
 import io.bitsquare.locale.TradeCurrency;
 import io.bitsquare.payment.PaymentMethod;
 import io.bitsquare.trade.offer.Offer;
+import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -516,12 +517,13 @@ public class OfferBookView extends ActivatableViewAndModel<GridPane, OfferBookVi
                             TableColumn<OfferBookListItem, OfferBookListItem> column) {
                         return new TableCell<OfferBookListItem, OfferBookListItem>() {
                             private OfferBookListItem offerBookListItem;
+                            private IntegerProperty currencyUpdateFlag;
                             ChangeListener<Number> listener = new ChangeListener<Number>() {
                                 @Override
                                 public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
                                     if (offerBookListItem != null && offerBookListItem.getOffer().getPrice() != null) {
                                         setText(model.getPrice(offerBookListItem));
-                                        model.priceFeedService.currenciesUpdateFlagProperty().removeListener(listener);
+                                        currencyUpdateFlag.removeListener(listener);
                                     }
                                 }
                             };
@@ -533,14 +535,17 @@ public class OfferBookView extends ActivatableViewAndModel<GridPane, OfferBookVi
                                 if (item != null && !empty) {
                                     if (item.getOffer().getPrice() == null) {
                                         this.offerBookListItem = item;
-                                        model.priceFeedService.currenciesUpdateFlagProperty().addListener(listener);
+                                        if (currencyUpdateFlag != null)
+                                            currencyUpdateFlag.removeListener(listener);
+                                        currencyUpdateFlag = model.priceFeedService.currencyUpdateFlagProperty(item.getOffer().getCurrencyCode());
+                                        currencyUpdateFlag.addListener(listener);
                                         setText("N/A");
                                     } else {
                                         setText(model.getPrice(item));
                                     }
                                 } else {
-                                    if (listener != null)
-                                        model.priceFeedService.currenciesUpdateFlagProperty().removeListener(listener);
+                                    if (currencyUpdateFlag != null)
+                                        currencyUpdateFlag.removeListener(listener);
                                     this.offerBookListItem = null;
                                     setText("");
                                 }
@@ -566,12 +571,13 @@ public class OfferBookView extends ActivatableViewAndModel<GridPane, OfferBookVi
                             TableColumn<OfferBookListItem, OfferBookListItem> column) {
                         return new TableCell<OfferBookListItem, OfferBookListItem>() {
                             private OfferBookListItem offerBookListItem;
+                            private IntegerProperty currencyUpdateFlag;
                             ChangeListener<Number> listener = new ChangeListener<Number>() {
                                 @Override
                                 public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
                                     if (offerBookListItem != null && offerBookListItem.getOffer().getOfferVolume() != null) {
                                         setText(model.getVolume(offerBookListItem));
-                                        model.priceFeedService.currenciesUpdateFlagProperty().removeListener(listener);
+                                        currencyUpdateFlag.removeListener(listener);
                                     }
                                 }
                             };
@@ -582,14 +588,17 @@ public class OfferBookView extends ActivatableViewAndModel<GridPane, OfferBookVi
                                 if (item != null && !empty) {
                                     if (item.getOffer().getPrice() == null) {
                                         this.offerBookListItem = item;
-                                        model.priceFeedService.currenciesUpdateFlagProperty().addListener(listener);
+                                        if (currencyUpdateFlag != null)
+                                            currencyUpdateFlag.removeListener(listener);
+                                        currencyUpdateFlag = model.priceFeedService.currencyUpdateFlagProperty(item.getOffer().getCurrencyCode());
+                                        currencyUpdateFlag.addListener(listener);
                                         setText("N/A");
                                     } else {
                                         setText(model.getVolume(item));
                                     }
                                 } else {
-                                    if (listener != null)
-                                        model.priceFeedService.currenciesUpdateFlagProperty().removeListener(listener);
+                                    if (currencyUpdateFlag != null)
+                                        currencyUpdateFlag.removeListener(listener);
                                     this.offerBookListItem = null;
                                     setText("");
                                 }
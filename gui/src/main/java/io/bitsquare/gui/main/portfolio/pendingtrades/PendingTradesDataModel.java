@@ -362,7 +362,7 @@ public class PendingTradesDataModel extends ActivatableDataModel {
 
             final Arbitrator acceptedArbitratorByAddress = user.getAcceptedArbitratorByAddress(trade.getArbitratorNodeAddress());
             checkNotNull(acceptedArbitratorByAddress, "acceptedArbitratorByAddress must no tbe null");
-            Dispute dispute = new Dispute(disputeManager.getDisputeStorage(),
+            Dispute dispute = new Dispute(disputeManager.getDisputeList(),
                     trade.getId(),
                     keyRing.getPubKeyRing().hashCode(), // traderId
                     trade.getOffer().getDirection() == Offer.Direction.BUY ? isOfferer : !isOfferer,
@@ -0,0 +1,282 @@
+package com.runjva.sourceforge.jsocks.protocol;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Relays the data of established connections on a single selector thread.
+ * <p>
+ * Each direction of a connection uses one direct buffer taken from a pool: the
+ * data is read from one channel into the buffer and written from there to the
+ * other channel, so it is never copied to the heap. If the receiving side is
+ * slower we stop reading until the buffer got drained. End of stream is
+ * forwarded as a half close, the connection is closed once both directions
+ * are done, on an error or if it was idle for longer than the idle timeout.
+ */
+final class NioRelay implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(NioRelay.class);
+
+    static final int BUF_SIZE = 32 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 256;
+    private static final long SELECT_TIMEOUT_MS = 1000;
+
+    private final Selector selector;
+    private final BufferPool bufferPool = new BufferPool(BUF_SIZE, MAX_POOLED_BUFFERS);
+    private final Queue<Pair> pendingPairs = new ConcurrentLinkedQueue<>();
+    // Only accessed by the selector thread
+    private final Set<Pair> pairs = new HashSet<>();
+    private volatile boolean running = true;
+
+    NioRelay(final String name) throws IOException {
+        selector = Selector.open();
+        final Thread thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts relaying between the two connected channels. The close handler
+     * is called on the relay thread after both channels got closed.
+     */
+    void relay(final SocketChannel client, final SocketChannel remote,
+               final Runnable closeHandler) throws IOException {
+        client.configureBlocking(false);
+        remote.configureBlocking(false);
+        pendingPairs.add(new Pair(client, remote, closeHandler));
+        selector.wakeup();
+    }
+
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public void run() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MS);
+                registerPendingPairs();
+
+                final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    final SelectionKey key = iterator.next();
+                    iterator.remove();
+                    final End end = (End) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            end.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            end.peer.flush();
+                        }
+                        end.pair.update();
+                    } catch (final IOException e) {
+                        log.debug("Relay failed: {}", e.getMessage());
+                        end.pair.close();
+                    }
+                }
+                closeIdlePairs();
+            }
+        } catch (final IOException e) {
+            log.warn("Selector failed", e);
+        } finally {
+            new ArrayList<>(pairs).forEach(Pair::close);
+            Pair pair;
+            while ((pair = pendingPairs.poll()) != null) {
+                pair.close();
+            }
+            try {
+                selector.close();
+            } catch (final IOException ignore) {
+            }
+        }
+    }
+
+    private void registerPendingPairs() {
+        Pair pair;
+        while ((pair = pendingPairs.poll()) != null) {
+            try {
+                pair.register();
+                pairs.add(pair);
+            } catch (final IOException e) {
+                log.debug("Could not register connection: {}", e.getMessage());
+                pair.close();
+            }
+        }
+    }
+
+    private void closeIdlePairs() {
+        if (ProxyServer.iddleTimeout == 0) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        new ArrayList<>(pairs).stream()
+                .filter(pair -> now - pair.lastActivity > ProxyServer.iddleTimeout)
+                .forEach(pair -> {
+                    log.debug("Closing idle connection");
+                    pair.close();
+                });
+    }
+
+    private final class Pair {
+        private final End client;
+        private final End remote;
+        private final Runnable closeHandler;
+        private long lastActivity = System.currentTimeMillis();
+        private boolean closed;
+
+        private Pair(final SocketChannel client, final SocketChannel remote,
+                     final Runnable closeHandler) {
+            this.client = new End(this, client);
+            this.remote = new End(this, remote);
+            this.client.peer = this.remote;
+            this.remote.peer = this.client;
+            this.closeHandler = closeHandler;
+        }
+
+        private void register() throws ClosedChannelException {
+            client.key = client.channel.register(selector, SelectionKey.OP_READ, client);
+            remote.key = remote.channel.register(selector, SelectionKey.OP_READ, remote);
+        }
+
+        private void update() throws IOException {
+            if (closed) {
+                return;
+            }
+            client.updateInterest();
+            remote.updateInterest();
+            if (client.isDone() && remote.isDone()) {
+                close();
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pairs.remove(this);
+            client.close();
+            remote.close();
+            if (closeHandler != null) {
+                try {
+                    closeHandler.run();
+                } catch (final Throwable t) {
+                    log.warn("Close handler failed", t);
+                }
+            }
+        }
+    }
+
+    // One side of a relayed connection. The buffer holds the data read from
+    // this channel which still has to be written to the peer's channel.
+    private final class End {
+        private final Pair pair;
+        private final SocketChannel channel;
+        private ByteBuffer buffer;
+        private SelectionKey key;
+        private End peer;
+        private boolean endOfStream;
+        private boolean peerOutputShutdown;
+
+        private End(final Pair pair, final SocketChannel channel) {
+            this.pair = pair;
+            this.channel = channel;
+            buffer = bufferPool.acquire();
+        }
+
+        private void read() throws IOException {
+            final int read = channel.read(buffer);
+            if (read < 0) {
+                endOfStream = true;
+            } else if (read > 0) {
+                pair.lastActivity = System.currentTimeMillis();
+            }
+            flush();
+        }
+
+        // Writes the buffered data to the peer's channel
+        private void flush() throws IOException {
+            if (buffer.position() > 0) {
+                buffer.flip();
+                if (peer.channel.write(buffer) > 0) {
+                    pair.lastActivity = System.currentTimeMillis();
+                }
+                buffer.compact();
+            }
+            if (endOfStream && buffer.position() == 0 && !peerOutputShutdown) {
+                peerOutputShutdown = true;
+                peer.channel.socket().shutdownOutput();
+            }
+        }
+
+        private void updateInterest() {
+            if (key == null || !key.isValid()) {
+                return;
+            }
+            int ops = 0;
+            // Stop reading while the buffer is full, the peer is too slow
+            if (!endOfStream && buffer.hasRemaining()) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (peer.buffer.position() > 0) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        private boolean isDone() {
+            return endOfStream && peerOutputShutdown;
+        }
+
+        private void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (final IOException ignore) {
+            }
+            if (buffer != null) {
+                bufferPool.release(buffer);
+                buffer = null;
+            }
+        }
+    }
+
+    /**
+     * Pool of direct buffers. Allocating direct buffers is expensive, so we
+     * keep the released ones up to the given number.
+     */
+    static final class BufferPool {
+        private final int bufferSize;
+        private final int maxPooled;
+        private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+        BufferPool(final int bufferSize, final int maxPooled) {
+            this.bufferSize = bufferSize;
+            this.maxPooled = maxPooled;
+        }
+
+        ByteBuffer acquire() {
+            final ByteBuffer buffer = buffers.poll();
+            return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        void release(final ByteBuffer buffer) {
+            buffer.clear();
+            if (buffers.size() < maxPooled) {
+                buffers.offer(buffer);
+            }
+        }
+    }
+}
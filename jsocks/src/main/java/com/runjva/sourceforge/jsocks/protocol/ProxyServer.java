@@ -1,11 +1,16 @@
 package com.runjva.sourceforge.jsocks.protocol;
 
 import com.runjva.sourceforge.jsocks.server.ServerAuthenticator;
+import com.runjva.sourceforge.jsocks.server.ServerAuthenticatorBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * SOCKS4 and SOCKS5 proxy, handles both protocols simultaniously. Implements
@@ -17,6 +22,11 @@ import java.net.*;
  * access to your local network to anybody in the world. One should never use
  * this authentication scheme unless one have pretty good reason to do so. There
  * is a couple of other authentication schemes in socks.server package.
+ * <p>
+ * By default every client is served by its own thread plus a second thread
+ * for the remote->client direction. With {@link #setNioRelay(boolean)} the
+ * SOCKS handshake runs on a pooled thread and the data of CONNECT requests is
+ * relayed for all clients by one selector thread.
  *
  * @see socks.server.ServerAuthenticator
  */
@@ -36,6 +46,7 @@ public class ProxyServer implements Runnable {
     static final int ACCEPT_MODE = 1;
     static final int PIPE_MODE = 2;
     static final int ABORT_MODE = 3;
+    static final int RELAY_MODE = 4;
 
     static final int BUF_SIZE = 8192;
 
@@ -44,6 +55,10 @@ public class ProxyServer implements Runnable {
 
     static int iddleTimeout = 180000; // 3 minutes
     static int acceptTimeout = 180000; // 3 minutes
+    static boolean nioRelay = false;
+
+    NioRelay relay;
+    ExecutorService sessionExecutor;
 
     static Logger log = LoggerFactory.getLogger(ProxyServer.class);
     static SocksProxyBase proxy;
@@ -69,6 +84,12 @@ public class ProxyServer implements Runnable {
         this.mode = START_MODE;
     }
 
+    ProxyServer(final ServerAuthenticator auth, final Socket s,
+                final NioRelay relay) {
+        this(auth, s);
+        this.relay = relay;
+    }
+
     // Public methods
     // ///////////////
 
@@ -117,6 +138,17 @@ public class ProxyServer implements Runnable {
         acceptTimeout = timeout;
     }
 
+    /**
+     * Sets whether servers started afterwards relay the data of CONNECT
+     * requests on a selector thread instead of two threads per connection.
+     * Connections through a chained proxy, BIND and UDP requests and
+     * authentication schemes which encapsulate the data still use threads.<br>
+     * Default is false.
+     */
+    public static void setNioRelay(final boolean enabled) {
+        nioRelay = enabled;
+    }
+
     /**
      * Sets the timeout for UDPRelay server.<br>
      * Zero timeout implies infinity.<br>
@@ -155,7 +187,20 @@ public class ProxyServer implements Runnable {
     public void start(final int port, final int backlog,
                       final InetAddress localIP) {
         try {
-            ss = new ServerSocket(port, backlog, localIP);
+            if (nioRelay) {
+                // Sockets accepted from a channel have a channel as well,
+                // which we need for the selector
+                ss = ServerSocketChannel.open().socket();
+                ss.bind(new InetSocketAddress(localIP, port), backlog);
+                relay = new NioRelay("SocksRelay-" + ss.getLocalPort());
+                sessionExecutor = Executors.newCachedThreadPool(r -> {
+                    final Thread thread = new Thread(r, "SocksSession");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            } else {
+                ss = new ServerSocket(port, backlog, localIP);
+            }
             final String address = ss.getInetAddress().getHostAddress();
             final int localPort = ss.getLocalPort();
             log.debug("Starting SOCKS Proxy on: {}:{}", address, localPort);
@@ -166,12 +211,22 @@ public class ProxyServer implements Runnable {
                 final int port2 = s.getPort();
                 log.debug("Accepted from:{}:{}", hostName, port2);
 
-                final ProxyServer ps = new ProxyServer(auth, s);
-                (new Thread(ps)).start();
+                if (relay != null) {
+                    sessionExecutor.execute(new ProxyServer(auth, s, relay));
+                } else {
+                    final ProxyServer ps = new ProxyServer(auth, s);
+                    (new Thread(ps)).start();
+                }
             }
         } catch (final IOException ioe) {
             ioe.printStackTrace();
         } finally {
+            if (relay != null) {
+                relay.stop();
+            }
+            if (sessionExecutor != null) {
+                sessionExecutor.shutdown();
+            }
         }
     }
 
@@ -186,6 +241,9 @@ public class ProxyServer implements Runnable {
             }
         } catch (final IOException ioe) {
         }
+        if (relay != null) {
+            relay.stop();
+        }
     }
 
     // Runnable interface
@@ -199,9 +257,10 @@ public class ProxyServer implements Runnable {
                     handleException(ioe);
                     // ioe.printStackTrace();
                 } finally {
-                    abort();
-                    if (auth != null) {
-                        auth.endSession();
+                    // In relay mode the relay ends the session when the
+                    // connection gets closed
+                    if (mode != RELAY_MODE) {
+                        endSession();
                     }
                     log.debug("Main thread(client->remote)stopped.");
                 }
@@ -331,7 +390,11 @@ public class ProxyServer implements Runnable {
         Socket s;
 
         if (proxy == null) {
-            s = new Socket(msg.ip, msg.port);
+            if (relay != null) {
+                s = SocketChannel.open(new InetSocketAddress(msg.ip, msg.port)).socket();
+            } else {
+                s = new Socket(msg.ip, msg.port);
+            }
         } else {
             s = new SocksSocket(proxy, msg.ip, msg.port);
         }
@@ -531,7 +594,28 @@ public class ProxyServer implements Runnable {
         return msg;
     }
 
+    private void endSession() {
+        abort();
+        if (auth != null) {
+            auth.endSession();
+        }
+    }
+
     private void startPipe(final Socket s) {
+        // The authenticators based on ServerAuthenticatorBase use the plain
+        // socket streams after the handshake, so we can use the channels
+        if (relay != null && auth instanceof ServerAuthenticatorBase
+                && sock.getChannel() != null && s.getChannel() != null) {
+            remote_sock = s;
+            try {
+                relay.relay(sock.getChannel(), s.getChannel(), this::endSession);
+                mode = RELAY_MODE;
+            } catch (final IOException ioe) {
+                log.debug("Could not start relay", ioe);
+            }
+            return;
+        }
+
         mode = PIPE_MODE;
         remote_sock = s;
         try {
@@ -0,0 +1,135 @@
+package com.runjva.sourceforge.jsocks.protocol;
+
+import com.runjva.sourceforge.jsocks.server.ServerAuthenticatorNone;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Compares the throughput of the thread per connection ProxyServer with the
+ * selector based relay mode on loopback.
+ * <p>
+ * A source server sends a fixed amount of data on each accepted connection
+ * and closes it, the clients connect to it through the SOCKS5 proxy and read
+ * until end of stream. Reports the throughput and the number of live threads
+ * while the clients are connected.
+ * <p>
+ * Run with: mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.runjva.sourceforge.jsocks.protocol.ProxyServerBenchmark
+ */
+public class ProxyServerBenchmark {
+    private static final int BYTES_PER_CONNECTION = 16 * 1024 * 1024;
+    private static final int[] NUM_CLIENTS = {1, 16, 64};
+    private static final int WARM_UP_RUNS = 2;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        ServerSocket source = startSource();
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+
+        for (boolean nio : new boolean[]{false, true}) {
+            ProxyServer server = startProxy(nio);
+            Socks5Proxy proxy = new Socks5Proxy(loopback, server.ss.getLocalPort());
+            proxy.resolveAddrLocally(true);
+
+            String name = nio ? "selector relay" : "thread per connection";
+            for (int numClients : NUM_CLIENTS) {
+                for (int i = 0; i < WARM_UP_RUNS; i++)
+                    run(proxy, loopback, source.getLocalPort(), numClients, null);
+
+                long totalNanos = 0;
+                int[] maxThreads = new int[1];
+                for (int i = 0; i < RUNS; i++)
+                    totalNanos += run(proxy, loopback, source.getLocalPort(), numClients, maxThreads);
+
+                double megaBytes = (double) BYTES_PER_CONNECTION * numClients * RUNS / (1024 * 1024);
+                System.out.println(String.format("%-22s clients=%3d  %8.1f MB/s  max threads=%d",
+                        name, numClients, megaBytes / (totalNanos / 1e9), maxThreads[0]));
+            }
+            server.stop();
+        }
+        source.close();
+    }
+
+    private static long run(Socks5Proxy proxy, InetAddress host, int port, int numClients, int[] maxThreads)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(numClients);
+        CountDownLatch connectedLatch = new CountDownLatch(numClients);
+        try {
+            long ts = System.nanoTime();
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < numClients; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Socket socket = new SocksSocket(proxy, host, port)) {
+                        connectedLatch.countDown();
+                        return drain(socket.getInputStream());
+                    }
+                }));
+            }
+            connectedLatch.await();
+            if (maxThreads != null)
+                // Without the client and the source threads
+                maxThreads[0] = Math.max(maxThreads[0], Thread.activeCount() - 2 * numClients);
+
+            for (Future<Long> future : futures) {
+                long received = future.get();
+                if (received != BYTES_PER_CONNECTION)
+                    throw new IllegalStateException("Received " + received + " bytes");
+            }
+            return System.nanoTime() - ts;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1)
+            total += read;
+        return total;
+    }
+
+    private static ServerSocket startSource() throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(() -> {
+            byte[] data = new byte[64 * 1024];
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    new Thread(() -> {
+                        try (Socket s = socket; OutputStream out = s.getOutputStream()) {
+                            for (int sent = 0; sent < BYTES_PER_CONNECTION; sent += data.length)
+                                out.write(data, 0, Math.min(data.length, BYTES_PER_CONNECTION - sent));
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }, "Source").start();
+                } catch (IOException ignore) {
+                }
+            }
+        }, "SourceAcceptor");
+        thread.setDaemon(true);
+        thread.start();
+        return serverSocket;
+    }
+
+    private static ProxyServer startProxy(boolean nio) throws InterruptedException {
+        ProxyServer.setNioRelay(nio);
+        ProxyServer server = new ProxyServer(new ServerAuthenticatorNone(null, null));
+        Thread thread = new Thread(() -> server.start(0, 128, InetAddress.getLoopbackAddress()), "ProxyServer");
+        thread.setDaemon(true);
+        thread.start();
+        while (server.ss == null || !server.ss.isBound())
+            Thread.sleep(10);
+        return server;
+    }
+}
@@ -21,6 +21,7 @@ import com.msopentech.thali.toronionproxy.WriteObserver;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Properties;
 
 public class JavaOnionProxyContext extends OnionProxyContext {
 
@@ -58,8 +59,10 @@ public class JavaOnionProxyContext extends OnionProxyContext {
             case Linux32:
             case Linux64:
             case Mac:
-                FileUtilities.extractContentFromZip(getWorkingDirectory(),
-                        getAssetOrResourceByName(getPathToTorExecutable() + "tor.zip"));
+                Properties installedChecksums = readInstalledChecksums();
+                installIfChanged(getPathToTorExecutable() + "tor.zip", getTorExecutableFile(), installedChecksums,
+                        in -> FileUtilities.extractContentFromZip(getWorkingDirectory(), in));
+                writeInstalledChecksums(installedChecksums);
                 break;
             default:
                 throw new RuntimeException("We don't support Tor on this OS yet");
@@ -13,22 +13,31 @@ See the Apache 2 License for the specific language governing permissions and lim
 
 package com.msopentech.thali.toronionproxy;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 /**
  * This class encapsulates data that is handled differently in Java and Android
  * as well as managing file locations.
  */
 abstract public class OnionProxyContext {
+    private static final Logger log = LoggerFactory.getLogger(OnionProxyContext.class);
+
     protected final static String hiddenserviceDirectoryName = "hiddenservice";
     protected final static String geoIpName = "geoip";
     protected final static String geoIpv6Name = "geoip6";
     protected final static String torrcName = "torrc";
+    protected final static String pidFileName = "pid";
+    // Holds the checksums of the installed files, so at a warm start we only install files which have changed
+    protected final static String installedChecksumsName = ".installed";
     protected final File workingDirectory;
     protected final File geoIpFile;
     protected final File geoIpv6File;
@@ -36,6 +45,8 @@ abstract public class OnionProxyContext {
     protected final File torExecutableFile;
     protected final File cookieFile;
     protected final File hostnameFile;
+    protected final File installedChecksumsFile;
+    private boolean warmStart = true;
 
     public OnionProxyContext(File workingDirectory) {
         this.workingDirectory = workingDirectory;
@@ -45,6 +56,20 @@ abstract public class OnionProxyContext {
         torExecutableFile = new File(getWorkingDirectory(), getTorExecutableFileName());
         cookieFile = new File(getWorkingDirectory(), ".tor/control_auth_cookie");
         hostnameFile = new File(getWorkingDirectory(), "/" + hiddenserviceDirectoryName + "/hostname");
+        installedChecksumsFile = new File(getWorkingDirectory(), installedChecksumsName);
+    }
+
+    /**
+     * At a warm start (the default) we keep the Tor data directory with the cached consensus and descriptors and
+     * only install the files which have changed since the last run. At a cold start all files are installed again
+     * and the .tor directory gets deleted.
+     */
+    public void setWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+    }
+
+    public boolean isWarmStart() {
+        return warmStart;
     }
 
     protected void installFiles() throws IOException, InterruptedException {
@@ -54,7 +79,10 @@ abstract public class OnionProxyContext {
         // binary (which we currently
         // do by default, something we hope to fix with
         // https://github.com/thaliproject/Tor_Onion_Proxy_Library/issues/13
-        Thread.sleep(1000, 0);
+        // Tor removes its pid file when it exits, so at a warm start we only wait if an old instance might still
+        // be around.
+        if (!warmStart || new File(getWorkingDirectory(), pidFileName).exists())
+            Thread.sleep(1000, 0);
         if (getWorkingDirectory().listFiles() != null) {
             for (File f : getWorkingDirectory().listFiles()) {
                 if (f.getAbsolutePath().startsWith(torrcFile.getAbsolutePath())) {
@@ -62,21 +90,97 @@ abstract public class OnionProxyContext {
                 }
             }
         }
-        try {
-            File dotTorDir = new File(getWorkingDirectory(), ".tor");
-            if (dotTorDir.exists())
-                FileUtilities.recursiveFileDelete(dotTorDir);
-        } catch (Exception e) {
+        if (!warmStart) {
+            try {
+                File dotTorDir = new File(getWorkingDirectory(), ".tor");
+                if (dotTorDir.exists())
+                    FileUtilities.recursiveFileDelete(dotTorDir);
+            } catch (Exception e) {
+            }
         }
         if (workingDirectory.exists() == false && workingDirectory.mkdirs() == false) {
             throw new RuntimeException("Could not create root directory!");
         }
 
-        FileUtilities.cleanInstallOneFile(getAssetOrResourceByName(geoIpName), geoIpFile);
-        FileUtilities.cleanInstallOneFile(getAssetOrResourceByName(geoIpv6Name), geoIpv6File);
+        Properties installedChecksums = readInstalledChecksums();
+        installIfChanged(geoIpName, geoIpFile, installedChecksums,
+                in -> FileUtilities.cleanInstallOneFile(in, geoIpFile));
+        installIfChanged(geoIpv6Name, geoIpv6File, installedChecksums,
+                in -> FileUtilities.cleanInstallOneFile(in, geoIpv6File));
+        writeInstalledChecksums(installedChecksums);
+
+        // The torrc gets appended to at each start and rewritten by Tor if we publish a hidden service, so we
+        // always install it.
         FileUtilities.cleanInstallOneFile(getAssetOrResourceByName(torrcName), torrcFile);
     }
 
+    /**
+     * Installs the given resource if its checksum differs from the one recorded at the last install or if the
+     * installed file is missing. At a cold start the resource is always installed.
+     *
+     * @param resourceName       Name of the asset or resource
+     * @param installedFile      File which must exist if the resource was installed
+     * @param installedChecksums Checksums of the last install, updated if the resource gets installed
+     * @param installer          Writes the resource to the working directory
+     * @return True if the resource was installed
+     * @throws java.io.IOException - If reading the resource or the install fails
+     */
+    protected boolean installIfChanged(String resourceName, File installedFile, Properties installedChecksums,
+                                       Installer installer) throws IOException {
+        byte[] resource;
+        try (InputStream in = getAssetOrResourceByName(resourceName)) {
+            if (in == null)
+                throw new IOException("Resource not found: " + resourceName);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FileUtilities.copyDoNotCloseInput(in, out);
+            resource = out.toByteArray();
+        }
+
+        String checksum = sha256(resource);
+        if (warmStart && installedFile.exists() && checksum.equals(installedChecksums.getProperty(resourceName))) {
+            log.debug("{} is unchanged, skip install", resourceName);
+            return false;
+        }
+
+        // We remove the checksum first, so an interrupted install is repeated at the next start
+        installedChecksums.remove(resourceName);
+        writeInstalledChecksums(installedChecksums);
+        installer.install(new ByteArrayInputStream(resource));
+        installedChecksums.setProperty(resourceName, checksum);
+        log.debug("Installed {}", resourceName);
+        return true;
+    }
+
+    protected Properties readInstalledChecksums() {
+        Properties installedChecksums = new Properties();
+        if (installedChecksumsFile.exists()) {
+            try (InputStream in = new FileInputStream(installedChecksumsFile)) {
+                installedChecksums.load(in);
+            } catch (IOException e) {
+                log.warn("Could not read checksums of installed files. We install all files again.", e);
+                installedChecksums.clear();
+            }
+        }
+        return installedChecksums;
+    }
+
+    protected void writeInstalledChecksums(Properties installedChecksums) throws IOException {
+        try (OutputStream out = new FileOutputStream(installedChecksumsFile)) {
+            installedChecksums.store(out, null);
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data))
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Sets environment variables and working directory needed for Tor
      *
@@ -176,6 +280,10 @@ abstract public class OnionProxyContext {
 
     abstract protected InputStream getAssetOrResourceByName(String fileName) throws IOException;
 
+    protected interface Installer {
+        void install(InputStream resource) throws IOException;
+    }
+
     public File getHiddenServiceDirectory() {
         return new File(getWorkingDirectory(), "/" + hiddenserviceDirectoryName);
     }
@@ -58,7 +58,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
  * This class began life as TorPlugin from the Briar Project
  */
 public abstract class OnionProxyManager {
-    private static final String[] EVENTS = {"CIRC", "WARN", "ERR"};
+    private static final String[] EVENTS = {"CIRC", "WARN", "ERR", "STATUS_CLIENT"};
     private static final String[] EVENTS_HS = {"EXTENDED", "CIRC", "ORCONN", "INFO", "NOTICE", "WARN", "ERR", "HS_DESC"};
 
     private static final String OWNER = "__OwningControllerProcess";
@@ -82,6 +82,9 @@ public abstract class OnionProxyManager {
 
     private OnionProxyManagerEventHandler eventHandler;
 
+    // Duration in ms of the phases of the last start
+    private final Map<String, Long> startupTimings = new LinkedHashMap<>();
+
     public OnionProxyManager(OnionProxyContext onionProxyContext) {
         this.onionProxyContext = onionProxyContext;
         eventHandler = new OnionProxyManagerEventHandler();
@@ -97,6 +100,8 @@ public abstract class OnionProxyManager {
      * process just hangs for no apparent reason so the method will wait for the
      * given time for bootstrap to finish and if it doesn't then will restart
      * the bootstrap process the given number of repeats.
+     * We get notified about the bootstrap progress by STATUS_CLIENT events on the
+     * control connection.
      *
      * @param secondsBeforeTimeOut Seconds to wait for boot strapping to finish
      * @param numberOfRetries      Number of times to try recycling the Tor OP before giving up
@@ -113,22 +118,23 @@ public abstract class OnionProxyManager {
             throw new IllegalArgumentException("secondsBeforeTimeOut >= 0 & numberOfRetries > 0");
         }
 
+        startupTimings.clear();
+        long startTs = System.currentTimeMillis();
         try {
             for (int retryCount = 0; retryCount < numberOfRetries; ++retryCount) {
                 if (installAndStartTorOp() == false) {
                     return false;
                 }
+                long bootstrapStartTs = System.currentTimeMillis();
                 enableNetwork(true);
 
-                // We will check every second to see if boot strapping has
-                // finally finished
-                for (int secondsWaited = 0; secondsWaited < secondsBeforeTimeOut; ++secondsWaited) {
-                    if (isBootstrapped() == false) {
-                        Thread.sleep(1000, 0);
-                    } else {
-                        log.debug("Tor has bootstrapped");
-                        return true;
-                    }
+                // The bootstrap might have completed before we got the event handler registered, so we check
+                // the current state first
+                if (isBootstrapped() || eventHandler.awaitBootstrapped(secondsBeforeTimeOut, SECONDS)) {
+                    startupTimings.put("bootstrap", System.currentTimeMillis() - bootstrapStartTs);
+                    startupTimings.put("total", System.currentTimeMillis() - startTs);
+                    log.info("Tor has bootstrapped. Startup timings in ms: " + startupTimings);
+                    return true;
                 }
 
                 // Bootstrapping isn't over so we need to restart and try again
@@ -144,6 +150,8 @@ public abstract class OnionProxyManager {
                 // So our compromise is that we try to start the Tor OP 'as is' on the
                 // first round and after that
                 // we delete all the files.
+                log.warn("Tor did not bootstrap within {} sec. We delete the cached data and try again.",
+                        secondsBeforeTimeOut);
                 onionProxyContext.deleteAllFilesButHiddenServices();
             }
 
@@ -157,6 +165,14 @@ public abstract class OnionProxyManager {
         }
     }
 
+    /**
+     * @return Durations in ms of the phases of the last start (install, launch, bootstrap and total). Phases of a
+     * start which was repeated hold the duration of the last attempt.
+     */
+    public synchronized Map<String, Long> getStartupTimings() {
+        return new LinkedHashMap<>(startupTimings);
+    }
+
     /**
      * Returns the socks port on the IPv4 localhost address that the Tor OP is
      * listening on
@@ -397,7 +413,9 @@ public abstract class OnionProxyManager {
         // as the result would be a mess of screwed up files and connections.
         log.debug("Tor is not running");
 
+        long installStartTs = System.currentTimeMillis();
         installAndConfigureFiles();
+        startupTimings.put("install", System.currentTimeMillis() - installStartTs);
 
         log.debug("Starting Tor");
         File cookieFile = onionProxyContext.getCookieFile();
@@ -422,6 +440,7 @@ public abstract class OnionProxyManager {
         String configPath = onionProxyContext.getTorrcFile().getAbsolutePath();
         String pid = onionProxyContext.getProcessId();
         String[] cmd = {torPath, "-f", configPath, OWNER, pid};
+        long launchStartTs = System.currentTimeMillis();
         ProcessBuilder processBuilder = new ProcessBuilder(cmd);
         onionProxyContext.setEnvironmentArgsAndWorkingDirectoryForStart(processBuilder);
         Process torProcess = null;
@@ -473,12 +492,14 @@ public abstract class OnionProxyManager {
             controlConnection.takeOwnership();
             controlConnection.resetConf(Collections.singletonList(OWNER));
 
+            eventHandler.resetBootstrapped();
             controlConnection.setEventHandler(eventHandler);
             controlConnection.setEvents(Arrays.asList(EVENTS));
 
             // We only set the class property once the connection is in a known
             // good state
             this.controlConnection = controlConnection;
+            startupTimings.put("launch", System.currentTimeMillis() - launchStartTs);
             return true;
         } catch (SecurityException e) {
             log.warn(e.toString(), e);
@@ -37,6 +37,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Logs the data we get from notifications from the Tor OP. This is really just
@@ -47,6 +49,7 @@ public class OnionProxyManagerEventHandler implements EventHandler {
     private HiddenServiceDescriptor hs;
     private HiddenServiceReadyListener listener;
     private boolean hsPublished;
+    private volatile CountDownLatch bootstrappedLatch = new CountDownLatch(1);
 
     public void setHStoWatchFor(HiddenServiceDescriptor hs, HiddenServiceReadyListener listener) {
         if (hs == this.hs && hsPublished) {
@@ -58,6 +61,19 @@ public class OnionProxyManagerEventHandler implements EventHandler {
         hsPublished = false;
     }
 
+    void resetBootstrapped() {
+        bootstrappedLatch = new CountDownLatch(1);
+    }
+
+    /**
+     * Blocks until we got the STATUS_CLIENT event reporting a completed bootstrap.
+     *
+     * @return False if the timeout elapsed before
+     */
+    boolean awaitBootstrapped(long timeout, TimeUnit unit) throws InterruptedException {
+        return bootstrappedLatch.await(timeout, unit);
+    }
+
     @Override
     public void circuitStatus(String status, String id, String path) {
         String msg = "CircuitStatus: " + id + " " + status + ", " + path;
@@ -107,6 +123,17 @@ public class OnionProxyManagerEventHandler implements EventHandler {
     public void unrecognized(String type, String msg) {
         final String msg2 = "unrecognized: type: " + type + ", msg: " + msg;
         LOG.trace(msg2);
+        if (type.equalsIgnoreCase("STATUS_CLIENT"))
+            checkForBootstrap(msg);
+    }
+
+    // Bootstrap status events look like: NOTICE BOOTSTRAP PROGRESS=100 TAG=done SUMMARY="Done"
+    private void checkForBootstrap(String msg) {
+        if (msg.contains("BOOTSTRAP")) {
+            LOG.debug("Bootstrap status: " + msg);
+            if (msg.contains("PROGRESS=100"))
+                bootstrappedLatch.countDown();
+        }
     }
 
     private void checkforHS(String msg) {
@@ -0,0 +1,228 @@
+package com.msopentech.thali.toronionproxy;
+
+import com.msopentech.thali.java.toronionproxy.JavaWatchObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Starts the OnionProxyManager with a stub tor executable. The stub only prints the control port of a fake control
+ * connection running in the test and writes the auth cookie, the fake control connection reports the bootstrap by a
+ * STATUS_CLIENT event.
+ */
+public class OnionProxyManagerTest {
+    private File dir;
+    private FakeControlPort controlPort;
+    private final Map<String, byte[]> resources = new HashMap<>();
+
+    @Before
+    public void setUp() throws IOException {
+        assumeTrue(OsData.getOsType() != OsData.OsType.Windows);
+
+        dir = Files.createTempDirectory("tor-stub").toFile();
+        controlPort = new FakeControlPort();
+        resources.put("geoip", "geoip".getBytes(StandardCharsets.UTF_8));
+        resources.put("geoip6", "geoip6".getBytes(StandardCharsets.UTF_8));
+        resources.put("torrc", "ControlPort auto\nDisableNetwork 1\n".getBytes(StandardCharsets.UTF_8));
+        resources.put("tor", ("#!/bin/sh\n" +
+                "echo \"Control listener listening on port " + controlPort.getPort() + ".\"\n" +
+                "printf cookie > \"" + new File(dir, ".tor/control_auth_cookie").getAbsolutePath() + "\"\n" +
+                "exit 0\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (controlPort != null)
+            controlPort.close();
+        if (dir != null)
+            FileUtilities.recursiveFileDelete(dir);
+    }
+
+    @Test
+    public void testStartIsReportedByBootstrapEvent() throws Exception {
+        StubContext context = new StubContext();
+        StubManager manager = new StubManager(context);
+        assertTrue(manager.startWithRepeat(10, 1));
+
+        assertTrue(controlPort.bootstrapEventSent);
+        assertEquals(Arrays.asList("install", "launch", "bootstrap", "total"),
+                new ArrayList<>(manager.getStartupTimings().keySet()));
+        assertEquals(new HashSet<>(Arrays.asList("geoip", "geoip6", "tor")), context.installed);
+        manager.stop();
+    }
+
+    @Test
+    public void testWarmStartKeepsDataAndSkipsUnchangedFiles() throws Exception {
+        start(new StubContext());
+        File cachedData = new File(dir, ".tor/cached-data");
+        assertTrue(cachedData.createNewFile());
+
+        StubContext context = new StubContext();
+        start(context);
+        assertTrue(context.installed.isEmpty());
+        assertTrue(cachedData.exists());
+
+        resources.put("geoip", "new geoip".getBytes(StandardCharsets.UTF_8));
+        context = new StubContext();
+        start(context);
+        assertEquals(Collections.singleton("geoip"), context.installed);
+        assertEquals("new geoip", new String(Files.readAllBytes(context.getGeoIpFile().toPath()),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testColdStartDeletesDataAndInstallsAllFiles() throws Exception {
+        start(new StubContext());
+        File cachedData = new File(dir, ".tor/cached-data");
+        assertTrue(cachedData.createNewFile());
+
+        StubContext context = new StubContext();
+        context.setWarmStart(false);
+        start(context);
+        assertEquals(new HashSet<>(Arrays.asList("geoip", "geoip6", "tor")), context.installed);
+        assertFalse(cachedData.exists());
+    }
+
+    private void start(StubContext context) throws Exception {
+        StubManager manager = new StubManager(context);
+        assertTrue(manager.startWithRepeat(10, 1));
+        manager.stop();
+    }
+
+    private class StubContext extends OnionProxyContext {
+        final Set<String> installed = new HashSet<>();
+
+        StubContext() {
+            super(dir);
+        }
+
+        @Override
+        protected void installFiles() throws IOException, InterruptedException {
+            super.installFiles();
+            Properties installedChecksums = readInstalledChecksums();
+            installIfChanged("tor", getTorExecutableFile(), installedChecksums,
+                    in -> FileUtilities.cleanInstallOneFile(in, getTorExecutableFile()));
+            writeInstalledChecksums(installedChecksums);
+        }
+
+        @Override
+        protected boolean installIfChanged(String resourceName, File installedFile, Properties installedChecksums,
+                                           Installer installer) throws IOException {
+            boolean result = super.installIfChanged(resourceName, installedFile, installedChecksums, installer);
+            if (result)
+                installed.add(resourceName);
+            return result;
+        }
+
+        @Override
+        protected String getPathToTorExecutable() {
+            return "";
+        }
+
+        @Override
+        protected String getTorExecutableFileName() {
+            return "tor";
+        }
+
+        @Override
+        public String getProcessId() {
+            return "1";
+        }
+
+        @Override
+        public WriteObserver generateWriteObserver(File file) {
+            try {
+                return new JavaWatchObserver(file);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        protected InputStream getAssetOrResourceByName(String fileName) throws IOException {
+            return new ByteArrayInputStream(resources.get(fileName));
+        }
+    }
+
+    private static class StubManager extends OnionProxyManager {
+        StubManager(OnionProxyContext onionProxyContext) {
+            super(onionProxyContext);
+        }
+
+        @Override
+        protected boolean setExecutable(File f) {
+            return f.setExecutable(true);
+        }
+    }
+
+    // Answers the commands we use with 250 OK and reports the bootstrap only after the network got enabled and the
+    // bootstrap phase was requested once, so the manager has to wait for the event.
+    private static class FakeControlPort implements Closeable {
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        volatile boolean bootstrapEventSent;
+
+        FakeControlPort() throws IOException {
+            Thread thread = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try (Socket socket = serverSocket.accept()) {
+                        handle(socket);
+                    } catch (IOException ignore) {
+                    }
+                }
+            }, "FakeControlPort");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void handle(Socket socket) throws IOException {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+            boolean networkEnabled = false;
+            boolean bootstrapped = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("SETCONF DisableNetwork")) {
+                    networkEnabled = line.endsWith("0");
+                    writer.write("250 OK\r\n");
+                } else if (line.startsWith("GETCONF DisableNetwork")) {
+                    writer.write("250 DisableNetwork=" + (networkEnabled ? "0" : "1") + "\r\n");
+                } else if (line.startsWith("GETINFO status/bootstrap-phase")) {
+                    writer.write("250-status/bootstrap-phase=NOTICE BOOTSTRAP PROGRESS=" + (bootstrapped ? 100 : 50) +
+                            " TAG=loading_descriptors SUMMARY=\"Loading relay descriptors\"\r\n250 OK\r\n");
+                    if (networkEnabled && !bootstrapped) {
+                        writer.write("650 STATUS_CLIENT NOTICE BOOTSTRAP PROGRESS=100 TAG=done SUMMARY=\"Done\"\r\n");
+                        bootstrapped = true;
+                        bootstrapEventSent = true;
+                    }
+                } else if (line.startsWith("SIGNAL")) {
+                    writer.write("250 OK\r\n");
+                    writer.flush();
+                    return;
+                } else {
+                    writer.write("250 OK\r\n");
+                }
+                writer.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -1,18 +1,16 @@
 package io.bitsquare.http;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.SettableFuture;
 import com.runjva.sourceforge.jsocks.protocol.Socks5Proxy;
 import io.bitsquare.app.Version;
 import io.bitsquare.network.Socks5ProxyProvider;
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.config.Registry;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.socket.ConnectionSocketFactory;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.apache.http.ssl.SSLContexts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,17 +23,40 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 
+/**
+ * Requests with GET either directly or routed over the socks5 proxy.
+ * <p>
+ * Connections over the proxy are pooled and kept alive per proxy (see {@link SocksConnectionPools}), direct
+ * connections use the keep-alive of HttpURLConnection. Identical requests which are in flight at the same time are
+ * sent only once and all callers get the same result. Responses with a Cache-Control max-age are cached for that
+ * time, all HttpClient instances share the in-flight requests and the cache.
+ */
 public class HttpClient {
     private static final Logger log = LoggerFactory.getLogger(HttpClient.class);
 
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 10_000;
+    public static final int DEFAULT_READ_TIMEOUT_MS = 10_000;
+    private static final int MAX_CACHED_RESPONSES = 100;
+
+    private static final ConcurrentHashMap<String, SettableFuture<String>> inFlightRequests = new ConcurrentHashMap<>();
+    private static final Cache<String, CachedResponse> responseCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_RESPONSES)
+            .build();
+
     @Nullable
     private Socks5ProxyProvider socks5ProxyProvider;
     private String baseUrl;
     private boolean ignoreSocks5Proxy;
+    private int connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+    private int readTimeoutMs = DEFAULT_READ_TIMEOUT_MS;
 
     @Inject
     public HttpClient(@Nullable Socks5ProxyProvider socks5ProxyProvider) {
@@ -54,6 +75,19 @@ public class HttpClient {
         this.ignoreSocks5Proxy = ignoreSocks5Proxy;
     }
 
+    public void setTimeouts(int connectTimeoutMs, int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    /**
+     * Closes the pooled connections. Should be called at shut down.
+     */
+    public static void shutDown() {
+        SocksConnectionPools.shutDown();
+        responseCache.invalidateAll();
+    }
+
 
     public String requestWithGET(String param, @Nullable String headerKey, @Nullable String headerValue) throws IOException, HttpException {
         checkNotNull(baseUrl, "baseUrl must be set before calling requestWithGET");
@@ -75,7 +109,9 @@ public class HttpClient {
             return requestWithGETNoProxy(param, headerKey, headerValue);
         } else {
             log.debug("Use socks5Proxy for HttpClient: " + socks5Proxy);
-            return requestWithGETProxy(param, socks5Proxy, headerKey, headerValue);
+            final Socks5Proxy finalSocks5Proxy = socks5Proxy;
+            return request(param, headerKey, headerValue,
+                    () -> requestWithGETProxy(param, finalSocks5Proxy, headerKey, headerValue));
         }
     }
 
@@ -83,55 +119,109 @@ public class HttpClient {
      * Make an HTTP Get request directly (not routed over socks5 proxy).
      */
     public String requestWithGETNoProxy(String param, @Nullable String headerKey, @Nullable String headerValue) throws IOException, HttpException {
+        checkNotNull(baseUrl, "baseUrl must be set before calling requestWithGETNoProxy");
+        return request(param, headerKey, headerValue, () -> requestWithGETNoProxyUncached(param, headerKey, headerValue));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Returns a cached response if it is not expired, otherwise joins an identical request in flight or sends it
+    private String request(String param, @Nullable String headerKey, @Nullable String headerValue,
+                           ResponseSupplier responseSupplier) throws IOException, HttpException {
+        String key = baseUrl + param + (headerKey != null ? " " + headerKey + ": " + headerValue : "");
+        CachedResponse cachedResponse = responseCache.getIfPresent(key);
+        if (cachedResponse != null) {
+            if (cachedResponse.isValid()) {
+                log.debug("Use cached response for " + baseUrl + param);
+                return cachedResponse.body;
+            }
+            responseCache.invalidate(key);
+        }
+
+        SettableFuture<String> future = SettableFuture.create();
+        SettableFuture<String> inFlightFuture = inFlightRequests.putIfAbsent(key, future);
+        if (inFlightFuture != null) {
+            log.debug("Join request in flight for " + baseUrl + param);
+            return await(inFlightFuture);
+        }
+
+        try {
+            Response response = responseSupplier.get();
+            if (response.maxAgeSec > 0)
+                responseCache.put(key, new CachedResponse(response.body, response.maxAgeSec));
+            future.set(response.body);
+            return response.body;
+        } catch (IOException | HttpException | RuntimeException e) {
+            future.setException(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(key, future);
+        }
+    }
+
+    private String await(SettableFuture<String> future) throws IOException, HttpException {
+        try {
+            return future.get(connectTimeoutMs + readTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (TimeoutException e) {
+            throw new IOException("Timeout at waiting for the request in flight", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            else if (cause instanceof HttpException)
+                throw (HttpException) cause;
+            else
+                throw new IOException(cause);
+        }
+    }
+
+    private Response requestWithGETNoProxyUncached(String param, @Nullable String headerKey, @Nullable String headerValue) throws IOException {
         HttpURLConnection connection = null;
         try {
             log.debug("Executing HTTP request " + baseUrl + param + " proxy: none.");
             URL url = new URL(baseUrl + param);
             connection = (HttpURLConnection) url.openConnection();
             connection.setRequestMethod("GET");
-            connection.setConnectTimeout(10_000);
-            connection.setReadTimeout(10_000);
+            connection.setConnectTimeout(connectTimeoutMs);
+            connection.setReadTimeout(readTimeoutMs);
             connection.setRequestProperty("User-Agent", "Bitsquare/" + Version.VERSION);
 
             if (headerKey != null && headerValue != null)
                 connection.setRequestProperty(headerKey, headerValue);
 
             if (connection.getResponseCode() == 200) {
-                return convertInputStreamToString(connection.getInputStream());
+                // HttpURLConnection only keeps the connection alive if the stream was read completely and closed
+                try (InputStream inputStream = connection.getInputStream()) {
+                    return new Response(convertInputStreamToString(inputStream),
+                            parseMaxAge(connection.getHeaderField("Cache-Control")));
+                }
             } else {
-                String error = convertInputStreamToString(connection.getErrorStream());
-                connection.getErrorStream().close();
-                throw new HttpException(error);
+                try (InputStream errorStream = connection.getErrorStream()) {
+                    String error = errorStream != null ? convertInputStreamToString(errorStream) :
+                            "HTTP response code " + connection.getResponseCode();
+                    throw new HttpException(error);
+                }
             }
         } catch (Throwable t) {
             log.debug("Error at requestWithGETNoProxy: " + t.getMessage());
             throw new IOException(t);
-        } finally {
-            if (connection != null)
-                connection.getInputStream().close();
         }
     }
 
     /**
      * Make an HTTP Get request routed over socks5 proxy.
      */
-    private String requestWithGETProxy(String param, Socks5Proxy socks5Proxy, @Nullable String headerKey, @Nullable String headerValue) throws IOException, HttpException {
+    private Response requestWithGETProxy(String param, Socks5Proxy socks5Proxy, @Nullable String headerKey, @Nullable String headerValue) throws IOException {
         log.debug("requestWithGETProxy param=" + param);
         // This code is adapted from:
         //  http://stackoverflow.com/a/25203021/5616248
-
-        // Register our own SocketFactories to override createSocket() and connectSocket().
-        // connectSocket does NOT resolve hostname before passing it to proxy.
-        Registry<ConnectionSocketFactory> reg = RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", new SocksConnectionSocketFactory())
-                .register("https", new SocksSSLConnectionSocketFactory(SSLContexts.createSystemDefault())).build();
-
-        // Use FakeDNSResolver if not resolving DNS locally.
-        // This prevents a local DNS lookup (which would be ignored anyway)
-        PoolingHttpClientConnectionManager cm = socks5Proxy.resolveAddrLocally() ?
-                new PoolingHttpClientConnectionManager(reg) :
-                new PoolingHttpClientConnectionManager(reg, new FakeDnsResolver());
-        try (CloseableHttpClient httpclient = HttpClients.custom().setConnectionManager(cm).build()) {
+        try {
             InetSocketAddress socksaddr = new InetSocketAddress(socks5Proxy.getInetAddress(), socks5Proxy.getPort());
 
             // remove me: Use this to test with system-wide Tor proxy, or change port for another proxy.
@@ -141,12 +231,22 @@ public class HttpClient {
             context.setAttribute("socks.address", socksaddr);
 
             HttpGet request = new HttpGet(baseUrl + param);
+            request.setConfig(RequestConfig.custom()
+                    .setConnectTimeout(connectTimeoutMs)
+                    .setConnectionRequestTimeout(connectTimeoutMs)
+                    .setSocketTimeout(readTimeoutMs)
+                    .build());
             if (headerKey != null && headerValue != null)
                 request.setHeader(headerKey, headerValue);
 
             log.debug("Executing request " + request + " proxy: " + socksaddr);
-            try (CloseableHttpResponse response = httpclient.execute(request, context)) {
-                return convertInputStreamToString(response.getEntity().getContent());
+            // The connection is returned to the pool after the content was read completely and the response closed
+            try (CloseableHttpResponse response = SocksConnectionPools.getClient(socks5Proxy).execute(request, context)) {
+                String body = convertInputStreamToString(response.getEntity().getContent());
+                Header cacheControl = response.getFirstHeader("Cache-Control");
+                long maxAgeSec = response.getStatusLine().getStatusCode() == 200 && cacheControl != null ?
+                        parseMaxAge(cacheControl.getValue()) : 0;
+                return new Response(body, maxAgeSec);
             }
         } catch (Throwable t) {
             log.debug("Error at requestWithGETProxy: " + t.getMessage());
@@ -154,6 +254,31 @@ public class HttpClient {
         }
     }
 
+    /**
+     * @return The max-age in seconds of the given Cache-Control header value or 0 if the response must not be
+     * cached.
+     */
+    static long parseMaxAge(@Nullable String cacheControl) {
+        if (cacheControl == null)
+            return 0;
+
+        long maxAge = 0;
+        for (String directive : cacheControl.split(",")) {
+            directive = directive.trim().toLowerCase();
+            if (directive.equals("no-cache") || directive.equals("no-store")) {
+                return 0;
+            } else if (directive.startsWith("max-age=")) {
+                try {
+                    maxAge = Long.parseLong(directive.substring("max-age=".length()).replace("\"", ""));
+                } catch (NumberFormatException e) {
+                    log.debug("Invalid max-age in Cache-Control: " + cacheControl);
+                    return 0;
+                }
+            }
+        }
+        return Math.max(0, maxAge);
+    }
+
     private String convertInputStreamToString(InputStream inputStream) throws IOException {
         BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
         StringBuilder stringBuilder = new StringBuilder();
@@ -172,4 +297,37 @@ public class HttpClient {
                 ", ignoreSocks5Proxy=" + ignoreSocks5Proxy +
                 '}';
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Inner classes
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private interface ResponseSupplier {
+        Response get() throws IOException, HttpException;
+    }
+
+    private static class Response {
+        final String body;
+        final long maxAgeSec;
+
+        Response(String body, long maxAgeSec) {
+            this.body = body;
+            this.maxAgeSec = maxAgeSec;
+        }
+    }
+
+    private static class CachedResponse {
+        final String body;
+        final long expiryTs;
+
+        CachedResponse(String body, long maxAgeSec) {
+            this.body = body;
+            this.expiryTs = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(maxAgeSec);
+        }
+
+        boolean isValid() {
+            return System.currentTimeMillis() < expiryTs;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package io.bitsquare.http;
+
+import com.runjva.sourceforge.jsocks.protocol.Socks5Proxy;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.SSLContexts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds one pooled http client per socks5 proxy. Connections are kept alive and reused for further requests to the
+ * same host, so we don't pay the socks handshake, the circuit and the TLS setup for each request.
+ * <p>
+ * The route of a pooled connection does not contain the proxy (it is passed in the context), so we must not share a
+ * pool between different proxies.
+ */
+class SocksConnectionPools {
+    private static final Logger log = LoggerFactory.getLogger(SocksConnectionPools.class);
+
+    private static final int MAX_CONNECTIONS = 20;
+    private static final int MAX_CONNECTIONS_PER_HOST = 4;
+    private static final long MAX_IDLE_SEC = 30;
+    // A connection idle for longer gets checked if it is still open before it is reused
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
+    private static final Map<String, CloseableHttpClient> clientByProxy = new HashMap<>();
+
+    static synchronized CloseableHttpClient getClient(Socks5Proxy socks5Proxy) {
+        InetSocketAddress socksAddress = new InetSocketAddress(socks5Proxy.getInetAddress(), socks5Proxy.getPort());
+        boolean resolveAddrLocally = socks5Proxy.resolveAddrLocally();
+        String key = socksAddress + "/" + resolveAddrLocally;
+        CloseableHttpClient client = clientByProxy.get(key);
+        if (client == null) {
+            log.debug("Create connection pool for socks5 proxy " + key);
+            // Register our own SocketFactories to override createSocket() and connectSocket().
+            // connectSocket does NOT resolve hostname before passing it to proxy.
+            Registry<ConnectionSocketFactory> reg = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", new SocksConnectionSocketFactory())
+                    .register("https", new SocksSSLConnectionSocketFactory(SSLContexts.createSystemDefault())).build();
+
+            // Use FakeDNSResolver if not resolving DNS locally.
+            // This prevents a local DNS lookup (which would be ignored anyway)
+            PoolingHttpClientConnectionManager cm = resolveAddrLocally ?
+                    new PoolingHttpClientConnectionManager(reg) :
+                    new PoolingHttpClientConnectionManager(reg, new FakeDnsResolver());
+            cm.setMaxTotal(MAX_CONNECTIONS);
+            cm.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_HOST);
+            cm.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+
+            client = HttpClients.custom()
+                    .setConnectionManager(cm)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(MAX_IDLE_SEC, TimeUnit.SECONDS)
+                    .build();
+            clientByProxy.put(key, client);
+        }
+        return client;
+    }
+
+    static synchronized void shutDown() {
+        clientByProxy.values().forEach(client -> {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.debug("Closing http client failed: " + e.getMessage());
+            }
+        });
+        clientByProxy.clear();
+    }
+}
@@ -486,6 +486,12 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         }
     }
 
+    // Starts creating the connection to a peer we will send a direct message to soon
+    public void warmUpConnection(NodeAddress peerNodeAddress) {
+        if (isBootstrapped())
+            networkNode.warmUpConnection(peerNodeAddress);
+    }
+
     private void doSendEncryptedDirectMessage(@NotNull NodeAddress peersNodeAddress, PubKeyRing pubKeyRing, DirectMessage message,
                                               SendDirectMessageListener sendDirectMessageListener) {
         Log.traceCall();
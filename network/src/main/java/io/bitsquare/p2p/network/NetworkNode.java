@@ -19,9 +19,7 @@ import java.io.IOException;
 import java.net.ConnectException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.HashSet;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -32,6 +30,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public abstract class NetworkNode implements MessageListener {
     private static final Logger log = LoggerFactory.getLogger(NetworkNode.class);
     private static final int CREATE_SOCKET_TIMEOUT_MILLIS = 10000;
+    private static final int MAX_CONNECT_THREADS = 8;
+    // Running and queued connection attempts, the queue of the connect executor has the size of the pool
+    static final int MAX_PENDING_CONNECTIONS = 2 * MAX_CONNECT_THREADS;
 
     final int servicePort;
 
@@ -40,6 +41,12 @@ public abstract class NetworkNode implements MessageListener {
     private final CopyOnWriteArraySet<ConnectionListener> connectionListeners = new CopyOnWriteArraySet<>();
     final CopyOnWriteArraySet<SetupListener> setupListeners = new CopyOnWriteArraySet<>();
     ListeningExecutorService executorService;
+    // Socket creation can block for the whole circuit build when using tor, so it runs in its own bounded pool
+    ListeningExecutorService connectExecutorService;
+    // Connection attempts in progress by peer, only accessed in the UserThread
+    private final Map<NodeAddress, SettableFuture<Connection>> pendingConnections = new HashMap<>();
+    // Connection attempts waiting for a free slot in pendingConnections, only accessed in the UserThread
+    private final Map<NodeAddress, SettableFuture<Connection>> queuedConnections = new LinkedHashMap<>();
     private Server server;
 
     private volatile boolean shutDownInProgress;
@@ -79,101 +86,188 @@ public abstract class NetworkNode implements MessageListener {
                     "We will create a new outbound connection.", peersNodeAddress);
 
             final SettableFuture<Connection> resultFuture = SettableFuture.create();
-            ListenableFuture<Connection> future = executorService.submit(() -> {
-                Thread.currentThread().setName("NetworkNode:SendMessage-to-" + peersNodeAddress);
-                OutboundConnection outboundConnection = null;
-                try {
-                    // can take a while when using tor
-                    long startTs = System.currentTimeMillis();
-                    log.debug("Start create socket to peersNodeAddress {}", peersNodeAddress.getFullAddress());
-                    Socket socket = createSocket(peersNodeAddress);
-                    long duration = System.currentTimeMillis() - startTs;
-                    log.debug("Socket creation to peersNodeAddress {} took {} ms", peersNodeAddress.getFullAddress(),
-                            duration);
-
-                    if (duration > CREATE_SOCKET_TIMEOUT_MILLIS)
-                        throw new TimeoutException("A timeout occurred when creating a socket.");
-
-                    // Tor needs sometimes quite long to create a connection. To avoid that we get too many double 
-                    // sided connections we check again if we still don't have any connection for that node address.
-                    Connection existingConnection = getInboundConnection(peersNodeAddress);
-                    if (existingConnection == null)
-                        existingConnection = getOutboundConnection(peersNodeAddress);
-
-                    if (existingConnection != null) {
-                        log.debug("We found in the meantime a connection for peersNodeAddress {}, " +
-                                        "so we use that for sending the message.\n" +
-                                        "That can happen if Tor needs long for creating a new outbound connection.\n" +
-                                        "We might have got a new inbound or outbound connection.",
-                                peersNodeAddress.getFullAddress());
-                        try {
-                            socket.close();
-                        } catch (Throwable throwable) {
-                            log.error("Error at closing socket " + throwable);
+            Futures.addCallback(getOrCreateOutboundConnection(peersNodeAddress), new FutureCallback<Connection>() {
+                public void onSuccess(Connection connection) {
+                    Futures.addCallback(sendMessage(connection, message), new FutureCallback<Connection>() {
+                        public void onSuccess(Connection connection) {
+                            resultFuture.set(connection);
                         }
-                        existingConnection.sendMessage(message);
-                        return existingConnection;
-                    } else {
-                        outboundConnection = new OutboundConnection(socket,
-                                NetworkNode.this,
-                                new ConnectionListener() {
-                                    @Override
-                                    public void onConnection(Connection connection) {
-                                        if (!connection.isStopped()) {
-                                            outBoundConnections.add((OutboundConnection) connection);
-                                            printOutBoundConnections();
-                                            connectionListeners.stream().forEach(e -> e.onConnection(connection));
-                                        }
-                                    }
 
-                                    @Override
-                                    public void onDisconnect(CloseConnectionReason closeConnectionReason, Connection connection) {
-                                        log.trace("onDisconnect connectionListener\n\tconnection={}" + connection);
-                                        outBoundConnections.remove(connection);
-                                        printOutBoundConnections();
-                                        connectionListeners.stream().forEach(e -> e.onDisconnect(closeConnectionReason, connection));
-                                    }
+                        public void onFailure(@NotNull Throwable throwable) {
+                            resultFuture.setException(throwable);
+                        }
+                    });
+                }
 
-                                    @Override
-                                    public void onError(Throwable throwable) {
-                                        log.error("new OutboundConnection.ConnectionListener.onError " + throwable.getMessage());
-                                        connectionListeners.stream().forEach(e -> e.onError(throwable));
-                                    }
-                                }, peersNodeAddress);
-
-                        log.debug("\n\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n" +
-                                "NetworkNode created new outbound connection:"
-                                + "\nmyNodeAddress=" + getNodeAddress()
-                                + "\npeersNodeAddress=" + peersNodeAddress
-                                + "\nuid=" + outboundConnection.getUid()
-                                + "\nmessage=" + message
-                                + "\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n");
-
-                        // can take a while when using tor
-                        outboundConnection.sendMessage(message);
-                        return outboundConnection;
-                    }
-                } catch (Throwable throwable) {
-                    if (!(throwable instanceof ConnectException ||
-                            throwable instanceof IOException ||
-                            throwable instanceof TimeoutException)) {
-                        log.warn("Executing task failed. " + throwable.getMessage());
-                    }
-                    throw throwable;
+                public void onFailure(@NotNull Throwable throwable) {
+                    resultFuture.setException(throwable);
                 }
             });
+            return resultFuture;
+        }
+    }
 
-            Futures.addCallback(future, new FutureCallback<Connection>() {
-                public void onSuccess(Connection connection) {
-                    UserThread.execute(() -> resultFuture.set(connection));
-                }
+    // Creates the connection to a peer we are about to contact, so the socket creation (can take a while when using
+    // tor) does not delay the first message. Sends to the peer while the connection is created will use it.
+    public void warmUpConnection(@NotNull NodeAddress peersNodeAddress) {
+        Log.traceCall("peersNodeAddress=" + peersNodeAddress);
+        if (shutDownInProgress || connectExecutorService == null ||
+                getOutboundConnection(peersNodeAddress) != null || getInboundConnection(peersNodeAddress) != null)
+            return;
 
-                public void onFailure(@NotNull Throwable throwable) {
-                    UserThread.execute(() -> resultFuture.setException(throwable));
+        Futures.addCallback(getOrCreateOutboundConnection(peersNodeAddress), new FutureCallback<Connection>() {
+            public void onSuccess(Connection connection) {
+                log.debug("Warm up of connection to {} completed", peersNodeAddress);
+            }
+
+            public void onFailure(@NotNull Throwable throwable) {
+                log.debug("Warm up of connection to {} failed. {}", peersNodeAddress, throwable.getMessage());
+            }
+        });
+    }
+
+    // Returns the pending connection attempt to that peer if there is one, so concurrent sends to a new peer share
+    // one socket. The returned future completes on the UserThread after the connection was added to
+    // outBoundConnections.
+    // If too many attempts are in progress the attempt gets queued until a slot is free. We must not fail it, as
+    // the callers would count that as a fault of a peer which might be reachable.
+    private ListenableFuture<Connection> getOrCreateOutboundConnection(NodeAddress peersNodeAddress) {
+        SettableFuture<Connection> pendingConnection = pendingConnections.get(peersNodeAddress);
+        if (pendingConnection == null)
+            pendingConnection = queuedConnections.get(peersNodeAddress);
+        if (pendingConnection != null) {
+            log.debug("We have already a connection attempt to peersNodeAddress {} in progress. " +
+                    "We wait for that.", peersNodeAddress.getFullAddress());
+            return pendingConnection;
+        }
+
+        final SettableFuture<Connection> resultFuture = SettableFuture.create();
+        if (pendingConnections.size() >= MAX_PENDING_CONNECTIONS) {
+            log.debug("Too many connection attempts in progress. We queue the attempt to peersNodeAddress {}. " +
+                    "pendingConnections={}", peersNodeAddress.getFullAddress(), pendingConnections.size());
+            queuedConnections.put(peersNodeAddress, resultFuture);
+        } else {
+            createOutboundConnection(peersNodeAddress, resultFuture);
+        }
+        return resultFuture;
+    }
+
+    private void createOutboundConnection(NodeAddress peersNodeAddress, SettableFuture<Connection> resultFuture) {
+        pendingConnections.put(peersNodeAddress, resultFuture);
+        ListenableFuture<Connection> future = connectExecutorService.submit(() -> {
+            Thread.currentThread().setName("NetworkNode:CreateConnection-to-" + peersNodeAddress);
+            try {
+                // can take a while when using tor
+                long startTs = System.currentTimeMillis();
+                log.debug("Start create socket to peersNodeAddress {}", peersNodeAddress.getFullAddress());
+                Socket socket = createSocket(peersNodeAddress);
+                long duration = System.currentTimeMillis() - startTs;
+                log.debug("Socket creation to peersNodeAddress {} took {} ms", peersNodeAddress.getFullAddress(),
+                        duration);
+
+                if (duration > CREATE_SOCKET_TIMEOUT_MILLIS)
+                    throw new TimeoutException("A timeout occurred when creating a socket.");
+
+                // Tor needs sometimes quite long to create a connection. To avoid that we get too many double 
+                // sided connections we check again if we still don't have any connection for that node address.
+                Connection existingConnection = getInboundConnection(peersNodeAddress);
+                if (existingConnection == null)
+                    existingConnection = getOutboundConnection(peersNodeAddress);
+
+                if (existingConnection != null) {
+                    log.debug("We found in the meantime a connection for peersNodeAddress {}, " +
+                                    "so we use that for sending the message.\n" +
+                                    "That can happen if Tor needs long for creating a new outbound connection.\n" +
+                                    "We might have got a new inbound or outbound connection.",
+                            peersNodeAddress.getFullAddress());
+                    try {
+                        socket.close();
+                    } catch (Throwable throwable) {
+                        log.error("Error at closing socket " + throwable);
+                    }
+                    return existingConnection;
+                } else {
+                    OutboundConnection outboundConnection = new OutboundConnection(socket,
+                            NetworkNode.this,
+                            new ConnectionListener() {
+                                @Override
+                                public void onConnection(Connection connection) {
+                                    if (!connection.isStopped()) {
+                                        outBoundConnections.add((OutboundConnection) connection);
+                                        printOutBoundConnections();
+                                        connectionListeners.stream().forEach(e -> e.onConnection(connection));
+                                    }
+                                }
+
+                                @Override
+                                public void onDisconnect(CloseConnectionReason closeConnectionReason, Connection connection) {
+                                    log.trace("onDisconnect connectionListener\n\tconnection={}" + connection);
+                                    outBoundConnections.remove(connection);
+                                    printOutBoundConnections();
+                                    connectionListeners.stream().forEach(e -> e.onDisconnect(closeConnectionReason, connection));
+                                }
+
+                                @Override
+                                public void onError(Throwable throwable) {
+                                    log.error("new OutboundConnection.ConnectionListener.onError " + throwable.getMessage());
+                                    connectionListeners.stream().forEach(e -> e.onError(throwable));
+                                }
+                            }, peersNodeAddress);
+
+                    log.debug("\n\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n" +
+                            "NetworkNode created new outbound connection:"
+                            + "\nmyNodeAddress=" + getNodeAddress()
+                            + "\npeersNodeAddress=" + peersNodeAddress
+                            + "\nuid=" + outboundConnection.getUid()
+                            + "\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n");
+                    return outboundConnection;
                 }
-            });
+            } catch (Throwable throwable) {
+                if (!(throwable instanceof ConnectException ||
+                        throwable instanceof IOException ||
+                        throwable instanceof TimeoutException)) {
+                    log.warn("Executing task failed. " + throwable.getMessage());
+                }
+                throw throwable;
+            }
+        });
 
-            return resultFuture;
+        // The connection listener's onConnection got queued up on the UserThread before, so the connection is
+        // already in outBoundConnections when we remove the pending entry.
+        Futures.addCallback(future, new FutureCallback<Connection>() {
+            public void onSuccess(Connection connection) {
+                UserThread.execute(() -> {
+                    pendingConnections.remove(peersNodeAddress);
+                    resultFuture.set(connection);
+                    startQueuedConnections();
+                });
+            }
+
+            public void onFailure(@NotNull Throwable throwable) {
+                UserThread.execute(() -> {
+                    pendingConnections.remove(peersNodeAddress);
+                    resultFuture.setException(throwable);
+                    startQueuedConnections();
+                });
+            }
+        });
+    }
+
+    // Completing a future runs its callbacks, which might queue new attempts, so we don't iterate over the map
+    private void startQueuedConnections() {
+        while (!queuedConnections.isEmpty() && pendingConnections.size() < MAX_PENDING_CONNECTIONS &&
+                !shutDownInProgress) {
+            NodeAddress peersNodeAddress = queuedConnections.keySet().iterator().next();
+            SettableFuture<Connection> resultFuture = queuedConnections.remove(peersNodeAddress);
+            // We might have got a connection from that peer while waiting
+            Connection connection = getOutboundConnection(peersNodeAddress);
+            if (connection == null)
+                connection = getInboundConnection(peersNodeAddress);
+
+            if (connection != null)
+                resultFuture.set(connection);
+            else
+                createOutboundConnection(peersNodeAddress, resultFuture);
         }
     }
 
@@ -277,6 +371,15 @@ public abstract class NetworkNode implements MessageListener {
                 server = null;
             }
 
+            if (connectExecutorService != null)
+                connectExecutorService.shutdownNow();
+
+            UserThread.execute(() -> {
+                queuedConnections.values().stream().forEach(future ->
+                        future.setException(new ConnectException("Network node is shut down")));
+                queuedConnections.clear();
+            });
+
             getAllConnections().stream().forEach(c -> c.shutDown(CloseConnectionReason.APP_SHUT_DOWN));
             log.debug("NetworkNode shutdown complete");
         }
@@ -343,6 +446,8 @@ public abstract class NetworkNode implements MessageListener {
 
     void createExecutorService() {
         executorService = Utilities.getListeningExecutorService("NetworkNode-" + servicePort, 15, 30, 60);
+        connectExecutorService = Utilities.getListeningExecutorService("NetworkNode-connect-" + servicePort,
+                MAX_CONNECT_THREADS, MAX_CONNECT_THREADS, 60);
     }
 
     void startServer(ServerSocket serverSocket) {
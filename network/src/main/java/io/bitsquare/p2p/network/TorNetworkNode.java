@@ -75,9 +75,9 @@ public class TorNetworkNode extends NetworkNode {
                     Log.traceCall("torNode created");
                     TorNetworkNode.this.torNetworkNode = torNode;
 
-                    setupListeners.stream().forEach(SetupListener::onTorNodeReady);
-
                     // Create Hidden Service (takes about 40 sec.)
+                    // We start the publishing before we notify the listeners, so it runs in parallel to the
+                    // connections they create to the seed nodes.
                     createHiddenService(torNode,
                             Utils.findFreeSystemPort(),
                             servicePort,
@@ -88,6 +88,8 @@ public class TorNetworkNode extends NetworkNode {
                                 startServer(hiddenServiceDescriptor.getServerSocket());
                                 setupListeners.stream().forEach(SetupListener::onHiddenServicePublished);
                             });
+
+                    setupListeners.stream().forEach(SetupListener::onTorNodeReady);
                 });
     }
 
@@ -0,0 +1,69 @@
+package io.bitsquare.p2p.peers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders connections by eviction priority class and last activity, so we can pick all connections we need to close
+ * in one pass instead of filtering and sorting all connections again for each connection we close.
+ * <p>
+ * A class may only be evicted if all classes with a lower index are empty and the number of connections exceeds the
+ * limit of that class. Inside a class the connection with the oldest activity goes first.
+ */
+final class EvictionIndex<T> {
+    // Priority classes in the order we evict them
+    static final int INBOUND_PEER = 0;
+    static final int OUTBOUND_PEER = 1;
+    static final int NON_DIRECT = 2;
+    static final int DIRECT = 3;
+    private static final int NUM_CLASSES = 4;
+
+    private final List<List<Entry<T>>> classes = new ArrayList<>(NUM_CLASSES);
+
+    EvictionIndex() {
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            classes.add(new ArrayList<>());
+        }
+    }
+
+    void add(T item, int priorityClass, long lastActivityTimestamp) {
+        classes.get(priorityClass).add(new Entry<>(item, lastActivityTimestamp));
+    }
+
+    /**
+     * @param numConnections Number of open connections
+     * @param limits         For each priority class the number of connections above which we evict from that class
+     * @return The connections to close, in the order we would have closed them one by one
+     */
+    List<T> selectVictims(int numConnections, int[] limits) {
+        List<T> victims = new ArrayList<>();
+        int size = numConnections;
+        int priorityClass = 0;
+        int index = 0;
+        classes.forEach(entries -> entries.sort(Comparator.comparingLong(entry -> entry.lastActivityTimestamp)));
+        while (size > limits[0] && priorityClass < NUM_CLASSES) {
+            List<Entry<T>> entries = classes.get(priorityClass);
+            if (index >= entries.size()) {
+                priorityClass++;
+                index = 0;
+            } else if (size > limits[priorityClass]) {
+                victims.add(entries.get(index++).item);
+                size--;
+            } else {
+                break;
+            }
+        }
+        return victims;
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long lastActivityTimestamp;
+
+        private Entry(T item, long lastActivityTimestamp) {
+            this.item = item;
+            this.lastActivityTimestamp = lastActivityTimestamp;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package io.bitsquare.p2p.peers;
+
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.peers.peerexchange.Peer;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the reported or persisted peers of the PeerManager.
+ * <p>
+ * The peers are kept in a list with an index by address, so lookup, removal and picking a random peer is O(1) (we
+ * move the last peer into the gap of a removed one). Additionally the peers are grouped in buckets by the day of their
+ * date, so removing peers older than a max. age only touches the expired buckets and the bucket at the boundary.
+ * <p>
+ * Not thread safe. Run in UserThread.
+ */
+final class PeerAddressBook {
+    private static final long BUCKET_MS = TimeUnit.DAYS.toMillis(1);
+
+    private final List<Peer> peers = new ArrayList<>();
+    private final Map<NodeAddress, Integer> indexByAddress = new HashMap<>();
+    private final TreeMap<Long, Set<Peer>> peersByBucket = new TreeMap<>();
+    private final Collection<Peer> unmodifiablePeers = Collections.unmodifiableList(peers);
+    private final Random random;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    PeerAddressBook() {
+        this(new Random());
+    }
+
+    PeerAddressBook(Random random) {
+        this.random = random;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return False if we have already a peer with that address. As with a HashSet we keep the existing peer.
+     */
+    boolean add(Peer peer) {
+        if (indexByAddress.containsKey(peer.nodeAddress))
+            return false;
+
+        indexByAddress.put(peer.nodeAddress, peers.size());
+        peers.add(peer);
+        peersByBucket.computeIfAbsent(getBucket(peer), bucket -> new HashSet<>()).add(peer);
+        return true;
+    }
+
+    void addAll(Collection<Peer> peers) {
+        peers.forEach(this::add);
+    }
+
+    @Nullable
+    Peer get(NodeAddress nodeAddress) {
+        Integer index = indexByAddress.get(nodeAddress);
+        return index != null ? peers.get(index) : null;
+    }
+
+    boolean remove(Peer peer) {
+        return remove(peer.nodeAddress) != null;
+    }
+
+    @Nullable
+    Peer remove(NodeAddress nodeAddress) {
+        Integer index = indexByAddress.get(nodeAddress);
+        return index != null ? removeAt(index) : null;
+    }
+
+    /**
+     * Removes random peers until we have not more than the given number of peers.
+     *
+     * @return The removed peers
+     */
+    List<Peer> removeRandomIfExceeds(int limit) {
+        List<Peer> removedPeers = new ArrayList<>();
+        while (peers.size() > limit) {
+            removedPeers.add(removeAt(random.nextInt(peers.size())));
+        }
+        return removedPeers;
+    }
+
+    /**
+     * @return The removed peers
+     */
+    List<Peer> removeOlderThan(long minDate) {
+        List<Peer> removedPeers = new ArrayList<>();
+        long minBucket = minDate / BUCKET_MS;
+        // All buckets before the one of minDate are expired completely
+        SortedMap<Long, Set<Peer>> expiredBuckets = peersByBucket.headMap(minBucket);
+        expiredBuckets.values().forEach(removedPeers::addAll);
+        Set<Peer> boundaryBucket = peersByBucket.get(minBucket);
+        if (boundaryBucket != null) {
+            boundaryBucket.stream()
+                    .filter(peer -> peer.date.getTime() < minDate)
+                    .forEach(removedPeers::add);
+        }
+        removedPeers.forEach(this::remove);
+        return removedPeers;
+    }
+
+    int size() {
+        return peers.size();
+    }
+
+    boolean isEmpty() {
+        return peers.isEmpty();
+    }
+
+    /**
+     * @return Unmodifiable view of the peers
+     */
+    Collection<Peer> getAll() {
+        return unmodifiablePeers;
+    }
+
+    /**
+     * @return Copy of the peers as we persist them
+     */
+    HashSet<Peer> toHashSet() {
+        return new HashSet<>(peers);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private Peer removeAt(int index) {
+        Peer peer = peers.get(index);
+        Peer last = peers.remove(peers.size() - 1);
+        if (index < peers.size()) {
+            peers.set(index, last);
+            indexByAddress.put(last.nodeAddress, index);
+        }
+        indexByAddress.remove(peer.nodeAddress);
+
+        long bucket = getBucket(peer);
+        Set<Peer> bucketPeers = peersByBucket.get(bucket);
+        bucketPeers.remove(peer);
+        if (bucketPeers.isEmpty())
+            peersByBucket.remove(bucket);
+        return peer;
+    }
+
+    private static long getBucket(Peer peer) {
+        return peer.date.getTime() / BUCKET_MS;
+    }
+}
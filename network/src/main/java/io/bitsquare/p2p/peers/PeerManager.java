@@ -31,6 +31,7 @@ public class PeerManager implements ConnectionListener {
     private static final int MAX_REPORTED_PEERS = 1000;
     private static final int MAX_PERSISTED_PEERS = 500;
     private static final long MAX_AGE = TimeUnit.DAYS.toMillis(14); // max age for reported peers is 14 days
+    private static final long PERSIST_PEERS_DELAY_MS = 2000;
 
     private final boolean printReportedPeersDetails = true;
     private boolean lostAllConnections;
@@ -74,12 +75,15 @@ public class PeerManager implements ConnectionListener {
     private final Set<NodeAddress> seedNodeAddresses;
     private final Storage<HashSet<Peer>> dbStorage;
 
-    private final HashSet<Peer> persistedPeers = new HashSet<>();
-    private final Set<Peer> reportedPeers = new HashSet<>();
+    private final PeerAddressBook persistedPeers = new PeerAddressBook();
+    private final PeerAddressBook reportedPeers = new PeerAddressBook();
     private Timer checkMaxConnectionsTimer;
+    private Timer persistPeersTimer;
     private final Clock.Listener listener;
     private final List<Listener> listeners = new CopyOnWriteArrayList<>();
     private boolean stopped;
+    private long numEvictionChecks;
+    private long numEvictedConnections;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -129,6 +133,11 @@ public class PeerManager implements ConnectionListener {
         networkNode.removeConnectionListener(this);
         clock.removeListener(listener);
         stopCheckMaxConnectionsTimer();
+        if (persistPeersTimer != null) {
+            persistPeersTimer.stop();
+            persistPeersTimer = null;
+            savePersistedPeers();
+        }
     }
 
 
@@ -239,71 +248,56 @@ public class PeerManager implements ConnectionListener {
         }
     }
 
-    private boolean checkMaxConnections(int limit) {
+    private void checkMaxConnections(int limit) {
         Log.traceCall("limit=" + limit);
-        Set<Connection> allConnections = networkNode.getAllConnections();
+        // We take one snapshot of the connections and pick all connections to close in one pass
+        List<Connection> allConnections = networkNode.getAllConnections().stream()
+                .filter(connection -> !connection.isStopped())
+                .collect(Collectors.toList());
         int size = allConnections.size();
         log.debug("We have {} connections open. Our limit is {}", size, limit);
 
         if (size > limit) {
-            log.debug("We have too many connections open.\n\t" +
-                    "Lets try first to remove the inbound connections of type PEER.");
-            List<Connection> candidates = allConnections.stream()
-                    .filter(e -> e instanceof InboundConnection)
-                    .filter(e -> e.getPeerType() == Connection.PeerType.PEER)
-                    .collect(Collectors.toList());
-
-            if (candidates.size() == 0) {
-                log.debug("No candidates found. We check if we exceed our " +
-                        "maxConnectionsPeer limit of {}", maxConnectionsPeer);
-                if (size > maxConnectionsPeer) {
-                    log.debug("Lets try to remove ANY connection of type PEER.");
-                    candidates = allConnections.stream()
-                            .filter(e -> e.getPeerType() == Connection.PeerType.PEER)
-                            .collect(Collectors.toList());
-
-                    if (candidates.size() == 0) {
-                        log.debug("No candidates found. We check if we exceed our " +
-                                "maxConnectionsNonDirect limit of {}", maxConnectionsNonDirect);
-                        if (size > maxConnectionsNonDirect) {
-                            log.debug("Lets try to remove any connection which is not of type DIRECT_MSG_PEER or INITIAL_DATA_REQUEST.");
-                            candidates = allConnections.stream()
-                                    .filter(e -> e.getPeerType() != Connection.PeerType.DIRECT_MSG_PEER && e.getPeerType() != Connection.PeerType.INITIAL_DATA_REQUEST)
-                                    .collect(Collectors.toList());
-
-                            if (candidates.size() == 0) {
-                                log.debug("No candidates found. We check if we exceed our " +
-                                        "maxConnectionsAbsolute limit of {}", maxConnectionsAbsolute);
-                                if (size > maxConnectionsAbsolute) {
-                                    log.debug("Lets try to remove any connection.");
-                                    candidates = allConnections.stream().collect(Collectors.toList());
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-
-            if (candidates.size() > 0) {
-                candidates.sort((o1, o2) -> ((Long) o1.getStatistic().getLastActivityTimestamp()).compareTo(((Long) o2.getStatistic().getLastActivityTimestamp())));
-                log.debug("Candidates.size() for shut down=" + candidates.size());
-                Connection connection = candidates.remove(0);
-                log.debug("We are going to shut down the oldest connection.\n\tconnection=" + connection.toString());
-                if (!connection.isStopped())
-                    connection.shutDown(CloseConnectionReason.TOO_MANY_CONNECTIONS_OPEN, () -> checkMaxConnections(limit));
-                return true;
+            EvictionIndex<Connection> evictionIndex = new EvictionIndex<>();
+            allConnections.forEach(connection -> evictionIndex.add(connection, getEvictionClass(connection),
+                    connection.getStatistic().getLastActivityTimestamp()));
+            List<Connection> victims = evictionIndex.selectVictims(size,
+                    new int[]{limit, maxConnectionsPeer, maxConnectionsNonDirect, maxConnectionsAbsolute});
+
+            numEvictionChecks++;
+            if (!victims.isEmpty()) {
+                numEvictedConnections += victims.size();
+                log.info("We have {} connections open and close the {} oldest connections with the lowest priority. " +
+                                "Eviction churn: {} connections closed in {} checks.",
+                        size, victims.size(), numEvictedConnections, numEvictionChecks);
+                // Once all are closed we check again as new connections might have been created in the meantime
+                final int[] numPending = {victims.size()};
+                victims.forEach(connection -> {
+                    log.debug("We are going to shut down connection.\n\tconnection=" + connection.toString());
+                    connection.shutDown(CloseConnectionReason.TOO_MANY_CONNECTIONS_OPEN, () -> {
+                        if (--numPending[0] == 0)
+                            checkMaxConnections(limit);
+                    });
+                });
             } else {
-                log.warn("No candidates found to remove (That case should not be possible as we use in the " +
-                        "last case all connections).\n\t" +
-                        "allConnections=", allConnections);
-                return false;
+                log.debug("No candidates found to remove. We are above our limit of {} but not above the limits " +
+                        "for the connections we have.", limit);
             }
         } else {
             log.trace("We only have {} connections open and don't need to close any.", size);
-            return false;
         }
     }
 
+    private int getEvictionClass(Connection connection) {
+        Connection.PeerType peerType = connection.getPeerType();
+        if (peerType == Connection.PeerType.PEER)
+            return connection instanceof InboundConnection ? EvictionIndex.INBOUND_PEER : EvictionIndex.OUTBOUND_PEER;
+        else if (peerType != Connection.PeerType.DIRECT_MSG_PEER && peerType != Connection.PeerType.INITIAL_DATA_REQUEST)
+            return EvictionIndex.NON_DIRECT;
+        else
+            return EvictionIndex.DIRECT;
+    }
+
     private void removeAnonymousPeers() {
         Log.traceCall();
         networkNode.getAllConnections().stream()
@@ -343,37 +337,22 @@ public class PeerManager implements ConnectionListener {
     // Reported peers
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private boolean removeReportedPeer(Peer reportedPeer) {
-        boolean contained = reportedPeers.remove(reportedPeer);
-        printReportedPeers();
-        return contained;
-    }
-
     @Nullable
     private Peer removeReportedPeer(NodeAddress nodeAddress) {
-        List<Peer> reportedPeersClone = new ArrayList<>(reportedPeers);
-        Optional<Peer> reportedPeerOptional = reportedPeersClone.stream()
-                .filter(e -> e.nodeAddress.equals(nodeAddress)).findAny();
-        if (reportedPeerOptional.isPresent()) {
-            Peer reportedPeer = reportedPeerOptional.get();
-            removeReportedPeer(reportedPeer);
-            return reportedPeer;
-        } else {
-            return null;
-        }
+        Peer reportedPeer = reportedPeers.remove(nodeAddress);
+        if (reportedPeer != null)
+            printReportedPeers();
+        return reportedPeer;
     }
 
     private void removeTooOldReportedPeers() {
         Log.traceCall();
-        List<Peer> reportedPeersClone = new ArrayList<>(reportedPeers);
-        Set<Peer> reportedPeersToRemove = reportedPeersClone.stream()
-                .filter(reportedPeer -> new Date().getTime() - reportedPeer.date.getTime() > MAX_AGE)
-                .collect(Collectors.toSet());
-        reportedPeersToRemove.forEach(this::removeReportedPeer);
+        if (!reportedPeers.removeOlderThan(new Date().getTime() - MAX_AGE).isEmpty())
+            printReportedPeers();
     }
 
-    public Set<Peer> getReportedPeers() {
-        return reportedPeers;
+    public Collection<Peer> getReportedPeers() {
+        return reportedPeers.getAll();
     }
 
     public void addToReportedPeers(HashSet<Peer> reportedPeersToAdd, Connection connection) {
@@ -386,8 +365,7 @@ public class PeerManager implements ConnectionListener {
 
             persistedPeers.addAll(reportedPeersToAdd);
             purgePersistedPeersIfExceeds();
-            if (dbStorage != null)
-                dbStorage.queueUpForSave(new HashSet<>(persistedPeers), 2000); // We clone it to avoid ConcurrentModificationExceptions at save
+            queueUpPersistedPeersForSave();
 
             printReportedPeers();
         } else {
@@ -405,13 +383,9 @@ public class PeerManager implements ConnectionListener {
         if (size > limit) {
             log.trace("We have already {} reported peers which exceeds our limit of {}." +
                     "We remove random peers from the reported peers list.", size, limit);
-            int diff = size - limit;
-            List<Peer> list = new ArrayList<>(reportedPeers);
             // we dont use sorting by lastActivityDate to keep it more random
-            for (int i = 0; i < diff; i++) {
-                Peer toRemove = list.remove(new Random().nextInt(list.size()));
-                removeReportedPeer(toRemove);
-            }
+            reportedPeers.removeRandomIfExceeds(limit);
+            printReportedPeers();
         } else {
             log.trace("No need to purge reported peers.\n\tWe don't have more then {} reported peers yet.", MAX_REPORTED_PEERS);
         }
@@ -419,11 +393,10 @@ public class PeerManager implements ConnectionListener {
 
     private void printReportedPeers() {
         if (!reportedPeers.isEmpty()) {
-            if (printReportedPeersDetails) {
+            if (printReportedPeersDetails && log.isDebugEnabled()) {
                 StringBuilder result = new StringBuilder("\n\n------------------------------------------------------------\n" +
                         "Collected reported peers:");
-                List<Peer> reportedPeersClone = new ArrayList<>(reportedPeers);
-                reportedPeersClone.stream().forEach(e -> result.append("\n").append(e));
+                reportedPeers.getAll().stream().forEach(e -> result.append("\n").append(e));
                 result.append("\n------------------------------------------------------------\n");
                 log.debug(result.toString());
             }
@@ -432,7 +405,7 @@ public class PeerManager implements ConnectionListener {
     }
 
     private void printNewReportedPeers(HashSet<Peer> reportedPeers) {
-        if (printReportedPeersDetails) {
+        if (printReportedPeersDetails && log.isDebugEnabled()) {
             StringBuilder result = new StringBuilder("We received new reportedPeers:");
             List<Peer> reportedPeersClone = new ArrayList<>(reportedPeers);
             reportedPeersClone.stream().forEach(e -> result.append("\n\t").append(e));
@@ -447,12 +420,8 @@ public class PeerManager implements ConnectionListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private boolean removePersistedPeer(Peer persistedPeer) {
-        if (persistedPeers.contains(persistedPeer)) {
-            persistedPeers.remove(persistedPeer);
-
-            if (dbStorage != null)
-                dbStorage.queueUpForSave(new HashSet<>(persistedPeers), 2000);
-
+        if (persistedPeers.remove(persistedPeer)) {
+            queueUpPersistedPeersForSave();
             return true;
         } else {
             return false;
@@ -460,21 +429,22 @@ public class PeerManager implements ConnectionListener {
     }
 
     private boolean removePersistedPeer(NodeAddress nodeAddress) {
-        Optional<Peer> persistedPeerOptional = getPersistedPeerOptional(nodeAddress);
-        return persistedPeerOptional.isPresent() && removePersistedPeer(persistedPeerOptional.get());
+        if (persistedPeers.remove(nodeAddress) != null) {
+            queueUpPersistedPeersForSave();
+            return true;
+        } else {
+            return false;
+        }
     }
 
     private Optional<Peer> getPersistedPeerOptional(NodeAddress nodeAddress) {
-        return persistedPeers.stream()
-                .filter(e -> e.nodeAddress.equals(nodeAddress)).findAny();
+        return Optional.ofNullable(persistedPeers.get(nodeAddress));
     }
 
     private void removeTooOldPersistedPeers() {
         Log.traceCall();
-        Set<Peer> persistedPeersToRemove = persistedPeers.stream()
-                .filter(reportedPeer -> new Date().getTime() - reportedPeer.date.getTime() > MAX_AGE)
-                .collect(Collectors.toSet());
-        persistedPeersToRemove.forEach(this::removePersistedPeer);
+        if (!persistedPeers.removeOlderThan(new Date().getTime() - MAX_AGE).isEmpty())
+            queueUpPersistedPeersForSave();
     }
 
     private void purgePersistedPeersIfExceeds() {
@@ -484,20 +454,31 @@ public class PeerManager implements ConnectionListener {
         if (size > limit) {
             log.trace("We have already {} persisted peers which exceeds our limit of {}." +
                     "We remove random peers from the persisted peers list.", size, limit);
-            int diff = size - limit;
-            List<Peer> list = new ArrayList<>(persistedPeers);
             // we dont use sorting by lastActivityDate to avoid attack vectors and keep it more random
-            for (int i = 0; i < diff; i++) {
-                Peer toRemove = list.remove(new Random().nextInt(list.size()));
-                removePersistedPeer(toRemove);
-            }
+            persistedPeers.removeRandomIfExceeds(limit);
+            queueUpPersistedPeersForSave();
         } else {
             log.trace("No need to purge persisted peers.\n\tWe don't have more then {} persisted peers yet.", MAX_PERSISTED_PEERS);
         }
     }
 
-    public Set<Peer> getPersistedPeers() {
-        return persistedPeers;
+    // We get called for each change, often for many peers in a row. We copy the peers only once per save.
+    private void queueUpPersistedPeersForSave() {
+        if (dbStorage != null && persistPeersTimer == null) {
+            persistPeersTimer = UserThread.runAfter(() -> {
+                persistPeersTimer = null;
+                savePersistedPeers();
+            }, PERSIST_PEERS_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void savePersistedPeers() {
+        // We clone it to avoid ConcurrentModificationExceptions at save
+        dbStorage.queueUpForSave(persistedPeers.toHashSet(), 0);
+    }
+
+    public Collection<Peer> getPersistedPeers() {
+        return persistedPeers.getAll();
     }
 
 
@@ -0,0 +1,100 @@
+package io.bitsquare.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class HttpClientTest {
+    private HttpServer server;
+    private final AtomicInteger numRequests = new AtomicInteger();
+    private final CountDownLatch releaseLatch = new CountDownLatch(1);
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/slow", exchange -> {
+            numRequests.incrementAndGet();
+            try {
+                releaseLatch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignore) {
+            }
+            respond(exchange, null, "slow");
+        });
+        server.createContext("/cached", exchange -> {
+            numRequests.incrementAndGet();
+            respond(exchange, "public, max-age=60", "cached" + numRequests.get());
+        });
+        server.createContext("/uncached", exchange -> {
+            numRequests.incrementAndGet();
+            respond(exchange, "no-cache", "uncached" + numRequests.get());
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @After
+    public void tearDown() {
+        releaseLatch.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testIdenticalRequestsInFlightAreSentOnce() throws Exception {
+        int numCallers = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(numCallers);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < numCallers; i++)
+            futures.add(executor.submit(() -> new HttpClient(baseUrl).requestWithGETNoProxy("slow", "User-Agent", "")));
+
+        Thread.sleep(500);
+        releaseLatch.countDown();
+        for (Future<String> future : futures)
+            assertEquals("slow", future.get(5, TimeUnit.SECONDS));
+        assertEquals(1, numRequests.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testResponseIsCachedForMaxAge() throws Exception {
+        HttpClient httpClient = new HttpClient(baseUrl);
+        assertEquals("cached1", httpClient.requestWithGETNoProxy("cached", null, null));
+        assertEquals("cached1", new HttpClient(baseUrl).requestWithGETNoProxy("cached", null, null));
+        assertEquals(1, numRequests.get());
+
+        assertEquals("uncached2", httpClient.requestWithGETNoProxy("uncached", null, null));
+        assertEquals("uncached3", httpClient.requestWithGETNoProxy("uncached", null, null));
+    }
+
+    @Test
+    public void testParseMaxAge() {
+        assertEquals(0, HttpClient.parseMaxAge(null));
+        assertEquals(60, HttpClient.parseMaxAge("public, max-age=60"));
+        assertEquals(0, HttpClient.parseMaxAge("max-age=60, no-store"));
+        assertEquals(0, HttpClient.parseMaxAge("max-age=abc"));
+    }
+
+    private static void respond(HttpExchange exchange, String cacheControl, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (cacheControl != null)
+            exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package io.bitsquare.p2p.network;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import io.bitsquare.app.Version;
+import io.bitsquare.common.UserThread;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.Utils;
+import io.bitsquare.p2p.network.messages.SendersNodeAddressMessage;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OutboundConnectionDeduplicationTest {
+    private static final int SOCKET_CREATION_DELAY_MILLIS = 300;
+
+    private final AtomicInteger numCreatedSockets = new AtomicInteger();
+    private LocalhostNetworkNode node1;
+    private LocalhostNetworkNode node2;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        UserThread.setExecutor(Executors.newSingleThreadExecutor());
+        LocalhostNetworkNode.setSimulateTorDelayTorNode(0);
+        LocalhostNetworkNode.setSimulateTorDelayHiddenService(0);
+
+        // Simulates the circuit build of tor
+        node1 = new LocalhostNetworkNode(9101) {
+            @Override
+            protected Socket createSocket(NodeAddress peerNodeAddress) throws IOException {
+                numCreatedSockets.incrementAndGet();
+                try {
+                    Thread.sleep(SOCKET_CREATION_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.createSocket(peerNodeAddress);
+            }
+        };
+        node2 = new LocalhostNetworkNode(9102);
+
+        CountDownLatch startLatch = new CountDownLatch(2);
+        node1.start(new StartListener(startLatch));
+        node2.start(new StartListener(startLatch));
+        assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        CountDownLatch shutDownLatch = new CountDownLatch(2);
+        node1.shutDown(shutDownLatch::countDown);
+        node2.shutDown(shutDownLatch::countDown);
+        shutDownLatch.await(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testConcurrentSendsShareOneConnectionAttempt() throws InterruptedException {
+        int numMessages = 5;
+        CountDownLatch receivedLatch = new CountDownLatch(numMessages);
+        node2.addMessageListener((message, connection) -> {
+            if (message instanceof TestMessage)
+                receivedLatch.countDown();
+        });
+
+        NodeAddress peersNodeAddress = node2.getNodeAddress();
+        UserThread.execute(() -> {
+            node1.warmUpConnection(peersNodeAddress);
+            for (int i = 0; i < numMessages; i++)
+                node1.sendMessage(peersNodeAddress, new TestMessage(node1.getNodeAddress()));
+        });
+
+        assertTrue(receivedLatch.await(10, TimeUnit.SECONDS));
+        assertEquals(1, numCreatedSockets.get());
+        assertEquals(1, node1.getAllConnections().size());
+    }
+
+    @Test
+    public void testAttemptsAboveLimitAreQueued() throws InterruptedException {
+        int numPeers = NetworkNode.MAX_PENDING_CONNECTIONS + 2;
+        List<LocalhostNetworkNode> peers = new ArrayList<>();
+        CountDownLatch startLatch = new CountDownLatch(numPeers);
+        CountDownLatch receivedLatch = new CountDownLatch(numPeers);
+        for (int i = 0; i < numPeers; i++) {
+            LocalhostNetworkNode peer = new LocalhostNetworkNode(Utils.findFreeSystemPort());
+            peer.addMessageListener((message, connection) -> {
+                if (message instanceof TestMessage)
+                    receivedLatch.countDown();
+            });
+            peer.start(new StartListener(startLatch));
+            peers.add(peer);
+        }
+        assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+
+        try {
+            // No send must fail because of the number of connection attempts in progress
+            AtomicInteger numFailures = new AtomicInteger();
+            UserThread.execute(() -> peers.stream().forEach(peer ->
+                    Futures.addCallback(node1.sendMessage(peer.getNodeAddress(), new TestMessage(node1.getNodeAddress())),
+                            new FutureCallback<Connection>() {
+                                @Override
+                                public void onSuccess(Connection connection) {
+                                }
+
+                                @Override
+                                public void onFailure(@NotNull Throwable throwable) {
+                                    numFailures.incrementAndGet();
+                                }
+                            })));
+
+            assertTrue(receivedLatch.await(20, TimeUnit.SECONDS));
+            assertEquals(0, numFailures.get());
+            assertEquals(numPeers, numCreatedSockets.get());
+        } finally {
+            CountDownLatch shutDownLatch = new CountDownLatch(numPeers);
+            peers.stream().forEach(peer -> peer.shutDown(shutDownLatch::countDown));
+            shutDownLatch.await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static class StartListener implements SetupListener {
+        private final CountDownLatch startLatch;
+
+        StartListener(CountDownLatch startLatch) {
+            this.startLatch = startLatch;
+        }
+
+        @Override
+        public void onTorNodeReady() {
+        }
+
+        @Override
+        public void onHiddenServicePublished() {
+            startLatch.countDown();
+        }
+
+        @Override
+        public void onSetupFailed(Throwable throwable) {
+        }
+    }
+
+    private static final class TestMessage implements SendersNodeAddressMessage {
+        private static final long serialVersionUID = Version.P2P_NETWORK_VERSION;
+        private final int messageVersion = Version.getP2PMessageVersion();
+        private final NodeAddress senderNodeAddress;
+
+        private TestMessage(NodeAddress senderNodeAddress) {
+            this.senderNodeAddress = senderNodeAddress;
+        }
+
+        @Override
+        public NodeAddress getSenderNodeAddress() {
+            return senderNodeAddress;
+        }
+
+        @Override
+        public int getMessageVersion() {
+            return messageVersion;
+        }
+    }
+}
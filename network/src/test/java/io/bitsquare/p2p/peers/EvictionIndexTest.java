@@ -0,0 +1,70 @@
+package io.bitsquare.p2p.peers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class EvictionIndexTest {
+    // Same relations as in PeerManager with maxConnections = 10
+    private static final int[] LIMITS = {10, 14, 18, 28};
+
+    @Test
+    public void testOldestInboundPeersFirst() {
+        EvictionIndex<String> index = new EvictionIndex<>();
+        index.add("inbound3", EvictionIndex.INBOUND_PEER, 3);
+        index.add("inbound1", EvictionIndex.INBOUND_PEER, 1);
+        index.add("inbound2", EvictionIndex.INBOUND_PEER, 2);
+        index.add("outbound0", EvictionIndex.OUTBOUND_PEER, 0);
+
+        assertEquals(Arrays.asList("inbound1", "inbound2"), index.selectVictims(12, LIMITS));
+    }
+
+    @Test
+    public void testNextClassOnlyAboveItsLimit() {
+        EvictionIndex<String> index = new EvictionIndex<>();
+        index.add("inbound", EvictionIndex.INBOUND_PEER, 5);
+        index.add("outbound1", EvictionIndex.OUTBOUND_PEER, 1);
+        index.add("outbound2", EvictionIndex.OUTBOUND_PEER, 2);
+        index.add("seed", EvictionIndex.NON_DIRECT, 0);
+
+        // With 13 connections we only close the inbound peer as 12 is not above the limit for outbound peers
+        assertEquals(Collections.singletonList("inbound"), index.selectVictims(13, LIMITS));
+    }
+
+    @Test
+    public void testEscalation() {
+        EvictionIndex<String> index = new EvictionIndex<>();
+        index.add("inbound", EvictionIndex.INBOUND_PEER, 5);
+        index.add("outbound", EvictionIndex.OUTBOUND_PEER, 5);
+        index.add("seed1", EvictionIndex.NON_DIRECT, 1);
+        index.add("seed2", EvictionIndex.NON_DIRECT, 2);
+        index.add("direct", EvictionIndex.DIRECT, 0);
+
+        // 21 -> 20 -> 19 (peers gone) -> 18 (seed1), 18 is not above the non direct limit
+        assertEquals(Arrays.asList("inbound", "outbound", "seed1"), index.selectVictims(21, LIMITS));
+        // 25 is not above the absolute limit, so the direct connection stays
+        assertEquals(Arrays.asList("inbound", "outbound", "seed1", "seed2"), index.selectVictims(29, LIMITS));
+    }
+
+    @Test
+    public void testDirectConnectionsOnlyAboveAbsoluteLimit() {
+        EvictionIndex<String> index = new EvictionIndex<>();
+        index.add("direct3", EvictionIndex.DIRECT, 3);
+        index.add("direct1", EvictionIndex.DIRECT, 1);
+        index.add("direct2", EvictionIndex.DIRECT, 2);
+
+        assertEquals(Collections.emptyList(), index.selectVictims(28, LIMITS));
+        assertEquals(Arrays.asList("direct1", "direct2"), index.selectVictims(30, LIMITS));
+    }
+
+    @Test
+    public void testNothingToEvict() {
+        EvictionIndex<String> index = new EvictionIndex<>();
+        index.add("direct", EvictionIndex.DIRECT, 0);
+        assertEquals(Collections.emptyList(), index.selectVictims(12, LIMITS));
+        assertEquals(Collections.emptyList(), index.selectVictims(10, LIMITS));
+    }
+}
@@ -0,0 +1,66 @@
+package io.bitsquare.p2p.peers;
+
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.peers.peerexchange.Peer;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PeerAddressBookTest {
+
+    @Test
+    public void testAddAndRemove() {
+        PeerAddressBook addressBook = new PeerAddressBook();
+        Peer peer = new Peer(new NodeAddress("peer1.onion", 8000));
+        assertTrue(addressBook.add(peer));
+        // Same address, we keep the existing peer
+        assertFalse(addressBook.add(new Peer(new NodeAddress("peer1.onion", 8000))));
+        assertEquals(1, addressBook.size());
+        assertSame(peer, addressBook.get(new NodeAddress("peer1.onion", 8000)));
+
+        assertSame(peer, addressBook.remove(new NodeAddress("peer1.onion", 8000)));
+        assertNull(addressBook.remove(new NodeAddress("peer1.onion", 8000)));
+        assertTrue(addressBook.isEmpty());
+    }
+
+    @Test
+    public void testRemoveRandomIfExceeds() {
+        PeerAddressBook addressBook = new PeerAddressBook(new Random(1));
+        for (int i = 0; i < 1000; i++) {
+            addressBook.add(new Peer(new NodeAddress("peer" + i + ".onion", 8000)));
+        }
+
+        List<Peer> removedPeers = addressBook.removeRandomIfExceeds(600);
+        assertEquals(400, removedPeers.size());
+        assertEquals(600, addressBook.size());
+        assertEquals(600, new HashSet<>(addressBook.getAll()).size());
+        // The index stays consistent after moving the peers around
+        for (Peer peer : addressBook.getAll()) {
+            assertSame(peer, addressBook.get(peer.nodeAddress));
+        }
+        for (Peer peer : removedPeers) {
+            assertNull(addressBook.get(peer.nodeAddress));
+        }
+    }
+
+    @Test
+    public void testRemoveOlderThan() {
+        PeerAddressBook addressBook = new PeerAddressBook();
+        for (int i = 0; i < 10; i++) {
+            addressBook.add(new Peer(new NodeAddress("peer" + i + ".onion", 8000)));
+        }
+
+        long now = System.currentTimeMillis();
+        assertTrue(addressBook.removeOlderThan(now - TimeUnit.DAYS.toMillis(14)).isEmpty());
+        assertEquals(10, addressBook.size());
+
+        assertEquals(10, addressBook.removeOlderThan(now + TimeUnit.DAYS.toMillis(3)).size());
+        assertTrue(addressBook.isEmpty());
+        assertTrue(addressBook.toHashSet().isEmpty());
+    }
+}
@@ -19,12 +19,16 @@ package io.bitsquare.pricefeed;
 
 import ch.qos.logback.classic.Level;
 import io.bitsquare.app.Log;
+import io.bitsquare.common.util.Utilities;
 import io.bitsquare.http.HttpException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import spark.Request;
+import spark.Response;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
@@ -32,6 +36,7 @@ import java.security.spec.InvalidKeySpecException;
 
 import static spark.Spark.get;
 import static spark.Spark.port;
+import static spark.Spark.stop;
 
 public class PriceFeedMain {
     private static final Logger log = LoggerFactory.getLogger(PriceFeedMain.class);
@@ -44,13 +49,83 @@ public class PriceFeedMain {
             String bitcoinAveragePubKey = args[1];
 
             PriceRequestService priceRequestService = new PriceRequestService(bitcoinAveragePrivKey, bitcoinAveragePubKey);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                priceRequestService.shutDown();
+                stop();
+            }, "PriceFeedMain.ShutDownHook"));
             port(8080);
             get("/all", (req, res) -> {
                 log.info("Incoming request from: " + req.userAgent());
-                return priceRequestService.getJson();
+                return respond(req, res, priceRequestService.getSnapshot());
+            });
+            get("/status", (req, res) -> {
+                res.type("application/json; charset=utf-8");
+                return Utilities.objectToJson(priceRequestService.getStatus());
+            });
+            get("/delta/:epoch/:version", (req, res) -> {
+                log.info("Incoming delta request from: " + req.userAgent());
+                PriceSnapshot snapshot = priceRequestService.getSnapshot();
+                if (snapshot == null)
+                    return respond(req, res, null);
+
+                try {
+                    long epoch = Long.parseLong(req.params(":epoch"));
+                    long version = Long.parseLong(req.params(":version"));
+                    return respond(req, res, snapshot.getDeltaSince(epoch, version));
+                } catch (NumberFormatException e) {
+                    res.status(400);
+                    return "Invalid epoch or version";
+                }
+            });
+            get("/price/:code", (req, res) -> {
+                log.info("Incoming request for " + req.params(":code") + " from: " + req.userAgent());
+                PriceSnapshot snapshot = priceRequestService.getSnapshot();
+                if (snapshot == null)
+                    return respond(req, res, null);
+
+                PriceSnapshot currencySnapshot = snapshot.getSnapshotForCurrency(req.params(":code").toUpperCase());
+                if (currencySnapshot == null) {
+                    res.status(404);
+                    return "No price available for " + req.params(":code");
+                }
+                return respond(req, res, currencySnapshot);
             });
         } else {
             throw new IllegalArgumentException("You need to provide the BitcoinAverage API keys. Private key as first argument, public key as second argument.");
         }
     }
+
+    private static Object respond(Request req, Response res, PriceSnapshot snapshot) throws IOException {
+        if (snapshot == null) {
+            res.status(503);
+            return "Price data not available yet";
+        }
+
+        // The ETag must be the one of the representation we would send, also at a 304 response
+        boolean gzip = PriceSnapshot.acceptsGzip(req.headers("Accept-Encoding"));
+        res.header("ETag", gzip ? snapshot.getGzippedETag() : snapshot.getETag());
+        res.header("Vary", "Accept-Encoding");
+        res.header("Cache-Control", "no-cache");
+        if (snapshot.matches(req.headers("If-None-Match"))) {
+            res.status(304);
+            return "";
+        }
+
+        res.type("application/json; charset=utf-8");
+        byte[] body;
+        if (gzip) {
+            res.header("Content-Encoding", "gzip");
+            body = snapshot.getGzippedJson();
+        } else {
+            body = snapshot.getJson();
+        }
+
+        // We write the pre-serialized bytes directly, as Spark would compress the response again if the
+        // Content-Encoding header is set. Once the response is committed Spark does not write a body anymore.
+        res.raw().setContentLength(body.length);
+        OutputStream outputStream = res.raw().getOutputStream();
+        outputStream.write(body);
+        outputStream.flush();
+        return "";
+    }
 }
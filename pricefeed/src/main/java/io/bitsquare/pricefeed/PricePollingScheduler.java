@@ -0,0 +1,282 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.pricefeed;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import io.bitsquare.common.util.Utilities;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Polls all price sources concurrently and publishes a new {@link PriceSnapshot} after each successful request.
+ * <p>
+ * Each request runs on a shared request executor and is bounded by the timeout of its source. A failed or timed
+ * out source is retried with exponential backoff, starting at its polling interval, without affecting the other
+ * sources. Optionally a second request
+ * is sent if the first one is slow (hedging). The prices of all sources are merged under a lock, using the price of
+ * the source with the highest priority which is not stale.
+ */
+class PricePollingScheduler {
+    private static final Logger log = LoggerFactory.getLogger(PricePollingScheduler.class);
+
+    private static final long INITIAL_RETRY_DELAY_MS = 5_000;
+    private static final long MAX_RETRY_DELAY_MS = 600_000;
+
+    private final List<PriceSource> sources;
+    private final Consumer<PriceSnapshot> snapshotHandler;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ListeningExecutorService requestExecutor;
+    private final Map<String, CurrencyStatus> currencyStatusMap = new HashMap<>();
+    // Identifies the version sequence of the published snapshots
+    private final long epoch = System.currentTimeMillis();
+    private volatile PriceSnapshot snapshot;
+    private volatile boolean stopped;
+
+    static final class CurrencyStatus {
+        final String source;
+        final long ts;
+        final boolean stale;
+
+        CurrencyStatus(String source, long ts, boolean stale) {
+            this.source = source;
+            this.ts = ts;
+            this.stale = stale;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    PricePollingScheduler(List<PriceSource> sources, Consumer<PriceSnapshot> snapshotHandler) {
+        // Higher priority first, so the merge can take the first source which has a price
+        this.sources = sources.stream()
+                .sorted(Comparator.comparingInt((PriceSource s) -> s.priority).reversed())
+                .collect(Collectors.toList());
+        this.snapshotHandler = snapshotHandler;
+
+        scheduler = Utilities.getScheduledThreadPoolExecutor("PricePollingScheduler", 1, 1, 60);
+        // A hedged or timed out request might still block a thread till the socket timeout is reached. Core and max
+        // pool size are the same as otherwise new requests get queued while all core threads are busy.
+        int poolSize = 4 * sources.size();
+        requestExecutor = Utilities.getListeningExecutorService("PriceRequest-%d", poolSize, poolSize, 60);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void start() {
+        sources.stream().forEach(source -> scheduler.execute(() -> poll(source)));
+    }
+
+    void shutDown() {
+        stopped = true;
+        scheduler.shutdownNow();
+        requestExecutor.shutdownNow();
+    }
+
+    // Null until the first source has delivered
+    PriceSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    synchronized Map<String, Object> getStatus() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> map = new HashMap<>();
+        map.put("sources", sources.stream().map(source -> source.getStatus(now)).collect(Collectors.toList()));
+        map.put("currencies", new TreeMap<>(currencyStatusMap));
+        return map;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void poll(PriceSource source) {
+        if (stopped)
+            return;
+
+        long startTime = System.currentTimeMillis();
+        SettableFuture<Map<String, PriceData>> resultFuture = SettableFuture.create();
+        List<Future<?>> requestFutures = new CopyOnWriteArrayList<>();
+        synchronized (this) {
+            source.onRequestStarted();
+        }
+        requestFutures.add(submitRequest(source, resultFuture));
+
+        if (source.hedgeDelayMs > 0 && source.hedgeDelayMs < source.timeoutMs) {
+            scheduler.schedule(() -> {
+                if (!resultFuture.isDone()) {
+                    log.debug("Request to {} did not complete after {} ms. We send a hedged request.",
+                            source.name, source.hedgeDelayMs);
+                    synchronized (this) {
+                        source.onHedgedRequestStarted();
+                    }
+                    requestFutures.add(submitRequest(source, resultFuture));
+                }
+            }, source.hedgeDelayMs, TimeUnit.MILLISECONDS);
+        }
+
+        ScheduledFuture<?> timeoutFuture = scheduler.schedule(() ->
+                        resultFuture.setException(new TimeoutException("Request timed out after " + source.timeoutMs + " ms")),
+                source.timeoutMs, TimeUnit.MILLISECONDS);
+
+        Futures.addCallback(resultFuture, new FutureCallback<Map<String, PriceData>>() {
+            @Override
+            public void onSuccess(Map<String, PriceData> priceDataByCurrency) {
+                timeoutFuture.cancel(false);
+                cancelRequests(requestFutures);
+                long duration = System.currentTimeMillis() - startTime;
+                log.info("{} delivered {} prices in {} ms", source.name, priceDataByCurrency.size(), duration);
+                synchronized (PricePollingScheduler.this) {
+                    source.onRequestSucceeded(priceDataByCurrency, duration);
+                    publish();
+                }
+                schedule(source, source.intervalMs);
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                timeoutFuture.cancel(false);
+                cancelRequests(requestFutures);
+                long duration = System.currentTimeMillis() - startTime;
+                long delay;
+                synchronized (PricePollingScheduler.this) {
+                    source.onRequestFailed(throwable.toString(), duration);
+                    delay = getRetryDelay(source);
+                }
+                log.warn("Request to {} failed after {} ms. We retry in {} sec. Error: {}",
+                        source.name, duration, delay / 1000, throwable.toString());
+                schedule(source, delay);
+            }
+        });
+    }
+
+    // The callbacks usually run on the thread of the request which completed, so we must not interrupt the
+    // running requests. We only cancel requests which have not started yet, the running ones end at their socket
+    // timeout and their result is ignored.
+    private void cancelRequests(List<Future<?>> requestFutures) {
+        requestFutures.forEach(future -> future.cancel(false));
+    }
+
+    private Future<?> submitRequest(PriceSource source, SettableFuture<Map<String, PriceData>> resultFuture) {
+        return requestExecutor.submit(() -> {
+            try {
+                Map<String, PriceData> result = source.request.request();
+                if (result != null)
+                    resultFuture.set(result);
+                else
+                    resultFuture.setException(new IllegalStateException("Request returned null"));
+            } catch (Throwable t) {
+                // Ignored if the result was already set by another request or the timeout
+                resultFuture.setException(t);
+            }
+        });
+    }
+
+    private void schedule(PriceSource source, long delayMs) {
+        if (!stopped) {
+            try {
+                scheduler.schedule(() -> poll(source), delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("Scheduler was shut down");
+            }
+        }
+    }
+
+    // Never below the polling interval, so a failing source is not requested more often than a healthy one
+    static long getRetryDelay(PriceSource source) {
+        int exponent = Math.min(source.getConsecutiveFailures() - 1, 16);
+        return Math.max(source.intervalMs, Math.min(INITIAL_RETRY_DELAY_MS << exponent, MAX_RETRY_DELAY_MS));
+    }
+
+    // Needs to be called while holding the lock
+    private void publish() {
+        long now = System.currentTimeMillis();
+        Map<String, PriceData> priceDataByCurrency = new HashMap<>();
+        currencyStatusMap.clear();
+
+        // Fresh prices by priority
+        sources.stream()
+                .filter(source -> !source.isStale(now))
+                .forEach(source -> source.getPriceDataByCurrency().entrySet().stream()
+                        .filter(e -> !priceDataByCurrency.containsKey(e.getKey()))
+                        .forEach(e -> {
+                            priceDataByCurrency.put(e.getKey(), e.getValue());
+                            currencyStatusMap.put(e.getKey(), new CurrencyStatus(source.name,
+                                    source.getLastSuccessTs() / 1000, false));
+                        }));
+
+        // We keep stale prices if we don't have a fresh one, using the most recent
+        sources.stream()
+                .filter(source -> source.isStale(now))
+                .sorted(Comparator.comparingLong(PriceSource::getLastSuccessTs).reversed())
+                .forEach(source -> source.getPriceDataByCurrency().entrySet().stream()
+                        .filter(e -> !priceDataByCurrency.containsKey(e.getKey()))
+                        .forEach(e -> {
+                            priceDataByCurrency.put(e.getKey(), e.getValue());
+                            currencyStatusMap.put(e.getKey(), new CurrencyStatus(source.name,
+                                    source.getLastSuccessTs() / 1000, true));
+                        }));
+
+        // The version is only incremented if a price has changed, a new timestamp alone does not create a new version
+        PriceSnapshot previous = snapshot;
+        long version = previous != null ? previous.getVersion() : 0;
+        Map<String, PriceData> previousPriceDataByCurrency = previous != null ?
+                previous.getPriceDataByCurrency() : Collections.emptyMap();
+        List<String> changedCurrencies = priceDataByCurrency.entrySet().stream()
+                .filter(e -> !e.getValue().equals(previousPriceDataByCurrency.get(e.getKey())))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (!changedCurrencies.isEmpty() || previous == null)
+            version++;
+
+        Map<String, Long> versionByCurrency = new HashMap<>();
+        if (previous != null)
+            versionByCurrency.putAll(previous.getVersionByCurrency());
+        versionByCurrency.keySet().retainAll(priceDataByCurrency.keySet());
+        for (String currencyCode : changedCurrencies)
+            versionByCurrency.put(currencyCode, version);
+
+        snapshot = new PriceSnapshot(epoch, version, versionByCurrency, getTimeStamp("btcAverageTs"),
+                getTimeStamp("poloniexTs"), getTimeStamp("coinmarketcapTs"), priceDataByCurrency);
+        snapshotHandler.accept(snapshot);
+    }
+
+    // Epoch seconds of the last successful request of the sources using that key
+    private long getTimeStamp(String timeStampKey) {
+        return sources.stream()
+                .filter(source -> source.timeStampKey.equals(timeStampKey))
+                .mapToLong(PriceSource::getLastSuccessTs)
+                .max()
+                .orElse(0) / 1000;
+    }
+}
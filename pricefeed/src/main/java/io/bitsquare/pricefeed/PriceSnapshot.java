@@ -0,0 +1,252 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.pricefeed;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import io.bitsquare.common.util.Utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable snapshot of the price data as served to the clients. The JSON document is serialized once when the
+ * snapshot is created and kept as UTF-8 bytes, together with a gzip compressed variant and an entity tag derived
+ * from the content hash. The gzip compressed variant is another representation of the same content, so it has its
+ * own entity tag with a "-gz" suffix.
+ * <p>
+ * The data array is sorted by currency code, so the same prices always result in the same bytes and entity tag.
+ * Subsets for a single currency use the same document format and are created on the first request.
+ * <p>
+ * Each snapshot has a version which is incremented if any price has changed, and we keep the version at which each
+ * currency has changed last. Clients which already have the data of an older version can request a delta containing
+ * only the currencies changed since that version. The epoch identifies the version sequence, it changes if the
+ * server gets restarted.
+ */
+final class PriceSnapshot {
+    // Clients poll with the version of their last response, so usually only the latest few versions are requested
+    private static final int MAX_CACHED_DELTAS = 16;
+
+    private final long epoch;
+    private final long version;
+    private final Map<String, Long> versionByCurrency;
+    private final long btcAverageTs;
+    private final long poloniexTs;
+    private final long coinmarketcapTs;
+    private final Map<String, PriceData> priceDataByCurrency;
+
+    private final byte[] json;
+    private final byte[] gzippedJson;
+    private final String eTag;
+    private final String gzippedETag;
+
+    private final Map<String, PriceSnapshot> snapshotByCurrency = new ConcurrentHashMap<>();
+    // Least recently used deltas are removed, as each one holds its own JSON, gzip and hash
+    private final Map<Long, PriceSnapshot> deltaByVersion = Collections.synchronizedMap(
+            new LinkedHashMap<Long, PriceSnapshot>(MAX_CACHED_DELTAS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, PriceSnapshot> eldest) {
+                    return size() > MAX_CACHED_DELTAS;
+                }
+            });
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    PriceSnapshot(long epoch, long version, Map<String, Long> versionByCurrency, long btcAverageTs, long poloniexTs,
+                  long coinmarketcapTs, Map<String, PriceData> priceDataByCurrency) {
+        this(epoch, version, versionByCurrency, btcAverageTs, poloniexTs, coinmarketcapTs, priceDataByCurrency, true);
+    }
+
+    private PriceSnapshot(long epoch, long version, Map<String, Long> versionByCurrency, long btcAverageTs,
+                          long poloniexTs, long coinmarketcapTs, Map<String, PriceData> priceDataByCurrency,
+                          boolean full) {
+        this.epoch = epoch;
+        this.version = version;
+        this.versionByCurrency = Collections.unmodifiableMap(new HashMap<>(versionByCurrency));
+        this.btcAverageTs = btcAverageTs;
+        this.poloniexTs = poloniexTs;
+        this.coinmarketcapTs = coinmarketcapTs;
+        this.priceDataByCurrency = Collections.unmodifiableMap(new TreeMap<>(priceDataByCurrency));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("btcAverageTs", btcAverageTs);
+        map.put("poloniexTs", poloniexTs);
+        map.put("coinmarketcapTs", coinmarketcapTs);
+        map.put("epoch", epoch);
+        map.put("version", version);
+        // Only set at deltas, so clients can tell them apart from a full document
+        if (!full)
+            map.put("full", false);
+        map.put("data", this.priceDataByCurrency.values().toArray());
+        json = Utilities.objectToJson(map).getBytes(Charsets.UTF_8);
+        gzippedJson = gzip(json);
+        String hash = Hashing.sha256().hashBytes(json).toString();
+        eTag = "\"" + hash + "\"";
+        gzippedETag = "\"" + hash + "-gz\"";
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return The snapshot containing only the price data of the given currency or null if we don't have a price
+     * for that currency.
+     */
+    PriceSnapshot getSnapshotForCurrency(String currencyCode) {
+        PriceData priceData = priceDataByCurrency.get(currencyCode);
+        if (priceData == null)
+            return null;
+
+        return snapshotByCurrency.computeIfAbsent(currencyCode, code -> new PriceSnapshot(epoch, version,
+                Collections.singletonMap(code, versionByCurrency.getOrDefault(code, version)), btcAverageTs,
+                poloniexTs, coinmarketcapTs, Collections.singletonMap(code, priceData)));
+    }
+
+    /**
+     * @return The delta with the prices which have changed after the given version. If the client's version is
+     * from another epoch or unknown we return the full snapshot. Only the most recently requested deltas are cached.
+     */
+    PriceSnapshot getDeltaSince(long epoch, long version) {
+        if (epoch != this.epoch || version > this.version || version < 0)
+            return this;
+
+        return deltaByVersion.computeIfAbsent(version, v -> {
+            Map<String, PriceData> changed = new HashMap<>();
+            Map<String, Long> changedVersions = new HashMap<>();
+            versionByCurrency.entrySet().stream()
+                    .filter(e -> e.getValue() > v && priceDataByCurrency.containsKey(e.getKey()))
+                    .forEach(e -> {
+                        changed.put(e.getKey(), priceDataByCurrency.get(e.getKey()));
+                        changedVersions.put(e.getKey(), e.getValue());
+                    });
+            return new PriceSnapshot(this.epoch, this.version, changedVersions, btcAverageTs, poloniexTs,
+                    coinmarketcapTs, changed, false);
+        });
+    }
+
+    /**
+     * @param ifNoneMatch Value of the If-None-Match request header, may be null
+     * @return True if the client already has the content of that snapshot, in any of the encodings.
+     */
+    boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null)
+            return false;
+
+        String value = ifNoneMatch.trim();
+        if (value.equals("*"))
+            return true;
+
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals(eTag) || tag.equals(gzippedETag));
+    }
+
+    /**
+     * @param acceptEncoding Value of the Accept-Encoding request header, may be null
+     * @return True if the client accepts a gzip compressed response. A coding with a quality value of 0 is not
+     * acceptable, gzip is also accepted by a wildcard unless gzip is listed explicitly.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+
+            if (coding.equals("gzip") || coding.equals("x-gzip"))
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            else if (coding.equals("*"))
+                wildcardQuality = quality;
+        }
+
+        if (gzipQuality != null)
+            return gzipQuality > 0;
+        return wildcardQuality != null && wildcardQuality > 0;
+    }
+
+    Map<String, PriceData> getPriceDataByCurrency() {
+        return priceDataByCurrency;
+    }
+
+    Map<String, Long> getVersionByCurrency() {
+        return versionByCurrency;
+    }
+
+    long getEpoch() {
+        return epoch;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    byte[] getJson() {
+        return json;
+    }
+
+    byte[] getGzippedJson() {
+        return gzippedJson;
+    }
+
+    String getETag() {
+        return eTag;
+    }
+
+    String getGzippedETag() {
+        return gzippedETag;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            gzipOutputStream.write(data);
+        } catch (IOException e) {
+            // Cannot happen with a ByteArrayOutputStream
+            throw new RuntimeException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+}
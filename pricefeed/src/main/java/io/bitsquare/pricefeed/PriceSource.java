@@ -0,0 +1,157 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.pricefeed;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A provider endpoint polled by the {@link PricePollingScheduler} together with its polling parameters and the
+ * health data of the last requests. The mutable state is only accessed by the scheduler while holding its lock.
+ */
+final class PriceSource {
+    private static final long DEFAULT_TIMEOUT_MS = 30_000;
+    // Prices of a source are considered stale if the source did not deliver for that many polling intervals
+    private static final int STALE_AFTER_INTERVALS = 3;
+
+    interface Request {
+        Map<String, PriceData> request() throws Exception;
+    }
+
+    final String name;
+    // Key of the timestamp field in the published JSON document
+    final String timeStampKey;
+    // If several sources deliver a price for the same currency the one with the highest priority is used
+    final int priority;
+    final long intervalMs;
+    final long timeoutMs;
+    // If > 0 we send a second request if the first one did not complete within that time and use the first result
+    final long hedgeDelayMs;
+    final long staleAfterMs;
+    final Request request;
+
+    private Map<String, PriceData> priceDataByCurrency = Collections.emptyMap();
+    private final Map<String, Long> updateTsByCurrency = new HashMap<>();
+    private long lastSuccessTs;
+    private long lastFailureTs;
+    private long lastDurationMs;
+    private int consecutiveFailures;
+    private String lastError;
+    private long numRequests;
+    private long numFailures;
+    private long numHedgedRequests;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    PriceSource(String name, String timeStampKey, int priority, long intervalMs, Request request) {
+        this(name, timeStampKey, priority, intervalMs, DEFAULT_TIMEOUT_MS, 0, request);
+    }
+
+    PriceSource(String name, String timeStampKey, int priority, long intervalMs, long timeoutMs, long hedgeDelayMs,
+                Request request) {
+        this.name = name;
+        this.timeStampKey = timeStampKey;
+        this.priority = priority;
+        this.intervalMs = intervalMs;
+        this.timeoutMs = timeoutMs;
+        this.hedgeDelayMs = hedgeDelayMs;
+        this.staleAfterMs = STALE_AFTER_INTERVALS * intervalMs;
+        this.request = request;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope, called by PricePollingScheduler
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void onRequestStarted() {
+        numRequests++;
+    }
+
+    void onHedgedRequestStarted() {
+        numHedgedRequests++;
+    }
+
+    // A currency missing in a response keeps its previous price until it is stale, as providers sometimes skip a
+    // currency in a single response
+    void onRequestSucceeded(Map<String, PriceData> priceDataByCurrency, long durationMs) {
+        lastSuccessTs = System.currentTimeMillis();
+        priceDataByCurrency.keySet().stream().forEach(currencyCode -> updateTsByCurrency.put(currencyCode, lastSuccessTs));
+        updateTsByCurrency.values().removeIf(updateTs -> lastSuccessTs - updateTs > staleAfterMs);
+
+        Map<String, PriceData> merged = new HashMap<>(this.priceDataByCurrency);
+        merged.putAll(priceDataByCurrency);
+        merged.keySet().retainAll(updateTsByCurrency.keySet());
+        this.priceDataByCurrency = Collections.unmodifiableMap(merged);
+        lastDurationMs = durationMs;
+        consecutiveFailures = 0;
+    }
+
+    void onRequestFailed(String error, long durationMs) {
+        lastFailureTs = System.currentTimeMillis();
+        lastDurationMs = durationMs;
+        lastError = error;
+        consecutiveFailures++;
+        numFailures++;
+    }
+
+    boolean isStale(long now) {
+        return lastSuccessTs == 0 || now - lastSuccessTs > staleAfterMs;
+    }
+
+    Map<String, PriceData> getPriceDataByCurrency() {
+        return priceDataByCurrency;
+    }
+
+    long getLastSuccessTs() {
+        return lastSuccessTs;
+    }
+
+    int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    Map<String, Object> getStatus(long now) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", name);
+        map.put("lastSuccessTs", lastSuccessTs / 1000);
+        map.put("lastFailureTs", lastFailureTs / 1000);
+        map.put("lastDurationMs", lastDurationMs);
+        map.put("lastError", lastError);
+        map.put("consecutiveFailures", consecutiveFailures);
+        map.put("numRequests", numRequests);
+        map.put("numFailures", numFailures);
+        map.put("numHedgedRequests", numHedgedRequests);
+        map.put("numPrices", priceDataByCurrency.size());
+        map.put("stale", isStale(now));
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceSource{" +
+                "name='" + name + '\'' +
+                ", intervalMs=" + intervalMs +
+                ", consecutiveFailures=" + consecutiveFailures +
+                '}';
+    }
+}
@@ -17,8 +17,8 @@
 
 package io.bitsquare.pricefeed.providers;
 
-import com.google.gson.Gson;
-import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import io.bitsquare.http.HttpClient;
 import io.bitsquare.http.HttpException;
 import io.bitsquare.pricefeed.PriceData;
@@ -30,6 +30,7 @@ import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
+import java.io.StringReader;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
@@ -64,19 +65,46 @@ public class BtcAverageProvider {
         return getMap(httpClient.requestWithGETNoProxy("indices/global/ticker/all?crypto=BTC", "X-signature", getHeader()));
     }
 
-    private Map<String, PriceData> getMap(String json) {
+    // We read the tokens of the response and only the fields we need. Each ticker contains nested objects (averages,
+    // changes,...) which we skip without building a tree for them.
+    Map<String, PriceData> getMap(String json) throws IOException {
         Map<String, PriceData> marketPriceMap = new HashMap<>();
-        LinkedTreeMap<String, Object> treeMap = new Gson().<LinkedTreeMap<String, Object>>fromJson(json, LinkedTreeMap.class);
-        treeMap.entrySet().stream().forEach(e -> {
-            Object value = e.getValue();
-            // We need to check the type as we get an unexpected "timestamp" object at the end: 
-            if (value instanceof LinkedTreeMap) {
-                LinkedTreeMap<String, Object> data = (LinkedTreeMap) value;
-                String currencyCode = e.getKey().substring(3);
-                marketPriceMap.put(currencyCode,
-                        new PriceData(currencyCode, (double) data.get("ask"), (double) data.get("bid"), (double) data.get("last")));
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                // We need to check the type as we get an unexpected "timestamp" value at the end:
+                if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    String currencyCode = name.substring(3);
+                    marketPriceMap.put(currencyCode, readPriceData(reader, currencyCode));
+                } else {
+                    reader.skipValue();
+                }
             }
-        });
+            reader.endObject();
+        }
         return marketPriceMap;
     }
+
+    private PriceData readPriceData(JsonReader reader, String currencyCode) throws IOException {
+        double ask = 0, bid = 0, last = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "ask":
+                    ask = reader.nextDouble();
+                    break;
+                case "bid":
+                    bid = reader.nextDouble();
+                    break;
+                case "last":
+                    last = reader.nextDouble();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new PriceData(currencyCode, ask, bid, last);
+    }
 }
@@ -1,7 +1,7 @@
 package io.bitsquare.pricefeed.providers;
 
-import com.google.gson.Gson;
-import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import io.bitsquare.http.HttpClient;
 import io.bitsquare.http.HttpException;
 import io.bitsquare.locale.CurrencyUtil;
@@ -11,11 +11,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static java.lang.Double.parseDouble;
-
 public class CoinmarketcapProvider {
     private static final Logger log = LoggerFactory.getLogger(CoinmarketcapProvider.class);
     private final Set<String> supportedAltcoins;
@@ -30,16 +29,37 @@ public class CoinmarketcapProvider {
     }
 
     public Map<String, PriceData> request() throws IOException, HttpException {
+        return parse(httpClient.requestWithGET("v1/ticker/?limit=200", "User-Agent", ""));
+    }
+
+    // We read only the symbol and the BTC price of each ticker entry instead of building a tree of the whole response
+    Map<String, PriceData> parse(String json) throws IOException {
         Map<String, PriceData> marketPriceMap = new HashMap<>();
-        String response = httpClient.requestWithGET("v1/ticker/?limit=200", "User-Agent", "");
-        List<LinkedTreeMap<String, Object>> list = new Gson().fromJson(response, ArrayList.class);
-        list.stream().forEach(treeMap -> {
-            String code = (String) treeMap.get("symbol");
-            if (supportedAltcoins.contains(code)) {
-                double price_btc = parseDouble((String) treeMap.get("price_btc"));
-                marketPriceMap.put(code, new PriceData(code, price_btc, price_btc, price_btc));
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String code = null;
+                double price_btc = Double.NaN;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else if (name.equals("symbol")) {
+                        code = reader.nextString();
+                    } else if (name.equals("price_btc")) {
+                        price_btc = reader.nextDouble();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+
+                if (code != null && supportedAltcoins.contains(code) && !Double.isNaN(price_btc))
+                    marketPriceMap.put(code, new PriceData(code, price_btc, price_btc, price_btc));
             }
-        });
+            reader.endArray();
+        }
         return marketPriceMap;
     }
 }
@@ -1,7 +1,7 @@
 package io.bitsquare.pricefeed.providers;
 
-import com.google.gson.Gson;
-import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import io.bitsquare.http.HttpClient;
 import io.bitsquare.http.HttpException;
 import io.bitsquare.locale.CurrencyUtil;
@@ -11,13 +11,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import static java.lang.Double.parseDouble;
-
 public class PoloniexProvider {
     private static final Logger log = LoggerFactory.getLogger(PoloniexProvider.class);
 
@@ -33,29 +32,58 @@ public class PoloniexProvider {
     }
 
     public Map<String, PriceData> request() throws IOException, HttpException {
+        return parse(httpClient.requestWithGET("?command=returnTicker", "User-Agent", ""));
+    }
+
+    // We read the tokens of the response and only the fields we need instead of building a tree of the whole
+    // response, which contains all markets and many fields we don't use.
+    Map<String, PriceData> parse(String json) throws IOException {
         Map<String, PriceData> marketPriceMap = new HashMap<>();
-        String response = httpClient.requestWithGET("?command=returnTicker", "User-Agent", "");
-        LinkedTreeMap<String, Object> treeMap = new Gson().fromJson(response, LinkedTreeMap.class);
-        treeMap.entrySet().stream().forEach(e -> {
-            Object value = e.getValue();
-            String invertedCurrencyPair = e.getKey();
-            String altcoinCurrency = null;
-            if (invertedCurrencyPair.startsWith("BTC")) {
-                String[] tokens = invertedCurrencyPair.split("_");
-                if (tokens.length == 2) {
-                    altcoinCurrency = tokens[1];
-                    if (supportedAltcoins.contains(altcoinCurrency)) {
-                        if (value instanceof LinkedTreeMap) {
-                            LinkedTreeMap<String, Object> data = (LinkedTreeMap) value;
-                            marketPriceMap.put(altcoinCurrency,
-                                    new PriceData(altcoinCurrency, parseDouble((String) data.get("lowestAsk")), parseDouble((String) data.get("highestBid")), parseDouble((String) data.get("last"))));
-                        }
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String invertedCurrencyPair = reader.nextName();
+                String altcoinCurrency = null;
+                if (invertedCurrencyPair.startsWith("BTC")) {
+                    String[] tokens = invertedCurrencyPair.split("_");
+                    if (tokens.length == 2) {
+                        if (supportedAltcoins.contains(tokens[1]))
+                            altcoinCurrency = tokens[1];
+                    } else {
+                        log.error("invertedCurrencyPair has invalid format: invertedCurrencyPair=" + invertedCurrencyPair);
                     }
-                } else {
-                    log.error("invertedCurrencyPair has invalid format: invertedCurrencyPair=" + invertedCurrencyPair);
                 }
+
+                if (altcoinCurrency != null && reader.peek() == JsonToken.BEGIN_OBJECT)
+                    marketPriceMap.put(altcoinCurrency, readPriceData(reader, altcoinCurrency));
+                else
+                    reader.skipValue();
             }
-        });
+            reader.endObject();
+        }
         return marketPriceMap;
     }
+
+    // The values are delivered as strings, nextDouble parses them
+    private PriceData readPriceData(JsonReader reader, String currencyCode) throws IOException {
+        double ask = 0, bid = 0, last = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "lowestAsk":
+                    ask = reader.nextDouble();
+                    break;
+                case "highestBid":
+                    bid = reader.nextDouble();
+                    break;
+                case "last":
+                    last = reader.nextDouble();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new PriceData(currencyCode, ask, bid, last);
+    }
 }
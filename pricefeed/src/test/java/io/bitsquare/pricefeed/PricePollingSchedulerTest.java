@@ -0,0 +1,187 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.pricefeed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PricePollingSchedulerTest {
+    private static final long INTERVAL_MS = 60_000;
+    private static final long MAX_WAIT_MS = 2_000;
+
+    private PricePollingScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        if (scheduler != null)
+            scheduler.shutDown();
+    }
+
+    @Test
+    public void testFailingAndSlowSourcesDoNotBlockOthers() throws InterruptedException {
+        scheduler = new PricePollingScheduler(Arrays.asList(
+                new PriceSource("failing", "btcAverageTs", 3, INTERVAL_MS, () -> {
+                    throw new RuntimeException("Provider not available");
+                }),
+                new PriceSource("slow", "poloniexTs", 2, INTERVAL_MS, 100, 0, () -> {
+                    Thread.sleep(10_000);
+                    return prices("EUR", 1);
+                }),
+                new PriceSource("fast", "coinmarketcapTs", 1, INTERVAL_MS, () -> prices("USD", 2))),
+                snapshot -> {
+                });
+        scheduler.start();
+
+        PriceSnapshot snapshot = awaitSnapshot(s -> s.getPriceDataByCurrency().containsKey("USD"));
+        assertEquals(2, snapshot.getPriceDataByCurrency().get("USD").l, 0);
+
+        awaitStatus("failing", "consecutiveFailures", 1);
+        awaitStatus("slow", "consecutiveFailures", 1);
+    }
+
+    @Test
+    public void testPriorityMerge() throws InterruptedException {
+        scheduler = new PricePollingScheduler(Arrays.asList(
+                new PriceSource("low", "coinmarketcapTs", 1, INTERVAL_MS, () -> prices("EUR", 1, "USD", 1)),
+                new PriceSource("high", "poloniexTs", 2, INTERVAL_MS, () -> prices("EUR", 2))),
+                snapshot -> {
+                });
+        scheduler.start();
+
+        PriceSnapshot snapshot = awaitSnapshot(s -> s.getPriceDataByCurrency().size() == 2 &&
+                s.getPriceDataByCurrency().get("EUR").l == 2);
+        assertEquals(1, snapshot.getPriceDataByCurrency().get("USD").l, 0);
+    }
+
+    @Test
+    public void testCompletedRequestIsNotInterrupted() throws InterruptedException {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch published = new CountDownLatch(1);
+        scheduler = new PricePollingScheduler(Collections.singletonList(
+                new PriceSource("source", "poloniexTs", 1, INTERVAL_MS, () -> {
+                    // The request must still run when its future has been added
+                    Thread.sleep(50);
+                    return prices("EUR", 1);
+                })),
+                // Published on the thread of the request
+                snapshot -> {
+                    interrupted.set(Thread.currentThread().isInterrupted());
+                    published.countDown();
+                });
+        scheduler.start();
+
+        assertTrue(published.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    public void testHedgedRequest() throws InterruptedException {
+        AtomicInteger numRequests = new AtomicInteger();
+        scheduler = new PricePollingScheduler(Collections.singletonList(
+                new PriceSource("hedged", "poloniexTs", 1, INTERVAL_MS, 1_000, 50, () -> {
+                    // The first request hangs, the hedged one returns immediately
+                    if (numRequests.incrementAndGet() == 1)
+                        Thread.sleep(10_000);
+                    return prices("EUR", 1);
+                })),
+                snapshot -> {
+                });
+        long startTime = System.currentTimeMillis();
+        scheduler.start();
+
+        awaitSnapshot(s -> s.getPriceDataByCurrency().containsKey("EUR"));
+        assertTrue(System.currentTimeMillis() - startTime < 1_000);
+        awaitStatus("hedged", "numHedgedRequests", 1);
+        awaitStatus("hedged", "consecutiveFailures", 0);
+    }
+
+    @Test
+    public void testRetryDelayIsNotBelowInterval() {
+        PriceSource source = new PriceSource("failing", "poloniexTs", 1, INTERVAL_MS, () -> null);
+        source.onRequestFailed("error", 0);
+        assertEquals(INTERVAL_MS, PricePollingScheduler.getRetryDelay(source));
+
+        for (int i = 0; i < 10; i++)
+            source.onRequestFailed("error", 0);
+        assertEquals(600_000, PricePollingScheduler.getRetryDelay(source));
+
+        PriceSource slowSource = new PriceSource("slow", "poloniexTs", 1, 900_000, () -> null);
+        slowSource.onRequestFailed("error", 0);
+        assertEquals(900_000, PricePollingScheduler.getRetryDelay(slowSource));
+    }
+
+    @Test
+    public void testMissingCurrencyKeepsPreviousPrice() {
+        PriceSource source = new PriceSource("source", "poloniexTs", 1, INTERVAL_MS, () -> null);
+        source.onRequestSucceeded(prices("EUR", 1, "USD", 1), 0);
+        source.onRequestSucceeded(prices("EUR", 2), 0);
+
+        assertEquals(2, source.getPriceDataByCurrency().get("EUR").l, 0);
+        assertEquals(1, source.getPriceDataByCurrency().get("USD").l, 0);
+    }
+
+    private PriceSnapshot awaitSnapshot(Predicate<PriceSnapshot> predicate) throws InterruptedException {
+        long endTime = System.currentTimeMillis() + MAX_WAIT_MS;
+        while (System.currentTimeMillis() < endTime) {
+            PriceSnapshot snapshot = scheduler.getSnapshot();
+            if (snapshot != null && predicate.test(snapshot))
+                return snapshot;
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        throw new AssertionError("Expected snapshot was not published in time");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void awaitStatus(String sourceName, String key, long expected) throws InterruptedException {
+        long endTime = System.currentTimeMillis() + MAX_WAIT_MS;
+        Object value = null;
+        while (System.currentTimeMillis() < endTime) {
+            List<Map<String, Object>> sources = (List<Map<String, Object>>) scheduler.getStatus().get("sources");
+            value = sources.stream()
+                    .filter(source -> sourceName.equals(source.get("name")))
+                    .findAny()
+                    .map(source -> source.get(key))
+                    .orElse(null);
+            if (value instanceof Number && ((Number) value).longValue() == expected)
+                return;
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        throw new AssertionError(key + " of " + sourceName + " expected to be " + expected + " but was " + value);
+    }
+
+    private static Map<String, PriceData> prices(Object... codeAndPrice) {
+        Map<String, PriceData> map = new HashMap<>();
+        for (int i = 0; i < codeAndPrice.length; i += 2) {
+            String code = (String) codeAndPrice[i];
+            double price = ((Number) codeAndPrice[i + 1]).doubleValue();
+            map.put(code, new PriceData(code, price, price, price));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.pricefeed;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PriceSnapshotTest {
+    private static final long EPOCH = 1000;
+
+    @Test
+    public void testDeltaContainsOnlyChangedCurrencies() {
+        PriceSnapshot snapshot = snapshot(5);
+
+        PriceSnapshot delta = snapshot.getDeltaSince(EPOCH, 3);
+        assertEquals(1, delta.getPriceDataByCurrency().size());
+        assertTrue(delta.getPriceDataByCurrency().containsKey("USD"));
+        assertEquals(5, delta.getVersion());
+        assertTrue(json(delta).contains("\"full\": false"));
+        assertSame(delta, snapshot.getDeltaSince(EPOCH, 3));
+
+        assertTrue(snapshot.getDeltaSince(EPOCH, 5).getPriceDataByCurrency().isEmpty());
+        assertEquals(2, snapshot.getDeltaSince(EPOCH, 1).getPriceDataByCurrency().size());
+    }
+
+    @Test
+    public void testUnknownVersionGetsFullSnapshot() {
+        PriceSnapshot snapshot = snapshot(5);
+
+        assertSame(snapshot, snapshot.getDeltaSince(EPOCH + 1, 3));
+        assertSame(snapshot, snapshot.getDeltaSince(EPOCH, 6));
+        assertSame(snapshot, snapshot.getDeltaSince(EPOCH, -1));
+        assertFalse(json(snapshot).contains("\"full\""));
+    }
+
+    @Test
+    public void testDeltaCacheIsBounded() {
+        PriceSnapshot snapshot = snapshot(100);
+        PriceSnapshot firstDelta = snapshot.getDeltaSince(EPOCH, 0);
+        for (long version = 1; version <= 20; version++)
+            snapshot.getDeltaSince(EPOCH, version);
+
+        // The least recently used delta got removed, the latest ones are still cached
+        assertNotSame(firstDelta, snapshot.getDeltaSince(EPOCH, 0));
+        assertSame(snapshot.getDeltaSince(EPOCH, 20), snapshot.getDeltaSince(EPOCH, 20));
+    }
+
+    @Test
+    public void testDataIsSortedByCurrencyCode() {
+        Map<String, PriceData> priceDataByCurrency = new LinkedHashMap<>();
+        priceDataByCurrency.put("USD", new PriceData("USD", 2, 2, 2));
+        priceDataByCurrency.put("EUR", new PriceData("EUR", 1, 1, 1));
+        PriceSnapshot snapshot = new PriceSnapshot(EPOCH, 1, new HashMap<>(), 1, 2, 3, priceDataByCurrency);
+
+        String json = json(snapshot);
+        assertTrue(json.indexOf("EUR") < json.indexOf("USD"));
+        // Same content in another insertion order has the same bytes and ETag
+        assertArrayEquals(snapshot.getJson(), snapshot(1).getJson());
+        assertEquals(snapshot.getETag(), snapshot(1).getETag());
+    }
+
+    @Test
+    public void testEachEncodingHasItsOwnETag() {
+        PriceSnapshot snapshot = snapshot(1);
+        assertNotEquals(snapshot.getETag(), snapshot.getGzippedETag());
+        assertTrue(snapshot.getGzippedETag().startsWith("\"") && snapshot.getGzippedETag().endsWith("-gz\""));
+
+        assertTrue(snapshot.matches(snapshot.getETag()));
+        assertTrue(snapshot.matches("\"other\", W/" + snapshot.getGzippedETag()));
+        assertFalse(snapshot.matches("\"other\""));
+        assertFalse(snapshot(2).matches(snapshot.getGzippedETag()));
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(PriceSnapshot.acceptsGzip("gzip"));
+        assertTrue(PriceSnapshot.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(PriceSnapshot.acceptsGzip("x-gzip"));
+        assertTrue(PriceSnapshot.acceptsGzip("*"));
+        assertFalse(PriceSnapshot.acceptsGzip(null));
+        assertFalse(PriceSnapshot.acceptsGzip("identity"));
+        assertFalse(PriceSnapshot.acceptsGzip("gzip;q=0"));
+        assertFalse(PriceSnapshot.acceptsGzip("gzip; q=0.0, deflate"));
+        assertFalse(PriceSnapshot.acceptsGzip("*, gzip;q=0"));
+        assertFalse(PriceSnapshot.acceptsGzip("*;q=0"));
+        assertFalse(PriceSnapshot.acceptsGzip("gzipped"));
+    }
+
+    private static PriceSnapshot snapshot(long version) {
+        Map<String, PriceData> priceDataByCurrency = new HashMap<>();
+        priceDataByCurrency.put("EUR", new PriceData("EUR", 1, 1, 1));
+        priceDataByCurrency.put("USD", new PriceData("USD", 2, 2, 2));
+        Map<String, Long> versionByCurrency = new HashMap<>();
+        versionByCurrency.put("EUR", 2L);
+        versionByCurrency.put("USD", version);
+        return new PriceSnapshot(EPOCH, version, versionByCurrency, 1, 2, 3, priceDataByCurrency);
+    }
+
+    private static String json(PriceSnapshot snapshot) {
+        return new String(snapshot.getJson(), StandardCharsets.UTF_8);
+    }
+}
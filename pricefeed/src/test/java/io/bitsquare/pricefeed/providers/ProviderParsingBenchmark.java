@@ -0,0 +1,262 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.pricefeed.providers;
+
+import com.google.gson.Gson;
+import com.google.gson.internal.LinkedTreeMap;
+import io.bitsquare.btc.pricefeed.MarketPrice;
+import io.bitsquare.btc.pricefeed.PriceProvider;
+import io.bitsquare.locale.CurrencyUtil;
+import io.bitsquare.locale.TradeCurrency;
+import io.bitsquare.pricefeed.PriceData;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static java.lang.Double.parseDouble;
+
+/**
+ * Compares the streaming JSON parsing of the price providers and the PriceProvider client with the former parsing
+ * into Gson trees. Reports the average latency and the allocated bytes per parsed response.
+ * <p>
+ * The payloads are generated with the structure and size of the real provider responses (all Poloniex markets,
+ * 200 Coinmarketcap tickers, BitcoinAverage tickers with their nested averages and changes).
+ * <p>
+ * Run with: java -cp ... io.bitsquare.pricefeed.providers.ProviderParsingBenchmark [iterations]
+ */
+public class ProviderParsingBenchmark {
+    private interface Parser {
+        Object parse(String json) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Random random = new Random(1);
+        List<String> altcoins = CurrencyUtil.getAllSortedCryptoCurrencies().stream()
+                .map(TradeCurrency::getCode)
+                .collect(Collectors.toList());
+        List<String> fiatCurrencies = CurrencyUtil.getAllSortedFiatCurrencies().stream()
+                .map(TradeCurrency::getCode)
+                .collect(Collectors.toList());
+
+        String poloniexJson = createPoloniexPayload(altcoins, random);
+        String coinmarketcapJson = createCoinmarketcapPayload(altcoins, random);
+        String btcAverageJson = createBtcAveragePayload(fiatCurrencies, random);
+        String allJson = createAllPayload(fiatCurrencies, altcoins, random);
+
+        PoloniexProvider poloniexProvider = new PoloniexProvider();
+        CoinmarketcapProvider coinmarketcapProvider = new CoinmarketcapProvider();
+        BtcAverageProvider btcAverageProvider = new BtcAverageProvider("priv", "pub");
+        Set<String> supportedAltcoins = new HashSet<>(altcoins);
+
+        System.out.println(String.format("%-28s %10s %12s %16s", "payload / parser", "size (kb)", "avg (µs)", "alloc/parse (kb)"));
+        run("poloniex / tree", poloniexJson, iterations, json -> parsePoloniexTree(json, supportedAltcoins));
+        run("poloniex / streaming", poloniexJson, iterations, poloniexProvider::parse);
+        run("coinmarketcap / tree", coinmarketcapJson, iterations, json -> parseCoinmarketcapTree(json, supportedAltcoins));
+        run("coinmarketcap / streaming", coinmarketcapJson, iterations, coinmarketcapProvider::parse);
+        run("btcAverage / tree", btcAverageJson, iterations, ProviderParsingBenchmark::parseBtcAverageTree);
+        run("btcAverage / streaming", btcAverageJson, iterations, btcAverageProvider::getMap);
+        run("client all / tree", allJson, iterations, ProviderParsingBenchmark::parseAllTree);
+        run("client all / streaming", allJson, iterations, PriceProvider::parse);
+    }
+
+    private static void run(String name, String json, int iterations, Parser parser) throws Exception {
+        // Warm up
+        for (int i = 0; i < iterations; i++)
+            parser.parse(json);
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            parser.parse(json);
+        long duration = System.nanoTime() - startTime;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.println(String.format("%-28s %10.1f %12.1f %16.1f", name, json.length() / 1024d,
+                duration / 1000d / iterations, allocated / 1024d / iterations));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Tree based parsing as used before
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static Map<String, PriceData> parsePoloniexTree(String json, Set<String> supportedAltcoins) {
+        Map<String, PriceData> marketPriceMap = new HashMap<>();
+        LinkedTreeMap<String, Object> treeMap = new Gson().fromJson(json, LinkedTreeMap.class);
+        treeMap.entrySet().stream().forEach(e -> {
+            Object value = e.getValue();
+            String invertedCurrencyPair = e.getKey();
+            if (invertedCurrencyPair.startsWith("BTC")) {
+                String[] tokens = invertedCurrencyPair.split("_");
+                if (tokens.length == 2 && supportedAltcoins.contains(tokens[1]) && value instanceof LinkedTreeMap) {
+                    LinkedTreeMap<String, Object> data = (LinkedTreeMap) value;
+                    marketPriceMap.put(tokens[1], new PriceData(tokens[1], parseDouble((String) data.get("lowestAsk")),
+                            parseDouble((String) data.get("highestBid")), parseDouble((String) data.get("last"))));
+                }
+            }
+        });
+        return marketPriceMap;
+    }
+
+    private static Map<String, PriceData> parseCoinmarketcapTree(String json, Set<String> supportedAltcoins) {
+        Map<String, PriceData> marketPriceMap = new HashMap<>();
+        List<LinkedTreeMap<String, Object>> list = new Gson().fromJson(json, ArrayList.class);
+        list.stream().forEach(treeMap -> {
+            String code = (String) treeMap.get("symbol");
+            if (supportedAltcoins.contains(code)) {
+                double price_btc = parseDouble((String) treeMap.get("price_btc"));
+                marketPriceMap.put(code, new PriceData(code, price_btc, price_btc, price_btc));
+            }
+        });
+        return marketPriceMap;
+    }
+
+    private static Map<String, PriceData> parseBtcAverageTree(String json) {
+        Map<String, PriceData> marketPriceMap = new HashMap<>();
+        LinkedTreeMap<String, Object> treeMap = new Gson().<LinkedTreeMap<String, Object>>fromJson(json, LinkedTreeMap.class);
+        treeMap.entrySet().stream().forEach(e -> {
+            Object value = e.getValue();
+            if (value instanceof LinkedTreeMap) {
+                LinkedTreeMap<String, Object> data = (LinkedTreeMap) value;
+                String currencyCode = e.getKey().substring(3);
+                marketPriceMap.put(currencyCode,
+                        new PriceData(currencyCode, (double) data.get("ask"), (double) data.get("bid"), (double) data.get("last")));
+            }
+        });
+        return marketPriceMap;
+    }
+
+    private static Map<String, MarketPrice> parseAllTree(String json) {
+        Map<String, MarketPrice> marketPriceMap = new HashMap<>();
+        LinkedTreeMap<String, Object> map = new Gson().fromJson(json, LinkedTreeMap.class);
+        Map<String, Long> tsMap = new HashMap<>();
+        tsMap.put("btcAverageTs", ((Double) map.get("btcAverageTs")).longValue());
+        tsMap.put("poloniexTs", ((Double) map.get("poloniexTs")).longValue());
+        tsMap.put("coinmarketcapTs", ((Double) map.get("coinmarketcapTs")).longValue());
+        List<LinkedTreeMap<String, Object>> list = (ArrayList<LinkedTreeMap<String, Object>>) map.get("data");
+        list.stream().forEach(treeMap -> marketPriceMap.put((String) treeMap.get("c"),
+                new MarketPrice((String) treeMap.get("c"), (double) treeMap.get("a"), (double) treeMap.get("b"),
+                        (double) treeMap.get("l"))));
+        return marketPriceMap;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Payloads
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static String createPoloniexPayload(List<String> altcoins, Random random) {
+        StringBuilder sb = new StringBuilder("{");
+        List<String> markets = new ArrayList<>();
+        altcoins.stream().limit(100).forEach(code -> markets.add("BTC_" + code));
+        altcoins.stream().limit(40).forEach(code -> markets.add("ETH_" + code));
+        altcoins.stream().limit(30).forEach(code -> markets.add("USDT_" + code));
+        for (int i = 0; i < markets.size(); i++) {
+            if (i > 0)
+                sb.append(",");
+            double last = random.nextDouble();
+            sb.append("\"").append(markets.get(i)).append("\":{")
+                    .append("\"id\":").append(i).append(",")
+                    .append("\"last\":\"").append(format(last)).append("\",")
+                    .append("\"lowestAsk\":\"").append(format(last * 1.01)).append("\",")
+                    .append("\"highestBid\":\"").append(format(last * 0.99)).append("\",")
+                    .append("\"percentChange\":\"").append(format(random.nextDouble() - 0.5)).append("\",")
+                    .append("\"baseVolume\":\"").append(format(random.nextDouble() * 1000)).append("\",")
+                    .append("\"quoteVolume\":\"").append(format(random.nextDouble() * 100000)).append("\",")
+                    .append("\"isFrozen\":\"0\",")
+                    .append("\"high24hr\":\"").append(format(last * 1.05)).append("\",")
+                    .append("\"low24hr\":\"").append(format(last * 0.95)).append("\"}");
+        }
+        return sb.append("}").toString();
+    }
+
+    private static String createCoinmarketcapPayload(List<String> altcoins, Random random) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            if (i > 0)
+                sb.append(",");
+            String code = i < altcoins.size() ? altcoins.get(i) : "XX" + i;
+            double priceBtc = random.nextDouble();
+            sb.append("{")
+                    .append("\"id\":\"coin-").append(i).append("\",")
+                    .append("\"name\":\"Coin ").append(i).append("\",")
+                    .append("\"symbol\":\"").append(code).append("\",")
+                    .append("\"rank\":\"").append(i + 1).append("\",")
+                    .append("\"price_usd\":\"").append(format(priceBtc * 1000)).append("\",")
+                    .append("\"price_btc\":\"").append(format(priceBtc)).append("\",")
+                    .append("\"24h_volume_usd\":\"").append(format(random.nextDouble() * 1e6)).append("\",")
+                    .append("\"market_cap_usd\":").append(i % 10 == 0 ? "null" : "\"" + format(random.nextDouble() * 1e8) + "\"").append(",")
+                    .append("\"available_supply\":\"").append(format(random.nextDouble() * 1e7)).append("\",")
+                    .append("\"total_supply\":\"").append(format(random.nextDouble() * 1e7)).append("\",")
+                    .append("\"percent_change_1h\":\"").append(format(random.nextDouble())).append("\",")
+                    .append("\"percent_change_24h\":\"").append(format(random.nextDouble())).append("\",")
+                    .append("\"percent_change_7d\":\"").append(format(random.nextDouble())).append("\",")
+                    .append("\"last_updated\":\"1490000000\"}");
+        }
+        return sb.append("]").toString();
+    }
+
+    private static String createBtcAveragePayload(List<String> fiatCurrencies, Random random) {
+        StringBuilder sb = new StringBuilder("{");
+        for (String code : fiatCurrencies) {
+            double last = random.nextDouble() * 10000;
+            sb.append("\"BTC").append(code).append("\":{")
+                    .append("\"ask\":").append(format(last * 1.001)).append(",")
+                    .append("\"bid\":").append(format(last * 0.999)).append(",")
+                    .append("\"last\":").append(format(last)).append(",")
+                    .append("\"high\":").append(format(last * 1.05)).append(",")
+                    .append("\"low\":").append(format(last * 0.95)).append(",")
+                    .append("\"open\":{\"day\":").append(format(last)).append(",\"week\":").append(format(last))
+                    .append(",\"month\":").append(format(last)).append("},")
+                    .append("\"averages\":{\"day\":").append(format(last)).append(",\"week\":").append(format(last))
+                    .append(",\"month\":").append(format(last)).append("},")
+                    .append("\"volume\":").append(format(random.nextDouble() * 10000)).append(",")
+                    .append("\"changes\":{\"price\":{\"day\":1.5,\"week\":-3.2,\"month\":10.1},")
+                    .append("\"percent\":{\"day\":0.1,\"week\":-0.3,\"month\":1.1}},")
+                    .append("\"volume_percent\":").append(format(random.nextDouble())).append(",")
+                    .append("\"timestamp\":1490000000,")
+                    .append("\"display_timestamp\":\"2017-03-20 10:13:20\"},");
+        }
+        return sb.append("\"timestamp\":1490000000}").toString();
+    }
+
+    private static String createAllPayload(List<String> fiatCurrencies, List<String> altcoins, Random random) {
+        StringBuilder sb = new StringBuilder("{\n  \"btcAverageTs\": 1490000060,\n  \"poloniexTs\": 1490000030,\n" +
+                "  \"coinmarketcapTs\": 1490000000,\n  \"data\": [");
+        List<String> codes = new ArrayList<>(fiatCurrencies);
+        codes.addAll(altcoins);
+        for (int i = 0; i < codes.size(); i++) {
+            if (i > 0)
+                sb.append(",");
+            double last = random.nextDouble() * 1000;
+            sb.append("\n    {\n      \"c\": \"").append(codes.get(i)).append("\",\n")
+                    .append("      \"a\": ").append(format(last * 1.001)).append(",\n")
+                    .append("      \"b\": ").append(format(last * 0.999)).append(",\n")
+                    .append("      \"l\": ").append(format(last)).append("\n    }");
+        }
+        return sb.append("\n  ]\n}").toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.8f", value);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.pricefeed.providers;
+
+import io.bitsquare.btc.pricefeed.MarketPrice;
+import io.bitsquare.btc.pricefeed.PriceProvider;
+import io.bitsquare.common.util.Tuple2;
+import io.bitsquare.pricefeed.PriceData;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProviderParsingTest {
+    @Test
+    public void testPoloniex() throws IOException {
+        String json = "{\"BTC_LTC\":{\"id\":50,\"last\":\"0.0045\",\"lowestAsk\":\"0.0046\",\"highestBid\":\"0.0044\"," +
+                "\"percentChange\":\"-0.01\",\"isFrozen\":\"0\"}," +
+                "\"USDT_BTC\":{\"last\":\"1000.0\",\"lowestAsk\":\"1001.0\",\"highestBid\":\"999.0\"}," +
+                "\"BTC_NOTSUPPORTED\":{\"last\":\"1\",\"lowestAsk\":\"1\",\"highestBid\":\"1\"}}";
+        Map<String, PriceData> map = new PoloniexProvider().parse(json);
+
+        assertEquals(1, map.size());
+        assertPriceData(map.get("LTC"), "LTC", 0.0046, 0.0044, 0.0045);
+    }
+
+    @Test
+    public void testCoinmarketcap() throws IOException {
+        String json = "[{\"id\":\"litecoin\",\"symbol\":\"LTC\",\"rank\":\"4\",\"price_usd\":\"4.5\"," +
+                "\"price_btc\":\"0.0045\",\"market_cap_usd\":null}," +
+                "{\"id\":\"ethereum\",\"symbol\":\"ETH\",\"price_btc\":null}," +
+                "{\"id\":\"bitcoin\",\"symbol\":\"BTC\",\"price_btc\":\"1.0\"}]";
+        Map<String, PriceData> map = new CoinmarketcapProvider().parse(json);
+
+        assertEquals(1, map.size());
+        assertPriceData(map.get("LTC"), "LTC", 0.0045, 0.0045, 0.0045);
+    }
+
+    @Test
+    public void testBtcAverage() throws IOException {
+        String json = "{\"BTCUSD\":{\"ask\":1000.5,\"bid\":999.5,\"last\":1000.0,\"averages\":{\"day\":990.1," +
+                "\"week\":950.2},\"changes\":{\"price\":{\"day\":1.5},\"percent\":{\"day\":0.1}},\"volume\":1234.5}," +
+                "\"BTCEUR\":{\"last\":900,\"ask\":901,\"bid\":899}," +
+                "\"timestamp\":1490000000}";
+        Map<String, PriceData> map = new BtcAverageProvider("priv", "pub").getMap(json);
+
+        assertEquals(2, map.size());
+        assertPriceData(map.get("USD"), "USD", 1000.5, 999.5, 1000.0);
+        assertPriceData(map.get("EUR"), "EUR", 901, 899, 900);
+    }
+
+    @Test
+    public void testPriceProviderClient() throws IOException {
+        String json = "{\"btcAverageTs\":1490000060,\"poloniexTs\":1490000030,\"coinmarketcapTs\":1490000000," +
+                "\"data\":[{\"c\":\"USD\",\"a\":1000.5,\"b\":999.5,\"l\":1000.0}," +
+                "{\"c\":\"LTC\",\"a\":0.0046,\"b\":0.0044,\"l\":0.0045}]}";
+        Tuple2<Map<String, Long>, Map<String, MarketPrice>> result = PriceProvider.parse(json);
+
+        assertEquals(1490000060L, (long) result.first.get("btcAverageTs"));
+        assertEquals(1490000030L, (long) result.first.get("poloniexTs"));
+        assertEquals(1490000000L, (long) result.first.get("coinmarketcapTs"));
+        assertEquals(2, result.second.size());
+        assertTrue(result.second.get("USD").equals(new MarketPrice("USD", 1000.5, 999.5, 1000.0)));
+        assertTrue(result.second.get("LTC").equals(new MarketPrice("LTC", 0.0046, 0.0044, 0.0045)));
+    }
+
+    private static void assertPriceData(PriceData priceData, String currencyCode, double ask, double bid, double last) {
+        assertEquals(currencyCode, priceData.c);
+        assertEquals(ask, priceData.a, 0);
+        assertEquals(bid, priceData.b, 0);
+        assertEquals(last, priceData.l, 0);
+    }
+}
@@ -6,6 +6,7 @@ import com.google.inject.Injector;
 import io.bitsquare.app.AppOptionKeys;
 import io.bitsquare.app.BitsquareEnvironment;
 import io.bitsquare.app.Log;
+import io.bitsquare.app.StartupOrchestrator;
 import io.bitsquare.app.Version;
 import io.bitsquare.arbitration.ArbitratorManager;
 import io.bitsquare.btc.WalletService;
@@ -16,6 +17,8 @@ import io.bitsquare.common.util.LimitedKeyStrengthException;
 import io.bitsquare.common.util.Utilities;
 import io.bitsquare.p2p.BootstrapListener;
 import io.bitsquare.p2p.P2PService;
+import io.bitsquare.storage.Storage;
+import io.bitsquare.storage.StorageLoader;
 import io.bitsquare.trade.offer.OpenOfferManager;
 import io.bitsquare.trade.statistics.TradeStatisticsManager;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -25,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 
+import java.io.File;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.security.Security;
@@ -76,18 +80,26 @@ public class SeedNode {
         Security.addProvider(new BouncyCastleProvider());
 
 
+        long createServicesStartNanos = System.nanoTime();
+        StorageLoader.getInstance().preload(new File(env.getRequiredProperty(Storage.DIR_KEY)));
         seedNodeModule = new SeedNodeModule(env);
         injector = Guice.createInjector(seedNodeModule);
         Version.setBtcNetworkId(injector.getInstance(BitsquareEnvironment.class).getBitcoinNetwork().ordinal());
         p2pService = injector.getInstance(P2PService.class);
-        p2pService.start(new BootstrapListener() {
-            @Override
-            public void onBootstrapComplete() {
-            }
-        });
 
         // We want to persist trade statistics so we need to instantiate the tradeStatisticsManager
         tradeStatisticsManager = injector.getInstance(TradeStatisticsManager.class);
+        StorageLoader.getInstance().onStartupCompleted();
+
+        StartupOrchestrator startup = injector.getInstance(StartupOrchestrator.class);
+        startup.recordPhase(StartupOrchestrator.CREATE_SERVICES, createServicesStartNanos, System.nanoTime());
+        startup.addPhase("p2pNetwork", phase -> p2pService.start(new BootstrapListener() {
+            @Override
+            public void onBootstrapComplete() {
+                phase.complete();
+            }
+        }));
+        startup.start();
     }
 
     public void shutDown() {
@@ -17,13 +17,15 @@
 
 package io.bitsquare.seednode;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.bitsquare.app.AppOptionKeys;
 import io.bitsquare.app.BitsquareEnvironment;
 import io.bitsquare.app.BitsquareExecutable;
+import io.bitsquare.common.EventLoopExecutor;
+import io.bitsquare.common.TimingWheelTimer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.common.util.Profiler;
 import io.bitsquare.common.util.RestartUtil;
+import io.bitsquare.storage.PersistenceScheduler;
 import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -33,8 +35,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 
 import static io.bitsquare.app.BitsquareEnvironment.DEFAULT_APP_NAME;
 import static io.bitsquare.app.BitsquareEnvironment.DEFAULT_USER_DATA_DIR;
@@ -46,13 +46,12 @@ public class SeedNodeMain extends BitsquareExecutable {
     private SeedNode seedNode;
     private volatile boolean stopped;
     private static long maxMemory = MAX_MEMORY_MB_DEFAULT;
+    private static EventLoopExecutor userThreadExecutor;
 
     public static void main(String[] args) throws Exception {
-        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                .setNameFormat("SeedNodeMain")
-                .setDaemon(true)
-                .build();
-        UserThread.setExecutor(Executors.newSingleThreadExecutor(threadFactory));
+        userThreadExecutor = new EventLoopExecutor("SeedNodeMain");
+        UserThread.setExecutor(userThreadExecutor);
+        UserThread.setTimerClass(TimingWheelTimer.class);
 
         // We don't want to do the full argument parsing here as that might easily change in update versions
         // So we only handle the absolute minimum which is APP_NAME, APP_DATA_DIR_KEY and USER_DATA_DIR
@@ -123,6 +122,8 @@ public class SeedNodeMain extends BitsquareExecutable {
 
         UserThread.runPeriodically(() -> {
             Profiler.printSystemLoad(log);
+            userThreadExecutor.logStats();
+            PersistenceScheduler.getInstance().logStats();
             long usedMemoryInMB = Profiler.getUsedMemoryInMB();
             if (!stopped) {
                 if (usedMemoryInMB > (maxMemory - 100)) {
@@ -21,6 +21,7 @@ import com.google.inject.Singleton;
 import io.bitsquare.alert.AlertModule;
 import io.bitsquare.app.AppModule;
 import io.bitsquare.app.BitsquareEnvironment;
+import io.bitsquare.app.StartupOrchestrator;
 import io.bitsquare.arbitration.ArbitratorModule;
 import io.bitsquare.btc.BitcoinModule;
 import io.bitsquare.common.Clock;
@@ -56,6 +57,7 @@ class SeedNodeModule extends AppModule {
         bind(User.class).in(Singleton.class);
         bind(Preferences.class).in(Singleton.class);
         bind(Clock.class).in(Singleton.class);
+        bind(StartupOrchestrator.class).in(Singleton.class);
 
         File storageDir = new File(env.getRequiredProperty(Storage.DIR_KEY));
         bind(File.class).annotatedWith(named(Storage.DIR_KEY)).toInstance(storageDir);
@@ -6,6 +6,7 @@ import com.google.inject.Injector;
 import io.bitsquare.app.AppOptionKeys;
 import io.bitsquare.app.BitsquareEnvironment;
 import io.bitsquare.app.Log;
+import io.bitsquare.app.StartupOrchestrator;
 import io.bitsquare.app.Version;
 import io.bitsquare.arbitration.ArbitratorManager;
 import io.bitsquare.btc.WalletService;
@@ -18,6 +19,8 @@ import io.bitsquare.common.util.Utilities;
 import io.bitsquare.locale.CurrencyUtil;
 import io.bitsquare.p2p.BootstrapListener;
 import io.bitsquare.p2p.P2PService;
+import io.bitsquare.storage.Storage;
+import io.bitsquare.storage.StorageLoader;
 import io.bitsquare.trade.offer.OfferBookService;
 import io.bitsquare.trade.offer.OpenOfferManager;
 import io.bitsquare.trade.statistics.TradeStatisticsManager;
@@ -28,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 
+import java.io.File;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.security.Security;
@@ -81,26 +85,43 @@ public class Statistics {
         Security.addProvider(new BouncyCastleProvider());
 
 
+        long createServicesStartNanos = System.nanoTime();
+        StorageLoader.getInstance().preload(new File(env.getRequiredProperty(Storage.DIR_KEY)));
         statisticsModule = new StatisticsModule(env);
         injector = Guice.createInjector(statisticsModule);
         Version.setBtcNetworkId(injector.getInstance(BitsquareEnvironment.class).getBitcoinNetwork().ordinal());
         p2pService = injector.getInstance(P2PService.class);
-        p2pService.start(new BootstrapListener() {
-            @Override
-            public void onBootstrapComplete() {
-            }
-        });
 
         // We want to persist trade statistics so we need to instantiate the tradeStatisticsManager
         tradeStatisticsManager = injector.getInstance(TradeStatisticsManager.class);
         offerBookService = injector.getInstance(OfferBookService.class);
         priceFeedService = injector.getInstance(PriceFeedService.class);
+        StorageLoader.getInstance().onStartupCompleted();
 
-        // We need the price feed for market based offers
-        priceFeedService.setCurrencyCode(CurrencyUtil.getDefaultTradeCurrency().getCode());
-        priceFeedService.setType(PriceFeedService.Type.LAST);
-        priceFeedService.init(price -> log.debug("price " + price),
-                (errorMessage, throwable) -> log.warn(throwable.getMessage()));
+        // The P2P network and the price feed don't depend on each other, so we start both at once
+        StartupOrchestrator startup = injector.getInstance(StartupOrchestrator.class);
+        startup.recordPhase(StartupOrchestrator.CREATE_SERVICES, createServicesStartNanos, System.nanoTime());
+        startup.addPhase("p2pNetwork", phase -> p2pService.start(new BootstrapListener() {
+            @Override
+            public void onBootstrapComplete() {
+                phase.complete();
+            }
+        }));
+        startup.addPhase("priceFeed", phase -> {
+            // We need the price feed for market based offers
+            priceFeedService.setCurrencyCode(CurrencyUtil.getDefaultTradeCurrency().getCode());
+            priceFeedService.setType(PriceFeedService.Type.LAST);
+            priceFeedService.init(price -> {
+                        log.debug("price " + price);
+                        phase.complete();
+                    },
+                    (errorMessage, throwable) -> {
+                        log.warn(throwable.getMessage());
+                        // The price feed retries, so a later price can still complete the phase
+                        phase.reportError(errorMessage);
+                    });
+        });
+        startup.start();
     }
 
     public void shutDown() {